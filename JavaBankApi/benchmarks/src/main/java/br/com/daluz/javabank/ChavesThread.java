@@ -0,0 +1,69 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+
+/**
+ * Sequência de números de conta e de banco de cada thread do benchmark.
+ * <p>
+ * As sequências são geradas antes da medição, com semente fixa por thread,
+ * para que duas execuções usem exatamente as mesmas chaves.
+ */
+@State(Scope.Thread)
+public class ChavesThread {
+    private static final int QUANTIDADE = 1 << 16;
+    private static final long SEMENTE = 0x4A617661_42616E6BL;
+
+    private int[] contas;
+    private int[] bancos;
+    private int proxima;
+    private long proximaChave;
+
+    @Setup(Level.Trial)
+    public void preparar(EstadoBanco estado, ThreadParams thread) {
+        Random aleatorio = new Random(SEMENTE + thread.getThreadIndex());
+        boolean quente = "quente".equals(estado.distribuicao);
+        int contasQuentes = Math.max(1, estado.contas / 100);
+
+        // As chaves de idempotência de cada thread não se repetem nem se misturam com as das outras.
+        proximaChave = (long) (thread.getThreadIndex() + 1) << 40;
+        contas = new int[QUANTIDADE];
+        bancos = new int[QUANTIDADE];
+        for (int i = 0; i < QUANTIDADE; i++) {
+            boolean acessoQuente = quente && aleatorio.nextInt(10) != 0;
+            contas[i] = acessoQuente ? aleatorio.nextInt(contasQuentes) : aleatorio.nextInt(estado.contas);
+            bancos[i] = acessoQuente ? 1 : 1 + aleatorio.nextInt(EstadoBanco.QUANTIDADE_BANCOS);
+        }
+    }
+
+    /**
+     * Avança para a próxima posição da sequência.
+     *
+     * @return Retorna a posição atual.
+     */
+    int proxima() {
+        return proxima++ & (QUANTIDADE - 1);
+    }
+
+    int conta(int posicao) {
+        return contas[posicao];
+    }
+
+    int banco(int posicao) {
+        return bancos[posicao];
+    }
+
+    /**
+     * Chave de idempotência ainda não usada.
+     *
+     * @return Retorna uma chave nova.
+     */
+    long chaveNova() {
+        return ++proximaChave;
+    }
+}
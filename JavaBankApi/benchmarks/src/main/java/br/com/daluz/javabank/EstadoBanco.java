@@ -0,0 +1,56 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Banco Central usado pelos benchmarks de operações.
+ * <p>
+ * Tem {@value #QUANTIDADE_BANCOS} bancos (números 1 a {@value #QUANTIDADE_BANCOS});
+ * os bancos 1 e 2 têm {@link #contas} contas cada, numeradas de 0 a contas - 1.
+ * O estado é refeito a cada iteração, para que o extrato das contas não cresça
+ * de uma iteração para outra.
+ */
+@State(Scope.Benchmark)
+public class EstadoBanco {
+    static final int QUANTIDADE_BANCOS = 8;
+    static final long SALDO_INICIAL = Dinheiro.deReais(1_000_000_000L);
+
+    /**
+     * Quantidade de contas em cada um dos bancos 1 e 2.
+     */
+    @Param({"1000", "100000"})
+    public int contas;
+
+    /**
+     * Distribuição dos números de conta usados: "uniforme" ou "quente"
+     * (90% dos acessos em 1% das contas).
+     */
+    @Param({"uniforme", "quente"})
+    public String distribuicao;
+
+    BancoCentral bancoCentral;
+    Banco banco;
+    Banco outroBanco;
+    Conta[] contasBanco;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        bancoCentral = new BancoCentral();
+        for (int b = 1; b <= QUANTIDADE_BANCOS; b++) {
+            bancoCentral.criarBanco(new Banco(b, "Banco " + b));
+        }
+        banco = bancoCentral.getBancoPorNumero(1);
+        outroBanco = bancoCentral.getBancoPorNumero(2);
+
+        contasBanco = new Conta[contas];
+        for (int i = 0; i < contas; i++) {
+            contasBanco[i] = new ContaCorrente(1, i, "Titular " + i, banco.getBancoNome(), SALDO_INICIAL, 1234);
+            banco.criarConta(contasBanco[i]);
+            outroBanco.criarConta(new ContaCorrente(2, i, "Titular " + i, outroBanco.getBancoNome(), SALDO_INICIAL, 1234));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ponto de entrada do jar de benchmarks.
+ * <p>
+ * Aceita as opções normais do JMH e mais a opção {@code --threads=1,4,16},
+ * que executa os benchmarks selecionados uma vez para cada quantidade de threads.
+ * Sem essa opção, o comportamento é o do JMH.
+ * <pre>
+ *   java -jar target/benchmarks.jar OperacoesBenchmark --threads=1,4,16 -rf json -rff resultado.json
+ * </pre>
+ */
+public final class ExecutarBenchmarks {
+    private static final String OPCAO_THREADS = "--threads=";
+
+    private ExecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        List<String> opcoesJmh = new ArrayList<>();
+        List<Integer> threads = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(OPCAO_THREADS)) {
+                for (String quantidade : arg.substring(OPCAO_THREADS.length()).split(",")) {
+                    threads.add(Integer.parseInt(quantidade.trim()));
+                }
+            } else {
+                opcoesJmh.add(arg);
+            }
+        }
+
+        CommandLineOptions opcoes = new CommandLineOptions(opcoesJmh.toArray(new String[0]));
+        if (threads.isEmpty()) {
+            new Runner(opcoes).run();
+            return;
+        }
+
+        String arquivoResultado = opcoes.getResult().orElse(null);
+        for (int quantidade : threads) {
+            OptionsBuilder execucao = new OptionsBuilder();
+            execucao.parent(opcoes).threads(quantidade);
+            if (arquivoResultado != null) {
+                // Um arquivo de resultado por quantidade de threads, para não sobrescrever.
+                execucao.result(comSufixo(arquivoResultado, "-" + quantidade + "t"));
+            }
+            new Runner(execucao.build()).run();
+        }
+    }
+
+    /**
+     * Acrescenta o sufixo ao nome do arquivo, antes da extensão.
+     */
+    private static String comSufixo(String arquivo, String sufixo) {
+        int ponto = arquivo.lastIndexOf('.');
+        int separador = Math.max(arquivo.lastIndexOf('/'), arquivo.lastIndexOf('\\'));
+        if (ponto <= separador + 1) {
+            return arquivo + sufixo;
+        }
+        return arquivo.substring(0, ponto) + sufixo + arquivo.substring(ponto);
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Vazão da exportação de extratos ({@link BancoCentral#exportarExtratos}), em
+ * operações por segundo, por formato, com e sem gzip, conforme o paralelismo
+ * do ForkJoinPool. Dois bancos com {@value #CONTAS_POR_BANCO} contas, cada
+ * uma com {@value #OPERACOES_POR_CONTA} operações; os arquivos vão para um
+ * diretório temporário, apagado no fim.
+ * <pre>
+ *   java -jar target/benchmarks.jar ExportacaoBenchmark -p paralelismo=1,2,4,8
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ExportacaoBenchmark {
+    private static final int CONTAS_POR_BANCO = 20_000;
+    private static final int OPERACOES_POR_CONTA = 10;
+    private static final int OPERACOES = 2 * CONTAS_POR_BANCO * OPERACOES_POR_CONTA;
+
+    @Param({"csv", "binario"})
+    public String formato;
+
+    @Param({"false", "true"})
+    public boolean compactar;
+
+    @Param({"1", "4"})
+    public int paralelismo;
+
+    private BancoCentral bancoCentral;
+    private ForkJoinPool pool;
+    private Path diretorio;
+
+    @Setup(Level.Trial)
+    public void prepararBancos() throws IOException {
+        bancoCentral = new BancoCentral();
+        for (int b = 1; b <= 2; b++) {
+            Banco banco = new Banco(b, "Banco " + b);
+            bancoCentral.criarBanco(banco);
+            for (int i = 0; i < CONTAS_POR_BANCO; i++) {
+                Conta conta = new ContaCorrente(b, i, "Titular " + i, banco.getBancoNome(), EstadoBanco.SALDO_INICIAL, 1234);
+                banco.criarConta(conta);
+                for (int k = 0; k < OPERACOES_POR_CONTA; k++) {
+                    if (k % 2 == 0) {
+                        banco.tentarDeposito(conta, conta, 12_345);
+                    } else {
+                        banco.tentarSaque(conta, 1_000);
+                    }
+                }
+            }
+        }
+        pool = new ForkJoinPool(paralelismo);
+        diretorio = Files.createTempDirectory("exportacao");
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERACOES)
+    public ResumoExportacao exportarExtratos() throws IOException {
+        return bancoCentral.exportarExtratos(diretorio,
+                "csv".equals(formato) ? ExportacaoExtratos.CSV : ExportacaoExtratos.BINARIO, compactar, pool);
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo para imprimir o extrato de uma conta com a quantidade de operações informada.
+ * A saída padrão é descartada durante a medição.
+ * <p>
+ * {@link #escreverNoCanal} escreve o mesmo extrato por uma {@link SaidaTexto}
+ * num canal descartado, codificado em UTF-8, em pedaços de até 64 KiB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtratoBenchmark {
+
+    /**
+     * Quantidade de operações no extrato.
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int operacoes;
+
+    private Conta conta;
+    private PrintStream saidaOriginal;
+    private SaidaTexto canal;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        BancoCentral bancoCentral = new BancoCentral();
+        Banco banco = new Banco(1, "Banco 1");
+        Banco outroBanco = new Banco(2, "Banco 2");
+        bancoCentral.criarBanco(banco);
+        bancoCentral.criarBanco(outroBanco);
+
+        conta = new ContaCorrente(1, 1, "Titular 1", banco.getBancoNome(), Dinheiro.deReais(1_000_000), 1234);
+        Conta outraConta = new ContaCorrente(1, 2, "Titular 2", banco.getBancoNome(), 0, 1234);
+        banco.criarConta(conta);
+        banco.criarConta(outraConta);
+        outroBanco.criarConta(new ContaCorrente(2, 1, "Titular 3", outroBanco.getBancoNome(), 0, 1234));
+
+        // Alterna os tipos de operação, para o extrato ter todos os formatos.
+        for (int i = 0; i < operacoes; i++) {
+            switch (i % 4) {
+                case 0 -> banco.fazerDeposito(conta, conta, 12_345);
+                case 1 -> banco.fazerSaque(conta, 1_000);
+                case 2 -> banco.fazerTransferenciaInterna(conta, outraConta, 2_500);
+                default -> bancoCentral.fazerTransferenciaEntreBancos(banco, conta, 3_000, 2, 1);
+            }
+        }
+
+        canal = new SaidaTexto(Channels.newChannel(OutputStream.nullOutputStream()),
+                StandardCharsets.UTF_8, SaidaTexto.LIMITE_PADRAO);
+        saidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restaurar() {
+        System.setOut(saidaOriginal);
+    }
+
+    @Benchmark
+    public void imprimirExtrato() {
+        conta.imprimirExtrato();
+    }
+
+    @Benchmark
+    public void escreverNoCanal() {
+        conta.imprimirExtrato(canal, Long.MIN_VALUE, Long.MAX_VALUE);
+        canal.flush();
+    }
+}
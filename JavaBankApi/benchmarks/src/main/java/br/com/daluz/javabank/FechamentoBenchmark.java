@@ -0,0 +1,79 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão do fechamento mensal ({@link BancoCentral#fecharMes}), em contas por
+ * segundo, conforme o paralelismo do ForkJoinPool. Dois bancos com
+ * {@value #CONTAS_POR_BANCO} contas cada, metade corrente e metade poupança;
+ * cada chamada fecha uma competência nova.
+ * <pre>
+ *   java -jar target/benchmarks.jar FechamentoBenchmark -p paralelismo=1,2,4,8
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FechamentoBenchmark {
+    private static final int CONTAS_POR_BANCO = 100_000;
+    private static final int CONTAS = 2 * CONTAS_POR_BANCO;
+
+    @Param({"1", "2", "4", "8"})
+    public int paralelismo;
+
+    private BancoCentral bancoCentral;
+    private ForkJoinPool pool;
+    private int ano;
+    private int mes;
+
+    @Setup(Level.Trial)
+    public void prepararBancos() {
+        bancoCentral = new BancoCentral();
+        for (int b = 1; b <= 2; b++) {
+            Banco banco = new Banco(b, "Banco " + b);
+            bancoCentral.criarBanco(banco);
+            for (int i = 0; i < CONTAS_POR_BANCO; i++) {
+                banco.criarConta((i % 2 == 0)
+                        ? new ContaCorrente(b, i, "Titular " + i, banco.getBancoNome(), EstadoBanco.SALDO_INICIAL, 1234)
+                        : new ContaPoupanca(b, i, "Titular " + i, banco.getBancoNome(), EstadoBanco.SALDO_INICIAL, 1234));
+            }
+        }
+        pool = new ForkJoinPool(paralelismo);
+        ano = 2000;
+        mes = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrarPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONTAS)
+    public ResumoFechamento fecharMes() {
+        if (++mes > 12) {
+            mes = 1;
+            ano++;
+        }
+        return bancoCentral.fecharMes(ano * 100 + mes, pool);
+    }
+}
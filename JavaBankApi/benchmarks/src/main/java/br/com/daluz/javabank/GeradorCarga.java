@@ -0,0 +1,349 @@
+package br.com.daluz.javabank;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Gerador de carga do servidor de transações.
+ * <p>
+ * Abre várias conexões, cada uma numa thread, e repete operações aleatórias
+ * (50% saldo, 15% saque, 15% depósito, 15% transferência interna e 5%
+ * externa) durante o tempo pedido. No fim mostra a vazão, as recusas e os
+ * percentis da latência de ida e volta.
+ * <p>
+ * Sem --host, sobe um servidor no próprio processo, em 127.0.0.1, com os
+ * bancos 1 e 2 de {@code --contas} contas cada (senha 1234). Com
+ * {@code --contas-quentes}, só essa quantidade de contas por banco fica como
+ * objeto no heap; as demais ficam no armazém frio.
+ * <p>
+ * Com {@code --shards=N}, o Banco Central é particionado: sobem N processos
+ * (nós), cada um com uma faixa das contas de cada banco, e as conexões usam
+ * um {@link RoteadorShards}. As transferências entre contas de nós
+ * diferentes passam pelos passos do roteador.
+ * <pre>
+ *   java -cp target/benchmarks.jar br.com.daluz.javabank.GeradorCarga --conexoes=1000 --segundos=30
+ *   java -cp target/benchmarks.jar br.com.daluz.javabank.GeradorCarga --host=127.0.0.1 --porta=7000 --contas=5
+ *   java -cp target/benchmarks.jar br.com.daluz.javabank.GeradorCarga --shards=4 --conexoes=1000
+ * </pre>
+ */
+public final class GeradorCarga {
+    private static final int SENHA = 1234;
+    private static final long SALDO_INICIAL = Dinheiro.deReais(1_000_000_000L);
+    private static final long SEMENTE = 0x4A617661_42616E6BL;
+    private static final int SEGREDO_NOS = 0x5EC2E7;
+
+    private GeradorCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = null;
+        int porta = 0;
+        int conexoes = 500;
+        int segundos = 10;
+        int contas = 10_000;
+        int contasQuentes = 0;
+        int threadsServidor = Runtime.getRuntime().availableProcessors() * 4;
+        int shards = 0;
+        int no = -1;
+        for (String arg : args) {
+            String valor = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--host=")) host = valor;
+            else if (arg.startsWith("--porta=")) porta = Integer.parseInt(valor);
+            else if (arg.startsWith("--conexoes=")) conexoes = Integer.parseInt(valor);
+            else if (arg.startsWith("--segundos=")) segundos = Integer.parseInt(valor);
+            else if (arg.startsWith("--contas=")) contas = Integer.parseInt(valor);
+            else if (arg.startsWith("--contas-quentes=")) contasQuentes = Integer.parseInt(valor);
+            else if (arg.startsWith("--threads-servidor=")) threadsServidor = Integer.parseInt(valor);
+            else if (arg.startsWith("--shards=")) shards = Integer.parseInt(valor);
+            else if (arg.startsWith("--no=")) no = Integer.parseInt(valor);
+            else throw new IllegalArgumentException("Opção desconhecida: " + arg);
+        }
+
+        if (no >= 0) {
+            servirNo(particionar(contas, shards), no, contas, contasQuentes, threadsServidor);
+            return;
+        }
+
+        ServidorTransacoes servidor = null;
+        List<Process> nos = new ArrayList<>();
+        MapaShards mapa;
+        List<InetSocketAddress> enderecos = new ArrayList<>();
+        if (shards > 0) {
+            mapa = particionar(contas, shards);
+            for (int i = 0; i < shards; i++) {
+                Process processo = iniciarNo(i, shards, contas, contasQuentes, threadsServidor);
+                nos.add(processo);
+                enderecos.add(new InetSocketAddress("127.0.0.1", lerPorta(processo)));
+            }
+        } else {
+            if (host == null) {
+                host = "127.0.0.1";
+                servidor = new ServidorTransacoes(criarBancoCentral(contas, contasQuentes),
+                        new InetSocketAddress(host, porta), threadsServidor);
+                servidor.iniciar();
+                porta = servidor.getPorta();
+            }
+            mapa = MapaShards.ler("1=0,2=0");
+            enderecos.add(new InetSocketAddress(host, porta));
+        }
+
+        System.out.println("Conexões: " + conexoes + ", duração: " + segundos + " s, contas por banco: " + contas
+                + ((shards > 0) ? ", nós: " + shards : ""));
+        List<Carga> cargas = new ArrayList<>();
+        CountDownLatch conectadas = new CountDownLatch(conexoes);
+        CountDownLatch largada = new CountDownLatch(1);
+        for (int i = 0; i < conexoes; i++) {
+            Carga carga = new Carga(mapa, enderecos, contas, new Random(SEMENTE + i), conectadas, largada);
+            cargas.add(carga);
+            carga.start();
+        }
+        conectadas.await();
+        long inicio = System.nanoTime();
+        long fim = inicio + segundos * 1_000_000_000L;
+        for (Carga carga : cargas) {
+            carga.fim = fim;
+        }
+        largada.countDown();
+        for (Carga carga : cargas) {
+            carga.join();
+        }
+        long duracao = System.nanoTime() - inicio;
+
+        if (servidor != null) {
+            servidor.close();
+        }
+        for (Process processo : nos) {
+            // O nó termina quando a entrada dele é fechada.
+            processo.getOutputStream().close();
+            processo.waitFor();
+        }
+        relatar(cargas, duracao);
+    }
+
+    /**
+     * Mapa com as contas de cada banco divididas em faixas iguais, uma por nó.
+     */
+    static MapaShards particionar(int contas, int nos) {
+        StringBuilder descricao = new StringBuilder();
+        for (int b = 1; b <= 2; b++) {
+            for (int i = 0; i < nos; i++) {
+                long inicio = (long) contas * i / nos;
+                long fim = (long) contas * (i + 1) / nos - 1;
+                if (inicio <= fim) {
+                    descricao.append((descricao.length() == 0) ? "" : ",")
+                            .append(b).append(':').append(inicio).append('-').append(fim).append('=').append(i);
+                }
+            }
+        }
+        return MapaShards.ler(descricao.toString());
+    }
+
+    /**
+     * Sobe um nó num processo novo, com o mesmo classpath.
+     */
+    private static Process iniciarNo(int no, int shards, int contas, int contasQuentes, int threadsServidor)
+            throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                GeradorCarga.class.getName(), "--no=" + no, "--shards=" + shards, "--contas=" + contas,
+                "--contas-quentes=" + contasQuentes, "--threads-servidor=" + threadsServidor)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Porta do nó, que ele escreve na primeira linha da saída.
+     */
+    private static int lerPorta(Process processo) throws IOException {
+        BufferedReader saida = new BufferedReader(new InputStreamReader(processo.getInputStream(),
+                StandardCharsets.UTF_8));
+        String linha = saida.readLine();
+        if (linha == null) {
+            throw new IOException("O nó terminou sem informar a porta.");
+        }
+        return Integer.parseInt(linha.trim());
+    }
+
+    /**
+     * Atende como um nó até a entrada ser fechada: só as contas do nó, numa porta livre.
+     */
+    private static void servirNo(MapaShards mapa, int no, int contas, int contasQuentes, int threadsServidor)
+            throws IOException {
+        BancoCentral bancoCentral = criarBancoCentral(contas, contasQuentes, mapa, no);
+        try (ServidorTransacoes servidor = new ServidorTransacoes(bancoCentral,
+                new InetSocketAddress("127.0.0.1", 0), threadsServidor)) {
+            servidor.usarSegredoNos(SEGREDO_NOS);
+            servidor.iniciar();
+            System.out.println(servidor.getPorta());
+            System.out.flush();
+            while (System.in.read() != -1) {
+                // Espera a entrada ser fechada.
+            }
+        }
+    }
+
+    /**
+     * Banco Central com os bancos 1 e 2, cada um com contas numeradas de 0 a contas - 1.
+     */
+    static BancoCentral criarBancoCentral(int contas) {
+        return criarBancoCentral(contas, 0);
+    }
+
+    /**
+     * Banco Central com os bancos 1 e 2, mantendo no heap no máximo contasQuentes contas por banco (0 para todas).
+     */
+    static BancoCentral criarBancoCentral(int contas, int contasQuentes) {
+        return criarBancoCentral(contas, contasQuentes, null, 0);
+    }
+
+    /**
+     * Banco Central de um nó: os bancos 1 e 2, só com as contas que o mapa coloca no nó (todas, sem mapa).
+     */
+    static BancoCentral criarBancoCentral(int contas, int contasQuentes, MapaShards mapa, int no) {
+        BancoCentral bancoCentral = new BancoCentral();
+        if (contasQuentes > 0) {
+            bancoCentral.usarArmazemFrio(contasQuentes);
+        }
+        for (int b = 1; b <= 2; b++) {
+            Banco banco = new Banco(b, "Banco " + b);
+            bancoCentral.criarBanco(banco);
+            for (int i = 0; i < contas; i++) {
+                if (mapa != null && mapa.getNo(b, i) != no) {
+                    continue;
+                }
+                banco.criarConta(new ContaCorrente(b, i, "Titular " + i, banco.getBancoNome(), SALDO_INICIAL, SENHA));
+            }
+        }
+        return bancoCentral;
+    }
+
+    private static void relatar(List<Carga> cargas, long duracao) {
+        int total = 0;
+        long recusas = 0;
+        long falhas = 0;
+        for (Carga carga : cargas) {
+            total += carga.quantidade;
+            recusas += carga.recusas;
+            falhas += carga.falha ? 1 : 0;
+        }
+
+        long[] latencias = new long[total];
+        int posicao = 0;
+        for (Carga carga : cargas) {
+            System.arraycopy(carga.latencias, 0, latencias, posicao, carga.quantidade);
+            posicao += carga.quantidade;
+        }
+        Arrays.sort(latencias);
+
+        System.out.printf("Operações: %d (%d recusadas), conexões com falha: %d%n", total, recusas, falhas);
+        System.out.printf("Vazão: %.0f op/s%n", total / (duracao / 1e9));
+        if (total > 0) {
+            System.out.printf("Latência (us): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  máx %.1f%n",
+                    percentil(latencias, 0.50), percentil(latencias, 0.90), percentil(latencias, 0.99),
+                    percentil(latencias, 0.999), latencias[total - 1] / 1e3);
+        }
+    }
+
+    private static double percentil(long[] ordenadas, double fracao) {
+        int i = (int) Math.ceil(fracao * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, i)] / 1e3;
+    }
+
+    /**
+     * Uma conexão e a thread que a usa.
+     */
+    private static final class Carga extends Thread {
+        private final MapaShards mapa;
+        private final List<InetSocketAddress> enderecos;
+        private final int contas;
+        private final Random aleatorio;
+        private final CountDownLatch conectadas;
+        private final CountDownLatch largada;
+        private long fim;
+        private long[] latencias = new long[1024];
+        private int quantidade;
+        private long recusas;
+        private boolean falha;
+
+        private Carga(MapaShards mapa, List<InetSocketAddress> enderecos, int contas, Random aleatorio,
+                      CountDownLatch conectadas, CountDownLatch largada) {
+            super("carga");
+            this.mapa = mapa;
+            this.enderecos = enderecos;
+            this.contas = contas;
+            this.aleatorio = aleatorio;
+            this.conectadas = conectadas;
+            this.largada = largada;
+        }
+
+        @Override
+        public void run() {
+            RoteadorShards cliente = new RoteadorShards(mapa, enderecos, SEGREDO_NOS);
+            try {
+                cliente.conectar();
+            } catch (IOException e) {
+                cliente.close();
+                falha = true;
+                conectadas.countDown();
+                return;
+            }
+            conectadas.countDown();
+
+            try (cliente) {
+                // Espera todas as conexões antes de medir.
+                largada.await();
+                long agora;
+                while ((agora = System.nanoTime()) < fim) {
+                    int resultado = operar(cliente);
+                    registrar(System.nanoTime() - agora);
+                    if (resultado != Resultado.OK) {
+                        recusas++;
+                    }
+                }
+            } catch (IOException e) {
+                falha = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private int operar(RoteadorShards cliente) throws IOException {
+            int banco = 1 + aleatorio.nextInt(2);
+            int conta = aleatorio.nextInt(contas);
+            long valor = Dinheiro.deReais(1 + aleatorio.nextInt(100));
+            int sorteio = aleatorio.nextInt(100);
+            if (sorteio < 50) {
+                return cliente.consultarSaldo(banco, conta, SENHA);
+            }
+            if (sorteio < 65) {
+                return cliente.fazerSaque(banco, conta, SENHA, valor);
+            }
+            if (sorteio < 80) {
+                return cliente.fazerDeposito(banco, conta, SENHA, valor);
+            }
+            // Transferências podem cruzar nós, e entre nós o roteador exige a chave.
+            long chave = aleatorio.nextLong() | 1;
+            if (sorteio < 95) {
+                return cliente.fazerTransferenciaInterna(chave, banco, conta, SENHA, aleatorio.nextInt(contas), valor);
+            }
+            return cliente.fazerTransferenciaExterna(chave, banco, conta, SENHA, 3 - banco,
+                    aleatorio.nextInt(contas), valor);
+        }
+
+        private void registrar(long latencia) {
+            if (quantidade == latencias.length) {
+                latencias = Arrays.copyOf(latencias, quantidade * 2);
+            }
+            latencias[quantidade++] = latencia;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Busca de conta pelo número: o índice por hash ({@link IndiceContas}) contra a
+ * varredura da lista com stream, que era a busca usada antes do índice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndiceContasBenchmark {
+    private static final int QUANTIDADE = 1 << 12;
+
+    @Param({"10", "1000", "100000"})
+    public int contas;
+
+    private IndiceContas indice;
+    private List<Conta> lista;
+    private int[] chaves;
+    private int proxima;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        indice = new IndiceContas();
+        lista = new ArrayList<>();
+        for (int i = 0; i < contas; i++) {
+            Conta conta = new ContaCorrente(1, i, "Titular " + i, "Banco 1", 0, 1234);
+            indice.inserir(conta);
+            lista.add(conta);
+        }
+
+        Random aleatorio = new Random(42);
+        chaves = new int[QUANTIDADE];
+        for (int i = 0; i < QUANTIDADE; i++) {
+            chaves[i] = aleatorio.nextInt(contas);
+        }
+    }
+
+    @Benchmark
+    public Conta indice() {
+        return indice.get(chaves[proxima++ & (QUANTIDADE - 1)]);
+    }
+
+    @Benchmark
+    public Conta varredura() {
+        int contaNumero = chaves[proxima++ & (QUANTIDADE - 1)];
+        return lista.stream()
+                .filter(conta -> conta.getContaNumero() == contaNumero)
+                .collect(Collectors.toList())
+                .get(0);
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Um arquivo de créditos e débitos processado como lote
+ * ({@link BancoRef#processarLote}) contra o laço de chamadas individuais.
+ * Cerca de 1% dos itens usa uma conta inexistente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LoteBenchmark {
+    private static final int CONTAS = 10_000;
+
+    @Param({"10000", "100000"})
+    public int itens;
+
+    private Banco banco;
+    private int[] contas;
+    private boolean[] debitos;
+    private LoteOperacoes lote;
+
+    @Setup(Level.Trial)
+    public void gerarArquivo() {
+        Random aleatorio = new Random(42);
+        contas = new int[itens];
+        debitos = new boolean[itens];
+        lote = new LoteOperacoes(itens);
+        for (int i = 0; i < itens; i++) {
+            contas[i] = aleatorio.nextInt(CONTAS + CONTAS / 100);
+            debitos[i] = aleatorio.nextBoolean();
+            if (debitos[i]) {
+                lote.adicionarDebito(contas[i], 100);
+            } else {
+                lote.adicionarCredito(contas[i], 100);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararBanco() {
+        banco = new Banco(1, "Banco 1");
+        for (int i = 0; i < CONTAS; i++) {
+            banco.criarConta(new ContaCorrente(1, i, "Titular " + i, banco.getBancoNome(),
+                    EstadoBanco.SALDO_INICIAL, 1234));
+        }
+    }
+
+    @Benchmark
+    public int[] processarLote() {
+        return banco.processarLote(lote);
+    }
+
+    @Benchmark
+    public int lacoDeChamadas() {
+        int recusados = 0;
+        for (int i = 0; i < itens; i++) {
+            try {
+                Conta conta = banco.getContaPorNumero(contas[i]);
+                if (debitos[i]) {
+                    banco.fazerSaque(conta, 100);
+                } else {
+                    banco.fazerDeposito(conta, conta, 100);
+                }
+            } catch (UnsupportedOperationException e) {
+                recusados++;
+            }
+        }
+        return recusados;
+    }
+}
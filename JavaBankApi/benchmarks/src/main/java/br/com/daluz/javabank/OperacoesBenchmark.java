@@ -0,0 +1,96 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão das operações do banco, em memória (sem registro de transações).
+ * <p>
+ * As contas já resolvidas ficam em {@link EstadoBanco#contasBanco}, para medir
+ * só a operação; a busca é medida à parte em {@link #getContaPorNumero}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OperacoesBenchmark {
+
+    @Benchmark
+    public Conta getContaPorNumero(EstadoBanco estado, ChavesThread chaves) {
+        return estado.banco.getContaPorNumero(chaves.conta(chaves.proxima()));
+    }
+
+    @Benchmark
+    public Banco getBancoPorNumero(EstadoBanco estado, ChavesThread chaves) {
+        return estado.bancoCentral.getBancoPorNumero(chaves.banco(chaves.proxima()));
+    }
+
+    @Benchmark
+    public void fazerSaque(EstadoBanco estado, ChavesThread chaves) {
+        estado.banco.fazerSaque(estado.contasBanco[chaves.conta(chaves.proxima())], 1);
+    }
+
+    /**
+     * Saque com uma chave de idempotência nova a cada chamada: o custo de guardar a chave.
+     */
+    @Benchmark
+    public void fazerSaqueComChave(EstadoBanco estado, ChavesThread chaves) {
+        estado.banco.fazerSaque(chaves.chaveNova(), estado.contasBanco[chaves.conta(chaves.proxima())], 1);
+    }
+
+    /**
+     * Repetição de um saque já feito: a resposta vem do cache de idempotência.
+     */
+    @Benchmark
+    public int saqueRepetidoComChave(EstadoBanco estado, ChavesThread chaves) {
+        return estado.banco.tentarSaque(1, estado.contasBanco[0], 1);
+    }
+
+    @Benchmark
+    public void fazerDeposito(EstadoBanco estado, ChavesThread chaves) {
+        Conta conta = estado.contasBanco[chaves.conta(chaves.proxima())];
+        estado.banco.fazerDeposito(conta, conta, 1);
+    }
+
+    @Benchmark
+    public void fazerTransferenciaInterna(EstadoBanco estado, ChavesThread chaves) {
+        int origem = chaves.conta(chaves.proxima());
+        int destino = (origem + 1) % estado.contas;
+        estado.banco.fazerTransferenciaInterna(estado.contasBanco[origem], estado.contasBanco[destino], 1);
+    }
+
+    @Benchmark
+    public void fazerTransferenciaEntreBancos(EstadoBanco estado, ChavesThread chaves) {
+        int conta = chaves.conta(chaves.proxima());
+        estado.bancoCentral.fazerTransferenciaEntreBancos(estado.banco, estado.contasBanco[conta], 1, 2, conta);
+    }
+
+    /**
+     * Saque recusado pela interface com exceção (usada pelo caixa eletrônico).
+     */
+    @Benchmark
+    public Object saqueRecusadoComExcecao(EstadoBanco estado, ChavesThread chaves) {
+        try {
+            estado.banco.fazerSaque(estado.contasBanco[chaves.conta(chaves.proxima())], Long.MAX_VALUE);
+            return null;
+        } catch (UnsupportedOperationException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Saque recusado pela interface com código de resultado.
+     */
+    @Benchmark
+    public int saqueRecusadoComCodigo(EstadoBanco estado, ChavesThread chaves) {
+        return estado.banco.tentarSaque(estado.contasBanco[chaves.conta(chaves.proxima())], Long.MAX_VALUE);
+    }
+}
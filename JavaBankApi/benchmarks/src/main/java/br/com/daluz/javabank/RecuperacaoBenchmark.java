@@ -0,0 +1,82 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo de partida: reproduzir o registro de transações inteiro contra carregar
+ * o snapshot mapeado em memória. Depois da carga, uma conta é procurada, para
+ * incluir o custo de trazer uma conta do snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecuperacaoBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int contas;
+
+    private Path registro;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void gerarArquivos() throws IOException {
+        registro = Files.createTempFile("registro-transacoes", ".bin");
+        snapshot = Files.createTempFile("registro-transacoes", ".snapshot");
+        Files.delete(snapshot);
+
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes gravacao = RegistroTransacoes.abrir(registro, 0, 256)) {
+            bancoCentral.usarRegistro(gravacao);
+            Banco banco = new Banco(1, "Banco 1");
+            bancoCentral.criarBanco(banco);
+            LoteOperacoes creditos = new LoteOperacoes(contas);
+            for (int i = 0; i < contas; i++) {
+                banco.criarConta(new ContaCorrente(1, i, "Titular " + i, banco.getBancoNome(), 0, 1234));
+                creditos.adicionarCredito(i, 10_000);
+            }
+            banco.processarLote(creditos);
+        }
+        SnapshotBancoCentral.compactar(snapshot, registro, Files.size(registro));
+    }
+
+    @TearDown(Level.Trial)
+    public void apagarArquivos() throws IOException {
+        Files.deleteIfExists(registro);
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public Conta reproduzirRegistro() throws IOException {
+        BancoCentral bancoCentral = new BancoCentral();
+        RegistroTransacoes.reproduzir(registro, 0, Long.MAX_VALUE, bancoCentral);
+        return bancoCentral.getBancoPorNumero(1).getContaPorNumero(contas / 2);
+    }
+
+    @Benchmark
+    public Conta carregarSnapshot() throws IOException {
+        BancoCentral bancoCentral = new BancoCentral();
+        long posicao = SnapshotBancoCentral.carregar(snapshot, bancoCentral);
+        RegistroTransacoes.reproduzir(registro, posicao, Long.MAX_VALUE, bancoCentral);
+        return bancoCentral.getBancoPorNumero(1).getContaPorNumero(contas / 2);
+    }
+}
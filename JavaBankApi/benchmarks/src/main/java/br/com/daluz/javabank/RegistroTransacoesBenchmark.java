@@ -0,0 +1,85 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Depósitos duráveis (com fsync) para cada tamanho de lote do group commit
+ * do {@link RegistroTransacoes}. O ganho do lote aparece com várias threads:
+ * use a opção --threads do {@link ExecutarBenchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistroTransacoesBenchmark {
+    private static final int CONTAS = 1000;
+
+    @Param({"1", "16", "64", "256"})
+    public int tamanhoLote;
+
+    private Path arquivo;
+    private RegistroTransacoes registro;
+    private Banco banco;
+    private Conta[] contas;
+
+    @Setup(Level.Trial)
+    public void abrir() throws IOException {
+        arquivo = Files.createTempFile("registro-transacoes", ".bin");
+        registro = RegistroTransacoes.abrir(arquivo, 0, tamanhoLote);
+
+        BancoCentral bancoCentral = new BancoCentral();
+        bancoCentral.usarRegistro(registro);
+        banco = new Banco(1, "Banco 1");
+        bancoCentral.criarBanco(banco);
+        contas = new Conta[CONTAS];
+        for (int i = 0; i < CONTAS; i++) {
+            contas[i] = new ContaCorrente(1, i, "Titular " + i, banco.getBancoNome(), 0, 1234);
+            banco.criarConta(contas[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void fechar() throws IOException {
+        registro.close();
+        Files.deleteIfExists(arquivo);
+    }
+
+    /**
+     * Conta usada por cada thread; as threads começam em contas diferentes.
+     */
+    @State(Scope.Thread)
+    public static class ContaThread {
+        int proxima;
+
+        @Setup(Level.Trial)
+        public void preparar(ThreadParams thread) {
+            proxima = thread.getThreadIndex() * (CONTAS / 16);
+        }
+    }
+
+    @Benchmark
+    public void depositoDuravel(ContaThread thread) {
+        Conta conta = contas[thread.proxima++ % CONTAS];
+        banco.fazerDeposito(conta, conta, 1);
+    }
+}
@@ -0,0 +1,133 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operações por segundo num banco, com as contas travadas pela thread que
+ * chama ("travas") ou aplicadas pelo {@link SequenciadorBanco} ("sequenciador").
+ * <p>
+ * {@link #saqueContaQuente} e {@link #transferenciaInterna} esperam a resposta
+ * de cada operação; {@link #anel} publica {@value #EVENTOS} operações e só
+ * espera a última, o que mede a vazão do anel (só com o sequenciador; com
+ * travas, é o mesmo laço de chamadas diretas). Em memória, sem registro de transações.
+ * <pre>
+ *   java -jar target/benchmarks.jar SequenciadorBenchmark --threads=1,4,16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SequenciadorBenchmark {
+    private static final int CONTAS = 1000;
+    private static final int EVENTOS = 10_000;
+
+    @Param({"travas", "sequenciador"})
+    public String motor;
+
+    private Banco banco;
+    private Conta[] contas;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        BancoCentral bancoCentral = new BancoCentral();
+        if ("sequenciador".equals(motor)) {
+            bancoCentral.usarSequenciador(1 << 14);
+        }
+        banco = new Banco(1, "Banco 1");
+        bancoCentral.criarBanco(banco);
+        contas = new Conta[CONTAS];
+        for (int i = 0; i < CONTAS; i++) {
+            contas[i] = new ContaCorrente(1, i, "Titular " + i, banco.getBancoNome(), EstadoBanco.SALDO_INICIAL, 1234);
+            banco.criarConta(contas[i]);
+        }
+    }
+
+    /**
+     * Contas sorteadas e contador de respostas de cada thread.
+     */
+    @State(Scope.Thread)
+    public static class Produtor implements SequenciadorBanco.Resposta {
+        private static final int QUANTIDADE = 1 << 16;
+
+        private int[] sorteadas;
+        private int proxima;
+        private volatile long respondidas;
+
+        @Setup(Level.Trial)
+        public void preparar(ThreadParams thread) {
+            Random aleatorio = new Random(42 + thread.getThreadIndex());
+            sorteadas = new int[QUANTIDADE];
+            for (int i = 0; i < QUANTIDADE; i++) {
+                sorteadas[i] = aleatorio.nextInt(CONTAS);
+            }
+        }
+
+        int proxima() {
+            return sorteadas[proxima++ & (QUANTIDADE - 1)];
+        }
+
+        @Override
+        public void responder(long sequencia, int resultado, RuntimeException falha) {
+            // Só a thread de resposta do anel escreve.
+            respondidas = respondidas + 1;
+        }
+    }
+
+    /**
+     * Todas as threads sacando da mesma conta.
+     */
+    @Benchmark
+    public int saqueContaQuente() {
+        return banco.tentarSaque(contas[0], 1);
+    }
+
+    @Benchmark
+    public int transferenciaInterna(Produtor produtor) {
+        int origem = produtor.proxima();
+        return banco.tentarTransferenciaInterna(contas[origem], contas[(origem + 1) % CONTAS], 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTOS)
+    public long anel(Produtor produtor) {
+        SequenciadorBanco sequenciador = banco.getSequenciador();
+        if (sequenciador == null) {
+            for (int i = 0; i < EVENTOS; i++) {
+                int origem = produtor.proxima();
+                banco.tentarTransferenciaInterna(contas[origem], contas[(origem + 1) % CONTAS], 1);
+            }
+            return 0;
+        }
+
+        long alvo = produtor.respondidas + EVENTOS;
+        long instante = System.currentTimeMillis();
+        for (int i = 0; i < EVENTOS; i++) {
+            int origem = produtor.proxima();
+            sequenciador.publicar(SequenciadorBanco.TRANSFERENCIA_INTERNA,
+                    contas[origem], contas[(origem + 1) % CONTAS], 1, instante, produtor);
+        }
+        while (produtor.respondidas < alvo) {
+            Thread.yield();
+        }
+        return alvo;
+    }
+}
@@ -0,0 +1,243 @@
+package br.com.daluz.javabank;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Simulação de sessões do caixa eletrônico, sem console.
+ * <p>
+ * Cada sessão é um CaixaEletronico24Hs que percorre as telas de verdade
+ * (lista de bancos, acesso à conta e menu da conta) com entradas de um
+ * roteiro sorteado, sobre um Banco Central compartilhado. As telas são
+ * montadas normalmente e descartadas. No fim, mostra os percentis da latência
+ * de cada operação, medida do momento em que a opção é lida até a próxima
+ * leitura do menu.
+ * <p>
+ * Cada sessão roda numa thread virtual quando a JVM as tem (Java 21 ou mais
+ * novo); senão, as sessões são distribuídas num conjunto fixo de threads.
+ * <pre>
+ *   java -cp target/benchmarks.jar br.com.daluz.javabank.SimuladorSessoes --sessoes=100000 --operacoes=5
+ * </pre>
+ */
+public final class SimuladorSessoes {
+    private static final int SENHA = 1234;
+    private static final long SEMENTE = 0x4A617661_42616E6BL;
+
+    private static final int ACESSO = 6;
+    private static final int SAIR = 7;
+    private static final String[] ROTULOS = {
+            "Saldo", "Extrato", "Saque", "Depósito", "Transf. interna", "Transf. externa", "Acesso à conta"
+    };
+
+    private SimuladorSessoes() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessoes = 100_000;
+        int operacoes = 5;
+        int contas = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors() * 4;
+        for (String arg : args) {
+            String valor = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--sessoes=")) sessoes = Integer.parseInt(valor);
+            else if (arg.startsWith("--operacoes=")) operacoes = Integer.parseInt(valor);
+            else if (arg.startsWith("--contas=")) contas = Integer.parseInt(valor);
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(valor);
+            else throw new IllegalArgumentException("Opção desconhecida: " + arg);
+        }
+
+        BancoCentral bancoCentral = GeradorCarga.criarBancoCentral(contas);
+        Medicoes medicoes = new Medicoes(sessoes * (operacoes + 1));
+        AtomicInteger falhas = new AtomicInteger();
+
+        ExecutorService executor = criarExecutorVirtual();
+        boolean virtuais = executor != null;
+        if (!virtuais) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        System.out.println("Sessões: " + sessoes + ", operações por sessão: " + operacoes
+                + ", contas por banco: " + contas + ", threads: " + (virtuais ? "virtuais" : threads));
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < sessoes; i++) {
+            long semente = SEMENTE + i;
+            int quantidade = operacoes;
+            int contasPorBanco = contas;
+            executor.execute(() -> {
+                // O roteiro é sorteado dentro da tarefa, para a fila do executor não guardar todos.
+                Roteiro roteiro = new Roteiro(new Random(semente), contasPorBanco, quantidade, medicoes);
+                PrintStream descarte = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+                try {
+                    new CaixaEletronico24Hs(bancoCentral, roteiro, descarte, descarte).mostrarTelaInicial();
+                } catch (RuntimeException e) {
+                    falhas.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        long duracao = System.nanoTime() - inicio;
+
+        System.out.printf("Duração: %.1f s, sessões com falha: %d%n", duracao / 1e9, falhas.get());
+        medicoes.relatar();
+    }
+
+    /**
+     * Executor com uma thread virtual por tarefa, se a JVM tiver threads virtuais.
+     *
+     * @return Retorna o executor, ou null se a JVM não tiver threads virtuais.
+     */
+    private static ExecutorService criarExecutorVirtual() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Entradas de uma sessão. Marca o tempo sempre que uma opção de menu é lida:
+     * a leitura da opção seguinte encerra a medição da anterior.
+     */
+    private static final class Roteiro implements Supplier<String> {
+        private final String[] entradas;
+        private final byte[] operacoes;
+        private final Medicoes medicoes;
+        private int proxima;
+        private int operacaoAtual = -1;
+        private long inicioAtual;
+
+        private Roteiro(Random aleatorio, int contas, int quantidade, Medicoes medicoes) {
+            this.medicoes = medicoes;
+            String[] entradas = new String[8 + quantidade * 5];
+            byte[] operacoes = new byte[entradas.length];
+            Arrays.fill(operacoes, (byte) -1);
+            int n = 0;
+
+            int banco = 1 + aleatorio.nextInt(2);
+            String senha = String.valueOf(SENHA);
+            operacoes[n] = ACESSO;
+            entradas[n++] = String.valueOf(banco);
+            entradas[n++] = String.valueOf(aleatorio.nextInt(contas));
+            entradas[n++] = senha;
+            for (int i = 0; i < quantidade; i++) {
+                int operacao = sortear(aleatorio);
+                String valor = String.valueOf(1 + aleatorio.nextInt(100));
+                operacoes[n] = (byte) operacao;
+                entradas[n++] = String.valueOf(operacao);
+                switch (operacao) {
+                    case 2, 3 -> {
+                        entradas[n++] = valor;
+                        entradas[n++] = senha;
+                    }
+                    case 4 -> {
+                        entradas[n++] = String.valueOf(aleatorio.nextInt(contas));
+                        entradas[n++] = valor;
+                        entradas[n++] = senha;
+                    }
+                    case 5 -> {
+                        entradas[n++] = String.valueOf(3 - banco);
+                        entradas[n++] = String.valueOf(aleatorio.nextInt(contas));
+                        entradas[n++] = valor;
+                        entradas[n++] = senha;
+                    }
+                }
+            }
+            // Sai da conta e do caixa.
+            operacoes[n] = SAIR;
+            entradas[n++] = "-1";
+            entradas[n++] = "-1";
+
+            this.entradas = Arrays.copyOf(entradas, n);
+            this.operacoes = Arrays.copyOf(operacoes, n);
+        }
+
+        /**
+         * Sorteia a operação: 30% saldo, 10% extrato, 20% saque, 20% depósito,
+         * 15% transferência interna e 5% externa.
+         */
+        private static int sortear(Random aleatorio) {
+            int sorteio = aleatorio.nextInt(100);
+            if (sorteio < 30) return 0;
+            if (sorteio < 40) return 1;
+            if (sorteio < 60) return 2;
+            if (sorteio < 80) return 3;
+            if (sorteio < 95) return 4;
+            return 5;
+        }
+
+        @Override
+        public String get() {
+            if (proxima == entradas.length) {
+                throw new NoSuchElementException();
+            }
+            int operacao = operacoes[proxima];
+            if (operacao >= 0) {
+                long agora = System.nanoTime();
+                if (operacaoAtual >= 0) {
+                    medicoes.registrar(operacaoAtual, agora - inicioAtual);
+                }
+                operacaoAtual = (operacao == SAIR) ? -1 : operacao;
+                inicioAtual = agora;
+            }
+            return entradas[proxima++];
+        }
+    }
+
+    /**
+     * Latências de todas as sessões, com a operação de cada uma.
+     */
+    private static final class Medicoes {
+        private final long[] latencias;
+        private final byte[] operacoes;
+        private final AtomicInteger quantidade = new AtomicInteger();
+
+        private Medicoes(int capacidade) {
+            this.latencias = new long[capacidade];
+            this.operacoes = new byte[capacidade];
+        }
+
+        private void registrar(int operacao, long latencia) {
+            int i = quantidade.getAndIncrement();
+            latencias[i] = latencia;
+            operacoes[i] = (byte) operacao;
+        }
+
+        private void relatar() {
+            int total = quantidade.get();
+            System.out.printf("%-16s %9s %9s %9s %9s %9s %9s%n",
+                    "Operação (us)", "qtd", "p50", "p90", "p99", "p99.9", "máx");
+            for (int operacao = 0; operacao < ROTULOS.length; operacao++) {
+                long[] selecionadas = new long[total];
+                int n = 0;
+                for (int i = 0; i < total; i++) {
+                    if (operacoes[i] == operacao) {
+                        selecionadas[n++] = latencias[i];
+                    }
+                }
+                if (n == 0) {
+                    continue;
+                }
+                Arrays.sort(selecionadas, 0, n);
+                System.out.printf("%-16s %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n", ROTULOS[operacao], n,
+                        percentil(selecionadas, n, 0.50), percentil(selecionadas, n, 0.90),
+                        percentil(selecionadas, n, 0.99), percentil(selecionadas, n, 0.999),
+                        selecionadas[n - 1] / 1e3);
+            }
+        }
+
+        private static double percentil(long[] ordenadas, int n, double fracao) {
+            int i = (int) Math.ceil(fracao * n) - 1;
+            return ordenadas[Math.max(0, i)] / 1e3;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.daluz.javabank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatação de valores monetários por {@link Utils#toMoney}, comparada com a
+ * formatação por {@link String#format} (a implementação original), e
+ * impressão de banners com e sem o cache por título.
+ * Os valores vão de centavos a bilhões de reais, incluindo negativos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+    private static final int QUANTIDADE = 1024;
+
+    private long[] valores;
+    private int proximo;
+    private StringBuilder buffer;
+    private PrintStream descarte;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random aleatorio = new Random(42);
+        valores = new long[QUANTIDADE];
+        for (int i = 0; i < QUANTIDADE; i++) {
+            long magnitude = (long) Math.pow(10, aleatorio.nextInt(13));
+            long valor = (long) (aleatorio.nextDouble() * magnitude);
+            valores[i] = aleatorio.nextInt(10) == 0 ? -valor : valor;
+        }
+        buffer = new StringBuilder(64);
+        descarte = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String toMoney() {
+        return Utils.toMoney(valores[proximo++ & (QUANTIDADE - 1)]);
+    }
+
+    @Benchmark
+    public String toMoneyComFormatter() {
+        return String.format(Locale.US, "R$ %.2f", valores[proximo++ & (QUANTIDADE - 1)] / 100.0);
+    }
+
+    /**
+     * Formatação num buffer reaproveitado, como no extrato e no saldo da conta.
+     */
+    @Benchmark
+    public int formatarNoBuffer() {
+        buffer.setLength(0);
+        return Dinheiro.formatar(buffer, valores[proximo++ & (QUANTIDADE - 1)]).length();
+    }
+
+    @Benchmark
+    public void banner() {
+        Utils.banner(descarte, "Banco Tetra - Conta Corrente");
+    }
+
+    @Benchmark
+    public void bannerSemCache() {
+        String text = "[ " + "Banco Tetra - Conta Corrente" + " ]";
+        String stars = "#".repeat(text.length() + 22);
+        descarte.println("\n" + stars);
+        descarte.println("########## " + text + " ##########");
+        descarte.println(stars);
+    }
+}
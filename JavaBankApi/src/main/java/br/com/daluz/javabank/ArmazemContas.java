@@ -0,0 +1,454 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Armazém frio das contas de um banco.
+ * <p>
+ * O índice do banco guarda, como objetos, só as contas quentes (até o
+ * limite informado). Quando ele passa do limite, a thread do armazém tira
+ * as contas menos usadas (política do relógio: o ponteiro dá uma segunda
+ * chance a quem foi usada desde a última passada) e as grava aqui, em
+ * registros de tamanho fixo fora do heap (ByteBuffer direto):
+ * <pre>
+ *   registro (48 bytes): [int contaNumero][int contaTipo][int senhaProtegida][int titularTamanho]
+ *                        [long saldo][long titularPosicao][long extratoPosicao][int extratoTamanho][int reservado]
+ * </pre>
+ * Os titulares ficam numa área separada, também fora do heap, e as operações
+ * do extrato ficam no {@link SegmentoExtratos} (o registro guarda a posição
+ * do descritor). Uma conta com extrato só é esfriada se o banco tiver um
+ * segmento de extratos. No heap, cada conta fria custa só a sua entrada na
+ * tabela número -> registro.
+ * <p>
+ * Uma conta esfriada pode continuar sendo usada por quem já tinha o objeto.
+ * Por isso o objeto fica numa referência fraca até ser coletado: uma busca
+ * nesse meio tempo devolve o mesmo objeto, nunca uma segunda cópia. Se o
+ * objeto esfriado for alterado, ele volta antes para o índice
+ * ({@link #promover}); o registro frio só vale enquanto a conta está fora dele.
+ * <p>
+ * Ordem das travas: monitor da conta, depois o monitor do armazém, depois a
+ * trava do índice.
+ */
+final class ArmazemContas {
+    static final int TAMANHO_REGISTRO = 48;
+
+    private static final int BITS_BLOCO = 14;
+    private static final int REGISTROS_POR_BLOCO = 1 << BITS_BLOCO;
+    private static final int TAMANHO_BLOCO_NOMES = 1 << 20;
+    private static final int LOTE_RELOGIO = 256;
+
+    private final BancoRef banco;
+    private final IndiceContas quentes;
+    private final int limiteQuentes;
+    private final ReferenceQueue<Conta> coletadas;
+    private final Map<Integer, ReferenciaFria> vivas;
+    private final Object sinal;
+    private boolean pendente;
+    private int ponteiro;
+
+    private ByteBuffer[] blocos;
+    private int quantidade;
+    private int[] chaves;
+    private int[] registros;
+    private ByteBuffer[] blocosNomes;
+    private int quantidadeBlocosNomes;
+
+    /**
+     * Construtor da classe ArmazemContas. Inicia a thread que esfria as contas.
+     *
+     * @param banco         Banco dono das contas.
+     * @param quentes       Índice de contas do banco.
+     * @param limiteQuentes Quantidade de contas mantidas como objetos no índice.
+     */
+    ArmazemContas(BancoRef banco, IndiceContas quentes, int limiteQuentes) {
+        if (limiteQuentes < 1) {
+            throw new IllegalArgumentException("O limite de contas quentes deve ser positivo.");
+        }
+        this.banco = banco;
+        this.quentes = quentes;
+        this.limiteQuentes = limiteQuentes;
+        this.coletadas = new ReferenceQueue<>();
+        this.vivas = new HashMap<>();
+        this.sinal = new Object();
+        this.blocos = new ByteBuffer[4];
+        this.chaves = new int[16];
+        this.registros = new int[16];
+        this.blocosNomes = new ByteBuffer[4];
+
+        Thread esfriador = new Thread(this::esfriar, "armazem-frio-" + banco.getBancoNumero());
+        esfriador.setDaemon(true);
+        esfriador.start();
+    }
+
+    int getLimiteQuentes() {
+        return limiteQuentes;
+    }
+
+    /**
+     * Quantidade de contas que já passaram pelo armazém (frias ou aquecidas de novo).
+     *
+     * @return Retorna o número de registros.
+     */
+    synchronized int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Verifica se a conta tem registro no armazém.
+     *
+     * @param contaNumero Número da conta.
+     * @return Retorna true se a conta tem registro.
+     */
+    synchronized boolean contem(int contaNumero) {
+        return registro(contaNumero) >= 0;
+    }
+
+    /**
+     * Percorre os números das contas que têm registro no armazém, frias ou não.
+     *
+     * @param acao Ação executada com o número de cada conta.
+     */
+    synchronized void paraCadaNumero(IntConsumer acao) {
+        for (int r = 0; r < quantidade; r++) {
+            acao.accept(blocos[r >>> BITS_BLOCO].getInt((r & (REGISTROS_POR_BLOCO - 1)) * TAMANHO_REGISTRO));
+        }
+    }
+
+    /**
+     * Avisa a thread do armazém que o índice pode ter passado do limite.
+     */
+    void sinalizar() {
+        synchronized (sinal) {
+            pendente = true;
+            sinal.notify();
+        }
+    }
+
+    /**
+     * Laço da thread do armazém: a cada sinal, esfria contas até o índice voltar ao limite.
+     */
+    private void esfriar() {
+        List<Conta> candidatas = new ArrayList<>(LOTE_RELOGIO);
+        while (true) {
+            synchronized (sinal) {
+                while (!pendente) {
+                    try {
+                        sinal.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                pendente = false;
+            }
+
+            // Esfria um pouco além do limite, para não acordar a cada conta carregada.
+            int alvo = quentes.tamanho() - limiteQuentes;
+            if (alvo > 0) {
+                alvo += limiteQuentes / 16;
+            }
+            int varrer = 2 * quentes.capacidade();
+            while (alvo > 0 && varrer > 0) {
+                candidatas.clear();
+                ponteiro = quentes.percorrer(ponteiro, LOTE_RELOGIO, candidatas);
+                varrer -= LOTE_RELOGIO;
+                for (int i = 0; i < candidatas.size() && alvo > 0; i++) {
+                    Conta conta = candidatas.get(i);
+                    if (conta.usada) {
+                        conta.usada = false;
+                    } else if (guardar(conta)) {
+                        alvo--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava a conta no armazém e a tira do índice.
+     *
+     * @param conta Conta quente.
+     * @return Retorna false se a conta precisa ficar em memória (extrato sem
+     *         segmento, ou conta com número ou nome de banco diferentes dos do banco).
+     */
+    boolean guardar(Conta conta) {
+        synchronized (conta) {
+            // A conta pode ter sido usada ou já esfriada depois de escolhida.
+            if (conta.usada || conta.isFria() || conta.getDescritor() != banco.getDescritor()) {
+                return false;
+            }
+            Extrato extrato = conta.getOperacoes();
+            long extratoPosicao = -1;
+            int extratoTamanho = 0;
+            if (extrato != null && extrato.tamanho() > 0) {
+                if (banco.getSegmentoExtratos() == null) {
+                    return false;
+                }
+                try {
+                    extratoPosicao = extrato.guardar();
+                    extratoTamanho = extrato.tamanhoDescritor();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+
+            synchronized (this) {
+                limparColetadas();
+                int r = registro(conta.getContaNumero());
+                if (r < 0) {
+                    r = novoRegistro(conta);
+                }
+                ByteBuffer bloco = blocos[r >>> BITS_BLOCO];
+                int inicio = (r & (REGISTROS_POR_BLOCO - 1)) * TAMANHO_REGISTRO;
+                bloco.putLong(inicio + 16, conta.getSaldo());
+                bloco.putLong(inicio + 32, extratoPosicao);
+                bloco.putInt(inicio + 40, extratoTamanho);
+
+                vivas.put(conta.getContaNumero(), new ReferenciaFria(conta, coletadas));
+                conta.setFria(true);
+                quentes.remover(conta);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Põe de volta no índice uma conta esfriada cujo objeto ainda estava em uso.
+     * Chamado pela conta, com o seu monitor travado, antes de ela ser alterada.
+     *
+     * @param conta Conta esfriada.
+     */
+    synchronized void promover(Conta conta) {
+        if (!conta.isFria()) {
+            return;
+        }
+        ReferenciaFria referencia = vivas.get(conta.getContaNumero());
+        if (referencia != null && referencia.get() == conta) {
+            vivas.remove(conta.getContaNumero());
+        }
+        aquecer(conta);
+    }
+
+    /**
+     * Traz uma conta do armazém de volta para o índice.
+     *
+     * @param contaNumero Número da conta.
+     * @return Retorna a conta (o mesmo objeto, se ele ainda existir), ou null se ela não está no armazém.
+     */
+    synchronized Conta carregar(int contaNumero) {
+        // Pode ter voltado ao índice enquanto esta thread esperava o monitor.
+        Conta conta = quentes.get(contaNumero);
+        if (conta != null) {
+            return conta;
+        }
+        limparColetadas();
+
+        ReferenciaFria referencia = vivas.remove(contaNumero);
+        conta = (referencia == null) ? null : referencia.get();
+        if (conta == null) {
+            int r = registro(contaNumero);
+            if (r < 0) {
+                return null;
+            }
+            conta = ler(r, true);
+        }
+        aquecer(conta);
+        return conta;
+    }
+
+    /**
+     * Conta para uma leitura, sem trazê-la de volta para o índice: a do
+     * índice, o objeto esfriado se ele ainda existe ou, se não, um objeto
+     * temporário, que não deve ser alterado.
+     *
+     * @param contaNumero Número da conta.
+     * @param comExtrato  Indica se o objeto temporário precisa do extrato.
+     * @return Retorna a conta, ou null se ela não está no índice nem no armazém.
+     */
+    synchronized Conta consultar(int contaNumero, boolean comExtrato) {
+        Conta conta = quentes.get(contaNumero);
+        if (conta != null) {
+            return conta;
+        }
+        limparColetadas();
+
+        ReferenciaFria referencia = vivas.get(contaNumero);
+        conta = (referencia == null) ? null : referencia.get();
+        if (conta == null) {
+            int r = registro(contaNumero);
+            if (r >= 0) {
+                conta = ler(r, comExtrato);
+            }
+        }
+        return conta;
+    }
+
+    /**
+     * Todas as contas do banco: as do índice e, como objetos temporários (sem
+     * extrato), as frias. Como as contas só mudam de lugar com o monitor do
+     * armazém, nenhuma aparece duas vezes nem fica de fora.
+     *
+     * @return Retorna a lista de contas.
+     */
+    synchronized List<Conta> listar() {
+        List<Conta> contas = new ArrayList<>();
+        quentes.paraCada(contas::add);
+        for (int r = 0; r < quantidade; r++) {
+            int contaNumero = blocos[r >>> BITS_BLOCO].getInt((r & (REGISTROS_POR_BLOCO - 1)) * TAMANHO_REGISTRO);
+            if (quentes.get(contaNumero) == null) {
+                ReferenciaFria referencia = vivas.get(contaNumero);
+                Conta viva = (referencia == null) ? null : referencia.get();
+                contas.add((viva != null) ? viva : ler(r, false));
+            }
+        }
+        return contas;
+    }
+
+    private void aquecer(Conta conta) {
+        conta.setFria(false);
+        conta.usada = true;
+        quentes.inserir(conta);
+    }
+
+    /**
+     * Cria o objeto Conta a partir do registro.
+     */
+    private Conta ler(int r, boolean comExtrato) {
+        ByteBuffer bloco = blocos[r >>> BITS_BLOCO];
+        int inicio = (r & (REGISTROS_POR_BLOCO - 1)) * TAMANHO_REGISTRO;
+
+        long titularPosicao = bloco.getLong(inicio + 24);
+        byte[] titular = new byte[bloco.getInt(inicio + 12)];
+        blocosNomes[(int) (titularPosicao >>> 32)].get((int) titularPosicao, titular);
+
+        Conta conta = ContasMapeadas.criarConta(banco, bloco.getInt(inicio), bloco.getInt(inicio + 4),
+                new String(titular, StandardCharsets.UTF_8), bloco.getLong(inicio + 16), bloco.getInt(inicio + 8));
+
+        long extratoPosicao = bloco.getLong(inicio + 32);
+        if (comExtrato && extratoPosicao >= 0) {
+            try {
+                conta.usarOperacoes(Extrato.restaurar(banco.getSegmentoExtratos(),
+                        extratoPosicao, bloco.getInt(inicio + 40)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler o extrato da conta " + conta.getContaNumero() + ".", e);
+            }
+        }
+        return conta;
+    }
+
+    /**
+     * Cria o registro de uma conta: os campos que não mudam e o titular.
+     */
+    private int novoRegistro(Conta conta) {
+        int r = quantidade;
+        int b = r >>> BITS_BLOCO;
+        if (b == blocos.length) {
+            blocos = Arrays.copyOf(blocos, b * 2);
+        }
+        if (blocos[b] == null) {
+            blocos[b] = ByteBuffer.allocateDirect(REGISTROS_POR_BLOCO * TAMANHO_REGISTRO);
+        }
+        byte[] titular = conta.getTitular().getBytes(StandardCharsets.UTF_8);
+        int inicio = (r & (REGISTROS_POR_BLOCO - 1)) * TAMANHO_REGISTRO;
+        blocos[b].putInt(inicio, conta.getContaNumero())
+                .putInt(inicio + 4, conta.getContaTipo())
+                .putInt(inicio + 8, conta.getSenhaProtegida())
+                .putInt(inicio + 12, titular.length)
+                .putLong(inicio + 24, gravarNome(titular));
+
+        indexar(conta.getContaNumero(), r);
+        quantidade++;
+        return r;
+    }
+
+    /**
+     * Acrescenta o nome na área de nomes.
+     *
+     * @return Retorna a posição: o bloco nos 32 bits altos e o deslocamento nos baixos.
+     */
+    private long gravarNome(byte[] nome) {
+        ByteBuffer atual = (quantidadeBlocosNomes == 0) ? null : blocosNomes[quantidadeBlocosNomes - 1];
+        if (atual == null || atual.remaining() < nome.length) {
+            if (quantidadeBlocosNomes == blocosNomes.length) {
+                blocosNomes = Arrays.copyOf(blocosNomes, quantidadeBlocosNomes * 2);
+            }
+            atual = ByteBuffer.allocateDirect(Math.max(TAMANHO_BLOCO_NOMES, nome.length));
+            blocosNomes[quantidadeBlocosNomes++] = atual;
+        }
+        long posicao = ((long) (quantidadeBlocosNomes - 1) << 32) | atual.position();
+        atual.put(nome);
+        return posicao;
+    }
+
+    /**
+     * Posição do registro da conta (tabela de endereçamento aberto; 0 marca posição vazia).
+     */
+    private int registro(int contaNumero) {
+        int mascara = chaves.length - 1;
+        int i = IndiceContas.espalhar(contaNumero) & mascara;
+        while (registros[i] != 0) {
+            if (chaves[i] == contaNumero) {
+                return registros[i] - 1;
+            }
+            i = (i + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private void indexar(int contaNumero, int r) {
+        if ((quantidade + 1) * 2 > chaves.length) {
+            int[] chavesAntigas = chaves;
+            int[] registrosAntigos = registros;
+            chaves = new int[chavesAntigas.length * 2];
+            registros = new int[chavesAntigas.length * 2];
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (registrosAntigos[j] != 0) {
+                    inserirNaTabela(chavesAntigas[j], registrosAntigos[j]);
+                }
+            }
+        }
+        inserirNaTabela(contaNumero, r + 1);
+    }
+
+    private void inserirNaTabela(int contaNumero, int valor) {
+        int mascara = chaves.length - 1;
+        int i = IndiceContas.espalhar(contaNumero) & mascara;
+        while (registros[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = contaNumero;
+        registros[i] = valor;
+    }
+
+    /**
+     * Remove do mapa as referências cujos objetos já foram coletados.
+     */
+    private void limparColetadas() {
+        ReferenciaFria referencia;
+        while ((referencia = (ReferenciaFria) coletadas.poll()) != null) {
+            vivas.remove(referencia.contaNumero, referencia);
+        }
+    }
+
+    /**
+     * Referência fraca a uma conta esfriada, com o número dela para a limpeza.
+     */
+    private static final class ReferenciaFria extends WeakReference<Conta> {
+        private final int contaNumero;
+
+        private ReferenciaFria(Conta conta, ReferenceQueue<Conta> fila) {
+            super(conta, fila);
+            this.contaNumero = conta.getContaNumero();
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package br.com.daluz.javabank;
+
 /**
  * Classe concreta de um banco.
  */
@@ -0,0 +1,684 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Classe para representar o Banco Central (Banco dos bancos).
+ * Está classe contém a lista de bancos existente, bem como
+ * ajuda nas operações entre bancos diferentes.
+ * <p>
+ * As buscas de bancos não usam trava: a tabela de bancos é imutável e é
+ * trocada inteira quando um banco é criado.
+ */
+public class BancoCentral {
+    private volatile TabelaBancos bancos;
+    private final CompensacaoInterbancaria compensacao;
+    private final FechamentoMensal fechamento;
+    private final Metricas metricas;
+    private volatile CacheIdempotencia idempotencia;
+    private final LimitadorTentativas limitador;
+    private volatile RegistroTransacoes registro;
+    private SegmentoExtratos segmentoExtratos;
+    private int limiteContasQuentes;
+    private int capacidadeSequenciador;
+
+    /**
+     * Método construtor da classe BancoCentral.
+     */
+    public BancoCentral() {
+        this.bancos = TabelaBancos.VAZIA;
+        this.compensacao = new CompensacaoInterbancaria();
+        this.fechamento = new FechamentoMensal();
+        this.metricas = new Metricas();
+        this.idempotencia = new CacheIdempotencia();
+        this.limitador = new LimitadorTentativas();
+        this.registro = RegistroTransacoes.DESATIVADO;
+    }
+
+    /**
+     * Método para adicionar um novo banco no registro do Banco Central.
+     *
+     * @param banco Banco a ser salva no registro do Banco Central.
+     */
+    public void criarBanco(Banco banco) {
+        long inicio = metricas.inicioSemAmostragem();
+        RegistroTransacoes registro;
+        long posicao;
+
+        synchronized (this) {
+            registro = this.registro;
+            banco.usarRegistro(registro);
+            banco.usarMetricas(metricas);
+            banco.usarIdempotencia(idempotencia);
+            if (segmentoExtratos != null) {
+                banco.usarSegmentoExtratos(segmentoExtratos);
+            }
+            if (limiteContasQuentes > 0) {
+                banco.usarArmazemFrio(limiteContasQuentes);
+            }
+            if (capacidadeSequenciador > 0) {
+                banco.usarSequenciador(capacidadeSequenciador);
+            }
+            // O banco só fica visível para as buscas depois de configurado.
+            bancos = bancos.com(banco);
+            posicao = registro.registrarCriarBanco(
+                    System.currentTimeMillis(), banco.getBancoNumero(), banco.getBancoNome());
+        }
+
+        registro.aguardar(posicao);
+        metricas.registrar(Metricas.CRIAR_BANCO, Resultado.OK, inicio);
+    }
+
+    /**
+     * Passa a gravar todas as operações do Banco Central e dos seus bancos
+     * no registro de transações informado. Se a recuperação terminou no meio
+     * de um ciclo de compensação ou de um fechamento mensal, o que faltou é
+     * aplicado agora.
+     *
+     * @param registro Registro de transações, normalmente obtido com {@link RegistroTransacoes#recuperar}.
+     */
+    public void usarRegistro(RegistroTransacoes registro) {
+        synchronized (this) {
+            this.registro = registro;
+            for (Banco banco : bancos.bancos()) {
+                banco.usarRegistro(registro);
+            }
+        }
+        compensacao.retomar(this, registro);
+        fechamento.retomar(this, registro);
+    }
+
+    /**
+     * Passa a gravar num arquivo as operações mais antigas dos extratos, para
+     * que contas com histórico longo não o mantenham inteiro em memória.
+     * O arquivo é recriado vazio; os extratos continuam sendo reconstruídos
+     * pelo registro de transações.
+     *
+     * @param arquivo         Arquivo dos extratos.
+     * @param limiteEmMemoria Quantidade de operações de uma conta a partir da qual
+     *                        as mais antigas vão para o arquivo.
+     * @throws IOException Lança exceção se o arquivo não puder ser criado.
+     */
+    public synchronized void usarArquivoExtratos(Path arquivo, int limiteEmMemoria) throws IOException {
+        this.segmentoExtratos = new SegmentoExtratos(arquivo, limiteEmMemoria);
+        for (Banco banco : bancos.bancos()) {
+            banco.usarSegmentoExtratos(segmentoExtratos);
+        }
+    }
+
+    /**
+     * Limita as contas mantidas como objetos em cada banco. As menos usadas
+     * ficam em registros fora do heap e voltam a ser objetos quando são
+     * procuradas, de modo que o heap cresce com as contas ativas, e não com
+     * o total de contas. Contas com extrato só saem do heap se houver um
+     * arquivo de extratos ({@link #usarArquivoExtratos}).
+     *
+     * @param limiteQuentes Quantidade de contas mantidas como objetos, por banco.
+     */
+    public synchronized void usarArmazemFrio(int limiteQuentes) {
+        if (limiteQuentes < 1) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: O limite de contas quentes deve ser positivo.");
+        }
+        this.limiteContasQuentes = limiteQuentes;
+        for (Banco banco : bancos.bancos()) {
+            banco.usarArmazemFrio(limiteQuentes);
+        }
+    }
+
+    /**
+     * Passa a executar os saques, depósitos e transferências internas de cada
+     * banco por um {@link SequenciadorBanco}: uma única thread por banco aplica
+     * as operações na ordem em que chegam, sem disputa pelas contas mais usadas.
+     * Não há volta: os bancos continuam com o sequenciador até o fim do processo.
+     *
+     * @param capacidade Quantidade de operações que cabem no anel de cada banco.
+     */
+    public synchronized void usarSequenciador(int capacidade) {
+        if (capacidade < 1) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: A capacidade do sequenciador deve ser positiva.");
+        }
+        this.capacidadeSequenciador = capacidade;
+        for (Banco banco : bancos.bancos()) {
+            banco.usarSequenciador(capacidade);
+        }
+    }
+
+    /**
+     * Define por quanto tempo e quantas chaves de idempotência são lembradas
+     * ({@link CacheIdempotencia}). As chaves guardadas até agora são
+     * descartadas, então deve ser chamado antes das operações.
+     *
+     * @param janelaMillis Tempo mínimo que uma chave é lembrada, em milissegundos.
+     * @param capacidade   Quantidade de chaves de uma janela que devem caber no cache.
+     */
+    public synchronized void usarIdempotencia(long janelaMillis, int capacidade) {
+        if (janelaMillis < 1 || capacidade < 1) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: A janela e a capacidade do cache de idempotência "
+                            + "devem ser positivas.");
+        }
+        this.idempotencia = new CacheIdempotencia(janelaMillis, capacidade);
+        for (Banco banco : bancos.bancos()) {
+            banco.usarIdempotencia(idempotencia);
+        }
+    }
+
+    /**
+     * Chaves de idempotência das operações do Banco Central e dos seus bancos.
+     *
+     * @return Retorna o cache de idempotência.
+     */
+    public CacheIdempotencia getIdempotencia() {
+        return idempotencia;
+    }
+
+    /**
+     * Limite de tentativas de senha das contas de todos os bancos, usado pelo
+     * caixa eletrônico e pelo servidor de transações.
+     *
+     * @return Retorna o limitador de tentativas.
+     */
+    public LimitadorTentativas getLimitadorTentativas() {
+        return limitador;
+    }
+
+    /**
+     * Métricas das operações do Banco Central e dos seus bancos.
+     *
+     * @return Retorna as métricas.
+     */
+    public Metricas getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Câmara de compensação das transferências entre bancos.
+     *
+     * @return Retorna a câmara de compensação.
+     */
+    CompensacaoInterbancaria getCompensacao() {
+        return compensacao;
+    }
+
+    /**
+     * Fechamento mensal de todos os bancos.
+     *
+     * @return Retorna o fechamento mensal.
+     */
+    FechamentoMensal getFechamento() {
+        return fechamento;
+    }
+
+    /**
+     * Busta um banco por seu número.
+     *
+     * @param numero Número de identificação do banco.
+     * @return Retorna um objeto Banco.
+     * @throws UnsupportedOperationException Lança exceção se o banco não for encontrado.
+     */
+    public Banco getBancoPorNumero(int numero) throws UnsupportedOperationException {
+
+        if (bancos.quantidade() == 0) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Lista de contas vazia.");
+        }
+
+        Banco banco = buscarBanco(numero);
+
+        if (banco == null) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Banco " + numero + " não encontrado.");
+        }
+
+        return banco;
+    }
+
+    /**
+     * Lista os nomes dos bancos que é possível acessar por este caixa eletrônico 24hs.
+     *
+     * @return Retorna uma lista, que não pode ser alterada, com o nome dos bancos.
+     * @throws UnsupportedOperationException Lança exceção se nenhum banco for encontrado.
+     */
+    public List<String> getListaNomeDeBancos() throws UnsupportedOperationException {
+        TabelaBancos tabela = bancos;
+        if (tabela.quantidade() == 0) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Lista de bancos vazias.");
+        }
+
+        return tabela.nomes();
+    }
+
+    /**
+     * Bancos registrados no Banco Central.
+     *
+     * @return Retorna uma cópia da lista de bancos.
+     */
+    List<Banco> getBancos() {
+        return bancos.copiarBancos();
+    }
+
+    /**
+     * Quantidade de bancos registrados no Banco Central.
+     *
+     * @return Retorna o número de bancos.
+     */
+    public int getQuantidadeDeBancos() {
+        return bancos.quantidade();
+    }
+
+    /**
+     * Verifica se a conta existe no sistema do banco.
+     *
+     * @param banco Conta a ser verificada.
+     * @return Retorna true se a conta existe, false caso contrário.
+     */
+    public boolean existebanco(Banco banco) {
+        return bancos.contem(banco);
+    }
+
+    /**
+     * Processa um lote de transferências entre bancos.
+     * <p>
+     * Bancos e contas são procurados uma única vez, numa passada pelo lote.
+     * Depois os débitos (valor mais a taxa) são aplicados agrupados por conta
+     * origem e os itens debitados entram na fila da câmara de compensação, que
+     * liquida um ciclo em seguida: os créditos são aplicados agrupados por conta
+     * destino, junto com os das transferências que já estavam agendadas. Um
+     * item cujo crédito estouraria o saldo destino tem o valor devolvido à conta
+     * origem, como no ciclo de compensação. Cada conta é travada uma vez por
+     * grupo e nunca duas ao mesmo tempo. Um item recusado não interrompe o
+     * lote: o motivo fica no vetor de resultados.
+     *
+     * @param lote Lote de transferências.
+     * @return Retorna um código de {@link Resultado} para cada item, na ordem do lote.
+     */
+    public int[] processarLoteEntreBancos(LoteTransferencias lote) {
+        long inicioLote = metricas.inicioSemAmostragem();
+        int n = lote.tamanho();
+        int[] resultados = new int[n];
+        Banco[] bancosOrig = new Banco[n];
+        Banco[] bancosDest = new Banco[n];
+        Conta[] contasOrig = new Conta[n];
+        Conta[] contasDest = new Conta[n];
+        long instante = System.currentTimeMillis();
+
+        for (int i = 0; i < n; i++) {
+            bancosOrig[i] = buscarBanco(lote.bancoOrig(i));
+            bancosDest[i] = buscarBanco(lote.bancoDest(i));
+            if (bancosOrig[i] == null || bancosDest[i] == null) {
+                resultados[i] = Resultado.BANCO_NAO_ENCONTRADO;
+            } else if (bancosOrig[i] == bancosDest[i]) {
+                resultados[i] = Resultado.BANCO_ORIGEM_IGUAL_DESTINO;
+            } else if ((contasOrig[i] = bancosOrig[i].buscarConta(lote.contaOrig(i))) == null
+                    || (contasDest[i] = bancosDest[i].buscarConta(lote.contaDest(i))) == null) {
+                resultados[i] = Resultado.CONTA_NAO_ENCONTRADA;
+            } else if (lote.valor(i) <= 0) {
+                resultados[i] = Resultado.VALOR_INVALIDO;
+            }
+        }
+
+        int[] naFila = new int[n];
+        Arrays.fill(naFila, -1);
+        int[] itens = agruparPorOrigem(lote, resultados);
+        boolean[] devolvidos = compensacao.liquidarLote(this, registro, () -> {
+            for (int inicio = 0, fim; inicio < itens.length; inicio = fim) {
+                int i = itens[inicio];
+                fim = fimDoGrupo(itens, inicio, contasOrig);
+                bancosOrig[i].agendarLote(contasOrig[i], lote, itens, inicio, fim, contasDest,
+                        resultados, naFila, instante, compensacao);
+            }
+        }, naFila);
+
+        for (int i = 0; i < n; i++) {
+            if (devolvidos[i]) {
+                resultados[i] = Resultado.VALOR_FORA_DO_LIMITE;
+            }
+        }
+        metricas.registrarLote(Metricas.LOTE_ENTRE_BANCOS, resultados, inicioLote);
+        return resultados;
+    }
+
+    /**
+     * Posições dos itens aceitos do lote, agrupadas pela conta origem.
+     */
+    private static int[] agruparPorOrigem(LoteTransferencias lote, int[] resultados) {
+        int aceitos = 0;
+        for (int resultado : resultados) {
+            if (resultado == Resultado.OK) {
+                aceitos++;
+            }
+        }
+
+        int[] itens = new int[aceitos];
+        for (int i = 0, k = 0; i < resultados.length; i++) {
+            if (resultados[i] == Resultado.OK) {
+                itens[k++] = i;
+            }
+        }
+        return lote.agruparPorConta(itens, true);
+    }
+
+    /**
+     * Fim (exclusive) do grupo de itens da mesma conta que começa em inicio.
+     */
+    private static int fimDoGrupo(int[] itens, int inicio, Conta[] contas) {
+        Conta conta = contas[itens[inicio]];
+        int fim = inicio + 1;
+        while (fim < itens.length && contas[itens[fim]] == conta) {
+            fim++;
+        }
+        return fim;
+    }
+
+    /**
+     * Busca um banco pelo número sem lançar exceção.
+     *
+     * @param numero Número de identificação do banco.
+     * @return Retorna o banco, ou null se ele não for encontrado.
+     */
+    public Banco buscarBanco(int numero) {
+        Banco banco = bancos.buscar(numero);
+        metricas.contar(Metricas.BUSCA_BANCO, (banco == null) ? Resultado.BANCO_NAO_ENCONTRADO : Resultado.OK);
+        return banco;
+    }
+
+    /**
+     * Realiza transferência bancária entre bancos.
+     *
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @throws UnsupportedOperationException Lança a exceção se a transferência não for possível.
+     */
+    public void fazerTransferenciaEntreBancos(
+            Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest
+    ) throws UnsupportedOperationException {
+        int resultado = tentarTransferenciaEntreBancos(bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest);
+        verificarEntreBancos(resultado, numeroBancoDest, numeroContaDest);
+    }
+
+    /**
+     * Realiza transferência bancária entre bancos com chave de idempotência
+     * ({@link CacheIdempotencia}). Repetida com a mesma chave, não transfere de
+     * novo: vale o resultado da primeira chamada.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @throws UnsupportedOperationException Lança a exceção se a transferência não for possível.
+     */
+    public void fazerTransferenciaEntreBancos(
+            long chave, Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest
+    ) throws UnsupportedOperationException {
+        int resultado = tentarTransferenciaEntreBancos(
+                chave, bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest);
+        verificarEntreBancos(resultado, numeroBancoDest, numeroContaDest);
+    }
+
+    private void verificarEntreBancos(int resultado, int numeroBancoDest, int numeroContaDest) {
+        // Estes avisos trazem o número procurado; as buscas com exceção montam o texto.
+        if (resultado == Resultado.BANCO_NAO_ENCONTRADO) {
+            getBancoPorNumero(numeroBancoDest);
+        }
+        if (resultado == Resultado.CONTA_NAO_ENCONTRADA) {
+            getBancoPorNumero(numeroBancoDest).getContaPorNumero(numeroContaDest);
+        }
+        Resultado.verificar(resultado);
+    }
+
+    /**
+     * Tenta realizar transferência bancária entre bancos, sem lançar exceção se ela for recusada.
+     *
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    public int tentarTransferenciaEntreBancos(
+            Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        long inicio = metricas.inicio();
+        int resultado = transferirEntreBancos(bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest);
+        metricas.registrar(Metricas.TRANSFERENCIA_ENTRE_BANCOS, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Tenta realizar transferência bancária entre bancos com chave de idempotência,
+     * sem lançar exceção se ela for recusada.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int tentarTransferenciaEntreBancos(
+            long chave, Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        int impressao = CacheIdempotencia.impressao(Metricas.TRANSFERENCIA_ENTRE_BANCOS,
+                (bancoOrig == null) ? 0 : bancoOrig.getBancoNumero(),
+                (contaOrig == null) ? 0 : contaOrig.getContaNumero(), numeroBancoDest, numeroContaDest, valor);
+        return idempotencia.executar(chave, impressao, () -> tentarTransferenciaEntreBancos(
+                bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest));
+    }
+
+    private int transferirEntreBancos(
+            Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        int resultado = validarEntreBancos(bancoOrig, contaOrig, numeroBancoDest, numeroContaDest);
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        Banco bancoDest = buscarBanco(numeroBancoDest);
+        Conta contaDest = bancoDest.buscarConta(numeroContaDest);
+
+        // Débito e crédito com as duas contas travadas: ou os dois acontecem, ou nenhum.
+        return bancoOrig.aguardar(bancoOrig.aplicarTransferenciaEntreBancos(contaOrig, bancoDest, contaDest,
+                valor, BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS, System.currentTimeMillis()));
+    }
+
+    /**
+     * Confere os dados de uma transferência entre bancos antes de movimentar as contas.
+     *
+     * @return Retorna o código de {@link Resultado} da verificação.
+     */
+    private int validarEntreBancos(Banco bancoOrig, Conta contaOrig, int numeroBancoDest, int numeroContaDest) {
+        if (!existebanco(bancoOrig)) {
+            return Resultado.BANCO_ORIGEM_NAO_EXISTE;
+        }
+        if (!bancoOrig.existeConta(contaOrig)) {
+            return Resultado.CONTA_ORIGEM_NAO_EXISTE;
+        }
+        Banco bancoDest = buscarBanco(numeroBancoDest);
+        if (bancoDest == null) {
+            return Resultado.BANCO_NAO_ENCONTRADO;
+        }
+        if (bancoOrig.getBancoNumero() == bancoDest.getBancoNumero()) {
+            return Resultado.BANCO_ORIGEM_IGUAL_DESTINO;
+        }
+        if (bancoDest.buscarConta(numeroContaDest) == null) {
+            return Resultado.CONTA_NAO_ENCONTRADA;
+        }
+        return Resultado.OK;
+    }
+
+    /**
+     * Agenda uma transferência entre bancos na câmara de compensação.
+     * O valor e a taxa são debitados da conta origem agora; o crédito na conta
+     * destino acontece no próximo ciclo ({@link #liquidarCompensacao}).
+     *
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    public int agendarTransferenciaEntreBancos(
+            Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        long inicio = metricas.inicio();
+        int resultado = validarEAgendar(bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest);
+        metricas.registrar(Metricas.AGENDAMENTO, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Agenda uma transferência entre bancos com chave de idempotência
+     * ({@link CacheIdempotencia}). Repetido com a mesma chave, não agenda de
+     * novo: vale o resultado da primeira chamada.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param bancoOrig       Banco origem que faz a transferência.
+     * @param contaOrig       Conta origem que quer fazer a transferência.
+     * @param valor           Valor a ser transferido, em centavos.
+     * @param numeroBancoDest Número do banco destino da transferência.
+     * @param numeroContaDest Número da conta destino da transferência.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int agendarTransferenciaEntreBancos(
+            long chave, Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        int impressao = CacheIdempotencia.impressao(Metricas.AGENDAMENTO,
+                (bancoOrig == null) ? 0 : bancoOrig.getBancoNumero(),
+                (contaOrig == null) ? 0 : contaOrig.getContaNumero(), numeroBancoDest, numeroContaDest, valor);
+        return idempotencia.executar(chave, impressao, () -> agendarTransferenciaEntreBancos(
+                bancoOrig, contaOrig, valor, numeroBancoDest, numeroContaDest));
+    }
+
+    private int validarEAgendar(
+            Banco bancoOrig, Conta contaOrig, long valor,
+            int numeroBancoDest, int numeroContaDest) {
+        int resultado = validarEntreBancos(bancoOrig, contaOrig, numeroBancoDest, numeroContaDest);
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        if (valor <= 0) {
+            return Resultado.VALOR_INVALIDO;
+        }
+        Banco bancoDest = buscarBanco(numeroBancoDest);
+
+        return agendarTransferenciaEntreBancos(bancoOrig, contaOrig, bancoDest.buscarConta(numeroContaDest),
+                valor, BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS, System.currentTimeMillis());
+    }
+
+    /**
+     * Agenda uma transferência com a taxa e o instante informados
+     * (usado também na recuperação do registro de transações).
+     */
+    int agendarTransferenciaEntreBancos(Banco bancoOrig, Conta contaOrig, Conta contaDest,
+                                        long valor, long taxa, long instante) {
+        return bancoOrig.tentarTransferenciaAgendada(contaOrig, contaDest, valor, taxa, instante, compensacao);
+    }
+
+    /**
+     * Liquida um ciclo de compensação com todas as transferências agendadas até agora.
+     * As posições entre os bancos são compensadas e os créditos são aplicados
+     * agrupados por conta destino.
+     *
+     * @return Retorna o resultado do ciclo, com as posições bilaterais e multilaterais.
+     */
+    public CicloCompensacao liquidarCompensacao() {
+        long inicio = metricas.inicioSemAmostragem();
+        CicloCompensacao ciclo = compensacao.liquidar(this, registro);
+        metricas.registrar(Metricas.LIQUIDACAO, Resultado.OK, inicio);
+        return ciclo;
+    }
+
+    /**
+     * Quantidade de transferências agendadas esperando o próximo ciclo de compensação.
+     *
+     * @return Retorna o tamanho da fila de compensação.
+     */
+    public int getQuantidadePendenteCompensacao() {
+        return compensacao.quantidadePendente();
+    }
+
+    /**
+     * Faz o fechamento do mês em todas as contas de todos os bancos: credita o
+     * rendimento das contas poupança e debita a taxa das contas correntes. As
+     * contas são processadas em paralelo no pool comum, sem bloquear as
+     * transações. Se o fechamento da mesma competência foi interrompido, ele
+     * continua de onde parou.
+     *
+     * @param competencia Mês do fechamento, no formato AAAAMM (por exemplo, 202610).
+     * @return Retorna o resumo dos lançamentos.
+     * @throws UnsupportedOperationException Lança exceção se a competência é inválida,
+     *                                       já foi fechada ou outra está em andamento.
+     */
+    public ResumoFechamento fecharMes(int competencia) throws UnsupportedOperationException {
+        return fecharMes(competencia, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Faz o fechamento do mês, processando as contas no pool informado.
+     *
+     * @param competencia Mês do fechamento, no formato AAAAMM (por exemplo, 202610).
+     * @param pool        Pool onde as contas são processadas.
+     * @return Retorna o resumo dos lançamentos.
+     * @throws UnsupportedOperationException Lança exceção se a competência é inválida,
+     *                                       já foi fechada ou outra está em andamento.
+     */
+    public ResumoFechamento fecharMes(int competencia, ForkJoinPool pool) throws UnsupportedOperationException {
+        long inicio = metricas.inicioSemAmostragem();
+        ResumoFechamento resumo = fechamento.fechar(this, registro, competencia, pool);
+        metricas.registrar(Metricas.FECHAMENTO_MENSAL, Resultado.OK, inicio);
+        return resumo;
+    }
+
+    /**
+     * Exporta os extratos de todas as contas de todos os bancos para arquivos
+     * no diretório informado, um arquivo por faixa de contas de cada banco,
+     * processadas em paralelo no pool comum. As transações continuam durante a
+     * exportação; cada conta só fica travada enquanto um lote das suas
+     * operações é copiado.
+     *
+     * @param diretorio Diretório dos arquivos; é criado se não existir.
+     * @param formato   ExportacaoExtratos.CSV ou ExportacaoExtratos.BINARIO.
+     * @param compactar Indica se os arquivos são gravados em gzip.
+     * @return Retorna o resumo da exportação, com a vazão.
+     * @throws IOException                   Lança exceção se algum arquivo não puder ser gravado.
+     * @throws UnsupportedOperationException Lança exceção se o formato é inválido.
+     */
+    public ResumoExportacao exportarExtratos(Path diretorio, int formato, boolean compactar) throws IOException {
+        return exportarExtratos(diretorio, formato, compactar, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Exporta os extratos de todas as contas, processando as faixas de contas no pool informado.
+     *
+     * @param diretorio Diretório dos arquivos; é criado se não existir.
+     * @param formato   ExportacaoExtratos.CSV ou ExportacaoExtratos.BINARIO.
+     * @param compactar Indica se os arquivos são gravados em gzip.
+     * @param pool      Pool onde as faixas de contas são exportadas.
+     * @return Retorna o resumo da exportação, com a vazão.
+     * @throws IOException                   Lança exceção se algum arquivo não puder ser gravado.
+     * @throws UnsupportedOperationException Lança exceção se o formato é inválido.
+     */
+    public ResumoExportacao exportarExtratos(Path diretorio, int formato, boolean compactar, ForkJoinPool pool)
+            throws IOException {
+        long inicio = metricas.inicioSemAmostragem();
+        ResumoExportacao resumo = ExportacaoExtratos.exportar(getBancos(), diretorio, formato, compactar, pool);
+        metricas.registrar(Metricas.EXPORTACAO_EXTRATOS, Resultado.OK, inicio);
+        return resumo;
+    }
+}
@@ -0,0 +1,1352 @@
+package br.com.daluz.javabank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Classe abstrata que representa um banco genérico.
+ * <p>
+ * As operações podem ser chamadas por várias threads ao mesmo tempo.
+ * Cada operação trava apenas as contas envolvidas (monitor da conta), de modo
+ * que operações em contas diferentes executam em paralelo. Quando duas
+ * contas são travadas, a ordem é sempre a do menor número de conta para o
+ * maior, o que evita deadlock.
+ * <p>
+ * Com o sequenciador ({@link BancoCentral#usarSequenciador}), saques,
+ * depósitos e transferências internas são aplicados por uma única thread do
+ * banco, na ordem em que chegam, e a thread que chama só espera a resposta.
+ */
+public abstract class BancoRef {
+    /**
+     * Taxa cobrada nas transferências entre bancos, em centavos.
+     */
+    public static final long TAXA_TRANFERENCIA_ENTRE_BANCOS = 2200;
+
+    private final String bancoNome;
+    private final int bancoNumero;
+    private final DescritorBanco descritor;
+    private final IndiceContas indice;
+    private volatile RegistroTransacoes registro;
+    private volatile ContasMapeadas contasMapeadas;
+    private volatile Metricas metricas;
+    private volatile CacheIdempotencia idempotencia;
+    private volatile SequenciadorBanco sequenciador;
+
+    /**
+     * Método construtor da classe BancoRef.
+     *
+     * @param bancoNumero Número de identificação do banco.
+     * @param bancoNome   Nome do banco.
+     */
+    public BancoRef(int bancoNumero, String bancoNome) {
+        this.bancoNumero = bancoNumero;
+        this.bancoNome = bancoNome;
+        this.descritor = new DescritorBanco(bancoNumero, bancoNome);
+        this.indice = new IndiceContas();
+        this.registro = RegistroTransacoes.DESATIVADO;
+        this.metricas = Metricas.DESATIVADAS;
+        this.idempotencia = new CacheIdempotencia();
+    }
+
+    /**
+     * Define o registro de transações onde as operações do banco são gravadas.
+     * Chamado pelo Banco Central quando o banco é registrado nele.
+     *
+     * @param registro Registro de transações.
+     */
+    void usarRegistro(RegistroTransacoes registro) {
+        this.registro = registro;
+    }
+
+    /**
+     * Define onde as métricas das operações do banco são contadas.
+     * Chamado pelo Banco Central quando o banco é registrado nele.
+     *
+     * @param metricas Métricas do Banco Central.
+     */
+    void usarMetricas(Metricas metricas) {
+        this.metricas = metricas;
+    }
+
+    /**
+     * Define onde ficam as chaves de idempotência das operações do banco.
+     * Chamado pelo Banco Central, para que todos os bancos usem o mesmo cache.
+     *
+     * @param idempotencia Cache de idempotência do Banco Central.
+     */
+    void usarIdempotencia(CacheIdempotencia idempotencia) {
+        this.idempotencia = idempotencia;
+    }
+
+    /**
+     * Passa a executar os saques, depósitos e transferências internas do banco
+     * pelo {@link SequenciadorBanco}, em vez de travar as contas na thread que chama.
+     * Chamado pelo Banco Central.
+     *
+     * @param capacidade Quantidade de eventos no anel do sequenciador.
+     */
+    synchronized void usarSequenciador(int capacidade) {
+        if (sequenciador == null) {
+            sequenciador = new SequenciadorBanco(this, capacidade);
+        }
+    }
+
+    /**
+     * Sequenciador das operações do banco.
+     *
+     * @return Retorna o sequenciador, ou null se as operações travam as contas na thread que chama.
+     */
+    SequenciadorBanco getSequenciador() {
+        return sequenciador;
+    }
+
+    /**
+     * Define o segmento para onde vão as operações mais antigas dos extratos
+     * das contas do banco, inclusive das que já existem.
+     * Chamado pelo Banco Central.
+     *
+     * @param segmento Segmento de extratos do Banco Central.
+     */
+    synchronized void usarSegmentoExtratos(SegmentoExtratos segmento) {
+        descritor.setSegmentoExtratos(segmento);
+        indice.paraCada(conta -> conta.usarSegmentoExtratos(segmento));
+    }
+
+    SegmentoExtratos getSegmentoExtratos() {
+        return descritor.getSegmentoExtratos();
+    }
+
+    /**
+     * Descritor compartilhado pelas contas do banco.
+     *
+     * @return Retorna o descritor do banco.
+     */
+    DescritorBanco getDescritor() {
+        return descritor;
+    }
+
+    /**
+     * Passa a manter como objetos só as contas mais usadas, até o limite
+     * informado; as demais ficam num {@link ArmazemContas} fora do heap e
+     * voltam a ser objetos quando são procuradas.
+     * Chamado pelo Banco Central.
+     *
+     * @param limiteQuentes Quantidade de contas mantidas como objetos.
+     */
+    synchronized void usarArmazemFrio(int limiteQuentes) {
+        if (descritor.getArmazemFrio() != null) {
+            return;
+        }
+        descritor.setArmazemFrio(new ArmazemContas(this, indice, limiteQuentes));
+        verificarLimiteQuentes();
+    }
+
+    /**
+     * Acorda a thread do armazém frio se o índice passou do limite de contas quentes.
+     */
+    private void verificarLimiteQuentes() {
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (armazem != null && indice.tamanho() > armazem.getLimiteQuentes()) {
+            armazem.sinalizar();
+        }
+    }
+
+    /**
+     * Define as contas do banco que estão num snapshot mapeado em memória.
+     * Essas contas só viram objetos quando são procuradas pela primeira vez.
+     *
+     * @param contasMapeadas Contas do banco no snapshot.
+     */
+    void usarContasMapeadas(ContasMapeadas contasMapeadas) {
+        this.contasMapeadas = contasMapeadas;
+    }
+
+    /**
+     * Contas do banco no snapshot mapeado em memória.
+     *
+     * @return Retorna as contas mapeadas, ou null se o banco não foi carregado de um snapshot.
+     */
+    ContasMapeadas getContasMapeadas() {
+        return contasMapeadas;
+    }
+
+    /**
+     * Contas que já foram criadas ou carregadas do snapshot: as que estão em
+     * memória e, como objetos temporários, as que estão no armazém frio.
+     *
+     * @return Retorna uma lista nova com as contas.
+     */
+    synchronized List<Conta> getContasCarregadas() {
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (armazem != null) {
+            return armazem.listar();
+        }
+        List<Conta> carregadas = new ArrayList<>();
+        indice.paraCada(carregadas::add);
+        return carregadas;
+    }
+
+    /**
+     * Números de todas as contas do banco, em ordem crescente: as do índice,
+     * as do armazém frio e as do snapshot mapeado que ainda não viraram objetos.
+     *
+     * @return Retorna um array novo com os números.
+     */
+    synchronized int[] getNumerosDeContas() {
+        IntStream.Builder numeros = IntStream.builder();
+        indice.paraCada(conta -> numeros.add(conta.getContaNumero()));
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (armazem != null) {
+            armazem.paraCadaNumero(numeros);
+        }
+        ContasMapeadas mapeadas = contasMapeadas;
+        if (mapeadas != null) {
+            for (int i = 0; i < mapeadas.quantidade(); i++) {
+                numeros.add(mapeadas.contaNumero(i));
+            }
+        }
+        return numeros.build().sorted().distinct().toArray();
+    }
+
+    /**
+     * Método para criar a nova conta no sistema do banco.
+     *
+     * @param conta Conta bancária a ser salva no registro do banco.
+     * @throws UnsupportedOperationException Lança exceção se já existir conta com o mesmo número.
+     */
+    public void criarConta(Conta conta) throws UnsupportedOperationException {
+        long inicio = metricas.inicio();
+        long posicao;
+
+        synchronized (this) {
+            ContasMapeadas mapeadas = contasMapeadas;
+            ArmazemContas armazem = descritor.getArmazemFrio();
+            if ((mapeadas != null && mapeadas.buscar(conta.getContaNumero()) >= 0)
+                    || (armazem != null && armazem.contem(conta.getContaNumero()))
+                    || !indice.inserir(conta)) {
+                throw new UnsupportedOperationException(
+                        "[AVISO]\nOperação não realizada!\nMotivo: Conta \"" + conta.getContaNumero() + "\" já existe.");
+            }
+            conta.usada = true;
+            if (descritor.descreve(conta.getBancoNumero(), conta.getBancoNome())) {
+                // A conta deixa de guardar cópias do número e do nome do banco.
+                conta.usarDescritor(descritor);
+            } else if (descritor.getSegmentoExtratos() != null) {
+                conta.usarSegmentoExtratos(descritor.getSegmentoExtratos());
+            }
+            posicao = registro.registrarCriarConta(System.currentTimeMillis(), conta);
+        }
+
+        verificarLimiteQuentes();
+        registro.aguardar(posicao);
+        metricas.registrar(Metricas.CRIAR_CONTA, Resultado.OK, inicio);
+    }
+
+
+    /**
+     * Busca uma conta no sistema do banco pelo número de identificação da mesma.
+     *
+     * @param contaNumero Número de identificação da conta do cliente.
+     * @return Retorna a conta procurada.
+     * @throws UnsupportedOperationException Lançada se o cliente não for encontrado.
+     */
+    public Conta getContaPorNumero(int contaNumero) {
+        Conta conta = buscarConta(contaNumero);
+
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (conta == null && indice.tamanho() == 0 && contasMapeadas == null
+                && (armazem == null || armazem.quantidade() == 0)) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Lista de contas vazia.");
+        }
+
+        if (conta == null) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Conta \"" + contaNumero + "\" não encontrada.");
+        }
+
+        return conta;
+    }
+
+    /**
+     * Busca uma conta pelo número sem lançar exceção.
+     *
+     * @param contaNumero Número de identificação da conta do cliente.
+     * @return Retorna a conta procurada, ou null se ela não existir.
+     */
+    public Conta buscarConta(int contaNumero) {
+        Conta conta = localizar(contaNumero);
+        metricas.contar(Metricas.BUSCA_CONTA, (conta == null) ? Resultado.CONTA_NAO_ENCONTRADA : Resultado.OK);
+        return conta;
+    }
+
+    /**
+     * Procura a conta no índice e, se ela não estiver lá, no armazém frio e no snapshot mapeado.
+     * Marca a conta como usada para a política de relógio do armazém frio.
+     */
+    Conta localizar(int contaNumero) {
+        Conta conta = indice.get(contaNumero);
+
+        if (conta != null) {
+            // Só escreve se preciso, para não sujar a linha de cache a cada busca.
+            if (!conta.usada) {
+                conta.usada = true;
+            }
+        } else if (descritor.getArmazemFrio() != null || contasMapeadas != null) {
+            conta = carregarConta(contaNumero);
+        }
+        return conta;
+    }
+
+    /**
+     * Procura a conta para uma leitura, sem trazê-la para o índice: uma conta
+     * fria, ou que ainda só está no snapshot mapeado, vira um objeto
+     * temporário, que não deve ser alterado. Usado por quem percorre todas as
+     * contas do banco, para não esquentar as contas frias.
+     *
+     * @param contaNumero Número da conta.
+     * @param comExtrato  Indica se o objeto temporário precisa do extrato; sem
+     *                    ele, só o registro da conta é lido.
+     * @return Retorna a conta, ou null se ela não existir.
+     */
+    Conta consultarConta(int contaNumero, boolean comExtrato) {
+        Conta conta = indice.get(contaNumero);
+        if (conta == null && (descritor.getArmazemFrio() != null || contasMapeadas != null)) {
+            conta = consultarForaDoIndice(contaNumero, comExtrato);
+        }
+        return conta;
+    }
+
+    /**
+     * Cria o objeto temporário de uma conta do armazém frio ou do snapshot mapeado.
+     */
+    private synchronized Conta consultarForaDoIndice(int contaNumero, boolean comExtrato) {
+        // Outra thread pode ter carregado a conta enquanto esta esperava o monitor.
+        Conta conta = indice.get(contaNumero);
+
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (conta == null && armazem != null) {
+            conta = armazem.consultar(contaNumero, comExtrato);
+        }
+
+        if (conta == null && contasMapeadas != null) {
+            int i = contasMapeadas.buscar(contaNumero);
+            if (i >= 0) {
+                conta = contasMapeadas.ler(i, this);
+                if (comExtrato) {
+                    // O extrato do objeto temporário fica só em memória, fora do segmento.
+                    contasMapeadas.lerExtrato(i, conta, null);
+                }
+            }
+        }
+        return conta;
+    }
+
+    /**
+     * Traz a conta do armazém frio ou cria o objeto a partir do snapshot mapeado, e a coloca no índice.
+     *
+     * @param contaNumero Número da conta.
+     * @return Retorna a conta, ou null se ela não existir.
+     */
+    private synchronized Conta carregarConta(int contaNumero) {
+        // Outra thread pode ter carregado a conta enquanto esta esperava o monitor.
+        Conta conta = indice.get(contaNumero);
+        if (conta != null) {
+            return conta;
+        }
+
+        ArmazemContas armazem = descritor.getArmazemFrio();
+        if (armazem != null) {
+            conta = armazem.carregar(contaNumero);
+        }
+
+        if (conta == null && contasMapeadas != null) {
+            int i = contasMapeadas.buscar(contaNumero);
+            if (i >= 0) {
+                conta = contasMapeadas.ler(i, this);
+                contasMapeadas.lerExtrato(i, conta, descritor.getSegmentoExtratos());
+                conta.usada = true;
+                indice.inserir(conta);
+            }
+        }
+
+        if (conta != null) {
+            verificarLimiteQuentes();
+        }
+        return conta;
+    }
+
+    /**
+     * Valida e realiza um saque na conta do cliente.
+     * Este método é para uso interno, e deve ser chamado com o monitor da conta travado.
+     *
+     * @param conta Conta do cliente.
+     * @param valor Valor a ser sacado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} do saque.
+     */
+    private static int sacar(Conta conta, long valor) {
+        if (valor <= 0) {
+            return Resultado.VALOR_INVALIDO;
+        }
+
+        if (!conta.temSaldo(valor)) {
+            return Resultado.SALDO_INSUFICIENTE;
+        }
+
+        conta.setSaldo(conta.getSaldo() - valor);
+        return Resultado.OK;
+    }
+
+    /**
+     * Realiza um saque na conta do cliente.
+     *
+     * @param contaOrig Conta do cliente.
+     * @param valor     Valor a ser sacado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerSaque(Conta contaOrig, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarSaque(contaOrig, valor));
+    }
+
+    /**
+     * Realiza um saque com o instante informado (usado também na recuperação do registro de transações).
+     */
+    void fazerSaque(Conta contaOrig, long valor, long instante)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarSaque(contaOrig, valor, instante));
+    }
+
+    /**
+     * Tenta realizar um saque na conta do cliente, sem lançar exceção se ele for recusado.
+     *
+     * @param contaOrig Conta do cliente.
+     * @param valor     Valor a ser sacado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    public int tentarSaque(Conta contaOrig, long valor) {
+        long inicio = metricas.inicio();
+        int resultado = tentarSaque(contaOrig, valor, System.currentTimeMillis());
+        metricas.registrar(Metricas.SAQUE, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Realiza um saque com chave de idempotência ({@link CacheIdempotencia}).
+     * Repetido com a mesma chave, não saca de novo: vale o resultado da primeira chamada.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente.
+     * @param valor     Valor a ser sacado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerSaque(long chave, Conta contaOrig, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarSaque(chave, contaOrig, valor));
+    }
+
+    /**
+     * Tenta realizar um saque com chave de idempotência, sem lançar exceção se ele for recusado.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente.
+     * @param valor     Valor a ser sacado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int tentarSaque(long chave, Conta contaOrig, long valor) {
+        int impressao = CacheIdempotencia.impressao(Metricas.SAQUE, bancoNumero, contaOrig.getContaNumero(), 0, 0, valor);
+        return idempotencia.executar(chave, impressao, () -> tentarSaque(contaOrig, valor));
+    }
+
+    int tentarSaque(Conta contaOrig, long valor, long instante) {
+        SequenciadorBanco sequenciador = this.sequenciador;
+        if (sequenciador != null) {
+            return sequenciador.executar(SequenciadorBanco.SAQUE, contaOrig, null, valor, instante);
+        }
+        return aguardar(aplicarSaque(contaOrig, valor, instante));
+    }
+
+    /**
+     * Aplica o saque e o grava no registro de transações, sem esperar a gravação.
+     *
+     * @return Retorna a posição do registro gravado, ou o código de {@link Resultado} com o sinal trocado se recusado.
+     */
+    long aplicarSaque(Conta contaOrig, long valor, long instante) {
+        synchronized (contaOrig) {
+            int resultado = sacar(contaOrig, valor);
+            if (resultado != Resultado.OK) {
+                return -resultado;
+            }
+            contaOrig.salvarOperacao(Extrato.SAQUE, instante,
+                    contaOrig.getBancoNumero(), contaOrig.getBancoNome(),
+                    contaOrig.getContaNumero(), contaOrig.getTitular(), valor);
+            return registro.registrarSaque(instante, bancoNumero, contaOrig.getContaNumero(), valor);
+        }
+    }
+
+    /**
+     * Espera a gravação do registro retornado por um dos métodos aplicar,
+     * ou converte a recusa dele em código de resultado.
+     * Deve ser chamado sem nenhuma conta travada.
+     *
+     * @param posicao Posição do registro, ou o código de {@link Resultado} com o sinal trocado.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    int aguardar(long posicao) {
+        if (posicao < 0) {
+            return (int) -posicao;
+        }
+        registro.aguardar(posicao);
+        return Resultado.OK;
+    }
+
+    /**
+     * Realiza um depósito na conta do cliente ou outra conta no mesmo banco.
+     *
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerDeposito(Conta contaOrig, Conta contaDest, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarDeposito(contaOrig, contaDest, valor));
+    }
+
+    /**
+     * Realiza um depósito com o instante informado (usado também na recuperação do registro de transações).
+     */
+    void fazerDeposito(Conta contaOrig, Conta contaDest, long valor, long instante)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarDeposito(contaOrig, contaDest, valor, instante));
+    }
+
+    /**
+     * Tenta realizar um depósito, sem lançar exceção se ele for recusado.
+     *
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    public int tentarDeposito(Conta contaOrig, Conta contaDest, long valor) {
+        long inicio = metricas.inicio();
+        int resultado = tentarDeposito(contaOrig, contaDest, valor, System.currentTimeMillis());
+        metricas.registrar(Metricas.DEPOSITO, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Realiza um depósito com chave de idempotência ({@link CacheIdempotencia}).
+     * Repetido com a mesma chave, não deposita de novo: vale o resultado da primeira chamada.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerDeposito(long chave, Conta contaOrig, Conta contaDest, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarDeposito(chave, contaOrig, contaDest, valor));
+    }
+
+    /**
+     * Tenta realizar um depósito com chave de idempotência, sem lançar exceção se ele for recusado.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int tentarDeposito(long chave, Conta contaOrig, Conta contaDest, long valor) {
+        int impressao = CacheIdempotencia.impressao(Metricas.DEPOSITO, contaOrig.getBancoNumero(),
+                contaOrig.getContaNumero(), bancoNumero, contaDest.getContaNumero(), valor);
+        return idempotencia.executar(chave, impressao, () -> tentarDeposito(contaOrig, contaDest, valor));
+    }
+
+    int tentarDeposito(Conta contaOrig, Conta contaDest, long valor, long instante) {
+        SequenciadorBanco sequenciador = this.sequenciador;
+        if (sequenciador != null) {
+            return sequenciador.executar(SequenciadorBanco.DEPOSITO, contaOrig, contaDest, valor, instante);
+        }
+        return aguardar(aplicarDeposito(contaOrig, contaDest, valor, instante));
+    }
+
+    /**
+     * Aplica o depósito e o grava no registro de transações, sem esperar a gravação.
+     *
+     * @return Retorna a posição do registro gravado, ou o código de {@link Resultado} com o sinal trocado se recusado.
+     */
+    long aplicarDeposito(Conta contaOrig, Conta contaDest, long valor, long instante) {
+        if (valor <= 0) {
+            return -Resultado.VALOR_INVALIDO;
+        }
+        synchronized (contaDest) {
+            if (!Dinheiro.podeSomar(contaDest.getSaldo(), valor)) {
+                return -Resultado.VALOR_FORA_DO_LIMITE;
+            }
+            depositar(contaOrig, contaDest, valor, instante);
+            return registro.registrarMovimento(RegistroTransacoes.DEPOSITO, instante,
+                    bancoNumero, contaDest.getContaNumero(),
+                    contaOrig.getBancoNumero(), contaOrig.getContaNumero(), valor);
+        }
+    }
+
+    /**
+     * Credita o depósito na conta destino e salva a operação no extrato.
+     * Este método é para uso interno, e deve ser chamado com o monitor da conta destino travado,
+     * depois de verificar que o novo saldo cabe no limite.
+     */
+    private void depositar(Conta contaOrig, Conta contaDest, long valor, long instante) {
+        contaDest.setSaldo(contaDest.getSaldo() + valor);
+        contaDest.salvarOperacao(Extrato.DEPOSITO, instante,
+                contaOrig.getBancoNumero(), contaOrig.getBancoNome(),
+                contaOrig.getContaNumero(), contaOrig.getTitular(), valor);
+    }
+
+    /**
+     * Realiza um depósito interbancário na conta do cliente.
+     *
+     * @param bancoNumeroOrig Número do banco do depositante.
+     * @param bancoNomeOrig   Nome do banco do depositante.
+     * @param contaNumeroOrig Número da conta do depositante.
+     * @param titularOrig     Nome do titular depositante.
+     * @param contaDest       Conta do cliente beneficiário.
+     * @param valor           Valor a ser depositado da conta, em centavos.
+     */
+    public void fazerDepositoInterbancario(
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor) {
+        Resultado.verificar(depositarInterbancario(bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig,
+                contaDest, valor));
+    }
+
+    /**
+     * Realiza um depósito interbancário com chave de idempotência ({@link CacheIdempotencia}).
+     * Repetido com a mesma chave, não deposita de novo: vale o resultado da primeira chamada.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param bancoNumeroOrig Número do banco do depositante.
+     * @param bancoNomeOrig   Nome do banco do depositante.
+     * @param contaNumeroOrig Número da conta do depositante.
+     * @param titularOrig     Nome do titular depositante.
+     * @param contaDest       Conta do cliente beneficiário.
+     * @param valor           Valor a ser depositado da conta, em centavos.
+     */
+    public void fazerDepositoInterbancario(
+            long chave,
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor) {
+        Resultado.verificar(tentarDepositoInterbancario(chave, bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig,
+                titularOrig, contaDest, valor));
+    }
+
+    /**
+     * Tenta realizar um depósito interbancário com chave de idempotência, sem
+     * lançar exceção se ele for recusado. É a segunda metade de uma
+     * transferência entre nós do Banco Central particionado ({@link RoteadorShards}).
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param bancoNumeroOrig Número do banco do depositante.
+     * @param bancoNomeOrig   Nome do banco do depositante.
+     * @param contaNumeroOrig Número da conta do depositante.
+     * @param titularOrig     Nome do titular depositante.
+     * @param contaDest       Conta do cliente beneficiário.
+     * @param valor           Valor a ser depositado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int tentarDepositoInterbancario(
+            long chave,
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor) {
+        int impressao = CacheIdempotencia.impressao(Metricas.DEPOSITO_INTERBANCARIO, bancoNumeroOrig,
+                contaNumeroOrig, bancoNumero, contaDest.getContaNumero(), valor);
+        return idempotencia.executar(chave, impressao, () -> depositarInterbancario(
+                bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig, contaDest, valor));
+    }
+
+    private int depositarInterbancario(
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor) {
+        long inicio = metricas.inicio();
+        int resultado = tentarDepositoInterbancario(bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig,
+                contaDest, valor, System.currentTimeMillis());
+        metricas.registrar(Metricas.DEPOSITO_INTERBANCARIO, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Realiza um depósito interbancário com o instante informado
+     * (usado também na recuperação do registro de transações).
+     */
+    void fazerDepositoInterbancario(
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor,
+            long instante) {
+        Resultado.verificar(tentarDepositoInterbancario(bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig,
+                contaDest, valor, instante));
+    }
+
+    /**
+     * Tenta realizar um depósito interbancário, sem lançar exceção se ele for recusado.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    int tentarDepositoInterbancario(
+            int bancoNumeroOrig,
+            String bancoNomeOrig,
+            int contaNumeroOrig,
+            String titularOrig,
+            Conta contaDest,
+            long valor,
+            long instante) {
+        if (valor <= 0) {
+            return Resultado.VALOR_INVALIDO;
+        }
+        long posicao;
+
+        synchronized (contaDest) {
+            if (!Dinheiro.podeSomar(contaDest.getSaldo(), valor)) {
+                return Resultado.VALOR_FORA_DO_LIMITE;
+            }
+            contaDest.setSaldo(contaDest.getSaldo() + valor);
+            contaDest.salvarOperacao(Extrato.DEPOSITO_INTERBANCARIO, instante,
+                    bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig, valor);
+            posicao = registro.registrarDepositoInterbancario(instante, bancoNumero, contaDest.getContaNumero(),
+                    bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig, valor);
+        }
+
+        registro.aguardar(posicao);
+        return Resultado.OK;
+    }
+
+    /**
+     * Realiza uma transferência interna de uma conta para outra no mesmo banco.
+     *
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarTransferenciaInterna(contaOrig, contaDest, valor));
+    }
+
+    /**
+     * Realiza uma transferência interna com o instante informado
+     * (usado também na recuperação do registro de transações).
+     */
+    void fazerTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor, long instante)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarTransferenciaInterna(contaOrig, contaDest, valor, instante));
+    }
+
+    /**
+     * Tenta realizar uma transferência interna, sem lançar exceção se ela for recusada.
+     *
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    public int tentarTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor) {
+        long inicio = metricas.inicio();
+        int resultado = tentarTransferenciaInterna(contaOrig, contaDest, valor, System.currentTimeMillis());
+        metricas.registrar(Metricas.TRANSFERENCIA_INTERNA, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Realiza uma transferência interna com chave de idempotência ({@link CacheIdempotencia}).
+     * Repetida com a mesma chave, não transfere de novo: vale o resultado da primeira chamada.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não puder ser realizada.
+     */
+    public void fazerTransferenciaInterna(long chave, Conta contaOrig, Conta contaDest, long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarTransferenciaInterna(chave, contaOrig, contaDest, valor));
+    }
+
+    /**
+     * Tenta realizar uma transferência interna com chave de idempotência, sem lançar exceção se ela for recusada.
+     *
+     * @param chave     Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig Conta do cliente depositante.
+     * @param contaDest Conta do cliente beneficiário.
+     * @param valor     Valor a ser depositado da conta, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    public int tentarTransferenciaInterna(long chave, Conta contaOrig, Conta contaDest, long valor) {
+        int impressao = CacheIdempotencia.impressao(Metricas.TRANSFERENCIA_INTERNA, bancoNumero,
+                contaOrig.getContaNumero(), bancoNumero, contaDest.getContaNumero(), valor);
+        return idempotencia.executar(chave, impressao, () -> tentarTransferenciaInterna(contaOrig, contaDest, valor));
+    }
+
+    int tentarTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor, long instante) {
+        SequenciadorBanco sequenciador = this.sequenciador;
+        if (sequenciador != null) {
+            return sequenciador.executar(SequenciadorBanco.TRANSFERENCIA_INTERNA, contaOrig, contaDest, valor, instante);
+        }
+        int resultado = verificarTransferenciaInterna(contaOrig, contaDest, valor);
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        return aguardar(aplicarTransferenciaInterna(contaOrig, contaDest, valor, instante));
+    }
+
+    /**
+     * Verificações da transferência interna que não dependem do saldo das contas.
+     *
+     * @return Retorna o código de {@link Resultado} das verificações.
+     */
+    int verificarTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor) {
+        if (!existeConta(contaDest)) {
+            return Resultado.CONTA_DESTINO_NAO_EXISTE;
+        }
+        if (contaOrig.getContaNumero() == contaDest.getContaNumero()) {
+            return Resultado.CONTA_ORIGEM_IGUAL_DESTINO;
+        }
+        if (valor <= 0) {
+            return Resultado.VALOR_INVALIDO;
+        }
+        return Resultado.OK;
+    }
+
+    /**
+     * Aplica a transferência interna já verificada e a grava no registro de
+     * transações, sem esperar a gravação.
+     *
+     * @return Retorna a posição do registro gravado, ou o código de {@link Resultado} com o sinal trocado se recusada.
+     */
+    long aplicarTransferenciaInterna(Conta contaOrig, Conta contaDest, long valor, long instante) {
+        // Trava as duas contas sempre na mesma ordem para evitar deadlock.
+        Conta primeira = (contaOrig.getContaNumero() < contaDest.getContaNumero()) ? contaOrig : contaDest;
+        Conta segunda = (primeira == contaOrig) ? contaDest : contaOrig;
+
+        synchronized (primeira) {
+            synchronized (segunda) {
+                if (!Dinheiro.podeSomar(contaDest.getSaldo(), valor)) {
+                    return -Resultado.VALOR_FORA_DO_LIMITE;
+                }
+                int resultado = sacar(contaOrig, valor);
+                if (resultado != Resultado.OK) {
+                    return -resultado;
+                }
+                contaOrig.salvarOperacao(Extrato.TRANSFERENCIA_INTERNA, instante,
+                        contaDest.getBancoNumero(), contaDest.getBancoNome(),
+                        contaDest.getContaNumero(), contaDest.getTitular(), valor);
+                depositar(contaOrig, contaDest, valor, instante);
+                return registro.registrarTransferenciaInterna(instante, bancoNumero,
+                        contaOrig.getContaNumero(), contaDest.getContaNumero(), valor);
+            }
+        }
+    }
+
+    /**
+     * Realiza uma transferência externa entre contas de bancos diferentes.
+     *
+     * @param contaOrig       Conta do cliente depositante.
+     * @param bancoNumeroDest Número do banco do beneficiário.
+     * @param bancoNomeDest   Nome do banco do beneficiário.
+     * @param contaNumeroDest Número da conta do beneficiário.
+     * @param titularDest     Nome do beneficiário
+     * @param valor           Valor a ser depositado na conta do beneficiário, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não for realizada.
+     */
+    public void fazerTransferenciaExterna(
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(transferirExterna(contaOrig, bancoNumeroDest, bancoNomeDest, contaNumeroDest,
+                titularDest, valor, TAXA_TRANFERENCIA_ENTRE_BANCOS));
+    }
+
+    /**
+     * Realiza uma transferência externa com chave de idempotência ({@link CacheIdempotencia}).
+     * Repetida com a mesma chave, não transfere de novo: vale o resultado da primeira chamada.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig       Conta do cliente depositante.
+     * @param bancoNumeroDest Número do banco do beneficiário.
+     * @param bancoNomeDest   Nome do banco do beneficiário.
+     * @param contaNumeroDest Número da conta do beneficiário.
+     * @param titularDest     Nome do beneficiário
+     * @param valor           Valor a ser depositado na conta do beneficiário, em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a operação não for realizada.
+     */
+    public void fazerTransferenciaExterna(
+            long chave,
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarTransferenciaExterna(chave, contaOrig, bancoNumeroDest, bancoNomeDest,
+                contaNumeroDest, titularDest, valor, TAXA_TRANFERENCIA_ENTRE_BANCOS));
+    }
+
+    /**
+     * Tenta realizar a parte de débito de uma transferência externa com chave de
+     * idempotência, sem lançar exceção se ela for recusada. É a primeira metade
+     * de uma transferência entre nós do Banco Central particionado
+     * ({@link RoteadorShards}), que não cobra taxa quando os dois lados são do mesmo banco.
+     *
+     * @param chave           Chave de idempotência escolhida pelo cliente.
+     * @param contaOrig       Conta do cliente depositante.
+     * @param bancoNumeroDest Número do banco do beneficiário.
+     * @param bancoNomeDest   Nome do banco do beneficiário.
+     * @param contaNumeroDest Número da conta do beneficiário.
+     * @param titularDest     Nome do beneficiário
+     * @param valor           Valor a ser depositado na conta do beneficiário, em centavos.
+     * @param taxa            Taxa da transferência, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira chamada com a chave.
+     */
+    int tentarTransferenciaExterna(
+            long chave,
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor,
+            long taxa) {
+        int impressao = CacheIdempotencia.impressao(Metricas.TRANSFERENCIA_EXTERNA, bancoNumero,
+                contaOrig.getContaNumero(), bancoNumeroDest, contaNumeroDest, valor);
+        return idempotencia.executar(chave, impressao, () -> transferirExterna(
+                contaOrig, bancoNumeroDest, bancoNomeDest, contaNumeroDest, titularDest, valor, taxa));
+    }
+
+    private int transferirExterna(
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor,
+            long taxa) {
+        long inicio = metricas.inicio();
+        int resultado = tentarTransferenciaExterna(contaOrig, bancoNumeroDest, bancoNomeDest, contaNumeroDest,
+                titularDest, valor, taxa, System.currentTimeMillis());
+        metricas.registrar(Metricas.TRANSFERENCIA_EXTERNA, resultado, inicio);
+        return resultado;
+    }
+
+    /**
+     * Realiza uma transferência externa com a taxa e o instante informados
+     * (usado também na recuperação do registro de transações).
+     */
+    void fazerTransferenciaExterna(
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor,
+            long taxa,
+            long instante)
+            throws UnsupportedOperationException {
+        Resultado.verificar(tentarTransferenciaExterna(contaOrig, bancoNumeroDest, bancoNomeDest, contaNumeroDest,
+                titularDest, valor, taxa, instante));
+    }
+
+    /**
+     * Tenta realizar a parte de débito de uma transferência externa, sem lançar exceção se ela for recusada.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    int tentarTransferenciaExterna(
+            Conta contaOrig,
+            int bancoNumeroDest,
+            String bancoNomeDest,
+            int contaNumeroDest,
+            String titularDest,
+            long valor,
+            long taxa,
+            long instante) {
+        if (!Dinheiro.podeSomar(valor, taxa)) {
+            return Resultado.VALOR_FORA_DO_LIMITE;
+        }
+        long posicao;
+
+        synchronized (contaOrig) {
+            int resultado = sacar(contaOrig, valor + taxa);
+            if (resultado != Resultado.OK) {
+                return resultado;
+            }
+            contaOrig.salvarOperacao(Extrato.TRANSFERENCIA_EXTERNA, instante,
+                    bancoNumeroDest, bancoNomeDest, contaNumeroDest, titularDest, valor);
+            posicao = registro.registrarTransferenciaExterna(instante, bancoNumero, contaOrig.getContaNumero(),
+                    bancoNumeroDest, bancoNomeDest, contaNumeroDest, titularDest, valor, taxa);
+        }
+
+        registro.aguardar(posicao);
+        return Resultado.OK;
+    }
+
+    /**
+     * Realiza uma transferência entre bancos com a taxa e o instante informados
+     * (usado na recuperação do registro de transações).
+     */
+    void fazerTransferenciaEntreBancos(Conta contaOrig, BancoRef bancoDest, Conta contaDest,
+                                       long valor, long taxa, long instante)
+            throws UnsupportedOperationException {
+        Resultado.verificar(aguardar(aplicarTransferenciaEntreBancos(contaOrig, bancoDest, contaDest,
+                valor, taxa, instante)));
+    }
+
+    /**
+     * Aplica uma transferência síncrona entre bancos: debita o valor mais a taxa
+     * da conta origem e credita o valor na conta destino, do outro banco, com as
+     * duas contas travadas. Nada é movimentado se uma das partes for recusada.
+     * Deve ser chamado no banco origem; a gravação não é esperada.
+     *
+     * @return Retorna a posição do registro gravado, ou o código de {@link Resultado} com o sinal trocado se recusada.
+     */
+    long aplicarTransferenciaEntreBancos(Conta contaOrig, BancoRef bancoDest, Conta contaDest,
+                                         long valor, long taxa, long instante) {
+        if (!Dinheiro.podeSomar(valor, taxa)) {
+            return -Resultado.VALOR_FORA_DO_LIMITE;
+        }
+        // Entre bancos, a ordem de travamento é pelo número do banco e depois pelo da conta,
+        // a mesma ordem das transferências internas quando os bancos são iguais.
+        boolean origemPrimeiro = (bancoNumero < bancoDest.bancoNumero);
+        Conta primeira = origemPrimeiro ? contaOrig : contaDest;
+        Conta segunda = origemPrimeiro ? contaDest : contaOrig;
+
+        synchronized (primeira) {
+            synchronized (segunda) {
+                if (!Dinheiro.podeSomar(contaDest.getSaldo(), valor)) {
+                    return -Resultado.VALOR_FORA_DO_LIMITE;
+                }
+                int resultado = sacar(contaOrig, valor + taxa);
+                if (resultado != Resultado.OK) {
+                    return -resultado;
+                }
+                contaOrig.salvarOperacao(Extrato.TRANSFERENCIA_EXTERNA, instante,
+                        bancoDest.bancoNumero, bancoDest.bancoNome,
+                        contaDest.getContaNumero(), contaDest.getTitular(), valor);
+                contaDest.setSaldo(contaDest.getSaldo() + valor);
+                contaDest.salvarOperacao(Extrato.DEPOSITO_INTERBANCARIO, instante,
+                        bancoNumero, bancoNome, contaOrig.getContaNumero(), contaOrig.getTitular(), valor);
+                return registro.registrarTransferenciaEntreBancos(instante, bancoNumero, contaOrig.getContaNumero(),
+                        bancoDest.bancoNumero, contaDest.getContaNumero(), valor, taxa);
+            }
+        }
+    }
+
+    /**
+     * Primeira fase de uma transferência entre bancos pela câmara de compensação:
+     * debita o valor mais a taxa da conta origem e coloca a transferência na fila.
+     *
+     * @param contaOrig    Conta do cliente depositante.
+     * @param contaDest    Conta do beneficiário, no outro banco.
+     * @param valor        Valor a ser transferido, em centavos.
+     * @param taxa         Taxa da transferência, em centavos.
+     * @param instante     Instante da operação.
+     * @param compensacao  Câmara de compensação do Banco Central.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    int tentarTransferenciaAgendada(Conta contaOrig, Conta contaDest, long valor, long taxa, long instante,
+                                    CompensacaoInterbancaria compensacao) {
+        if (!Dinheiro.podeSomar(valor, taxa)) {
+            return Resultado.VALOR_FORA_DO_LIMITE;
+        }
+        long posicao;
+
+        synchronized (contaOrig) {
+            int resultado = sacar(contaOrig, valor + taxa);
+            if (resultado != Resultado.OK) {
+                return resultado;
+            }
+            contaOrig.salvarOperacao(Extrato.TRANSFERENCIA_EXTERNA, instante,
+                    contaDest.getBancoNumero(), contaDest.getBancoNome(),
+                    contaDest.getContaNumero(), contaDest.getTitular(), valor);
+            posicao = compensacao.enfileirar(registro, instante, bancoNumero, contaOrig.getContaNumero(),
+                    contaDest.getBancoNumero(), contaDest.getContaNumero(), valor, taxa);
+        }
+
+        registro.aguardar(posicao);
+        return Resultado.OK;
+    }
+
+    /**
+     * Segunda fase de uma transferência entre bancos: credita o valor de um item do
+     * ciclo de compensação (ou a devolução dele à conta origem).
+     * Este método é para uso interno, e deve ser chamado com o monitor da conta travado.
+     *
+     * @param conta       Conta creditada.
+     * @param contraparte Conta do outro lado da transferência.
+     * @param valor       Valor creditado, em centavos.
+     * @param item        Posição da transferência no ciclo.
+     * @param devolucao   true se o valor está voltando para a conta origem.
+     * @param instante    Instante da operação.
+     * @return Retorna a posição do registro gravado, para aguardar a durabilidade.
+     */
+    long creditarCompensacao(Conta conta, Conta contraparte, long valor, int item, boolean devolucao, long instante) {
+        conta.setSaldo(Dinheiro.somar(conta.getSaldo(), valor));
+        conta.salvarOperacao(Extrato.DEPOSITO_INTERBANCARIO, instante,
+                contraparte.getBancoNumero(), contraparte.getBancoNome(),
+                contraparte.getContaNumero(), contraparte.getTitular(), valor);
+        return registro.registrarCreditoCompensacao(instante, item, devolucao);
+    }
+
+    /**
+     * Processa um lote de créditos e débitos em contas deste banco.
+     * <p>
+     * Cada conta é procurada uma única vez e os itens são aplicados agrupados
+     * por conta, com o monitor da conta travado uma vez por grupo. Dentro de
+     * uma conta, os itens são aplicados na ordem do lote. Um item recusado não
+     * interrompe o lote: o motivo fica no vetor de resultados. O lote só retorna
+     * depois que todas as operações realizadas estão gravadas no registro de transações.
+     *
+     * @param lote Lote de operações.
+     * @return Retorna um código de {@link Resultado} para cada item, na ordem do lote.
+     */
+    public int[] processarLote(LoteOperacoes lote) {
+        long inicioLote = metricas.inicioSemAmostragem();
+        int n = lote.tamanho();
+        int[] resultados = new int[n];
+        long instante = System.currentTimeMillis();
+
+        int[] ordem = lote.ordemPorConta();
+
+        long posicao = 0;
+        int inicio = 0;
+        while (inicio < n) {
+            int contaNumero = lote.conta(ordem[inicio]);
+            int fim = inicio + 1;
+            while (fim < n && lote.conta(ordem[fim]) == contaNumero) {
+                fim++;
+            }
+
+            Conta conta = buscarConta(contaNumero);
+            if (conta == null) {
+                for (int k = inicio; k < fim; k++) {
+                    resultados[ordem[k]] = Resultado.CONTA_NAO_ENCONTRADA;
+                }
+            } else {
+                synchronized (conta) {
+                    conta.reservarOperacoes(fim - inicio);
+                    for (int k = inicio; k < fim; k++) {
+                        int i = ordem[k];
+                        resultados[i] = aplicarItemLote(conta, lote.tipo(i), lote.valor(i), instante);
+                        if (resultados[i] == Resultado.OK) {
+                            posicao = registrarItemLote(conta, lote.tipo(i), lote.valor(i), instante);
+                        }
+                    }
+                }
+            }
+            inicio = fim;
+        }
+
+        registro.aguardar(posicao);
+        metricas.registrarLote(Metricas.LOTE, resultados, inicioLote);
+        return resultados;
+    }
+
+    /**
+     * Aplica um item de lote na conta e salva a operação no extrato.
+     * Este método é para uso interno, e deve ser chamado com o monitor da conta travado.
+     *
+     * @return Retorna o código de {@link Resultado} do item.
+     */
+    private int aplicarItemLote(Conta conta, byte tipo, long valor, long instante) {
+        if (valor <= 0) {
+            return Resultado.VALOR_INVALIDO;
+        }
+
+        if (tipo == LoteOperacoes.DEBITO) {
+            if (!conta.temSaldo(valor)) {
+                return Resultado.SALDO_INSUFICIENTE;
+            }
+            conta.setSaldo(conta.getSaldo() - valor);
+            conta.salvarOperacao(Extrato.SAQUE, instante,
+                    conta.getBancoNumero(), conta.getBancoNome(),
+                    conta.getContaNumero(), conta.getTitular(), valor);
+            return Resultado.OK;
+        }
+
+        if (!Dinheiro.podeSomar(conta.getSaldo(), valor)) {
+            return Resultado.VALOR_FORA_DO_LIMITE;
+        }
+        depositar(conta, conta, valor, instante);
+        return Resultado.OK;
+    }
+
+    /**
+     * Grava um item de lote já aplicado no registro de transações, como saque ou depósito.
+     */
+    private long registrarItemLote(Conta conta, byte tipo, long valor, long instante) {
+        if (tipo == LoteOperacoes.DEBITO) {
+            return registro.registrarSaque(instante, bancoNumero, conta.getContaNumero(), valor);
+        }
+        return registro.registrarMovimento(RegistroTransacoes.DEPOSITO, instante,
+                bancoNumero, conta.getContaNumero(), bancoNumero, conta.getContaNumero(), valor);
+    }
+
+    /**
+     * Primeira fase dos itens de um lote de transferências entre bancos que têm
+     * como origem uma conta deste banco: o valor mais a taxa de cada item é
+     * debitado e o item entra na fila da câmara de compensação, como uma
+     * transferência agendada ({@link #tentarTransferenciaAgendada}), com a
+     * conta travada uma única vez. Os itens recusados têm o código de resultado
+     * alterado no vetor de resultados.
+     *
+     * @param contaOrig   Conta origem de todos os itens do grupo.
+     * @param lote        Lote de transferências.
+     * @param itens       Posições dos itens no lote, agrupadas por conta.
+     * @param de          Início do grupo em itens (inclusive).
+     * @param ate         Fim do grupo em itens (exclusive).
+     * @param contasDest  Conta destino de cada item do lote.
+     * @param resultados  Código de resultado de cada item do lote.
+     * @param naFila      Recebe a posição na fila de compensação de cada item agendado.
+     * @param instante    Instante das operações.
+     * @param compensacao Câmara de compensação.
+     */
+    void agendarLote(Conta contaOrig, LoteTransferencias lote, int[] itens, int de, int ate,
+                     Conta[] contasDest, int[] resultados, int[] naFila, long instante,
+                     CompensacaoInterbancaria compensacao) {
+        synchronized (contaOrig) {
+            contaOrig.reservarOperacoes(ate - de);
+            for (int k = de; k < ate; k++) {
+                int i = itens[k];
+                long valor = lote.valor(i);
+                if (!Dinheiro.podeSomar(valor, TAXA_TRANFERENCIA_ENTRE_BANCOS)) {
+                    resultados[i] = Resultado.VALOR_FORA_DO_LIMITE;
+                    continue;
+                }
+                long total = valor + TAXA_TRANFERENCIA_ENTRE_BANCOS;
+                if (!contaOrig.temSaldo(total)) {
+                    resultados[i] = Resultado.SALDO_INSUFICIENTE;
+                    continue;
+                }
+
+                Conta contaDest = contasDest[i];
+                contaOrig.setSaldo(contaOrig.getSaldo() - total);
+                contaOrig.salvarOperacao(Extrato.TRANSFERENCIA_EXTERNA, instante,
+                        contaDest.getBancoNumero(), contaDest.getBancoNome(),
+                        contaDest.getContaNumero(), contaDest.getTitular(), valor);
+                naFila[i] = compensacao.enfileirarItemLote(registro, instante, bancoNumero,
+                        contaOrig.getContaNumero(), contaDest.getBancoNumero(), contaDest.getContaNumero(),
+                        valor, TAXA_TRANFERENCIA_ENTRE_BANCOS);
+            }
+        }
+    }
+
+    /**
+     * Lança na conta o rendimento ou a taxa do fechamento mensal, calculado
+     * sobre o saldo atual, e o grava no registro de transações.
+     *
+     * @param conta       Conta deste banco.
+     * @param competencia Mês do fechamento (AAAAMM).
+     * @param instante    Instante do lançamento.
+     * @return Retorna o valor lançado (positivo para crédito, negativo para débito), ou zero se não houve lançamento.
+     */
+    long lancarMensal(Conta conta, int competencia, long instante) {
+        synchronized (conta) {
+            return aplicarLancamentoMensal(conta, conta.lancamentoMensal(), competencia, instante);
+        }
+    }
+
+    /**
+     * Lança na conta um valor já calculado do fechamento mensal
+     * (usado na recuperação do registro de transações).
+     */
+    long lancarMensal(Conta conta, long valor, int competencia, long instante) {
+        synchronized (conta) {
+            return aplicarLancamentoMensal(conta, valor, competencia, instante);
+        }
+    }
+
+    /**
+     * Este método é para uso interno, e deve ser chamado com o monitor da conta travado.
+     */
+    private long aplicarLancamentoMensal(Conta conta, long valor, int competencia, long instante) {
+        if (valor > 0) {
+            if (!Dinheiro.podeSomar(conta.getSaldo(), valor)) {
+                return 0;
+            }
+            conta.setSaldo(conta.getSaldo() + valor);
+            conta.salvarOperacao(Extrato.RENDIMENTO, instante,
+                    bancoNumero, bancoNome, conta.getContaNumero(), conta.getTitular(), valor);
+        } else if (valor < 0) {
+            if (valor == Long.MIN_VALUE || !conta.temSaldo(-valor)) {
+                return 0;
+            }
+            conta.setSaldo(conta.getSaldo() + valor);
+            conta.salvarOperacao(Extrato.TAXA_MENSAL, instante,
+                    bancoNumero, bancoNome, conta.getContaNumero(), conta.getTitular(), -valor);
+        } else {
+            return 0;
+        }
+        registro.registrarLancamentoMensal(instante, bancoNumero, conta.getContaNumero(), competencia, valor);
+        return valor;
+    }
+
+    /**
+     * Verifica se a conta existe no sistema do banco.
+     *
+     * @param conta Conta a ser verificada.
+     * @return Retorna true se a conta existe, false caso contrário.
+     */
+    public boolean existeConta(Conta conta) {
+        return conta != null && conta.equals(localizar(conta.getContaNumero()));
+    }
+
+    /**
+     * Pega nome do banco.
+     *
+     * @return Retorna o nome do banco.
+     */
+    public String getBancoNome() {
+        return bancoNome;
+    }
+
+    /**
+     * Pega número de identificação do banco.
+     *
+     * @return Retorna o número de identificação do banco.
+     */
+    public int getBancoNumero() {
+        return bancoNumero;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + bancoNumero + "] " + bancoNome;
+    }
+}
@@ -0,0 +1,378 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Chaves de idempotência das operações que movimentam saldo.
+ * <p>
+ * O cliente escolhe uma chave (um número aleatório de 64 bits) e a envia com a
+ * operação. A primeira chamada com a chave executa a operação e guarda o
+ * resultado; uma repetição com a mesma chave, por exemplo depois de um
+ * timeout, recebe o resultado guardado sem que nada seja executado de novo.
+ * A chave vale para uma única operação: repetida com outros dados, a chamada é
+ * recusada com {@link Resultado#CHAVE_JA_USADA}; repetida enquanto a primeira
+ * ainda executa, com {@link Resultado#OPERACAO_EM_ANDAMENTO}.
+ * <p>
+ * As chaves ficam em tabelas de endereçamento aberto (arrays de long, sem um
+ * objeto por chave), divididas em segmentos com monitores próprios. Cada
+ * segmento tem duas gerações: a atual, onde entram as chaves novas, e a
+ * anterior. Quando a atual completa a janela, ou enche, a anterior é
+ * descartada inteira e a atual passa a ser a anterior. Assim buscar, guardar e
+ * expirar custam O(1), uma chave é lembrada por pelo menos uma janela (e no
+ * máximo duas) e a memória fica limitada a duas gerações cheias. Se a
+ * capacidade não comportar as chaves de uma janela, as mais antigas são
+ * esquecidas antes do tempo.
+ * <p>
+ * A chave de uma operação realizada vai para o registro de transações no
+ * mesmo registro da operação, então sobrevive a uma queda junto com ela.
+ * Recusas só ficam em memória: depois de uma queda, a repetição de uma
+ * operação recusada é executada de novo, o que é seguro, porque a recusa não
+ * alterou nenhum saldo.
+ */
+public final class CacheIdempotencia {
+    /**
+     * Chave que indica uma operação sem idempotência.
+     */
+    public static final long SEM_CHAVE = 0;
+
+    /**
+     * Tempo mínimo que uma chave é lembrada, por padrão.
+     */
+    public static final long JANELA_PADRAO_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Quantidade de chaves de uma janela que o cache comporta, por padrão.
+     */
+    public static final int CAPACIDADE_PADRAO = 1 << 22;
+
+    private static final int SEGMENTOS = 64;
+    private static final int TAMANHO_INICIAL = 16;
+
+    // Resultado guardado enquanto a operação executa, e o de uma execução que terminou com exceção.
+    private static final int EM_ANDAMENTO = -1;
+    private static final int LIVRE = -2;
+    private static final long AUSENTE = LIVRE & 0xFFFFFFFFL;
+
+    private final long janela;
+    private final int limitePorGeracao;
+    private final Segmento[] segmentos;
+    private final LongAdder repeticoes;
+
+    /**
+     * Construtor da classe CacheIdempotencia, com a janela e a capacidade padrão.
+     */
+    CacheIdempotencia() {
+        this(JANELA_PADRAO_MILLIS, CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Construtor da classe CacheIdempotencia.
+     *
+     * @param janelaMillis Tempo mínimo que uma chave é lembrada, em milissegundos.
+     * @param capacidade   Quantidade de chaves de uma janela que o cache comporta.
+     */
+    CacheIdempotencia(long janelaMillis, int capacidade) {
+        this.janela = janelaMillis;
+        this.limitePorGeracao = Math.max(TAMANHO_INICIAL / 2, capacidade / SEGMENTOS);
+        this.segmentos = new Segmento[SEGMENTOS];
+        for (int s = 0; s < SEGMENTOS; s++) {
+            segmentos[s] = new Segmento();
+        }
+        this.repeticoes = new LongAdder();
+    }
+
+    /**
+     * Executa a operação, a menos que a chave já tenha sido usada.
+     *
+     * @param chave     Chave de idempotência, ou {@link #SEM_CHAVE} para sempre executar.
+     * @param impressao Resumo dos dados da operação ({@link #impressao}).
+     * @param operacao  Operação, que devolve um código de {@link Resultado}.
+     * @return Retorna o resultado da operação, o guardado para a chave, ou o motivo da recusa da chave.
+     */
+    int executar(long chave, int impressao, IntSupplier operacao) {
+        if (chave == SEM_CHAVE) {
+            return operacao.getAsInt();
+        }
+        Segmento segmento = segmentos[(int) (espalhar(chave) >>> 58)];
+        // Um único instante para a chamada toda: a janela é de minutos ou horas, não de milissegundos.
+        long agora = System.currentTimeMillis();
+
+        synchronized (segmento) {
+            long dados = segmento.buscar(chave, agora);
+            if (dados != AUSENTE) {
+                if ((int) (dados >>> 32) != impressao) {
+                    return Resultado.CHAVE_JA_USADA;
+                }
+                if ((int) dados == EM_ANDAMENTO) {
+                    return Resultado.OPERACAO_EM_ANDAMENTO;
+                }
+                repeticoes.increment();
+                return (int) dados;
+            }
+            segmento.guardar(chave, impressao, EM_ANDAMENTO, agora);
+        }
+
+        int resultado = LIVRE;
+        RegistroTransacoes.marcarChave(chave, impressao);
+        try {
+            resultado = operacao.getAsInt();
+            return resultado;
+        } finally {
+            RegistroTransacoes.limparChave();
+            // Se a operação lançou exceção, a chave fica livre para uma nova tentativa.
+            synchronized (segmento) {
+                segmento.guardar(chave, impressao, resultado, agora);
+            }
+        }
+    }
+
+    /**
+     * Guarda a chave de uma operação realizada, lida do registro de transações ou do snapshot.
+     *
+     * @param chave     Chave de idempotência.
+     * @param impressao Resumo dos dados da operação.
+     * @param instante  Instante da operação; conta como o momento em que a chave foi guardada.
+     */
+    void reproduzir(long chave, int impressao, long instante) {
+        Segmento segmento = segmentos[(int) (espalhar(chave) >>> 58)];
+        synchronized (segmento) {
+            segmento.guardar(chave, impressao, Resultado.OK, instante);
+        }
+    }
+
+    /**
+     * Chaves das operações realizadas, para o snapshot. As da geração anterior
+     * vêm antes, para que {@link #reproduzir} as devolva à mesma geração.
+     *
+     * @return Retorna [chave, impressão, instante da geração] para cada chave.
+     */
+    long[] getRealizadas() {
+        long[] entradas = new long[0];
+        int n = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                for (Geracao geracao : new Geracao[]{segmento.anterior, segmento.atual}) {
+                    if (geracao == null) {
+                        continue;
+                    }
+                    if (n + geracao.quantidade * 3 > entradas.length) {
+                        entradas = Arrays.copyOf(entradas, Math.max(n + geracao.quantidade * 3, entradas.length * 2));
+                    }
+                    for (int i = 0; i < geracao.chaves.length; i++) {
+                        if (geracao.chaves[i] != SEM_CHAVE && (int) geracao.dados[i] == Resultado.OK) {
+                            entradas[n++] = geracao.chaves[i];
+                            entradas[n++] = geracao.dados[i] >>> 32;
+                            entradas[n++] = geracao.inicio;
+                        }
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(entradas, n);
+    }
+
+    /**
+     * Quantidade de chamadas que receberam o resultado guardado, sem executar a operação.
+     *
+     * @return Retorna o número de repetições atendidas pelo cache.
+     */
+    public long getRepeticoes() {
+        return repeticoes.sum();
+    }
+
+    /**
+     * Resume os dados de uma operação num int, para reconhecer uma chave
+     * reaproveitada numa operação diferente.
+     *
+     * @param operacao  Código da operação ({@link Metricas}).
+     * @param bancoOrig Número do banco origem.
+     * @param contaOrig Número da conta origem.
+     * @param bancoDest Número do banco destino, ou 0.
+     * @param contaDest Número da conta destino, ou 0.
+     * @param valor     Valor da operação, em centavos.
+     * @return Retorna a impressão da operação.
+     */
+    static int impressao(int operacao, int bancoOrig, int contaOrig, int bancoDest, int contaDest, long valor) {
+        long h = operacao;
+        h = h * 0x9E3779B97F4A7C15L + bancoOrig;
+        h = h * 0x9E3779B97F4A7C15L + contaOrig;
+        h = h * 0x9E3779B97F4A7C15L + bancoDest;
+        h = h * 0x9E3779B97F4A7C15L + contaDest;
+        h = espalhar(h * 0x9E3779B97F4A7C15L + valor);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Mistura os bits da chave (finalizador do MurmurHash3). Os bits altos
+     * escolhem o segmento e os baixos a posição na tabela.
+     */
+    static long espalhar(long chave) {
+        chave ^= chave >>> 33;
+        chave *= 0xFF51AFD7ED558CCDL;
+        chave ^= chave >>> 33;
+        chave *= 0xC4CEB9FE1A85EC53L;
+        return chave ^ (chave >>> 33);
+    }
+
+    /**
+     * Chaves guardadas num intervalo de tempo. Posição vazia tem chave {@link #SEM_CHAVE}.
+     */
+    private static final class Geracao {
+        private long inicio;
+        private long[] chaves;
+        // impressão << 32 | resultado
+        private long[] dados;
+        private int quantidade;
+
+        private Geracao(long inicio, int tamanho) {
+            this.inicio = inicio;
+            this.chaves = new long[tamanho];
+            this.dados = new long[tamanho];
+        }
+
+        private int posicao(long chave) {
+            int mascara = chaves.length - 1;
+            int i = (int) espalhar(chave) & mascara;
+            while (chaves[i] != SEM_CHAVE && chaves[i] != chave) {
+                i = (i + 1) & mascara;
+            }
+            return i;
+        }
+
+        private void dobrar() {
+            long[] antigasChaves = chaves;
+            long[] antigosDados = dados;
+            chaves = new long[antigasChaves.length * 2];
+            dados = new long[antigasChaves.length * 2];
+            for (int i = 0; i < antigasChaves.length; i++) {
+                if (antigasChaves[i] != SEM_CHAVE) {
+                    int j = posicao(antigasChaves[i]);
+                    chaves[j] = antigasChaves[i];
+                    dados[j] = antigosDados[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Um segmento do cache. Todos os métodos são chamados com o monitor do segmento.
+     */
+    private final class Segmento {
+        private Geracao atual;
+        private Geracao anterior;
+
+        /**
+         * Dados guardados para a chave, ou AUSENTE.
+         */
+        private long buscar(long chave, long instante) {
+            expirar(instante);
+            long dados = buscar(atual, chave);
+            if (dados == AUSENTE) {
+                dados = buscar(anterior, chave);
+            }
+            return ((int) dados == LIVRE) ? AUSENTE : dados;
+        }
+
+        private long buscar(Geracao geracao, long chave) {
+            if (geracao == null) {
+                return AUSENTE;
+            }
+            int i = geracao.posicao(chave);
+            return (geracao.chaves[i] == SEM_CHAVE) ? AUSENTE : geracao.dados[i];
+        }
+
+        /**
+         * Guarda o resultado da chave, na geração onde ela está ou, se for nova, na atual.
+         */
+        private void guardar(long chave, int impressao, int resultado, long instante) {
+            long dados = ((long) impressao << 32) | (resultado & 0xFFFFFFFFL);
+            expirar(instante);
+            if (anterior != null) {
+                int i = anterior.posicao(chave);
+                if (anterior.chaves[i] == chave) {
+                    anterior.dados[i] = dados;
+                    return;
+                }
+            }
+            if (atual == null) {
+                atual = new Geracao(instante, TAMANHO_INICIAL);
+            }
+            int i = atual.posicao(chave);
+            if (atual.chaves[i] == chave) {
+                atual.dados[i] = dados;
+                return;
+            }
+
+            // No máximo metade das posições ocupadas.
+            if ((atual.quantidade + 1) * 2 > atual.chaves.length) {
+                if (atual.chaves.length / 2 < limitePorGeracao) {
+                    atual.dobrar();
+                } else {
+                    girar(instante);
+                }
+                i = atual.posicao(chave);
+            }
+            atual.chaves[i] = chave;
+            atual.dados[i] = dados;
+            atual.quantidade++;
+        }
+
+        /**
+         * Descarta as gerações que passaram da janela.
+         */
+        private void expirar(long instante) {
+            if (atual != null && instante - atual.inicio >= janela) {
+                if (instante - atual.inicio >= 2 * janela) {
+                    girar(instante);
+                }
+                girar(instante);
+            }
+        }
+
+        /**
+         * Descarta a geração anterior e começa uma nova. As operações ainda em
+         * andamento na geração descartada passam para a nova, para que a chave
+         * não fique livre enquanto a operação executa.
+         */
+        private void girar(long instante) {
+            Geracao descartada = anterior;
+            anterior = atual;
+            if (descartada == null) {
+                atual = new Geracao(instante, TAMANHO_INICIAL);
+                return;
+            }
+
+            // A nova geração reaproveita os arrays da descartada, que já têm o tamanho da carga.
+            int qtdEmAndamento = 0;
+            long[] emAndamento = null;
+            for (int i = 0; i < descartada.chaves.length; i++) {
+                if (descartada.chaves[i] != SEM_CHAVE && (int) descartada.dados[i] == EM_ANDAMENTO) {
+                    if (emAndamento == null) {
+                        emAndamento = new long[16];
+                    } else if (qtdEmAndamento * 2 == emAndamento.length) {
+                        emAndamento = Arrays.copyOf(emAndamento, emAndamento.length * 2);
+                    }
+                    emAndamento[qtdEmAndamento * 2] = descartada.chaves[i];
+                    emAndamento[qtdEmAndamento * 2 + 1] = descartada.dados[i];
+                    qtdEmAndamento++;
+                }
+            }
+            Arrays.fill(descartada.chaves, SEM_CHAVE);
+            descartada.inicio = instante;
+            descartada.quantidade = 0;
+            atual = descartada;
+            for (int k = 0; k < qtdEmAndamento; k++) {
+                if ((atual.quantidade + 1) * 2 > atual.chaves.length) {
+                    atual.dobrar();
+                }
+                int j = atual.posicao(emAndamento[k * 2]);
+                atual.chaves[j] = emAndamento[k * 2];
+                atual.dados[j] = emAndamento[k * 2 + 1];
+                atual.quantidade++;
+            }
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Classe que simula um caixa eletrônico 24hs. É pelo caixa eletrônico
+ * que o usuário interage com os serviços dos bancos normalmente.
+ */
+public class CaixaEletronico24Hs {
+
+    /**
+     * Quantidade de registros que o registro de transações tenta juntar num mesmo fsync.
+     */
+    private static final int TAMANHO_LOTE_REGISTRO = 64;
+
+    /**
+     * Intervalo entre os snapshots do Banco Central, em minutos.
+     */
+    private static final long INTERVALO_SNAPSHOT_MINUTOS = 5;
+
+    /**
+     * Período mostrado pela consulta de extrato, em dias até o momento atual.
+     */
+    private static final long DIAS_EXTRATO = 30;
+
+    /**
+     * Operações de cada conta mantidas em memória; as mais antigas vão para o arquivo de extratos.
+     */
+    private static final int LIMITE_EXTRATO_EM_MEMORIA = 1024;
+
+    /**
+     * Identificação dos terminais no limite de tentativas de senha. Negativa,
+     * para não se confundir com os endereços IPv4 do servidor de transações.
+     */
+    private static final AtomicLong TERMINAIS = new AtomicLong();
+
+    /**
+     * Partes fixas das telas, já com as quebras de linha do println.
+     */
+    private static final String QUEBRA = System.lineSeparator();
+    private static final String MENU_CONTA = "[0] Consultar Saldo" + QUEBRA
+            + "[1] Consultar Extrato" + QUEBRA
+            + "[2] Saque" + QUEBRA
+            + "[3] Depósito" + QUEBRA
+            + "[4] Transferência interna" + QUEBRA
+            + "[5] Transferência externa" + QUEBRA
+            + "[-1] Sair da conta" + QUEBRA
+            + "|--> ";
+    private static final String CABECALHO_TRANSFERENCIA_EXTERNA = "[Operação de transferência - externa]" + QUEBRA
+            + "[TAXA: " + Utils.toMoney(Banco.TAXA_TRANFERENCIA_ENTRE_BANCOS) + "]\n";
+
+    private final Supplier<String> input;
+    private final Scanner scanner;
+    private final PrintStream saida;
+    private final PrintStream erros;
+    private final BancoCentral bancoCentral;
+    private final RegistroTransacoes registro;
+    private final Path arquivoRegistro;
+    private final Path arquivoSnapshot;
+    private final ScheduledExecutorService agendadorSnapshot;
+    private final long terminal = -TERMINAIS.incrementAndGet();
+    // Mensagens de operação realizada; o caixa eletrônico atende um cliente por vez.
+    private final StringBuilder mensagem = new StringBuilder(64);
+    private final MapaShards particao;
+    private final int no;
+
+    /**
+     * Construtor da classe CaixaEletronico24Hs.
+     * Os dados ficam apenas em memória.
+     */
+    public CaixaEletronico24Hs() {
+        this.bancoCentral = new BancoCentral();
+        this.particao = null;
+        this.no = 0;
+        this.registro = RegistroTransacoes.DESATIVADO;
+        this.arquivoRegistro = null;
+        this.arquivoSnapshot = null;
+        this.agendadorSnapshot = null;
+        this.scanner = new Scanner(System.in);
+        this.scanner.useLocale(Locale.US);
+        this.input = this.scanner::next;
+        this.saida = System.out;
+        this.erros = System.err;
+        configuracao();
+    }
+
+    /**
+     * Construtor da classe CaixaEletronico24Hs com persistência.
+     * O estado é reconstruído a partir do último snapshot e do registro de
+     * transações; se ambos estiverem vazios, a pré-configuração é executada
+     * (e gravada). Um novo snapshot é gerado periodicamente e no encerramento.
+     *
+     * @param arquivoRegistro Arquivo do registro de transações. O snapshot fica ao lado, com extensão
+     *                        ".snapshot", e as operações antigas dos extratos, com extensão ".extratos".
+     * @throws IOException Lança exceção se o registro ou o snapshot não puderem ser lidos ou abertos.
+     */
+    public CaixaEletronico24Hs(Path arquivoRegistro) throws IOException {
+        this(arquivoRegistro, null, 0);
+    }
+
+    /**
+     * Construtor da classe CaixaEletronico24Hs para um nó do Banco Central
+     * particionado ({@link RoteadorShards}). A pré-configuração cria todos os
+     * bancos, mas só as contas que o mapa coloca neste nó.
+     *
+     * @param arquivoRegistro Arquivo do registro de transações, ou null para manter os dados apenas em memória.
+     * @param particao        Partição das contas entre os nós, ou null para criar todas as contas.
+     * @param no              Índice deste nó no mapa.
+     * @throws IOException Lança exceção se o registro ou o snapshot não puderem ser lidos ou abertos.
+     */
+    public CaixaEletronico24Hs(Path arquivoRegistro, MapaShards particao, int no) throws IOException {
+        this.bancoCentral = new BancoCentral();
+        this.particao = particao;
+        this.no = no;
+        this.arquivoRegistro = arquivoRegistro;
+        if (arquivoRegistro == null) {
+            this.arquivoSnapshot = null;
+            this.registro = RegistroTransacoes.DESATIVADO;
+            this.agendadorSnapshot = null;
+        } else {
+            this.arquivoSnapshot = arquivoRegistro.resolveSibling(arquivoRegistro.getFileName() + ".snapshot");
+            this.bancoCentral.usarArquivoExtratos(
+                    arquivoRegistro.resolveSibling(arquivoRegistro.getFileName() + ".extratos"),
+                    LIMITE_EXTRATO_EM_MEMORIA);
+            this.registro = RegistroTransacoes.recuperar(
+                    arquivoRegistro, this.arquivoSnapshot, this.bancoCentral, TAMANHO_LOTE_REGISTRO);
+            this.bancoCentral.usarRegistro(this.registro);
+            this.agendadorSnapshot = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.agendadorSnapshot.scheduleWithFixedDelay(this::gerarSnapshot,
+                    INTERVALO_SNAPSHOT_MINUTOS, INTERVALO_SNAPSHOT_MINUTOS, TimeUnit.MINUTES);
+        }
+        this.scanner = new Scanner(System.in);
+        this.scanner.useLocale(Locale.US);
+        this.input = this.scanner::next;
+        this.saida = System.out;
+        this.erros = System.err;
+        if (this.bancoCentral.getQuantidadeDeBancos() == 0) {
+            configuracao();
+        }
+    }
+
+    /**
+     * Construtor da classe CaixaEletronico24Hs sem console.
+     * Usa um Banco Central já configurado, que pode ser compartilhado por vários
+     * caixas ao mesmo tempo, e lê as entradas de uma fonte qualquer. Nenhuma
+     * pré-configuração é feita, e o registro de transações do Banco Central
+     * (se houver) fica a cargo de quem o criou.
+     *
+     * @param bancoCentral Banco Central usado pelo caixa eletrônico.
+     * @param input        Fonte das entradas do usuário; cada chamada devolve a próxima entrada.
+     * @param saida        Onde as telas são mostradas.
+     * @param erros        Onde os avisos são mostrados.
+     */
+    public CaixaEletronico24Hs(BancoCentral bancoCentral, Supplier<String> input, PrintStream saida, PrintStream erros) {
+        this.bancoCentral = bancoCentral;
+        this.particao = null;
+        this.no = 0;
+        this.registro = RegistroTransacoes.DESATIVADO;
+        this.arquivoRegistro = null;
+        this.arquivoSnapshot = null;
+        this.agendadorSnapshot = null;
+        this.scanner = null;
+        this.input = input;
+        this.saida = saida;
+        this.erros = erros;
+    }
+
+    /**
+     * Tela inicial do caixa eletrônico. Mostra uma lista de bancos
+     * que o usuário pode acessar.
+     */
+    public void mostrarTelaInicial() {
+        List<String> bancoList = this.bancoCentral.getListaNomeDeBancos();
+        int opcao = 0;
+
+        // A lista de bancos não muda durante a execução: a tela é montada uma vez.
+        StringBuilder tela = new StringBuilder(Utils.textoBanner("Caixa eletrônico 24 Hs"));
+        linha(tela, "[Lista de bancos]\n");
+        bancoList.forEach(banco -> linha(tela, banco));
+        linha(tela, "[-1] Sair").append("|--> ");
+        String telaInicial = tela.toString();
+
+        do {
+            saida.print(telaInicial);
+
+            // Ler entrada da opção.
+            try {
+                opcao = Integer.parseInt(input.get());
+                if (opcao == -1) {
+                    continue;
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            try {
+                mostrarTelaBanco(this.bancoCentral.getBancoPorNumero(opcao));
+            } catch (UnsupportedOperationException e) {
+                erros.println(e.getMessage());
+            }
+
+        } while (opcao != -1);
+
+        encerrar();
+
+        // Mostra a tela final do caixa eletrônico.
+        mostrarTelaFinal();
+    }
+
+    /**
+     * Banco Central usado pelo caixa eletrônico.
+     *
+     * @return Retorna o Banco Central.
+     */
+    BancoCentral getBancoCentral() {
+        return this.bancoCentral;
+    }
+
+    /**
+     * Fecha a entrada e o registro de transações e gera o último snapshot.
+     */
+    void encerrar() {
+        if (scanner != null) {
+            scanner.close();
+        }
+
+        try {
+            registro.close();
+        } catch (IOException e) {
+            erros.println("\n[AVISO]\nFalha ao fechar o registro de transações.\nMotivo: " + e.getMessage());
+        }
+        if (agendadorSnapshot != null) {
+            // Espera um snapshot em andamento terminar antes de gerar o último.
+            agendadorSnapshot.shutdown();
+            try {
+                agendadorSnapshot.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gerarSnapshot();
+        }
+    }
+
+    /**
+     * Tela de um banco específico.
+     * Pede o número da conta e a senha do usuário.
+     *
+     * @param banco Banco onde o cliente tem uma conta.
+     */
+    private void mostrarTelaBanco(Banco banco) {
+        Conta conta;
+        int contaNumero;
+        int senha;
+
+        Utils.banner(saida, banco.getBancoNome());
+        saida.println("[Acesso a conta]\n");
+
+        try {
+            saida.print("Número da conta: ");
+            contaNumero = Integer.parseInt(input.get());
+            saida.print("Senha (4 dígitos): ");
+            senha = Integer.parseInt(input.get());
+
+            // Conta ou terminal sem tentativas: recusa antes de procurar a conta.
+            LimitadorTentativas limitador = this.bancoCentral.getLimitadorTentativas();
+            Resultado.verificar(limitador.permitir(terminal, banco.getBancoNumero(), contaNumero));
+            try {
+                conta = banco.getContaPorNumero(contaNumero);
+            } catch (UnsupportedOperationException e) {
+                limitador.registrarFalha(terminal);
+                throw e;
+            }
+            if (limitador.verificarSenha(terminal, conta, senha)) {
+                mostrarTelaConta(banco, conta);
+            } else {
+                erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Senha incorreta.\n");
+            }
+        } catch (NumberFormatException e) {
+            erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Entrada incorreta.\n");
+        } catch (UnsupportedOperationException e) {
+            erros.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Tela de acesso à conta que o cliente tem em um banco.
+     *
+     * @param banco Banco onde o cliente tem uma conta.
+     * @param conta Conta bancário do cliente.
+     */
+    private void mostrarTelaConta(Banco banco, Conta conta) {
+        int opcao = 0;
+        // O título e a saudação não mudam enquanto o cliente está na conta: a tela é montada uma vez.
+        String titulo = banco.getBancoNome() + " - " + conta.getContaTipoText();
+        String telaConta = linha(new StringBuilder(Utils.textoBanner(titulo)),
+                "[Olá, " + conta.getPrimeiroNome() + "]\n").append(MENU_CONTA).toString();
+
+        do {
+            saida.print(telaConta);
+
+            // Ler entrada da opção.
+            try {
+                opcao = Integer.parseInt(input.get());
+            } catch (NumberFormatException ignored) {
+            }
+
+            switch (opcao) {
+                case 0 -> conta.imprimirSaldo(saida);
+                case 1 -> conta.imprimirExtrato(saida,
+                        System.currentTimeMillis() - TimeUnit.DAYS.toMillis(DIAS_EXTRATO), Long.MAX_VALUE);
+                case 2 -> mostrarTelaSaque(banco, conta);
+                case 3 -> mostrarTelaDeposito(banco, conta);
+                case 4 -> mostrarTelaTranferenciaInterna(banco, conta);
+                case 5 -> mostrarTelaTranferenciaExterna(banco, conta);
+            }
+        } while (opcao != -1);
+    }
+
+
+    /**
+     * Tela de acesso à operação de saque da conta do cliente.
+     *
+     * @param banco Banco onde o cliente tem uma conta.
+     * @param conta Conta bancário do cliente.
+     */
+    private void mostrarTelaSaque(Banco banco, Conta conta) {
+        long valor;
+        int senha;
+
+        saida.print(cabecalhoOperacao(banco, conta, "[Operação de saque]\n"));
+
+        try {
+            saida.print("Valor do saque: ");
+            valor = Dinheiro.parse(input.get());
+            saida.print("Senha (4 dígitos): ");
+            senha = Integer.parseInt(input.get());
+
+            if (verificarSenha(conta, senha)) {
+                banco.fazerSaque(conta, valor);
+                saida.println(mensagemValor("\nSaque de ", valor, " realizado.\n"));
+            } else {
+                erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Senha incorreta.\n");
+            }
+        } catch (NumberFormatException e) {
+            erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Entrada incorreta.\n");
+        } catch (UnsupportedOperationException e) {
+            erros.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Tela de acesso à operação de depósito da conta do cliente.
+     *
+     * @param banco Banco onde o cliente tem uma conta.
+     * @param conta Conta bancário do cliente.
+     */
+    private void mostrarTelaDeposito(Banco banco, Conta conta) {
+        long valor;
+        int senha;
+
+        saida.print(cabecalhoOperacao(banco, conta, "[Operação de depósito]\n"));
+
+        try {
+            saida.print("Valor do deposito: ");
+            valor = Dinheiro.parse(input.get());
+            saida.print("Senha (4 dígitos): ");
+            senha = Integer.parseInt(input.get());
+
+            if (verificarSenha(conta, senha)) {
+                banco.fazerDeposito(conta, conta, valor);
+                saida.println(mensagemValor("\nDepósito de ", valor, " realizado.\n"));
+            } else {
+                erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Senha incorreta.\n");
+            }
+        } catch (NumberFormatException e) {
+            erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Entrada incorreta.\n");
+        } catch (UnsupportedOperationException e) {
+            erros.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Tela de acesso à operação de transferência interna da conta do cliente.
+     * Realiza a transferência entre contas no mesmo banco.
+     *
+     * @param banco Banco onde o cliente tem uma conta.
+     * @param conta Conta bancário do cliente.
+     */
+    private void mostrarTelaTranferenciaInterna(Banco banco, Conta conta) {
+        long valor;
+        int contaNumero;
+        int senha;
+
+        saida.print(cabecalhoOperacao(banco, conta, "[Operação de transferência]\n"));
+
+        try {
+            saida.print("Número da conta destino: ");
+            contaNumero = Integer.parseInt(input.get());
+            saida.print("Valor da transferência: ");
+            valor = Dinheiro.parse(input.get());
+            saida.print("Senha (4 dígitos): ");
+            senha = Integer.parseInt(input.get());
+
+            Conta contaDest = banco.getContaPorNumero(contaNumero);
+            if (verificarSenha(conta, senha)) {
+                banco.fazerTransferenciaInterna(conta, contaDest, valor);
+                saida.println(mensagemValor("\nTranferência de ", valor, " realizada.\n"));
+            } else {
+                erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Senha incorreta.\n");
+            }
+        } catch (NumberFormatException e) {
+            erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Entrada incorreta.\n");
+        } catch (UnsupportedOperationException e) {
+            erros.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Tela de acesso à operação de transferência externa da conta do cliente.
+     * Realiza a transferência entre contas de bancos diferentes.
+     *
+     * @param bancoOrig Banco onde o cliente tem uma conta.
+     * @param contaOrig Conta bancário do cliente.
+     */
+    private void mostrarTelaTranferenciaExterna(Banco bancoOrig, Conta contaOrig) {
+        long valor;
+        int bancoNumeroDest;
+        int contaNumeroDest;
+        int senha;
+
+        saida.print(cabecalhoOperacao(bancoOrig, contaOrig, CABECALHO_TRANSFERENCIA_EXTERNA));
+
+        try {
+            saida.print("Número do banco destino: ");
+            bancoNumeroDest = Integer.parseInt(input.get());
+            saida.print("Número da conta destino: ");
+            contaNumeroDest = Integer.parseInt(input.get());
+            saida.print("Valor da transferência: ");
+            valor = Dinheiro.parse(input.get());
+            saida.print("Senha (4 dígitos): ");
+            senha = Integer.parseInt(input.get());
+
+            if (verificarSenha(contaOrig, senha)) {
+                this.bancoCentral.fazerTransferenciaEntreBancos(bancoOrig, contaOrig, valor, bancoNumeroDest, contaNumeroDest);
+                saida.println(mensagemValor("\nTransferência externa de ", valor, " realizada.\n"));
+            } else {
+                erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Senha incorreta.\n");
+            }
+        } catch (NumberFormatException e) {
+            erros.println("\n[AVISO]\nOperação não realizada!\nMotivo: Entrada incorreta.\n");
+        } catch (UnsupportedOperationException e) {
+            erros.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Confere a senha de uma conta já acessada, com o limite de tentativas do Banco Central.
+     *
+     * @param conta Conta bancário do cliente.
+     * @param senha Senha informada.
+     * @return Retorna true se a senha coincide, false caso contrário.
+     * @throws UnsupportedOperationException Lançada se a conta ou o terminal estiverem sem tentativas.
+     */
+    private boolean verificarSenha(Conta conta, int senha) {
+        LimitadorTentativas limitador = this.bancoCentral.getLimitadorTentativas();
+        Resultado.verificar(limitador.permitir(terminal, conta.getBancoNumero(), conta.getContaNumero()));
+        return limitador.verificarSenha(terminal, conta, senha);
+    }
+
+    /**
+     * Gera um novo snapshot com o que já está gravado em disco no registro de transações.
+     */
+    private void gerarSnapshot() {
+        try {
+            SnapshotBancoCentral.compactar(arquivoSnapshot, arquivoRegistro, registro.getPosicaoDuravel());
+        } catch (IOException | RuntimeException e) {
+            // Uma exceção que escapasse cancelaria os próximos snapshots agendados, sem aviso.
+            erros.println("\n[AVISO]\nFalha ao gerar o snapshot.\nMotivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mostra a tela final do caixa eletrônico 24hs.
+     * Tela mostrada no encerramento do programa.
+     */
+    private void mostrarTelaFinal() {
+        StringBuilder tela = new StringBuilder(Utils.textoBanner("Caixa eletrônico 24 Hs"));
+        linha(tela, "[Tela final]\n");
+        linha(tela, "Obrigado por usar nossos serviços.\n");
+        linha(tela, "Volte sempre!");
+        linha(tela, "[FIM]");
+        saida.print(tela);
+    }
+
+    /**
+     * Início das telas de operação: banner, saudação e nome da operação.
+     *
+     * @param banco    Banco onde o cliente tem uma conta.
+     * @param conta    Conta bancário do cliente.
+     * @param operacao Linha com o nome da operação.
+     * @return Retorna o texto, com as quebras de linha.
+     */
+    private static String cabecalhoOperacao(Banco banco, Conta conta, String operacao) {
+        StringBuilder tela = new StringBuilder(Utils.textoBanner(banco.getBancoNome() + " - " + conta.getContaTipoText()));
+        linha(tela, "[Olá, " + conta.getPrimeiroNome() + "]");
+        return linha(tela, operacao).toString();
+    }
+
+    /**
+     * Mensagem de operação realizada, com o valor formatado, montada no buffer
+     * do caixa eletrônico.
+     */
+    private StringBuilder mensagemValor(String operacao, long valor, String complemento) {
+        mensagem.setLength(0);
+        return Utils.toMoney(mensagem.append(operacao), valor).append(complemento);
+    }
+
+    /**
+     * Acrescenta uma linha à tela, como o println faria.
+     */
+    private static StringBuilder linha(StringBuilder tela, String texto) {
+        return tela.append(texto).append(QUEBRA);
+    }
+
+    /**
+     * Configura alguns objetos para ser possível testar o programa.
+     */
+    private void configuracao() {
+        // Código do Banco = BB
+        // Código do Tipo da conta = T
+        // Código da Conta corrente = BB1CC
+        // Código da Conta poupança = BB2CP
+
+        // Banco Tetra
+        Banco bt = new Banco(11, "Banco Tetra");
+        this.bancoCentral.criarBanco(bt);
+        int bNumero = bt.getBancoNumero();
+        String bNome = bt.getBancoNome();
+        criarConta(bt, new ContaCorrente(bNumero, 11101, "Cláudio André Mergen Taffarel", bNome, Dinheiro.deReais(5000), 1234));
+        criarConta(bt, new ContaCorrente(bNumero, 11102, "Jorge de Amorim Campos", bNome, Dinheiro.deReais(1200), 1234));
+        criarConta(bt, new ContaCorrente(bNumero, 11103, "Ricardo Roberto Barreto da Rocha", bNome, Dinheiro.deReais(12000), 1234));
+        criarConta(bt, new ContaCorrente(bNumero, 11104, "Ronaldo Luís Nazário de Lima", bNome, Dinheiro.deReais(6500), 1234));
+        criarConta(bt, new ContaCorrente(bNumero, 11105, "Mauro da Silva Gomes", bNome, Dinheiro.deReais(7565), 1234));
+        criarConta(bt, new ContaPoupanca(bNumero, 11201, "Carlos Caetano Bledorn Verri", bNome, Dinheiro.deReais(2500), 1234));
+        criarConta(bt, new ContaPoupanca(bNumero, 11202, "Leonardo Nascimento de Araújo", bNome, Dinheiro.deReais(3600), 1234));
+        criarConta(bt, new ContaPoupanca(bNumero, 11203, "Raí Souza Vieira de Oliveira", bNome, Dinheiro.deReais(2400), 1234));
+        criarConta(bt, new ContaPoupanca(bNumero, 11204, "Romário de Souza Faria", bNome, Dinheiro.deReais(5400), 1234));
+
+        // Banco Intelectual
+        Banco bi = new Banco(12, "Banco Intelectual");
+        this.bancoCentral.criarBanco(bi);
+        bNumero = bi.getBancoNumero();
+        bNome = bi.getBancoNome();
+        criarConta(bi, new ContaCorrente(bNumero, 12101, "Marie Sklodowska Curie", bNome, Dinheiro.deReais(4000), 1234));
+        criarConta(bi, new ContaCorrente(bNumero, 12102, "Pierre Curie", bNome, Dinheiro.deReais(3200), 1234));
+        criarConta(bi, new ContaCorrente(bNumero, 12103, "Antoine Henri Becquerel", bNome, Dinheiro.deReais(1700), 1234));
+        criarConta(bi, new ContaCorrente(bNumero, 12104, "Joseph John Thomson", bNome, Dinheiro.deReais(4500), 1234));
+        criarConta(bi, new ContaPoupanca(bNumero, 12201, "Guglielmo Marconi", bNome, Dinheiro.deReais(5500), 1234));
+        criarConta(bi, new ContaPoupanca(bNumero, 12202, "Nikola Tesla", bNome, Dinheiro.deReais(2500), 1234));
+        criarConta(bi, new ContaPoupanca(bNumero, 12203, "Albert Einstein", bNome, Dinheiro.deReais(5500), 1234));
+
+        // Banco Humor
+        Banco bh = new Banco(13, "Banco Humor");
+        this.bancoCentral.criarBanco(bh);
+        bNumero = bh.getBancoNumero();
+        bNome = bh.getBancoNome();
+        criarConta(bh, new ContaCorrente(bNumero, 13101, "José Thomaz da Cunha Vasconcellos Neto", bNome, Dinheiro.deReais(7500), 1234));
+        criarConta(bh, new ContaCorrente(bNumero, 13102, "Francisco Anysio de Oliveira Paula Filho", bNome, Dinheiro.deReais(4500), 1234));
+        criarConta(bh, new ContaCorrente(bNumero, 13103, "José Ronald Golias", bNome, Dinheiro.deReais(2200), 1234));
+        criarConta(bh, new ContaPoupanca(bNumero, 13201, "Lírio Mário Da Costa", bNome, Dinheiro.deReais(2800), 1234));
+        criarConta(bh, new ContaPoupanca(bNumero, 13202, "Ary Christoni de Toledo Piza", bNome, Dinheiro.deReais(1700), 1234));
+
+    }
+
+    /**
+     * Cria a conta no banco, se ela for deste nó (ou se não há partição).
+     */
+    private void criarConta(Banco banco, Conta conta) {
+        if (particao == null || particao.getNo(conta.getBancoNumero(), conta.getContaNumero()) == no) {
+            banco.criarConta(conta);
+        }
+    }
+}
\ No newline at end of file
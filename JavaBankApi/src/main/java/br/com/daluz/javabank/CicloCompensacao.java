@@ -0,0 +1,190 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de um ciclo de compensação entre bancos.
+ * <p>
+ * Guarda o valor bruto transferido entre cada par de bancos e, a partir dele,
+ * as posições compensadas: a bilateral (o que um banco recebe de outro menos
+ * o que paga a ele) e a multilateral (o que cada banco recebe de todos menos o
+ * que paga a todos). Só a posição multilateral precisa ser acertada entre os
+ * bancos, uma vez por ciclo, em vez de uma vez por transferência.
+ */
+public final class CicloCompensacao {
+    private final int quantidade;
+    private final int devolvidas;
+    private final long valorBruto;
+    private final int[] bancos;
+    private final long[][] enviados;
+
+    private CicloCompensacao(int quantidade, int devolvidas, long valorBruto, int[] bancos, long[][] enviados) {
+        this.quantidade = quantidade;
+        this.devolvidas = devolvidas;
+        this.valorBruto = valorBruto;
+        this.bancos = bancos;
+        this.enviados = enviados;
+    }
+
+    /**
+     * Apura as posições de um ciclo, considerando só os itens creditados.
+     *
+     * @param ciclo   Transferências do ciclo.
+     * @param estados Estado de cada transferência (ver {@link CompensacaoInterbancaria}).
+     * @return Retorna o resultado do ciclo.
+     */
+    static CicloCompensacao apurar(LoteTransferencias ciclo, byte[] estados) {
+        int[] bancos = new int[4];
+        int qtdBancos = 0;
+        long[][] enviados = new long[4][4];
+        int quantidade = 0;
+        int devolvidas = 0;
+        long valorBruto = 0;
+
+        for (int i = 0; i < estados.length; i++) {
+            if (estados[i] != CompensacaoInterbancaria.CREDITADO) {
+                if (estados[i] == CompensacaoInterbancaria.DEVOLVIDO) {
+                    devolvidas++;
+                }
+                continue;
+            }
+
+            int origem = indice(bancos, qtdBancos, ciclo.bancoOrig(i));
+            if (origem == qtdBancos) {
+                bancos = adicionarBanco(bancos, qtdBancos, ciclo.bancoOrig(i));
+                enviados = crescer(enviados, ++qtdBancos);
+            }
+            int destino = indice(bancos, qtdBancos, ciclo.bancoDest(i));
+            if (destino == qtdBancos) {
+                bancos = adicionarBanco(bancos, qtdBancos, ciclo.bancoDest(i));
+                enviados = crescer(enviados, ++qtdBancos);
+            }
+
+            enviados[origem][destino] = Dinheiro.somar(enviados[origem][destino], ciclo.valor(i));
+            valorBruto = Dinheiro.somar(valorBruto, ciclo.valor(i));
+            quantidade++;
+        }
+
+        return new CicloCompensacao(quantidade, devolvidas, valorBruto,
+                Arrays.copyOf(bancos, qtdBancos), enviados);
+    }
+
+    private static int indice(int[] bancos, int qtdBancos, int bancoNumero) {
+        for (int b = 0; b < qtdBancos; b++) {
+            if (bancos[b] == bancoNumero) {
+                return b;
+            }
+        }
+        return qtdBancos;
+    }
+
+    private static int[] adicionarBanco(int[] bancos, int qtdBancos, int bancoNumero) {
+        if (qtdBancos == bancos.length) {
+            bancos = Arrays.copyOf(bancos, qtdBancos * 2);
+        }
+        bancos[qtdBancos] = bancoNumero;
+        return bancos;
+    }
+
+    private static long[][] crescer(long[][] enviados, int qtdBancos) {
+        if (qtdBancos <= enviados.length) {
+            return enviados;
+        }
+        long[][] maior = new long[enviados.length * 2][enviados.length * 2];
+        for (int b = 0; b < enviados.length; b++) {
+            System.arraycopy(enviados[b], 0, maior[b], 0, enviados.length);
+        }
+        return maior;
+    }
+
+    /**
+     * Quantidade de transferências creditadas no ciclo.
+     *
+     * @return Retorna o número de transferências.
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Quantidade de transferências devolvidas à conta origem porque o crédito
+     * não cabia no saldo da conta destino.
+     *
+     * @return Retorna o número de devoluções.
+     */
+    public int getDevolvidas() {
+        return devolvidas;
+    }
+
+    /**
+     * Soma dos valores transferidos no ciclo, sem compensação.
+     *
+     * @return Retorna o valor bruto, em centavos.
+     */
+    public long getValorBruto() {
+        return valorBruto;
+    }
+
+    /**
+     * Valor que de fato precisa passar entre os bancos depois da compensação
+     * multilateral (soma das posições credoras).
+     *
+     * @return Retorna o valor líquido, em centavos.
+     */
+    public long getValorLiquido() {
+        long liquido = 0;
+        for (int banco : bancos) {
+            liquido += Math.max(0, getPosicaoLiquida(banco));
+        }
+        return liquido;
+    }
+
+    /**
+     * Bancos que participaram do ciclo.
+     *
+     * @return Retorna os números dos bancos.
+     */
+    public int[] getBancos() {
+        return bancos.clone();
+    }
+
+    /**
+     * Posição multilateral do banco no ciclo.
+     *
+     * @param bancoNumero Número do banco.
+     * @return Retorna o que o banco recebe menos o que paga, em centavos.
+     */
+    public long getPosicaoLiquida(int bancoNumero) {
+        int b = indice(bancos, bancos.length, bancoNumero);
+        if (b == bancos.length) {
+            return 0;
+        }
+        long posicao = 0;
+        for (int outro = 0; outro < bancos.length; outro++) {
+            posicao += enviados[outro][b] - enviados[b][outro];
+        }
+        return posicao;
+    }
+
+    /**
+     * Posição bilateral entre dois bancos no ciclo.
+     *
+     * @param bancoNumero      Número do banco.
+     * @param bancoNumeroOutro Número do outro banco.
+     * @return Retorna o que o banco recebe do outro menos o que paga a ele, em centavos.
+     */
+    public long getPosicaoBilateral(int bancoNumero, int bancoNumeroOutro) {
+        int b = indice(bancos, bancos.length, bancoNumero);
+        int outro = indice(bancos, bancos.length, bancoNumeroOutro);
+        if (b == bancos.length || outro == bancos.length) {
+            return 0;
+        }
+        return enviados[outro][b] - enviados[b][outro];
+    }
+
+    @Override
+    public String toString() {
+        return "Ciclo de compensação: " + quantidade + " transferências, bruto "
+                + Utils.toMoney(valorBruto) + ", líquido " + Utils.toMoney(getValorLiquido());
+    }
+}
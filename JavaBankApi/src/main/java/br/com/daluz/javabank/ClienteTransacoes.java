@@ -0,0 +1,411 @@
+package br.com.daluz.javabank;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cliente do servidor de transações. Cada método envia uma requisição e
+ * espera a resposta, devolvendo o código de {@link Resultado}.
+ * <p>
+ * O saldo e o extrato da última operação realizada ficam disponíveis em
+ * {@link #getSaldo()} e {@link #getExtrato()}. Um cliente é uma conexão e não
+ * deve ser usado por mais de uma thread ao mesmo tempo.
+ * <p>
+ * As operações que movimentam saldo também aceitam uma chave de
+ * idempotência. Se a conexão cair antes da resposta, o cliente pode repetir
+ * a operação com a mesma chave, numa conexão nova, sem risco de ela ser feita
+ * duas vezes.
+ */
+public final class ClienteTransacoes implements Closeable {
+    private final Socket socket;
+    private final DataInputStream entrada;
+    private final DataOutputStream saida;
+    private int proximoId;
+    private long saldo;
+    private String extrato;
+    private long proximoCursor;
+    private String bancoNome;
+    private String titular;
+
+    /**
+     * Construtor da classe ClienteTransacoes. Conecta ao servidor.
+     *
+     * @param host  Endereço do servidor.
+     * @param porta Porta do servidor.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public ClienteTransacoes(String host, int porta) throws IOException {
+        this.socket = new Socket(host, porta);
+        this.socket.setTcpNoDelay(true);
+        this.entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Consulta o saldo da conta.
+     *
+     * @return Retorna o código de {@link Resultado}; se OK, o saldo fica em {@link #getSaldo()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarSaldo(int banco, int conta, int senha) throws IOException {
+        cabecalho(Protocolo.SALDO, 0, banco, conta, senha);
+        return responder(Protocolo.SALDO);
+    }
+
+    /**
+     * Consulta o extrato da conta.
+     *
+     * @return Retorna o código de {@link Resultado}; se OK, o texto fica em {@link #getExtrato()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarExtrato(int banco, int conta, int senha) throws IOException {
+        cabecalho(Protocolo.EXTRATO, 0, banco, conta, senha);
+        return responder(Protocolo.EXTRATO);
+    }
+
+    /**
+     * Consulta uma página das operações de um período.
+     *
+     * @param de     Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate    Fim do período (exclusive), em milissegundos desde a época Unix.
+     * @param cursor 0 para a primeira página, ou {@link #getProximoCursor()} da página anterior.
+     * @param limite Quantidade máxima de operações na página.
+     * @return Retorna o código de {@link Resultado}; se OK, o texto fica em {@link #getExtrato()}
+     * e o cursor da página seguinte em {@link #getProximoCursor()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarExtrato(int banco, int conta, int senha, long de, long ate, long cursor, int limite)
+            throws IOException {
+        cabecalho(Protocolo.EXTRATO_PERIODO, 8 + 8 + 8 + 4, banco, conta, senha);
+        saida.writeLong(de);
+        saida.writeLong(ate);
+        saida.writeLong(cursor);
+        saida.writeInt(limite);
+        return responder(Protocolo.EXTRATO_PERIODO);
+    }
+
+    /**
+     * Realiza um saque.
+     *
+     * @param valor Valor do saque, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerSaque(int banco, int conta, int senha, long valor) throws IOException {
+        return fazerSaque(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, valor);
+    }
+
+    /**
+     * Realiza um saque com chave de idempotência.
+     *
+     * @param chave Chave de idempotência, a mesma em todas as tentativas deste saque.
+     * @param valor Valor do saque, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerSaque(long chave, int banco, int conta, int senha, long valor) throws IOException {
+        cabecalho(Protocolo.SAQUE, chave, 8, banco, conta, senha);
+        saida.writeLong(valor);
+        return responder(Protocolo.SAQUE);
+    }
+
+    /**
+     * Realiza um depósito na própria conta.
+     *
+     * @param valor Valor do depósito, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerDeposito(int banco, int conta, int senha, long valor) throws IOException {
+        return fazerDeposito(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, valor);
+    }
+
+    /**
+     * Realiza um depósito na própria conta com chave de idempotência.
+     *
+     * @param chave Chave de idempotência, a mesma em todas as tentativas deste depósito.
+     * @param valor Valor do depósito, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerDeposito(long chave, int banco, int conta, int senha, long valor) throws IOException {
+        cabecalho(Protocolo.DEPOSITO, chave, 8, banco, conta, senha);
+        saida.writeLong(valor);
+        return responder(Protocolo.DEPOSITO);
+    }
+
+    /**
+     * Realiza uma transferência para outra conta do mesmo banco.
+     *
+     * @param contaDest Número da conta destino.
+     * @param valor     Valor da transferência, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaInterna(int banco, int conta, int senha, int contaDest, long valor)
+            throws IOException {
+        return fazerTransferenciaInterna(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, contaDest, valor);
+    }
+
+    /**
+     * Realiza uma transferência para outra conta do mesmo banco com chave de idempotência.
+     *
+     * @param chave     Chave de idempotência, a mesma em todas as tentativas desta transferência.
+     * @param contaDest Número da conta destino.
+     * @param valor     Valor da transferência, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaInterna(long chave, int banco, int conta, int senha, int contaDest, long valor)
+            throws IOException {
+        cabecalho(Protocolo.TRANSFERENCIA_INTERNA, chave, 4 + 8, banco, conta, senha);
+        saida.writeInt(contaDest);
+        saida.writeLong(valor);
+        return responder(Protocolo.TRANSFERENCIA_INTERNA);
+    }
+
+    /**
+     * Realiza uma transferência para uma conta de outro banco. A taxa é cobrada da conta origem.
+     *
+     * @param bancoDest Número do banco destino.
+     * @param contaDest Número da conta destino.
+     * @param valor     Valor da transferência, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaExterna(int banco, int conta, int senha, int bancoDest, int contaDest, long valor)
+            throws IOException {
+        return fazerTransferenciaExterna(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, bancoDest, contaDest, valor);
+    }
+
+    /**
+     * Realiza uma transferência para uma conta de outro banco com chave de idempotência.
+     *
+     * @param chave     Chave de idempotência, a mesma em todas as tentativas desta transferência.
+     * @param bancoDest Número do banco destino.
+     * @param contaDest Número da conta destino.
+     * @param valor     Valor da transferência, em centavos.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaExterna(long chave, int banco, int conta, int senha,
+                                         int bancoDest, int contaDest, long valor) throws IOException {
+        cabecalho(Protocolo.TRANSFERENCIA_EXTERNA, chave, 4 + 4 + 8, banco, conta, senha);
+        saida.writeInt(bancoDest);
+        saida.writeInt(contaDest);
+        saida.writeLong(valor);
+        return responder(Protocolo.TRANSFERENCIA_EXTERNA);
+    }
+
+    /**
+     * Primeira metade de uma transferência para uma conta de outro nó do Banco
+     * Central particionado: debita o valor (e a taxa, se os bancos forem
+     * diferentes) da conta, que é autenticada pela senha.
+     *
+     * @param chave         Chave de idempotência, a mesma em todas as tentativas desta transferência.
+     * @param segredo       Segredo dos nós ({@link ServidorTransacoes#usarSegredoNos}).
+     * @param bancoDest     Número do banco destino.
+     * @param contaDest     Número da conta destino.
+     * @param valor         Valor da transferência, em centavos.
+     * @param bancoNomeDest Nome do banco destino, para o extrato.
+     * @param titularDest   Titular da conta destino, para o extrato.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerDebitoInterbancario(long chave, int segredo, int banco, int conta, int senha,
+                                        int bancoDest, int contaDest, long valor, String bancoNomeDest,
+                                        String titularDest) throws IOException {
+        byte[] nome = texto(bancoNomeDest);
+        byte[] titular = texto(titularDest);
+        cabecalho(Protocolo.DEBITO_INTERBANCARIO, chave, 4 + 4 + 4 + 8 + 1 + nome.length + 1 + titular.length,
+                banco, conta, senha);
+        saida.writeInt(segredo);
+        saida.writeInt(bancoDest);
+        saida.writeInt(contaDest);
+        saida.writeLong(valor);
+        escreverTexto(nome);
+        escreverTexto(titular);
+        return responder(Protocolo.DEBITO_INTERBANCARIO);
+    }
+
+    /**
+     * Operação entre nós: consulta o nome do banco e o titular de uma conta.
+     *
+     * @param segredo Segredo dos nós ({@link ServidorTransacoes#usarSegredoNos}).
+     * @return Retorna o código de {@link Resultado}; se OK, os dados ficam em
+     * {@link #getBancoNome()} e {@link #getTitular()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarDadosConta(int segredo, int banco, int conta) throws IOException {
+        cabecalho(Protocolo.DADOS_CONTA, 0, banco, conta, segredo);
+        return responder(Protocolo.DADOS_CONTA);
+    }
+
+    /**
+     * Operação entre nós: segunda metade de uma transferência entre nós do
+     * Banco Central particionado (ou a devolução dela), que credita a conta.
+     *
+     * @param chave         Chave de idempotência, a mesma em todas as tentativas deste crédito.
+     * @param segredo       Segredo dos nós ({@link ServidorTransacoes#usarSegredoNos}).
+     * @param bancoOrig     Número do banco de quem transfere.
+     * @param contaOrig     Número da conta de quem transfere.
+     * @param valor         Valor creditado, em centavos.
+     * @param bancoNomeOrig Nome do banco de quem transfere, para o extrato.
+     * @param titularOrig   Titular de quem transfere, para o extrato.
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerCreditoInterbancario(long chave, int segredo, int banco, int conta, int bancoOrig,
+                                         int contaOrig, long valor, String bancoNomeOrig, String titularOrig)
+            throws IOException {
+        byte[] nome = texto(bancoNomeOrig);
+        byte[] titular = texto(titularOrig);
+        cabecalho(Protocolo.CREDITO_INTERBANCARIO, chave, 4 + 4 + 8 + 1 + nome.length + 1 + titular.length,
+                banco, conta, segredo);
+        saida.writeInt(bancoOrig);
+        saida.writeInt(contaOrig);
+        saida.writeLong(valor);
+        escreverTexto(nome);
+        escreverTexto(titular);
+        return responder(Protocolo.CREDITO_INTERBANCARIO);
+    }
+
+    /**
+     * Saldo da conta depois da última operação realizada.
+     *
+     * @return Retorna o saldo, em centavos.
+     */
+    public long getSaldo() {
+        return this.saldo;
+    }
+
+    /**
+     * Texto das operações recebido na última consulta de extrato realizada.
+     *
+     * @return Retorna o texto do extrato, ou null se nenhum foi consultado.
+     */
+    public String getExtrato() {
+        return this.extrato;
+    }
+
+    /**
+     * Cursor da página seguinte, recebido na última consulta de extrato por período.
+     *
+     * @return Retorna o cursor, ou {@link PaginaExtrato#FIM} se o período acabou.
+     */
+    public long getProximoCursor() {
+        return this.proximoCursor;
+    }
+
+    /**
+     * Nome do banco recebido na última consulta de dados de conta realizada.
+     *
+     * @return Retorna o nome do banco, ou null se nenhuma conta foi consultada.
+     */
+    public String getBancoNome() {
+        return this.bancoNome;
+    }
+
+    /**
+     * Titular recebido na última consulta de dados de conta realizada.
+     *
+     * @return Retorna o nome do titular, ou null se nenhuma conta foi consultada.
+     */
+    public String getTitular() {
+        return this.titular;
+    }
+
+    /**
+     * Texto em UTF-8, cortado em {@link Protocolo#TAMANHO_MAXIMO_TEXTO} bytes sem partir um caractere.
+     */
+    private static byte[] texto(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= Protocolo.TAMANHO_MAXIMO_TEXTO) {
+            return bytes;
+        }
+        int fim = Protocolo.TAMANHO_MAXIMO_TEXTO;
+        // Volta até o início de um caractere (bytes de continuação são 10xxxxxx).
+        while ((bytes[fim] & 0xC0) == 0x80) {
+            fim--;
+        }
+        return Arrays.copyOf(bytes, fim);
+    }
+
+    private void escreverTexto(byte[] texto) throws IOException {
+        saida.writeByte(texto.length);
+        saida.write(texto);
+    }
+
+    /**
+     * Escreve o cabeçalho de uma requisição.
+     *
+     * @param campos Tamanho dos campos da operação, que o chamador escreve em seguida.
+     */
+    private void cabecalho(byte operacao, int campos, int banco, int conta, int senha) throws IOException {
+        saida.writeInt(Protocolo.TAMANHO_CABECALHO + campos);
+        saida.writeInt(++proximoId);
+        saida.writeByte(operacao);
+        saida.writeInt(banco);
+        saida.writeInt(conta);
+        saida.writeInt(senha);
+    }
+
+    /**
+     * Escreve o cabeçalho de uma requisição e, se houver, a chave de idempotência.
+     */
+    private void cabecalho(byte operacao, long chave, int campos, int banco, int conta, int senha)
+            throws IOException {
+        if (chave == CacheIdempotencia.SEM_CHAVE) {
+            cabecalho(operacao, campos, banco, conta, senha);
+            return;
+        }
+        cabecalho((byte) (operacao | Protocolo.COM_CHAVE), 8 + campos, banco, conta, senha);
+        saida.writeLong(chave);
+    }
+
+    /**
+     * Envia a requisição escrita e lê a resposta.
+     */
+    private int responder(byte operacao) throws IOException {
+        saida.flush();
+
+        entrada.readInt();
+        int id = entrada.readInt();
+        int resultado = entrada.readByte();
+        if (id != proximoId) {
+            throw new IOException("Resposta " + id + " recebida no lugar da " + proximoId + ".");
+        }
+        if (resultado == Resultado.OK) {
+            saldo = entrada.readLong();
+            if (operacao == Protocolo.EXTRATO_PERIODO) {
+                proximoCursor = entrada.readLong();
+            }
+            if (operacao == Protocolo.EXTRATO || operacao == Protocolo.EXTRATO_PERIODO
+                    || operacao == Protocolo.DADOS_CONTA) {
+                byte[] bytes = new byte[entrada.readInt()];
+                entrada.readFully(bytes);
+                String texto = new String(bytes, StandardCharsets.UTF_8);
+                if (operacao == Protocolo.DADOS_CONTA) {
+                    int quebra = texto.indexOf('\n');
+                    bancoNome = texto.substring(0, quebra);
+                    titular = texto.substring(quebra + 1);
+                } else {
+                    extrato = texto;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,300 @@
+package br.com.daluz.javabank;
+
+/**
+ * Câmara de compensação das transferências entre bancos.
+ * <p>
+ * A transferência é feita em duas fases. Na primeira
+ * ({@link BancoCentral#agendarTransferenciaEntreBancos}) o valor e a taxa são
+ * debitados da conta origem e a transferência entra na fila. Na segunda
+ * ({@link BancoCentral#liquidarCompensacao}) toda a fila forma um ciclo: as
+ * posições entre os bancos são compensadas e os créditos são aplicados em
+ * bloco, agrupados por conta destino, travando cada conta uma única vez.
+ * <p>
+ * As duas fases vão para o registro de transações: a transferência agendada,
+ * o início do ciclo e cada crédito aplicado. Se o sistema cair no meio de um
+ * ciclo, a recuperação reconstrói a fila e o ciclo, e os créditos que faltaram
+ * são aplicados quando o Banco Central volta a usar o registro.
+ */
+final class CompensacaoInterbancaria {
+    static final byte A_CREDITAR = 0;
+    static final byte CREDITADO = 1;
+    static final byte DEVOLVIDO = 2;
+
+    /**
+     * Serializa os ciclos: um ciclo só começa depois que o anterior terminou.
+     */
+    private final Object travaCiclo;
+
+    private LoteTransferencias pendentes;
+    private LoteTransferencias ciclo;
+    private byte[] estados;
+
+    /**
+     * Construtor da classe CompensacaoInterbancaria.
+     */
+    CompensacaoInterbancaria() {
+        this.travaCiclo = new Object();
+        this.pendentes = new LoteTransferencias(64);
+        this.ciclo = new LoteTransferencias(1);
+        this.estados = new byte[0];
+    }
+
+    /**
+     * Coloca na fila uma transferência já debitada da conta origem e a grava no
+     * registro de transações. A fila e o registro ficam na mesma ordem.
+     *
+     * @return Retorna a posição do registro gravado, para aguardar a durabilidade.
+     */
+    synchronized long enfileirar(RegistroTransacoes registro, long instante,
+                                 int bancoNumeroOrig, int contaNumeroOrig,
+                                 int bancoNumeroDest, int contaNumeroDest, long valor, long taxa) {
+        long posicao = registro.registrarTransferenciaAgendada(instante, bancoNumeroOrig, contaNumeroOrig,
+                bancoNumeroDest, contaNumeroDest, valor, taxa);
+        pendentes.adicionar(bancoNumeroOrig, contaNumeroOrig, bancoNumeroDest, contaNumeroDest, valor);
+        return posicao;
+    }
+
+    /**
+     * Coloca na fila um item de lote já debitado da conta origem, como
+     * {@link #enfileirar}. A durabilidade é aguardada no fim do ciclo que
+     * liquida o lote ({@link #liquidarLote}).
+     *
+     * @return Retorna a posição do item na fila.
+     */
+    synchronized int enfileirarItemLote(RegistroTransacoes registro, long instante,
+                                        int bancoNumeroOrig, int contaNumeroOrig,
+                                        int bancoNumeroDest, int contaNumeroDest, long valor, long taxa) {
+        enfileirar(registro, instante, bancoNumeroOrig, contaNumeroOrig, bancoNumeroDest, contaNumeroDest, valor, taxa);
+        return pendentes.tamanho() - 1;
+    }
+
+    /**
+     * Quantidade de transferências esperando o próximo ciclo.
+     *
+     * @return Retorna o tamanho da fila.
+     */
+    synchronized int quantidadePendente() {
+        return pendentes.tamanho();
+    }
+
+    /**
+     * Liquida um ciclo com todas as transferências da fila.
+     *
+     * @param bancoCentral Banco Central dono das contas.
+     * @param registro     Registro de transações.
+     * @return Retorna o resultado do ciclo, com as posições compensadas entre os bancos.
+     */
+    CicloCompensacao liquidar(BancoCentral bancoCentral, RegistroTransacoes registro) {
+        synchronized (travaCiclo) {
+            long instante = System.currentTimeMillis();
+            long posicao;
+
+            synchronized (this) {
+                if (pendentes.tamanho() == 0) {
+                    return CicloCompensacao.apurar(pendentes, new byte[0]);
+                }
+                posicao = registro.registrarCicloCompensacao(instante, pendentes.tamanho());
+                iniciarCiclo();
+            }
+
+            posicao = Math.max(posicao, creditarCiclo(bancoCentral, instante));
+            registro.aguardar(posicao);
+            return CicloCompensacao.apurar(ciclo, estados);
+        }
+    }
+
+    /**
+     * Liquida um lote de transferências entre bancos
+     * ({@link BancoCentral#processarLoteEntreBancos}). Os itens são debitados e
+     * enfileirados por agendar, que preenche naFila, e o ciclo começa logo em
+     * seguida, sem que outro ciclo os leve antes. O ciclo também credita as
+     * transferências que já estavam na fila.
+     *
+     * @param bancoCentral Banco Central dono das contas.
+     * @param registro     Registro de transações.
+     * @param agendar      Debita e enfileira os itens do lote.
+     * @param naFila       Posição na fila de cada item do lote, ou -1 se ele não foi enfileirado.
+     * @return Retorna, para cada item do lote, true se o valor foi devolvido à conta origem.
+     */
+    boolean[] liquidarLote(BancoCentral bancoCentral, RegistroTransacoes registro, Runnable agendar, int[] naFila) {
+        synchronized (travaCiclo) {
+            agendar.run();
+            boolean[] devolvidos = new boolean[naFila.length];
+            boolean enfileirados = false;
+            for (int posicao : naFila) {
+                enfileirados |= posicao >= 0;
+            }
+            if (!enfileirados) {
+                return devolvidos;
+            }
+
+            liquidar(bancoCentral, registro);
+            for (int i = 0; i < naFila.length; i++) {
+                devolvidos[i] = naFila[i] >= 0 && estados[naFila[i]] == DEVOLVIDO;
+            }
+            return devolvidos;
+        }
+    }
+
+    /**
+     * Aplica os créditos que faltaram num ciclo interrompido por uma queda.
+     *
+     * @param bancoCentral Banco Central dono das contas.
+     * @param registro     Registro de transações onde os créditos são gravados.
+     */
+    void retomar(BancoCentral bancoCentral, RegistroTransacoes registro) {
+        synchronized (travaCiclo) {
+            registro.aguardar(creditarCiclo(bancoCentral, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Reproduz o início de um ciclo gravado no registro de transações.
+     *
+     * @param quantidade Quantidade de transferências do ciclo.
+     */
+    void reproduzirCiclo(int quantidade) {
+        synchronized (travaCiclo) {
+            synchronized (this) {
+                if (pendentes.tamanho() != quantidade) {
+                    throw new IllegalStateException("Ciclo de compensação com " + quantidade
+                            + " transferências, mas a fila tem " + pendentes.tamanho() + ".");
+                }
+                iniciarCiclo();
+            }
+        }
+    }
+
+    /**
+     * Reproduz um crédito do ciclo gravado no registro de transações.
+     */
+    void reproduzirCredito(BancoCentral bancoCentral, int item, boolean devolucao, long instante) {
+        synchronized (travaCiclo) {
+            creditar(bancoCentral, item, devolucao, instante);
+        }
+    }
+
+    private void iniciarCiclo() {
+        ciclo = pendentes;
+        estados = new byte[ciclo.tamanho()];
+        pendentes = new LoteTransferencias(64);
+    }
+
+    /**
+     * Credita, agrupados por conta destino, os itens do ciclo que ainda não foram creditados.
+     * Se o crédito não couber no saldo da conta destino, o valor volta para a conta origem.
+     *
+     * @return Retorna a posição do último registro gravado.
+     */
+    private long creditarCiclo(BancoCentral bancoCentral, long instante) {
+        int aCreditar = 0;
+        for (byte estado : estados) {
+            if (estado == A_CREDITAR) {
+                aCreditar++;
+            }
+        }
+        if (aCreditar == 0) {
+            return 0;
+        }
+
+        int[] itens = new int[aCreditar];
+        for (int i = 0, k = 0; i < estados.length; i++) {
+            if (estados[i] == A_CREDITAR) {
+                itens[k++] = i;
+            }
+        }
+        itens = ciclo.agruparPorConta(itens, false);
+
+        long posicao = 0;
+        for (int inicio = 0, fim; inicio < itens.length; inicio = fim) {
+            int primeiro = itens[inicio];
+            fim = inicio + 1;
+            while (fim < itens.length
+                    && ciclo.bancoDest(itens[fim]) == ciclo.bancoDest(primeiro)
+                    && ciclo.contaDest(itens[fim]) == ciclo.contaDest(primeiro)) {
+                fim++;
+            }
+
+            Banco bancoDest = bancoCentral.buscarBanco(ciclo.bancoDest(primeiro));
+            Conta contaDest = bancoDest.buscarConta(ciclo.contaDest(primeiro));
+            synchronized (contaDest) {
+                contaDest.reservarOperacoes(fim - inicio);
+                for (int k = inicio; k < fim; k++) {
+                    int i = itens[k];
+                    if (Dinheiro.podeSomar(contaDest.getSaldo(), ciclo.valor(i))) {
+                        Conta contaOrig = conta(bancoCentral, ciclo.bancoOrig(i), ciclo.contaOrig(i));
+                        posicao = bancoDest.creditarCompensacao(contaDest, contaOrig, ciclo.valor(i),
+                                i, false, instante);
+                        estados[i] = CREDITADO;
+                    }
+                }
+            }
+        }
+
+        // Devoluções ficam para depois, para nunca travar duas contas ao mesmo tempo.
+        for (int i : itens) {
+            if (estados[i] == A_CREDITAR) {
+                posicao = creditar(bancoCentral, i, true, instante);
+            }
+        }
+        return posicao;
+    }
+
+    /**
+     * Credita um item do ciclo na conta destino ou, na devolução, na conta origem.
+     */
+    private long creditar(BancoCentral bancoCentral, int item, boolean devolucao, long instante) {
+        Banco bancoOrig = bancoCentral.buscarBanco(ciclo.bancoOrig(item));
+        Banco bancoDest = bancoCentral.buscarBanco(ciclo.bancoDest(item));
+        Conta contaOrig = bancoOrig.buscarConta(ciclo.contaOrig(item));
+        Conta contaDest = bancoDest.buscarConta(ciclo.contaDest(item));
+
+        Banco banco = devolucao ? bancoOrig : bancoDest;
+        Conta conta = devolucao ? contaOrig : contaDest;
+        Conta contraparte = devolucao ? contaDest : contaOrig;
+        long posicao;
+
+        synchronized (conta) {
+            posicao = banco.creditarCompensacao(conta, contraparte, ciclo.valor(item), item, devolucao, instante);
+        }
+        estados[item] = devolucao ? DEVOLVIDO : CREDITADO;
+        return posicao;
+    }
+
+    private static Conta conta(BancoCentral bancoCentral, int bancoNumero, int contaNumero) {
+        return bancoCentral.buscarBanco(bancoNumero).buscarConta(contaNumero);
+    }
+
+    /**
+     * Ciclo em liquidação (ou o último liquidado). Usado pelo snapshot,
+     * sempre num Banco Central que não está recebendo operações.
+     */
+    LoteTransferencias getCiclo() {
+        return ciclo;
+    }
+
+    byte getEstado(int item) {
+        return estados[item];
+    }
+
+    /**
+     * Fila de transferências agendadas. Usado pelo snapshot,
+     * sempre num Banco Central que não está recebendo operações.
+     */
+    LoteTransferencias getPendentes() {
+        return pendentes;
+    }
+
+    /**
+     * Restaura o ciclo e a fila gravados num snapshot.
+     */
+    void restaurar(LoteTransferencias ciclo, byte[] estados, LoteTransferencias pendentes) {
+        synchronized (travaCiclo) {
+            synchronized (this) {
+                this.ciclo = ciclo;
+                this.estados = estados;
+                this.pendentes = pendentes;
+            }
+        }
+    }
+}
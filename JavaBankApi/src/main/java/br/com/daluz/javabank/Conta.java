@@ -0,0 +1,487 @@
+package br.com.daluz.javabank;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+/**
+ * Classe abstrata que representa uma conta bancária genérica.
+ * <p>
+ * O monitor da própria conta protege o saldo e o registro de operações;
+ * as alterações são feitas pelo BancoRef enquanto segura esse monitor.
+ */
+public abstract class Conta {
+
+    public static final int CONTA_CORRENTE = 1;
+    public static final int CONTA_POUPANCA = 2;
+
+    // Operações renderizadas por vez ao imprimir o extrato; o monitor é liberado entre as páginas.
+    private static final int PAGINA_IMPRESSAO = 1024;
+
+    // Número, nome, segmento de extratos e armazém frio, compartilhados pelas contas do banco.
+    private DescritorBanco banco;
+    private final int contaNumero;
+    private final String titular;
+    private String primeiroNome;
+    private final byte contaTipo;
+    private volatile long saldo;
+    // Hash com sal da senha ({@link SenhaProtegida}); a senha em si não é guardada.
+    private final int senha;
+    // Criado na primeira operação; a maioria das contas de um banco grande nunca é movimentada.
+    private Extrato operacoes;
+
+    // Indica que a conta está no armazém frio do banco, fora do índice.
+    private volatile boolean fria;
+    // Bit de uso da política de relógio do banco; é limpo quando o ponteiro passa pela conta.
+    boolean usada;
+
+    /**
+     * Construtor da classe Conta.
+     *
+     * @param bancoNumero Código que identifica o banco.
+     * @param contaNumero Código que identifica a conta do cliente.
+     * @param titular     Nome do cliente titular da conta.
+     * @param bancoNome   Nome do banco onde o cliente possui uma conta.
+     * @param contaTipo   Tipo da conta.
+     * @param saldo       Saldo disponível na conta, em centavos.
+     * @param senha       Senha de acesso a conta.
+     */
+    public Conta(
+            int bancoNumero,
+            int contaNumero,
+            String titular,
+            String bancoNome,
+            int contaTipo,
+            long saldo,
+            int senha) {
+        this(new DescritorBanco(bancoNumero, bancoNome), contaNumero, titular, contaTipo, saldo,
+                SenhaProtegida.proteger(senha));
+    }
+
+    /**
+     * Construtor de uma conta que já usa o descritor do seu banco.
+     *
+     * @param banco          Descritor do banco onde o cliente possui uma conta.
+     * @param contaNumero    Código que identifica a conta do cliente.
+     * @param titular        Nome do cliente titular da conta.
+     * @param contaTipo      Tipo da conta.
+     * @param saldo          Saldo disponível na conta, em centavos.
+     * @param senhaProtegida Senha de acesso a conta, já protegida por {@link SenhaProtegida#proteger}.
+     */
+    Conta(DescritorBanco banco, int contaNumero, String titular, int contaTipo, long saldo, int senhaProtegida) {
+        this.banco = banco;
+        this.contaNumero = contaNumero;
+        this.titular = titular;
+        this.contaTipo = (byte) contaTipo;
+        this.senha = senhaProtegida;
+        this.saldo = saldo;
+    }
+
+    /**
+     * Verifica se existe saldo na conta para realizar a operação.
+     *
+     * @param valor Valor monetário na conta, em centavos.
+     * @return Retorna true se existe saldo na conta, false caso contrário.
+     */
+    public boolean temSaldo(long valor) {
+        return this.saldo >= valor;
+    }
+
+    /**
+     * Retorna o nome completo do cliente.
+     *
+     * @return Retorna o nome completo do cliente.
+     */
+    public String getTitular() {
+        return this.titular;
+    }
+
+    /**
+     * Retorna o primeiro nome do cliente.
+     *
+     * @return Retorna o primeiro nome do cliente.
+     */
+    public String getPrimeiroNome() {
+        // Calculado uma vez; corridas entre threads só repetem o cálculo.
+        String nome = this.primeiroNome;
+        if (nome == null) {
+            int espaco = this.titular.indexOf(' ');
+            nome = (espaco < 0) ? this.titular : this.titular.substring(0, espaco);
+            this.primeiroNome = nome;
+        }
+        return nome;
+    }
+
+    /**
+     * Retorna o código de identificação do banco onde o cliente tem uma conta.
+     *
+     * @return Retorna o número do banco.
+     */
+    public int getBancoNumero() {
+        return this.banco.getNumero();
+    }
+
+    /**
+     * Retorna o nome do banco onde o cliente tem uma conta.
+     *
+     * @return Retorna o nome do banco.
+     */
+    public String getBancoNome() {
+        return this.banco.getNome();
+    }
+
+    /**
+     * Retorna o código de identificação da conta do cliente.
+     *
+     * @return Retorna o número da conta.
+     */
+    public int getContaNumero() {
+        return this.contaNumero;
+    }
+
+    /**
+     * Define o valor do saldo que o usuário tem na conta.
+     *
+     * @param saldo Valor monetário que o usuário possui na conta, em centavos.
+     */
+    public void setSaldo(long saldo) {
+        aquecer();
+        this.saldo = saldo;
+    }
+
+    /**
+     * Retorna o valor do saldo que o usuário tem na conta.
+     *
+     * @return Retorna o saldo do usuário, em centavos.
+     */
+    public long getSaldo() {
+        return this.saldo;
+    }
+
+    /**
+     * Verifica se a senha de acesso é a correta.
+     * Não limita as tentativas; o caixa eletrônico e o servidor conferem a
+     * senha por {@link LimitadorTentativas#verificarSenha}.
+     *
+     * @param senha Senha que o cliente tenta acessar a conta.
+     * @return Retorna true se a senha coincide, false caso contrário.
+     */
+    public boolean verificaSenha(int senha) {
+        return SenhaProtegida.confere(this.senha, senha);
+    }
+
+    /**
+     * Senha de acesso da conta, protegida. Usado apenas para gravar a conta
+     * no registro de transações e no snapshot.
+     *
+     * @return Retorna o hash com sal da senha da conta.
+     */
+    int getSenhaProtegida() {
+        return this.senha;
+    }
+
+    /**
+     * Código do tipo da conta.
+     *
+     * @return Número que representa o código de um tipo de conta.
+     */
+    public int getContaTipo() {
+        return this.contaTipo;
+    }
+
+    /**
+     * Exibe o tipo da conta de forma textual.
+     *
+     * @return Texto informando o tipo da conta.
+     */
+    abstract public String getContaTipoText();
+
+    /**
+     * Valor do lançamento do fechamento mensal: positivo para um crédito
+     * (rendimento), negativo para um débito (taxa). Chamado com o monitor da conta travado.
+     *
+     * @return Retorna o valor, em centavos, ou zero se a conta não tem lançamento.
+     */
+    long lancamentoMensal() {
+        return 0;
+    }
+
+    /**
+     * Salva um registro das operações bancárias realizadas na conta.
+     * O saldo registrado é o saldo atual da conta, logo este método deve ser
+     * chamado logo após a operação, com o monitor da conta travado.
+     *
+     * @param tipo        Tipo da operação (Extrato.SAQUE, Extrato.DEPOSITO, ...).
+     * @param instante    Momento da operação, em milissegundos desde a época Unix.
+     * @param bancoNumero Número do banco da contraparte.
+     * @param bancoNome   Nome do banco da contraparte.
+     * @param contaNumero Número da conta da contraparte.
+     * @param titular     Nome do titular da contraparte.
+     * @param valor       Valor da operação, em centavos.
+     */
+    public synchronized void salvarOperacao(
+            byte tipo,
+            long instante,
+            int bancoNumero,
+            String bancoNome,
+            int contaNumero,
+            String titular,
+            long valor) {
+        aquecer();
+        extrato().adicionar(tipo, instante,
+                bancoNumero, bancoNome, contaNumero, titular, valor, this.saldo);
+    }
+
+    /**
+     * Reserva espaço no extrato para as próximas operações de um lote.
+     *
+     * @param quantidade Quantidade de operações que serão salvas.
+     */
+    synchronized void reservarOperacoes(int quantidade) {
+        extrato().reservar(quantidade);
+    }
+
+    /**
+     * Imprime o saldo bancário da conta do cliente.
+     */
+    public void imprimirSaldo() {
+        imprimirSaldo(System.out);
+    }
+
+    /**
+     * Imprime o saldo bancário da conta do cliente.
+     *
+     * @param saida Onde o saldo é impresso.
+     */
+    public void imprimirSaldo(PrintStream saida) {
+        saida.print(cabecalho(" - Saldo bancário"));
+    }
+
+    /**
+     * Imprime o extrato bancário da conta do cliente.
+     */
+    public void imprimirExtrato() {
+        imprimirExtrato(System.out);
+    }
+
+    /**
+     * Imprime o extrato bancário da conta do cliente, com todas as operações.
+     *
+     * @param saida Onde o extrato é impresso.
+     */
+    public void imprimirExtrato(PrintStream saida) {
+        imprimirExtrato(saida, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Imprime o extrato bancário da conta do cliente, com as operações de um período.
+     *
+     * @param saida Onde o extrato é impresso.
+     * @param de    Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate   Fim do período (exclusive), em milissegundos desde a época Unix.
+     */
+    public void imprimirExtrato(PrintStream saida, long de, long ate) {
+        SaidaTexto texto = new SaidaTexto(saida);
+        imprimirExtrato(texto, de, ate);
+        texto.flush();
+    }
+
+    /**
+     * Escreve o extrato bancário da conta do cliente numa saída com buffer.
+     * As operações são lidas em páginas, e a saída escreve o que acumulou
+     * sempre que passa do seu limite; um extrato muito grande sai em pedaços,
+     * sem ser montado inteiro. O que restar no buffer é escrito no flush da saída.
+     *
+     * @param saida Onde o extrato é escrito.
+     * @param de    Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate   Fim do período (exclusive), em milissegundos desde a época Unix.
+     */
+    public void imprimirExtrato(SaidaTexto saida, long de, long ate) {
+        saida.escrever(cabecalho(" - Extrato bancário"))
+                .linha("\n------------- [Extrato das operações] -------------");
+
+        StringBuilder buffer = saida.buffer();
+        int inicio = buffer.length();
+        boolean vazio = true;
+        long cursor = 0;
+        while (cursor != PaginaExtrato.FIM) {
+            // Cada página é renderizada sob o monitor, e escrita depois de liberá-lo.
+            cursor = escreverExtrato(de, ate, cursor, buffer);
+            vazio = vazio && buffer.length() == inicio;
+            saida.descarregarSeCheio();
+        }
+
+        if (vazio) {
+            saida.linha("Nenhuma operação realizada neste período.\n");
+        }
+    }
+
+    /**
+     * Renderiza uma página do extrato no buffer informado.
+     *
+     * @return Retorna o cursor da próxima página, ou FIM.
+     */
+    private synchronized long escreverExtrato(long de, long ate, long cursor, StringBuilder destino) {
+        if (this.operacoes == null) {
+            return PaginaExtrato.FIM;
+        }
+        return this.operacoes.escrever(de, ate, cursor, PAGINA_IMPRESSAO, this, destino);
+    }
+
+    /**
+     * Banner e dados da conta, com o saldo atual, montados num único texto
+     * para serem impressos de uma vez.
+     *
+     * @param tela Complemento do título do banner, depois do nome do banco.
+     * @return Retorna o texto, com as quebras de linha.
+     */
+    private String cabecalho(String tela) {
+        String quebra = System.lineSeparator();
+        StringBuilder texto = new StringBuilder(512)
+                .append(Utils.textoBanner(getBancoNome() + tela))
+                .append(" Banco .............. ").append(getBancoNumero()).append(" - ").append(getBancoNome()).append(quebra)
+                .append(" Titular ............ ").append(getTitular()).append(quebra)
+                .append(" Nº Conta ........... ").append(getContaNumero()).append(quebra)
+                .append(" Tipo Conta ......... ").append(getContaTipoText()).append(quebra)
+                .append(" Saldo disponível ... ");
+        return Utils.toMoney(texto, getSaldo()).append(quebra).toString();
+    }
+
+    /**
+     * Consulta uma página das operações de um período. O início do período é
+     * achado por busca binária, então o custo é proporcional à página, e não
+     * ao histórico da conta.
+     *
+     * @param de     Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate    Fim do período (exclusive), em milissegundos desde a época Unix.
+     * @param cursor 0 para a primeira página, ou o próximo cursor da página anterior.
+     * @param limite Quantidade máxima de operações na página.
+     * @return Retorna a página de operações.
+     * @throws UnsupportedOperationException Lança exceção se o limite não for positivo.
+     */
+    public synchronized PaginaExtrato consultarExtrato(long de, long ate, long cursor, int limite) {
+        if (limite <= 0) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: O limite da página deve ser positivo.");
+        }
+        if (this.operacoes == null) {
+            return new PaginaExtrato("", 0, PaginaExtrato.FIM);
+        }
+        return this.operacoes.consultar(de, ate, cursor, limite, this);
+    }
+
+    /**
+     * Copia as operações da conta, a partir de um cursor, para o lote de uma
+     * exportação, até o lote encher.
+     *
+     * @param cursor  0 para a primeira operação, ou o cursor devolvido na chamada anterior.
+     * @param destino Lote onde as operações são copiadas.
+     * @return Retorna o cursor da próxima operação, ou FIM se todas foram copiadas.
+     */
+    synchronized long copiarExtrato(long cursor, ExportacaoExtratos.Colunas destino) {
+        if (this.operacoes == null) {
+            return PaginaExtrato.FIM;
+        }
+        return this.operacoes.copiar(cursor, this, destino);
+    }
+
+    /**
+     * Extrato da conta, criado na primeira operação com o segmento do banco.
+     */
+    private Extrato extrato() {
+        if (this.operacoes == null) {
+            this.operacoes = new Extrato();
+            SegmentoExtratos segmento = this.banco.getSegmentoExtratos();
+            if (segmento != null) {
+                this.operacoes.usarSegmento(segmento);
+            }
+        }
+        return this.operacoes;
+    }
+
+    /**
+     * Passa a gravar as operações mais antigas do extrato no segmento informado.
+     *
+     * @param segmento Segmento de extratos do Banco Central.
+     */
+    synchronized void usarSegmentoExtratos(SegmentoExtratos segmento) {
+        if (this.operacoes != null) {
+            this.operacoes.usarSegmento(segmento);
+        } else if (this.banco.getSegmentoExtratos() == null) {
+            // Descritor próprio da conta; o do banco já recebeu o segmento.
+            this.banco.setSegmentoExtratos(segmento);
+        }
+    }
+
+    /**
+     * Descritor do banco usado pela conta.
+     *
+     * @return Retorna o descritor.
+     */
+    DescritorBanco getDescritor() {
+        return this.banco;
+    }
+
+    /**
+     * Passa a usar o descritor do banco em vez do descritor próprio criado
+     * pelo construtor público. Chamado pelo banco, ao criar a conta.
+     *
+     * @param banco Descritor do banco, com o mesmo número e nome.
+     */
+    void usarDescritor(DescritorBanco banco) {
+        this.banco = banco;
+    }
+
+    /**
+     * Se a conta foi tirada do índice do banco para o armazém frio, mas o
+     * objeto ainda é usado, ela volta para o índice antes de ser alterada;
+     * assim o registro frio nunca fica para trás de um objeto alterado.
+     * Chamado com o monitor da conta travado.
+     */
+    private void aquecer() {
+        if (this.fria) {
+            this.banco.getArmazemFrio().promover(this);
+        }
+    }
+
+    boolean isFria() {
+        return this.fria;
+    }
+
+    void setFria(boolean fria) {
+        this.fria = fria;
+    }
+
+    /**
+     * Registro de operações da conta. Deve ser usado com o monitor da conta travado.
+     *
+     * @return Retorna o extrato, ou null se a conta ainda não teve operações.
+     */
+    Extrato getOperacoes() {
+        return this.operacoes;
+    }
+
+    /**
+     * Troca o registro de operações, ao refazer a conta a partir do armazém frio.
+     *
+     * @param operacoes Extrato restaurado.
+     */
+    synchronized void usarOperacoes(Extrato operacoes) {
+        this.operacoes = operacoes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Conta conta = (Conta) o;
+        return this.getBancoNumero() == conta.getBancoNumero() &&
+                this.contaNumero == conta.contaNumero &&
+                this.contaTipo == conta.contaTipo &&
+                this.titular.equals(conta.titular);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.titular, this.getBancoNumero(), this.contaNumero, this.contaTipo);
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.daluz.javabank;
+
+/**
+ * Classe concreta de uma conta bancária.
+ * Esta conta representa uma ContaCorrente.
+ */
+public class ContaCorrente extends Conta {
+    /**
+     * Taxa de manutenção mensal da conta corrente, em centavos.
+     */
+    public static final long TAXA_MENSAL = 1290;
+
+    /**
+     * Construtor da classe ContaCorrente.
+     *
+     * @param bancoNumero Código que identifica o banco.
+     * @param contaNumero Código que identifica a conta do cliente.
+     * @param titular     Nome do cliente titular da conta.
+     * @param bancoNome   Nome do banco onde o cliente possui uma conta.
+     * @param saldo       Saldo disponível na conta, em centavos.
+     * @param senha       Senha de acesso a conta.
+     */
+    public ContaCorrente(
+            int bancoNumero,
+            int contaNumero,
+            String titular,
+            String bancoNome,
+            long saldo,
+            int senha) {
+        super(bancoNumero, contaNumero, titular, bancoNome, CONTA_CORRENTE, saldo, senha);
+    }
+
+    ContaCorrente(DescritorBanco banco, int contaNumero, String titular, long saldo, int senhaProtegida) {
+        super(banco, contaNumero, titular, CONTA_CORRENTE, saldo, senhaProtegida);
+    }
+
+    @Override
+    public String getContaTipoText() {
+        return "Conta corrente";
+    }
+
+    /**
+     * Calcula a taxa de manutenção do mês. Como a conta não fica negativa,
+     * a taxa é limitada ao saldo disponível.
+     * O débito é feito pelo fechamento mensal ({@link BancoCentral#fecharMes}).
+     *
+     * @return Retorna a taxa, em centavos.
+     */
+    public long taxaMensal() {
+        return Math.max(0, Math.min(TAXA_MENSAL, getSaldo()));
+    }
+
+    @Override
+    long lancamentoMensal() {
+        return -taxaMensal();
+    }
+}
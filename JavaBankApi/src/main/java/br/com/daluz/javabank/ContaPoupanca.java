@@ -0,0 +1,63 @@
+package br.com.daluz.javabank;
+
+
+/**
+ * Classe concreta de uma conta bancária.
+ * Esta conta representa uma conta poupança.
+ */
+public class ContaPoupanca extends Conta {
+    /**
+     * Rendimento mensal da poupança, em centésimos de ponto percentual (50 = 0,5% ao mês).
+     */
+    public static final long RENDIMENTO_MENSAL_PONTOS_BASE = 50;
+
+    /**
+     * Construtor da classe ContaPoupança.
+     *
+     * @param bancoNumero Código que identifica o banco.
+     * @param contaNumero Código que identifica a conta do cliente.
+     * @param titular     Nome do cliente titular da conta.
+     * @param bancoNome   Nome do banco onde o cliente possui uma conta.
+     * @param saldo       Saldo disponível na conta, em centavos.
+     * @param senha       Senha de acesso a conta.
+     */
+    public ContaPoupanca(
+            int bancoNumero,
+            int contaNumero,
+            String titular,
+            String bancoNome,
+            long saldo,
+            int senha) {
+        super(bancoNumero, contaNumero, titular, bancoNome, CONTA_POUPANCA, saldo, senha);
+    }
+
+    ContaPoupanca(DescritorBanco banco, int contaNumero, String titular, long saldo, int senhaProtegida) {
+        super(banco, contaNumero, titular, CONTA_POUPANCA, saldo, senhaProtegida);
+    }
+
+    @Override
+    public String getContaTipoText() {
+        return "Conta poupança";
+    }
+
+    /**
+     * Calcula o rendimento do mês sobre o saldo atual, arredondado para baixo.
+     * O crédito é feito pelo fechamento mensal ({@link BancoCentral#fecharMes}).
+     *
+     * @return Retorna o rendimento, em centavos (zero se não há saldo).
+     */
+    public long rendimento() {
+        long saldo = getSaldo();
+        if (saldo <= 0) {
+            return 0;
+        }
+        // Dividido em duas partes para não estourar com saldos muito altos.
+        return saldo / 10_000 * RENDIMENTO_MENSAL_PONTOS_BASE
+                + saldo % 10_000 * RENDIMENTO_MENSAL_PONTOS_BASE / 10_000;
+    }
+
+    @Override
+    long lancamentoMensal() {
+        return rendimento();
+    }
+}
\ No newline at end of file
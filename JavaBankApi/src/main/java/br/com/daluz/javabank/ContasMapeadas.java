@@ -0,0 +1,181 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Visão das contas de um banco dentro de um snapshot mapeado em memória.
+ * <p>
+ * Cada conta ocupa um registro de tamanho fixo, ordenado pelo número da conta,
+ * seguido da área de dados, com o nome do titular e as operações do extrato:
+ * <pre>
+ *   registro (48 bytes): [int contaNumero][int contaTipo][int senhaProtegida][int titularTamanho]
+ *                        [long saldo][long titularPosicao][long extratoPosicao][int extratoTamanho]
+ *                        [int extratoQuantidade]
+ * </pre>
+ * As operações estão no formato dos blocos do {@link SegmentoExtratos}
+ * ({@link Extrato#serializar()}). Snapshots anteriores à versão 6 não tinham
+ * os extratos e usavam registros de 32 bytes, só com os primeiros campos.
+ * A senha é guardada protegida ({@link SenhaProtegida}); snapshots anteriores
+ * à versão 5 guardavam a senha aberta, que é protegida quando a conta é lida.
+ * As posições são relativas ao início da área de dados. Nada é lido do
+ * arquivo até que uma conta seja procurada; só então o objeto Conta é criado.
+ */
+final class ContasMapeadas {
+    static final int TAMANHO_REGISTRO = 48;
+    private static final int TAMANHO_REGISTRO_SEM_EXTRATO = 32;
+
+    private final ByteBuffer secao;
+    private final int quantidade;
+    private final int tamanhoRegistro;
+    private final int inicioDados;
+    private final boolean senhaAberta;
+
+    /**
+     * Construtor da classe ContasMapeadas.
+     *
+     * @param secao      Trecho mapeado do snapshot com as contas do banco.
+     * @param quantidade Quantidade de contas na seção.
+     * @param versao     Versão do snapshot, que define o formato dos registros.
+     */
+    ContasMapeadas(ByteBuffer secao, int quantidade, int versao) {
+        this.secao = secao;
+        this.quantidade = quantidade;
+        this.tamanhoRegistro = (versao < 6) ? TAMANHO_REGISTRO_SEM_EXTRATO : TAMANHO_REGISTRO;
+        this.inicioDados = quantidade * tamanhoRegistro;
+        this.senhaAberta = versao < 5;
+    }
+
+    /**
+     * Quantidade de contas na seção.
+     *
+     * @return Retorna o número de contas.
+     */
+    int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Procura a conta pelo número (busca binária sobre os registros).
+     *
+     * @param contaNumero Número da conta.
+     * @return Retorna a posição do registro, ou -1 se a conta não estiver na seção.
+     */
+    int buscar(int contaNumero) {
+        int baixo = 0;
+        int alto = quantidade - 1;
+        while (baixo <= alto) {
+            int meio = (baixo + alto) >>> 1;
+            int numero = contaNumero(meio);
+            if (numero < contaNumero) {
+                baixo = meio + 1;
+            } else if (numero > contaNumero) {
+                alto = meio - 1;
+            } else {
+                return meio;
+            }
+        }
+        return -1;
+    }
+
+    int contaNumero(int i) {
+        return secao.getInt(i * tamanhoRegistro);
+    }
+
+    int contaTipo(int i) {
+        return secao.getInt(i * tamanhoRegistro + 4);
+    }
+
+    int senhaProtegida(int i) {
+        int senha = secao.getInt(i * tamanhoRegistro + 8);
+        return senhaAberta ? SenhaProtegida.proteger(senha) : senha;
+    }
+
+    long saldo(int i) {
+        return secao.getLong(i * tamanhoRegistro + 16);
+    }
+
+    String titular(int i) {
+        int tamanho = secao.getInt(i * tamanhoRegistro + 12);
+        int posicao = inicioDados + (int) secao.getLong(i * tamanhoRegistro + 24);
+        byte[] bytes = new byte[tamanho];
+        secao.get(posicao, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Quantidade de operações no extrato da conta.
+     *
+     * @param i Posição do registro.
+     * @return Retorna o número de operações (0 nos snapshots sem extratos).
+     */
+    int extratoQuantidade(int i) {
+        return (tamanhoRegistro == TAMANHO_REGISTRO_SEM_EXTRATO) ? 0 : secao.getInt(i * tamanhoRegistro + 44);
+    }
+
+    /**
+     * Operações do extrato da conta, serializadas como em {@link Extrato#serializar()}.
+     *
+     * @param i Posição do registro.
+     * @return Retorna os bytes das operações (vazio se a conta não tem extrato).
+     */
+    byte[] extrato(int i) {
+        if (extratoQuantidade(i) == 0) {
+            return new byte[0];
+        }
+        int posicao = inicioDados + (int) secao.getLong(i * tamanhoRegistro + 32);
+        byte[] bytes = new byte[secao.getInt(i * tamanhoRegistro + 40)];
+        secao.get(posicao, bytes);
+        return bytes;
+    }
+
+    /**
+     * Cria o objeto Conta a partir do registro mapeado, ainda sem o extrato.
+     *
+     * @param i     Posição do registro.
+     * @param banco Banco dono da conta.
+     * @return Retorna a conta criada.
+     */
+    Conta ler(int i, BancoRef banco) {
+        return criarConta(banco, contaNumero(i), contaTipo(i), titular(i), saldo(i), senhaProtegida(i));
+    }
+
+    /**
+     * Refaz, na conta criada por {@link #ler}, o extrato guardado no registro.
+     *
+     * @param i        Posição do registro.
+     * @param conta    Conta criada a partir do registro.
+     * @param segmento Segmento para onde vão as operações mais antigas do extrato,
+     *                 ou null para manter o extrato todo em memória.
+     */
+    void lerExtrato(int i, Conta conta, SegmentoExtratos segmento) {
+        int operacoes = extratoQuantidade(i);
+        if (operacoes > 0) {
+            try {
+                conta.usarOperacoes(Extrato.desserializar(extrato(i), operacoes, segmento));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao ler o extrato da conta " + conta.getContaNumero() + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Cria uma conta do tipo informado.
+     *
+     * @param banco          Banco dono da conta.
+     * @param contaNumero    Número da conta.
+     * @param contaTipo      Tipo da conta (Conta.CONTA_CORRENTE ou Conta.CONTA_POUPANCA).
+     * @param titular        Nome do titular.
+     * @param saldo          Saldo da conta, em centavos.
+     * @param senhaProtegida Senha da conta, já protegida por {@link SenhaProtegida#proteger}.
+     * @return Retorna a conta criada.
+     */
+    static Conta criarConta(BancoRef banco, int contaNumero, int contaTipo, String titular, long saldo,
+                            int senhaProtegida) {
+        return (contaTipo == Conta.CONTA_POUPANCA)
+                ? new ContaPoupanca(banco.getDescritor(), contaNumero, titular, saldo, senhaProtegida)
+                : new ContaCorrente(banco.getDescritor(), contaNumero, titular, saldo, senhaProtegida);
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.daluz.javabank;
+
+/**
+ * Dados de um banco que todas as suas contas compartilham: número, nome,
+ * segmento de extratos e armazém frio. Cada conta guarda só a referência
+ * para o descritor do seu banco, em vez de copiar esses campos.
+ */
+final class DescritorBanco {
+    private final int numero;
+    private final String nome;
+    private volatile SegmentoExtratos segmentoExtratos;
+    private volatile ArmazemContas armazemFrio;
+
+    DescritorBanco(int numero, String nome) {
+        this.numero = numero;
+        this.nome = nome;
+    }
+
+    int getNumero() {
+        return numero;
+    }
+
+    String getNome() {
+        return nome;
+    }
+
+    /**
+     * Segmento onde vão as operações antigas dos extratos.
+     *
+     * @return Retorna o segmento, ou null se o banco não usa um.
+     */
+    SegmentoExtratos getSegmentoExtratos() {
+        return segmentoExtratos;
+    }
+
+    void setSegmentoExtratos(SegmentoExtratos segmentoExtratos) {
+        this.segmentoExtratos = segmentoExtratos;
+    }
+
+    /**
+     * Armazém onde ficam as contas frias do banco.
+     *
+     * @return Retorna o armazém, ou null se todas as contas ficam em memória.
+     */
+    ArmazemContas getArmazemFrio() {
+        return armazemFrio;
+    }
+
+    void setArmazemFrio(ArmazemContas armazemFrio) {
+        this.armazemFrio = armazemFrio;
+    }
+
+    /**
+     * Verifica se o descritor é do banco informado.
+     *
+     * @param numero Número do banco.
+     * @param nome   Nome do banco.
+     * @return Retorna true se número e nome são os mesmos.
+     */
+    boolean descreve(int numero, String nome) {
+        return this.numero == numero && this.nome.equals(nome);
+    }
+}
@@ -0,0 +1,162 @@
+package br.com.daluz.javabank;
+
+/**
+ * Classe utilitária para valores monetários.
+ * <p>
+ * Os valores são representados em centavos num {@code long} (ponto fixo),
+ * o que torna as contas exatas, sem os erros de arredondamento do
+ * {@code double} e sem o custo de alocação do {@code BigDecimal}.
+ * Todas as operações verificam estouro (overflow).
+ */
+public final class Dinheiro {
+    public static final long CENTAVOS_POR_REAL = 100;
+
+    private Dinheiro() {
+    }
+
+    /**
+     * Converte um valor inteiro em reais para centavos.
+     *
+     * @param reais Valor em reais.
+     * @return Retorna o valor em centavos.
+     * @throws UnsupportedOperationException Lança exceção se o valor estourar o limite.
+     */
+    public static long deReais(long reais) throws UnsupportedOperationException {
+        return multiplicar(reais, CENTAVOS_POR_REAL);
+    }
+
+    /**
+     * Soma dois valores monetários.
+     *
+     * @param a Valor em centavos.
+     * @param b Valor em centavos.
+     * @return Retorna a soma em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a soma estourar o limite.
+     */
+    public static long somar(long a, long b) throws UnsupportedOperationException {
+        if (!podeSomar(a, b)) {
+            throw foraDoLimite();
+        }
+        return a + b;
+    }
+
+    /**
+     * Verifica se a soma de dois valores monetários cabe no limite, sem lançar exceção.
+     *
+     * @param a Valor em centavos.
+     * @param b Valor em centavos.
+     * @return Retorna true se a soma não estoura o limite.
+     */
+    public static boolean podeSomar(long a, long b) {
+        long r = a + b;
+        // Estouro só acontece se os dois operandos têm o mesmo sinal e o resultado não.
+        return ((a ^ r) & (b ^ r)) >= 0;
+    }
+
+    /**
+     * Subtrai dois valores monetários.
+     *
+     * @param a Valor em centavos.
+     * @param b Valor em centavos a ser subtraído.
+     * @return Retorna a diferença em centavos.
+     * @throws UnsupportedOperationException Lança exceção se a diferença estourar o limite.
+     */
+    public static long subtrair(long a, long b) throws UnsupportedOperationException {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) < 0) {
+            throw foraDoLimite();
+        }
+        return r;
+    }
+
+    /**
+     * Multiplica um valor monetário por um fator inteiro.
+     *
+     * @param valor  Valor em centavos.
+     * @param fator  Fator de multiplicação.
+     * @return Retorna o produto em centavos.
+     * @throws UnsupportedOperationException Lança exceção se o produto estourar o limite.
+     */
+    public static long multiplicar(long valor, long fator) throws UnsupportedOperationException {
+        long r = valor * fator;
+        if (Math.multiplyHigh(valor, fator) != (r >> 63)) {
+            throw foraDoLimite();
+        }
+        return r;
+    }
+
+    /**
+     * Converte um texto digitado pelo usuário ("150", "150.5", "150.50")
+     * para centavos. Aceita no máximo duas casas decimais.
+     *
+     * @param texto Texto a ser convertido.
+     * @return Retorna o valor em centavos.
+     * @throws NumberFormatException Lança exceção se o texto não for um valor válido.
+     */
+    public static long parse(CharSequence texto) throws NumberFormatException {
+        int n = texto.length();
+        int i = 0;
+        boolean negativo = false;
+        if (n > 0 && (texto.charAt(0) == '-' || texto.charAt(0) == '+')) {
+            negativo = texto.charAt(0) == '-';
+            i++;
+        }
+
+        long centavos = 0;
+        int digitos = 0;
+        int casasDecimais = -1;
+        try {
+            for (; i < n; i++) {
+                char c = texto.charAt(i);
+                if (c == '.' && casasDecimais < 0) {
+                    casasDecimais = 0;
+                } else if (c >= '0' && c <= '9' && casasDecimais < 2) {
+                    centavos = somar(multiplicar(centavos, 10), c - '0');
+                    digitos++;
+                    if (casasDecimais >= 0) {
+                        casasDecimais++;
+                    }
+                } else {
+                    throw new NumberFormatException("Valor inválido: \"" + texto + "\"");
+                }
+            }
+            if (digitos == 0) {
+                throw new NumberFormatException("Valor inválido: \"" + texto + "\"");
+            }
+            for (int casas = Math.max(casasDecimais, 0); casas < 2; casas++) {
+                centavos = multiplicar(centavos, 10);
+            }
+        } catch (UnsupportedOperationException e) {
+            throw new NumberFormatException("Valor inválido: \"" + texto + "\"");
+        }
+
+        return negativo ? -centavos : centavos;
+    }
+
+    /**
+     * Escreve o valor em formato monetário ("R$ 1234.56") no final do buffer,
+     * sem alocar objetos intermediários.
+     *
+     * @param destino  Buffer onde o texto será escrito.
+     * @param centavos Valor em centavos.
+     * @return Retorna o próprio buffer.
+     */
+    public static StringBuilder formatar(StringBuilder destino, long centavos) {
+        destino.append("R$ ");
+        if (centavos < 0) {
+            destino.append('-');
+        }
+        // Trabalha com o quociente e o resto negativos para suportar Long.MIN_VALUE.
+        long negativo = (centavos < 0) ? centavos : -centavos;
+        int centavosResto = (int) -(negativo % CENTAVOS_POR_REAL);
+        // Os centavos são sempre dois dígitos, escritos direto como caracteres.
+        return destino.append(-(negativo / CENTAVOS_POR_REAL)).append('.')
+                .append((char) ('0' + centavosResto / 10))
+                .append((char) ('0' + centavosResto % 10));
+    }
+
+    private static UnsupportedOperationException foraDoLimite() {
+        return new UnsupportedOperationException(
+                "[AVISO]\nOperação não realizada!\nMotivo: Valor fora do limite permitido.");
+    }
+}
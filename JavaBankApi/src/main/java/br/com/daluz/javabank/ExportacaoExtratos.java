@@ -0,0 +1,406 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportação dos extratos de todas as contas de todos os bancos para arquivos,
+ * usada no fim do mês.
+ * <p>
+ * As contas de cada banco são divididas em faixas de até
+ * {@value #CONTAS_POR_PARTE} contas, e cada faixa é exportada num arquivo
+ * próprio ("extratos-&lt;banco&gt;-&lt;parte&gt;.csv", ou ".bin"), em
+ * paralelo num ForkJoinPool. As operações de cada conta são copiadas em
+ * lotes de {@value #OPERACOES_POR_LOTE}, sob o monitor da conta, e escritas
+ * depois de liberá-lo; cada faixa usa um único lote e um único buffer de
+ * saída, então a memória usada depende do paralelismo, e não da quantidade
+ * de operações. As contas frias e as que ainda só estão no snapshot são
+ * lidas como objetos temporários ({@link BancoRef#consultarConta}), sem
+ * voltar para o índice do banco.
+ * <p>
+ * No formato {@link #CSV}, cada linha é uma operação, com os valores em
+ * centavos:
+ * <pre>
+ *   banco,conta,sequencia,instante,tipo,banco_contraparte,conta_contraparte,valor,saldo
+ * </pre>
+ * No formato {@link #BINARIO}, o arquivo começa com {@value #MAGICO} (int),
+ * a versão (short) e o número do banco (int), seguidos de blocos de colunas:
+ * a quantidade de operações do bloco (int) e, para cada coluna, todos os
+ * valores do bloco: conta (int), sequência (long), tipo (byte), instante (long),
+ * banco da contraparte (int), conta da contraparte (int), valor (long) e
+ * saldo (long), em big-endian. Um bloco com quantidade 0 marca o fim do arquivo.
+ * <p>
+ * Com compactação, os arquivos são gravados em gzip, com a extensão ".gz".
+ */
+public final class ExportacaoExtratos {
+    /**
+     * Formato texto, uma operação por linha.
+     */
+    public static final int CSV = 1;
+    /**
+     * Formato binário, em blocos de colunas.
+     */
+    public static final int BINARIO = 2;
+
+    static final int MAGICO = 0x4A424558;
+    static final short VERSAO = 1;
+
+    private static final int CONTAS_POR_PARTE = 4096;
+    private static final int OPERACOES_POR_LOTE = 4096;
+
+    // Nome de cada tipo de operação do Extrato, na ordem dos códigos.
+    private static final String[] TIPOS = {
+            "", "SAQUE", "DEPOSITO", "DEPOSITO_INTERBANCARIO", "TRANSFERENCIA_INTERNA",
+            "TRANSFERENCIA_EXTERNA", "RENDIMENTO", "TAXA_MENSAL",
+    };
+
+    private ExportacaoExtratos() {
+    }
+
+    /**
+     * Exporta os extratos de todos os bancos.
+     *
+     * @param bancos     Bancos do Banco Central.
+     * @param diretorio  Diretório dos arquivos; é criado se não existir.
+     * @param formato    CSV ou BINARIO.
+     * @param compactar  Indica se os arquivos são gravados em gzip.
+     * @param pool       Pool onde as faixas de contas são exportadas.
+     * @return Retorna o resumo da exportação.
+     * @throws IOException Lança exceção se algum arquivo não puder ser gravado.
+     */
+    static ResumoExportacao exportar(List<Banco> bancos, Path diretorio, int formato,
+                                     boolean compactar, ForkJoinPool pool) throws IOException {
+        if (formato != CSV && formato != BINARIO) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Formato de exportação \"" + formato + "\" inválido.");
+        }
+        long inicio = System.nanoTime();
+        Files.createDirectories(diretorio);
+
+        Execucao execucao = new Execucao(diretorio, formato, compactar);
+        List<Execucao.Parte> partes = new ArrayList<>();
+        for (Banco banco : bancos) {
+            int[] numeros = banco.getNumerosDeContas();
+            for (int de = 0, parte = 0; de < numeros.length; de += CONTAS_POR_PARTE, parte++) {
+                partes.add(execucao.new Parte(banco, numeros, de,
+                        Math.min(de + CONTAS_POR_PARTE, numeros.length), parte));
+            }
+        }
+
+        for (Execucao.Parte parte : partes) {
+            pool.execute(parte);
+        }
+        // Espera todas as faixas, mesmo se alguma falhar, antes de informar a primeira falha.
+        RuntimeException falha = null;
+        for (Execucao.Parte parte : partes) {
+            try {
+                parte.join();
+            } catch (RuntimeException e) {
+                if (falha == null) {
+                    falha = e;
+                }
+            }
+        }
+        if (falha instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) falha).getCause();
+        } else if (falha != null) {
+            throw falha;
+        }
+
+        return new ResumoExportacao(formato, compactar, partes.size(), execucao.contas.sum(),
+                execucao.operacoes.sum(), execucao.bytes.sum(), System.nanoTime() - inicio);
+    }
+
+    /**
+     * Lote de operações em colunas, preenchido pelo {@link Extrato} de cada
+     * conta e esvaziado pelo escritor da faixa.
+     */
+    static final class Colunas {
+        final int[] contas;
+        final long[] sequencias;
+        final byte[] tipos;
+        final long[] instantes;
+        final int[] bancosContraparte;
+        final int[] contasContraparte;
+        final long[] valores;
+        final long[] saldos;
+        int quantidade;
+
+        Colunas(int capacidade) {
+            this.contas = new int[capacidade];
+            this.sequencias = new long[capacidade];
+            this.tipos = new byte[capacidade];
+            this.instantes = new long[capacidade];
+            this.bancosContraparte = new int[capacidade];
+            this.contasContraparte = new int[capacidade];
+            this.valores = new long[capacidade];
+            this.saldos = new long[capacidade];
+        }
+
+        int livres() {
+            return contas.length - quantidade;
+        }
+
+        boolean cheia() {
+            return quantidade == contas.length;
+        }
+
+        /**
+         * Copia um trecho das colunas de um extrato.
+         *
+         * @param conta     Número da conta dona do extrato.
+         * @param sequencia Sequência da primeira operação copiada.
+         * @param de        Posição da primeira operação nas colunas de origem.
+         * @param n         Quantidade de operações copiadas.
+         */
+        void adicionar(int conta, long sequencia, byte[] tipos, long[] instantes, int[] bancosContraparte,
+                       int[] contasContraparte, long[] valores, long[] saldos, int de, int n) {
+            int q = quantidade;
+            for (int i = 0; i < n; i++) {
+                this.contas[q + i] = conta;
+                this.sequencias[q + i] = sequencia + i;
+            }
+            System.arraycopy(tipos, de, this.tipos, q, n);
+            System.arraycopy(instantes, de, this.instantes, q, n);
+            System.arraycopy(bancosContraparte, de, this.bancosContraparte, q, n);
+            System.arraycopy(contasContraparte, de, this.contasContraparte, q, n);
+            System.arraycopy(valores, de, this.valores, q, n);
+            System.arraycopy(saldos, de, this.saldos, q, n);
+            quantidade = q + n;
+        }
+    }
+
+    /**
+     * Parâmetros e totais de uma chamada de {@link #exportar}.
+     */
+    private static final class Execucao {
+        private final Path diretorio;
+        private final int formato;
+        private final boolean compactar;
+
+        private final LongAdder contas = new LongAdder();
+        private final LongAdder operacoes = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        Execucao(Path diretorio, int formato, boolean compactar) {
+            this.diretorio = diretorio;
+            this.formato = formato;
+            this.compactar = compactar;
+        }
+
+        /**
+         * Faixa [de, ate) das contas de um banco, exportada num arquivo.
+         */
+        @SuppressWarnings("serial") // Tarefa do pool, nunca serializada.
+        final class Parte extends RecursiveAction {
+            private final Banco banco;
+            private final int[] numeros;
+            private final int de;
+            private final int ate;
+            private final int parte;
+
+            Parte(Banco banco, int[] numeros, int de, int ate, int parte) {
+                this.banco = banco;
+                this.numeros = numeros;
+                this.de = de;
+                this.ate = ate;
+                this.parte = parte;
+            }
+
+            @Override
+            protected void compute() {
+                String nome = "extratos-" + banco.getBancoNumero() + "-" + parte
+                        + ((formato == CSV) ? ".csv" : ".bin") + (compactar ? ".gz" : "");
+                Path caminho = diretorio.resolve(nome);
+                try {
+                    exportar(caminho);
+                    bytes.add(Files.size(caminho));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao exportar o arquivo " + caminho + ".", e);
+                }
+            }
+
+            private void exportar(Path caminho) throws IOException {
+                long qtdContas = 0, qtdOperacoes = 0;
+                Colunas colunas = new Colunas(OPERACOES_POR_LOTE);
+
+                try (FileChannel arquivo = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                     GZIPOutputStream gzip = compactar
+                             ? new GZIPOutputStream(Channels.newOutputStream(arquivo), 1 << 16) : null) {
+                    WritableByteChannel canal = (gzip != null) ? Channels.newChannel(gzip) : arquivo;
+                    Escritor escritor = (formato == CSV)
+                            ? new EscritorCsv(canal, banco.getBancoNumero())
+                            : new EscritorBinario(canal, banco.getBancoNumero());
+
+                    for (int i = de; i < ate; i++) {
+                        Conta conta = banco.consultarConta(numeros[i], true);
+                        if (conta == null) {
+                            continue;
+                        }
+                        qtdContas++;
+                        long cursor = 0;
+                        do {
+                            cursor = conta.copiarExtrato(cursor, colunas);
+                            if (colunas.cheia()) {
+                                qtdOperacoes += colunas.quantidade;
+                                escritor.escrever(colunas);
+                                colunas.quantidade = 0;
+                            }
+                        } while (cursor != PaginaExtrato.FIM);
+                    }
+                    qtdOperacoes += colunas.quantidade;
+                    escritor.escrever(colunas);
+                    escritor.terminar();
+                } finally {
+                    contas.add(qtdContas);
+                    operacoes.add(qtdOperacoes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Grava os lotes de uma faixa num canal.
+     */
+    private interface Escritor {
+        void escrever(Colunas colunas) throws IOException;
+
+        void terminar() throws IOException;
+    }
+
+    /**
+     * Uma linha por operação, montadas no buffer de uma {@link SaidaTexto}.
+     */
+    private static final class EscritorCsv implements Escritor {
+        private final SaidaTexto saida;
+        private final int banco;
+
+        EscritorCsv(WritableByteChannel canal, int banco) {
+            this.saida = new SaidaTexto(canal, StandardCharsets.UTF_8, SaidaTexto.LIMITE_PADRAO);
+            this.banco = banco;
+            saida.escrever("banco,conta,sequencia,instante,tipo,banco_contraparte,conta_contraparte,valor,saldo\n");
+        }
+
+        @Override
+        public void escrever(Colunas colunas) throws IOException {
+            StringBuilder texto = saida.buffer();
+            try {
+                for (int i = 0; i < colunas.quantidade; i++) {
+                    texto.append(banco).append(',')
+                            .append(colunas.contas[i]).append(',')
+                            .append(colunas.sequencias[i]).append(',')
+                            .append(colunas.instantes[i]).append(',')
+                            .append(TIPOS[colunas.tipos[i]]).append(',')
+                            .append(colunas.bancosContraparte[i]).append(',')
+                            .append(colunas.contasContraparte[i]).append(',')
+                            .append(colunas.valores[i]).append(',')
+                            .append(colunas.saldos[i]).append('\n');
+                    saida.descarregarSeCheio();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            try {
+                saida.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Blocos de colunas, cada coluna no seu buffer, gravados juntos numa
+     * única escrita quando o canal aceita (um arquivo sem compactação).
+     */
+    private static final class EscritorBinario implements Escritor {
+        // Bytes por valor de cada buffer: quantidade, conta, sequência, tipo, instante,
+        // banco e conta da contraparte, valor e saldo.
+        private static final int[] LARGURAS = {
+                Integer.BYTES, Integer.BYTES, Long.BYTES, Byte.BYTES, Long.BYTES,
+                Integer.BYTES, Integer.BYTES, Long.BYTES, Long.BYTES,
+        };
+
+        private final WritableByteChannel canal;
+        private final ByteBuffer[] buffers;
+
+        EscritorBinario(WritableByteChannel canal, int banco) throws IOException {
+            this.canal = canal;
+            this.buffers = new ByteBuffer[LARGURAS.length];
+            buffers[0] = ByteBuffer.allocate(Integer.BYTES);
+            for (int c = 1; c < buffers.length; c++) {
+                buffers[c] = ByteBuffer.allocate(OPERACOES_POR_LOTE * LARGURAS[c]);
+            }
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(Integer.BYTES + Short.BYTES + Integer.BYTES)
+                    .putInt(MAGICO).putShort(VERSAO).putInt(banco).flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho);
+            }
+        }
+
+        @Override
+        public void escrever(Colunas colunas) throws IOException {
+            int n = colunas.quantidade;
+            if (n == 0) {
+                return;
+            }
+            for (ByteBuffer buffer : buffers) {
+                buffer.clear();
+            }
+            buffers[0].putInt(n).flip();
+            buffers[1].asIntBuffer().put(colunas.contas, 0, n);
+            buffers[2].asLongBuffer().put(colunas.sequencias, 0, n);
+            buffers[3].put(colunas.tipos, 0, n);
+            buffers[4].asLongBuffer().put(colunas.instantes, 0, n);
+            buffers[5].asIntBuffer().put(colunas.bancosContraparte, 0, n);
+            buffers[6].asIntBuffer().put(colunas.contasContraparte, 0, n);
+            buffers[7].asLongBuffer().put(colunas.valores, 0, n);
+            buffers[8].asLongBuffer().put(colunas.saldos, 0, n);
+            // As visões (asIntBuffer, asLongBuffer) não movem a posição do buffer; só o limite é ajustado.
+            for (int c = 1; c < buffers.length; c++) {
+                buffers[c].position(0).limit(n * LARGURAS[c]);
+            }
+            gravar(buffers);
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            gravar(new ByteBuffer[] {ByteBuffer.allocate(Integer.BYTES).putInt(0).flip()});
+        }
+
+        private void gravar(ByteBuffer[] partes) throws IOException {
+            if (canal instanceof GatheringByteChannel) {
+                GatheringByteChannel juntos = (GatheringByteChannel) canal;
+                while (partes[partes.length - 1].hasRemaining()) {
+                    juntos.write(partes);
+                }
+            } else {
+                for (ByteBuffer parte : partes) {
+                    while (parte.hasRemaining()) {
+                        canal.write(parte);
+                    }
+                }
+            }
+        }
+    }
+}
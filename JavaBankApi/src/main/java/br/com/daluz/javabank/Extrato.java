@@ -0,0 +1,638 @@
+package br.com.daluz.javabank;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Registro das operações bancárias de uma conta.
+ * <p>
+ * As operações são guardadas em colunas de tipos primitivos (uma posição
+ * de cada array por operação). Os nomes do banco e do titular da contraparte
+ * são apenas referências às Strings que já existem nas contas e bancos, sem
+ * cópia. O texto do extrato só é montado quando ele é impresso.
+ * <p>
+ * As operações ficam em ordem de instante (o instante guardado nunca é menor
+ * que o da operação anterior), o que permite achar o início de um período
+ * com busca binária: consultar os últimos dias custa proporcionalmente ao
+ * resultado, não ao histórico. Cada operação tem uma sequência (0 é a
+ * primeira da conta), usada como cursor das páginas.
+ * <p>
+ * Com um {@link SegmentoExtratos}, quando as operações em memória chegam ao
+ * limite, a metade mais antiga é serializada num bloco do arquivo, e a
+ * memória guarda só a posição do bloco, a sequência da sua primeira
+ * operação e o instante da última.
+ * <p>
+ * Esta classe não é thread-safe; quem a usa é a Conta, sob o seu monitor.
+ */
+final class Extrato {
+    static final byte SAQUE = 1;
+    static final byte DEPOSITO = 2;
+    static final byte DEPOSITO_INTERBANCARIO = 3;
+    static final byte TRANSFERENCIA_INTERNA = 4;
+    static final byte TRANSFERENCIA_EXTERNA = 5;
+    static final byte RENDIMENTO = 6;
+    static final byte TAXA_MENSAL = 7;
+
+    private static final int CAPACIDADE_INICIAL = 4;
+    private static final byte[] SEM_BYTES = new byte[0];
+    private static final int[] SEM_INTS = new int[0];
+    private static final long[] SEM_LONGS = new long[0];
+    private static final String[] SEM_STRINGS = new String[0];
+
+    private byte[] tipos;
+    private long[] instantes;
+    private int[] bancosContraparte;
+    private int[] contasContraparte;
+    private String[] bancoNomesContraparte;
+    private String[] titularesContraparte;
+    private long[] valores;
+    private long[] saldos;
+    private int tamanho;
+    private long ultimoInstante;
+
+    // Operações gravadas no segmento: as em memória começam na sequência "base".
+    private SegmentoExtratos segmento;
+    private boolean descarregando;
+    private long base;
+    private int blocos;
+    private long[] blocoPosicoes;
+    private int[] blocoTamanhos;
+    private long[] blocoInicios;
+    private long[] blocoUltimosInstantes;
+
+    /**
+     * Construtor da classe Extrato.
+     * Os arrays só são alocados na primeira operação, pois muitas contas nunca movimentam.
+     */
+    Extrato() {
+        this.tipos = SEM_BYTES;
+        this.instantes = SEM_LONGS;
+        this.bancosContraparte = SEM_INTS;
+        this.contasContraparte = SEM_INTS;
+        this.bancoNomesContraparte = SEM_STRINGS;
+        this.titularesContraparte = SEM_STRINGS;
+        this.valores = SEM_LONGS;
+        this.saldos = SEM_LONGS;
+        this.ultimoInstante = Long.MIN_VALUE;
+        this.blocoPosicoes = SEM_LONGS;
+        this.blocoTamanhos = SEM_INTS;
+        this.blocoInicios = SEM_LONGS;
+        this.blocoUltimosInstantes = SEM_LONGS;
+    }
+
+    /**
+     * Passa a gravar as operações mais antigas no segmento informado.
+     *
+     * @param segmento Segmento de extratos do Banco Central.
+     */
+    void usarSegmento(SegmentoExtratos segmento) {
+        if (blocos > 0 && segmento != this.segmento) {
+            // Os blocos já gravados só podem ser lidos do segmento onde estão.
+            return;
+        }
+        this.segmento = segmento;
+        this.descarregando = true;
+        descarregarSeCheio();
+    }
+
+    /**
+     * Adiciona uma operação ao extrato.
+     *
+     * @param tipo         Tipo da operação (SAQUE, DEPOSITO, ...).
+     * @param instante     Momento da operação, em milissegundos desde a época Unix.
+     * @param bancoNumero  Número do banco da contraparte.
+     * @param bancoNome    Nome do banco da contraparte.
+     * @param contaNumero  Número da conta da contraparte.
+     * @param titular      Nome do titular da contraparte.
+     * @param valor        Valor da operação, em centavos.
+     * @param saldo        Saldo da conta após a operação, em centavos.
+     */
+    void adicionar(byte tipo, long instante, int bancoNumero, String bancoNome,
+                   int contaNumero, String titular, long valor, long saldo) {
+        if (tamanho == tipos.length) {
+            crescer();
+        }
+        int i = tamanho;
+        // Operações simultâneas podem tomar o instante fora de ordem; vale a ordem do extrato.
+        ultimoInstante = Math.max(instante, ultimoInstante);
+        tipos[i] = tipo;
+        instantes[i] = ultimoInstante;
+        bancosContraparte[i] = bancoNumero;
+        bancoNomesContraparte[i] = bancoNome;
+        contasContraparte[i] = contaNumero;
+        titularesContraparte[i] = titular;
+        valores[i] = valor;
+        saldos[i] = saldo;
+        tamanho++;
+        descarregarSeCheio();
+    }
+
+    /**
+     * Quantidade de operações registradas, em memória e no segmento.
+     *
+     * @return Retorna o número de operações.
+     */
+    long tamanho() {
+        return base + tamanho;
+    }
+
+    /**
+     * Monta uma página com as operações de um período.
+     *
+     * @param de     Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate    Fim do período (exclusive), em milissegundos desde a época Unix.
+     * @param cursor Sequência a partir da qual a página começa (0 para a primeira página).
+     * @param limite Quantidade máxima de operações na página.
+     * @param dona   Conta dona do extrato.
+     * @return Retorna a página.
+     */
+    PaginaExtrato consultar(long de, long ate, long cursor, int limite, Conta dona) {
+        StringBuilder texto = new StringBuilder();
+        Leitura leitura = ler(de, ate, cursor, limite, dona, texto);
+        return new PaginaExtrato(texto.toString(), leitura.quantidade, leitura.proximo);
+    }
+
+    /**
+     * Renderiza uma página de operações diretamente num buffer, sem montar
+     * o texto da página; usado para imprimir extratos em pedaços.
+     *
+     * @param de      Início do período (inclusive), em milissegundos desde a época Unix.
+     * @param ate     Fim do período (exclusive), em milissegundos desde a época Unix.
+     * @param cursor  Sequência a partir da qual a página começa (0 para a primeira página).
+     * @param limite  Quantidade máxima de operações na página.
+     * @param dona    Conta dona do extrato.
+     * @param destino Onde as operações são renderizadas, uma por linha.
+     * @return Retorna o cursor da próxima página, ou FIM.
+     */
+    long escrever(long de, long ate, long cursor, int limite, Conta dona, StringBuilder destino) {
+        return ler(de, ate, cursor, limite, dona, destino).proximo;
+    }
+
+    private Leitura ler(long de, long ate, long cursor, int limite, Conta dona, StringBuilder destino) {
+        Leitura leitura = new Leitura(ate, limite, dona, Math.max(cursor, 0), destino);
+
+        for (int k = primeiroBloco(de); k < blocos && !leitura.cheia(); k++) {
+            if (fimBloco(k) > leitura.sequencia) {
+                leitura.percorrer(lerBloco(k), blocoInicios[k], de);
+            }
+        }
+        if (!leitura.cheia()) {
+            leitura.percorrer(this, base, de);
+        }
+
+        long proximo = leitura.sequencia;
+        boolean temMais = !leitura.terminou && proximo < base + tamanho
+                && (proximo < base || instantes[(int) (proximo - base)] < ate);
+        leitura.proximo = temMais ? proximo : PaginaExtrato.FIM;
+        return leitura;
+    }
+
+    /**
+     * Copia as operações, a partir de uma sequência, para o lote de uma
+     * exportação, até o lote encher. Os blocos do segmento são lidos um de cada vez.
+     *
+     * @param cursor  Sequência da primeira operação a copiar (0 para o início).
+     * @param dona    Conta dona do extrato.
+     * @param destino Lote onde as operações são copiadas.
+     * @return Retorna a sequência da próxima operação a copiar, ou FIM se todas foram copiadas.
+     */
+    long copiar(long cursor, Conta dona, ExportacaoExtratos.Colunas destino) {
+        long sequencia = Math.max(cursor, 0);
+        for (int k = 0; k < blocos && !destino.cheia(); k++) {
+            if (fimBloco(k) > sequencia) {
+                sequencia = lerBloco(k).copiarTrecho(blocoInicios[k], sequencia, dona, destino);
+            }
+        }
+        if (!destino.cheia()) {
+            sequencia = copiarTrecho(base, sequencia, dona, destino);
+        }
+        return (sequencia < base + tamanho) ? sequencia : PaginaExtrato.FIM;
+    }
+
+    /**
+     * Copia as operações deste trecho (um bloco ou a memória) que cabem no lote.
+     *
+     * @return Retorna a sequência da próxima operação a copiar.
+     */
+    private long copiarTrecho(long inicio, long sequencia, Conta dona, ExportacaoExtratos.Colunas destino) {
+        int i = (int) Math.min(tamanho, Math.max(0, sequencia - inicio));
+        int quantidade = Math.min(tamanho - i, destino.livres());
+        destino.adicionar(dona.getContaNumero(), inicio + i, tipos, instantes,
+                bancosContraparte, contasContraparte, valores, saldos, i, quantidade);
+        return inicio + i + quantidade;
+    }
+
+    /**
+     * Posição, em memória, da primeira operação com instante maior ou igual ao informado.
+     */
+    private int primeiroAPartirDe(long instante) {
+        int baixo = 0;
+        int alto = tamanho;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (instantes[meio] < instante) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    /**
+     * Primeiro bloco do segmento cuja última operação tem instante maior ou igual ao informado.
+     */
+    private int primeiroBloco(long instante) {
+        int baixo = 0;
+        int alto = blocos;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (blocoUltimosInstantes[meio] < instante) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private long fimBloco(int k) {
+        return (k + 1 < blocos) ? blocoInicios[k + 1] : base;
+    }
+
+    /**
+     * Estado de uma consulta enquanto ela passa pelos blocos e pela memória.
+     */
+    private static final class Leitura {
+        private final StringBuilder texto;
+        private final long ate;
+        private final int limite;
+        private final Conta dona;
+        private long sequencia;
+        private int quantidade;
+        private boolean terminou;
+        private long proximo;
+
+        private Leitura(long ate, int limite, Conta dona, long sequencia, StringBuilder texto) {
+            this.ate = ate;
+            this.limite = limite;
+            this.dona = dona;
+            this.sequencia = sequencia;
+            this.texto = texto;
+        }
+
+        private boolean cheia() {
+            return terminou || quantidade == limite;
+        }
+
+        /**
+         * Renderiza as operações de um trecho do extrato (um bloco ou a memória).
+         *
+         * @param parte  Operações do trecho.
+         * @param inicio Sequência da primeira operação do trecho.
+         * @param de     Início do período.
+         */
+        private void percorrer(Extrato parte, long inicio, long de) {
+            int i = Math.max(parte.primeiroAPartirDe(de),
+                    (int) Math.min(parte.tamanho, Math.max(0, sequencia - inicio)));
+            for (; i < parte.tamanho && quantidade < limite; i++) {
+                if (parte.instantes[i] >= ate) {
+                    terminou = true;
+                    break;
+                }
+                parte.renderizar(i, dona, texto);
+                texto.append('\n');
+                quantidade++;
+            }
+            sequencia = inicio + i;
+        }
+    }
+
+    /**
+     * Se as operações em memória chegaram ao limite, grava as mais antigas num
+     * bloco do segmento, deixando em memória metade do limite. Se a gravação
+     * falhar, as operações ficam em memória.
+     */
+    private void descarregarSeCheio() {
+        if (!descarregando || tamanho < segmento.getLimiteEmMemoria()) {
+            return;
+        }
+        try {
+            descarregar(tamanho - segmento.getLimiteEmMemoria() / 2);
+        } catch (IOException e) {
+            descarregando = false;
+            System.err.println("\n[AVISO]\nFalha ao gravar o extrato em disco; as operações ficam em memória.\nMotivo: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava as n operações mais antigas num bloco do segmento e as tira da memória.
+     */
+    private void descarregar(int n) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(n * 64);
+        gravarOperacoes(new DataOutputStream(bytes), n);
+        long posicao = segmento.gravar(bytes.toByteArray());
+        adicionarBloco(posicao, bytes.size(), instantes[n - 1]);
+
+        int restantes = tamanho - n;
+        System.arraycopy(tipos, n, tipos, 0, restantes);
+        System.arraycopy(instantes, n, instantes, 0, restantes);
+        System.arraycopy(bancosContraparte, n, bancosContraparte, 0, restantes);
+        System.arraycopy(contasContraparte, n, contasContraparte, 0, restantes);
+        System.arraycopy(bancoNomesContraparte, n, bancoNomesContraparte, 0, restantes);
+        System.arraycopy(titularesContraparte, n, titularesContraparte, 0, restantes);
+        System.arraycopy(valores, n, valores, 0, restantes);
+        System.arraycopy(saldos, n, saldos, 0, restantes);
+        Arrays.fill(bancoNomesContraparte, restantes, tamanho, null);
+        Arrays.fill(titularesContraparte, restantes, tamanho, null);
+        tamanho = restantes;
+        base += n;
+    }
+
+    /**
+     * Grava as n primeiras operações em memória, no formato dos blocos do segmento.
+     */
+    private void gravarOperacoes(DataOutputStream saida, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            saida.writeByte(tipos[i]);
+            saida.writeLong(instantes[i]);
+            saida.writeInt(bancosContraparte[i]);
+            saida.writeUTF(Objects.toString(bancoNomesContraparte[i], ""));
+            saida.writeInt(contasContraparte[i]);
+            saida.writeUTF(Objects.toString(titularesContraparte[i], ""));
+            saida.writeLong(valores[i]);
+            saida.writeLong(saldos[i]);
+        }
+    }
+
+    /**
+     * Lê operações no formato dos blocos do segmento e as acrescenta ao extrato.
+     */
+    private void lerOperacoes(DataInputStream entrada, int quantidade) throws IOException {
+        reservar(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            adicionar(entrada.readByte(), entrada.readLong(), entrada.readInt(), entrada.readUTF(),
+                    entrada.readInt(), entrada.readUTF(), entrada.readLong(), entrada.readLong());
+        }
+    }
+
+    /**
+     * Serializa todas as operações, as do segmento e as em memória, no formato
+     * dos blocos do segmento; é assim que o extrato vai para o snapshot. Os
+     * blocos do segmento são copiados sem serem decodificados.
+     *
+     * @return Retorna os bytes das {@link #tamanho()} operações.
+     * @throws IOException Lança exceção se um bloco não puder ser lido do segmento.
+     */
+    byte[] serializar() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(tamanho * 64);
+        for (int k = 0; k < blocos; k++) {
+            bytes.write(segmento.ler(blocoPosicoes[k], blocoTamanhos[k]));
+        }
+        gravarOperacoes(new DataOutputStream(bytes), tamanho);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Refaz um extrato a partir dos bytes gerados por {@link #serializar()}.
+     * Com um segmento, as operações mais antigas vão para ele enquanto são lidas.
+     *
+     * @param bytes      Operações serializadas.
+     * @param quantidade Quantidade de operações.
+     * @param segmento   Segmento de extratos do banco, ou null para manter tudo em memória.
+     * @return Retorna o extrato.
+     * @throws IOException Lança exceção se os bytes estiverem incompletos.
+     */
+    static Extrato desserializar(byte[] bytes, int quantidade, SegmentoExtratos segmento) throws IOException {
+        Extrato extrato = new Extrato();
+        if (segmento != null) {
+            extrato.usarSegmento(segmento);
+        }
+        extrato.lerOperacoes(new DataInputStream(new ByteArrayInputStream(bytes)), quantidade);
+        return extrato;
+    }
+
+    /**
+     * Grava no segmento todas as operações que ainda estão em memória e, depois
+     * delas, um descritor com a posição de cada bloco. Com o descritor, o
+     * extrato pode ser refeito por {@link #restaurar} sem nada em memória.
+     * <pre>
+     *   descritor: [long base][long ultimoInstante][int blocos]
+     *              blocos x [long posicao][int tamanho][long inicio][long ultimoInstante]
+     * </pre>
+     *
+     * @return Retorna a posição do descritor no segmento; o tamanho é {@link #tamanhoDescritor()}.
+     * @throws IOException Lança exceção se não houver segmento ou se a gravação falhar.
+     */
+    long guardar() throws IOException {
+        if (segmento == null || !descarregando) {
+            throw new IOException("Extrato sem segmento para gravação.");
+        }
+        if (tamanho > 0) {
+            descarregar(tamanho);
+        }
+        ByteBuffer descritor = ByteBuffer.allocate(tamanhoDescritor());
+        descritor.putLong(base).putLong(ultimoInstante).putInt(blocos);
+        for (int k = 0; k < blocos; k++) {
+            descritor.putLong(blocoPosicoes[k]).putInt(blocoTamanhos[k])
+                    .putLong(blocoInicios[k]).putLong(blocoUltimosInstantes[k]);
+        }
+        return segmento.gravar(descritor.array());
+    }
+
+    /**
+     * Tamanho, em bytes, do descritor gravado por {@link #guardar()}.
+     *
+     * @return Retorna o tamanho do descritor.
+     */
+    int tamanhoDescritor() {
+        return 8 + 8 + 4 + blocos * (8 + 4 + 8 + 8);
+    }
+
+    /**
+     * Refaz um extrato a partir do descritor gravado por {@link #guardar()}.
+     * As operações continuam no segmento; só o índice dos blocos volta para a memória.
+     *
+     * @param segmento Segmento onde o extrato foi gravado.
+     * @param posicao  Posição do descritor.
+     * @param tamanho  Tamanho do descritor.
+     * @return Retorna o extrato.
+     * @throws IOException Lança exceção se a leitura falhar.
+     */
+    static Extrato restaurar(SegmentoExtratos segmento, long posicao, int tamanho) throws IOException {
+        ByteBuffer descritor = ByteBuffer.wrap(segmento.ler(posicao, tamanho));
+        Extrato extrato = new Extrato();
+        extrato.segmento = segmento;
+        extrato.descarregando = true;
+        extrato.base = descritor.getLong();
+        extrato.ultimoInstante = descritor.getLong();
+        int blocos = descritor.getInt();
+        extrato.blocoPosicoes = new long[blocos];
+        extrato.blocoTamanhos = new int[blocos];
+        extrato.blocoInicios = new long[blocos];
+        extrato.blocoUltimosInstantes = new long[blocos];
+        for (int k = 0; k < blocos; k++) {
+            extrato.blocoPosicoes[k] = descritor.getLong();
+            extrato.blocoTamanhos[k] = descritor.getInt();
+            extrato.blocoInicios[k] = descritor.getLong();
+            extrato.blocoUltimosInstantes[k] = descritor.getLong();
+        }
+        extrato.blocos = blocos;
+        return extrato;
+    }
+
+    private void adicionarBloco(long posicao, int bytes, long ultimoInstanteBloco) {
+        if (blocos == blocoPosicoes.length) {
+            int capacidade = Math.max(CAPACIDADE_INICIAL, blocos * 2);
+            blocoPosicoes = Arrays.copyOf(blocoPosicoes, capacidade);
+            blocoTamanhos = Arrays.copyOf(blocoTamanhos, capacidade);
+            blocoInicios = Arrays.copyOf(blocoInicios, capacidade);
+            blocoUltimosInstantes = Arrays.copyOf(blocoUltimosInstantes, capacidade);
+        }
+        blocoPosicoes[blocos] = posicao;
+        blocoTamanhos[blocos] = bytes;
+        blocoInicios[blocos] = base;
+        blocoUltimosInstantes[blocos] = ultimoInstanteBloco;
+        blocos++;
+    }
+
+    /**
+     * Lê um bloco do segmento para um Extrato temporário, só em memória.
+     */
+    private Extrato lerBloco(int k) {
+        int quantidade = (int) (fimBloco(k) - blocoInicios[k]);
+        try {
+            Extrato bloco = new Extrato();
+            bloco.lerOperacoes(new DataInputStream(
+                    new ByteArrayInputStream(segmento.ler(blocoPosicoes[k], blocoTamanhos[k]))), quantidade);
+            return bloco;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o extrato gravado em disco.", e);
+        }
+    }
+
+    /**
+     * Escreve o texto de uma operação no buffer, no mesmo formato
+     * usado pelo extrato impresso.
+     *
+     * @param i       Posição da operação no extrato.
+     * @param dona    Conta dona do extrato.
+     * @param destino Buffer onde o texto será escrito.
+     */
+    void renderizar(int i, Conta dona, StringBuilder destino) {
+        long valor = valores[i];
+        long saldo = saldos[i];
+
+        switch (tipos[i]) {
+            case SAQUE -> {
+                destino.append("\n# Saque");
+                linha(destino, "\n  +--> Banco origem ........ ", dona.getBancoNumero(), dona.getBancoNome());
+                linhaValor(destino, "\n  +--> Saldo anterior ...... ", Dinheiro.somar(saldo, valor));
+                linhaValor(destino, "\n  +--> Valor depositado .... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível .... ", saldo);
+            }
+            case DEPOSITO -> {
+                String origem = (contasContraparte[i] == dona.getContaNumero())
+                        ? "O próprio titular" : titularesContraparte[i];
+                destino.append("\n# Depósito");
+                linha(destino, "\n  +--> Banco origem ........ ", bancosContraparte[i], bancoNomesContraparte[i]);
+                linha(destino, "\n  +--> Titular origem ...... ", contasContraparte[i], origem);
+                linhaValor(destino, "\n  +--> Saldo anterior ...... ", Dinheiro.subtrair(saldo, valor));
+                linhaValor(destino, "\n  +--> Valor depositado .... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível .... ", saldo);
+            }
+            case DEPOSITO_INTERBANCARIO -> {
+                destino.append("\n# Depósito interbancário");
+                linha(destino, "\n  +--> Banco origem ........ ", bancosContraparte[i], bancoNomesContraparte[i]);
+                linha(destino, "\n  +--> Titular origem ...... ", contasContraparte[i], titularesContraparte[i]);
+                linhaValor(destino, "\n  +--> Saldo anterior ...... ", Dinheiro.subtrair(saldo, valor));
+                linhaValor(destino, "\n  +--> Valor depositado .... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível .... ", saldo);
+            }
+            case TRANSFERENCIA_INTERNA -> {
+                destino.append("\n# Transferência interna");
+                linha(destino, "\n  +--> Banco origem ......... ", dona.getBancoNumero(), dona.getBancoNome());
+                linha(destino, "\n  +--> Titular origem ....... ", dona.getContaNumero(), dona.getTitular());
+                linha(destino, "\n  +--> Titular destino ...... ", contasContraparte[i], titularesContraparte[i]);
+                linhaValor(destino, "\n  +--> Saldo anterior ....... ", Dinheiro.somar(saldo, valor));
+                linhaValor(destino, "\n  +--> Valor transferido .... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível ..... ", saldo);
+            }
+            case TRANSFERENCIA_EXTERNA -> {
+                long taxa = BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS;
+                destino.append("\n# Transferência externa");
+                linha(destino, "\n  +--> Banco origem ......... ", dona.getBancoNumero(), dona.getBancoNome());
+                linha(destino, "\n  +--> Titular origem ....... ", dona.getContaNumero(), dona.getTitular());
+                linha(destino, "\n  +--> Banco destino ........ ", bancosContraparte[i], bancoNomesContraparte[i]);
+                linha(destino, "\n  +--> Titular destino ...... ", contasContraparte[i], titularesContraparte[i]);
+                linhaValor(destino, "\n  +--> Saldo anterior ....... ", Dinheiro.somar(Dinheiro.somar(saldo, valor), taxa));
+                linhaValor(destino, "\n  +--> Valor transferido .... ", valor);
+                linhaValor(destino, "\n  +--> Taxa bancária ........ ", taxa);
+                linhaValor(destino, "\n  +--> Saldo disponível ..... ", saldo);
+            }
+            case RENDIMENTO -> {
+                destino.append("\n# Rendimento da poupança");
+                linha(destino, "\n  +--> Banco origem ........ ", dona.getBancoNumero(), dona.getBancoNome());
+                linhaValor(destino, "\n  +--> Saldo anterior ...... ", Dinheiro.subtrair(saldo, valor));
+                linhaValor(destino, "\n  +--> Valor creditado ..... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível .... ", saldo);
+            }
+            case TAXA_MENSAL -> {
+                destino.append("\n# Taxa mensal");
+                linha(destino, "\n  +--> Banco origem ........ ", dona.getBancoNumero(), dona.getBancoNome());
+                linhaValor(destino, "\n  +--> Saldo anterior ...... ", Dinheiro.somar(saldo, valor));
+                linhaValor(destino, "\n  +--> Taxa bancária ....... ", valor);
+                linhaValor(destino, "\n  +--> Saldo disponível .... ", saldo);
+            }
+            default -> throw new IllegalStateException("Tipo de operação desconhecido: " + tipos[i]);
+        }
+    }
+
+    private static void linha(StringBuilder destino, String rotulo, int numero, String nome) {
+        destino.append(rotulo).append(numero).append(" - ").append(nome);
+    }
+
+    private static void linhaValor(StringBuilder destino, String rotulo, long valor) {
+        Dinheiro.formatar(destino.append(rotulo), valor);
+    }
+
+    /**
+     * Garante espaço para mais operações sem crescer as colunas a cada uma
+     * (usado pelas operações em lote, que sabem quantas operações a conta vai receber).
+     *
+     * @param adicionais Quantidade de operações que ainda serão adicionadas.
+     */
+    void reservar(int adicionais) {
+        if (descarregando) {
+            // Não adianta reservar além do que fica em memória.
+            adicionais = Math.min(adicionais, segmento.getLimiteEmMemoria());
+        }
+        if (tamanho + adicionais > tipos.length) {
+            crescer(tamanho + adicionais);
+        }
+    }
+
+    private void crescer() {
+        crescer(tipos.length + 1);
+    }
+
+    private void crescer(int minimo) {
+        int capacidade = Math.max(Math.max(CAPACIDADE_INICIAL, tipos.length + (tipos.length >> 1)), minimo);
+        tipos = Arrays.copyOf(tipos, capacidade);
+        instantes = Arrays.copyOf(instantes, capacidade);
+        bancosContraparte = Arrays.copyOf(bancosContraparte, capacidade);
+        contasContraparte = Arrays.copyOf(contasContraparte, capacidade);
+        bancoNomesContraparte = Arrays.copyOf(bancoNomesContraparte, capacidade);
+        titularesContraparte = Arrays.copyOf(titularesContraparte, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        saldos = Arrays.copyOf(saldos, capacidade);
+    }
+}
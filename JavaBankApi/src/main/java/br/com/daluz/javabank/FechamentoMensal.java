@@ -0,0 +1,341 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fechamento mensal: rendimento das contas poupança e taxa das contas
+ * correntes de todos os bancos do Banco Central.
+ * <p>
+ * As contas de todos os bancos formam uma única sequência, dividida em
+ * faixas que são processadas em paralelo num ForkJoinPool. Cada lançamento
+ * trava só a sua conta, como qualquer operação, então o fechamento corre
+ * junto com as transações, sem bloqueá-las. O valor é calculado antes pelo
+ * registro da conta ({@link BancoRef#consultarConta}): uma conta fria, ou
+ * que ainda só está no snapshot, só volta para o índice se tiver lançamento.
+ * <p>
+ * O registro de transações recebe o início do fechamento, cada lançamento e
+ * o fim. Se o sistema cair no meio, a recuperação refaz os lançamentos
+ * gravados e guarda quais contas já foram lançadas; o fechamento é retomado
+ * quando o Banco Central volta a usar o registro, pulando essas contas. Como
+ * o registro é gravado em ordem, o que sobrevive à queda é sempre um prefixo
+ * dos lançamentos, e nenhuma conta é lançada duas vezes.
+ */
+final class FechamentoMensal {
+    /**
+     * Valor de competência que indica que não há fechamento em andamento.
+     */
+    static final int NENHUMA = 0;
+
+    private static final int TAMANHO_FAIXA = 1024;
+
+    /**
+     * Serializa os fechamentos: um só começa depois que o anterior terminou.
+     */
+    private final Object travaFechamento;
+
+    private int aberta;
+    private int ultimaFechada;
+    // Contas já lançadas na competência aberta (banco << 32 | conta), fora de ordem.
+    private long[] lancadas;
+    private int qtdLancadas;
+
+    /**
+     * Construtor da classe FechamentoMensal.
+     */
+    FechamentoMensal() {
+        this.travaFechamento = new Object();
+        this.aberta = NENHUMA;
+        this.lancadas = new long[0];
+    }
+
+    /**
+     * Faz (ou continua) o fechamento de uma competência.
+     *
+     * @param bancoCentral Banco Central dono das contas.
+     * @param registro     Registro de transações.
+     * @param competencia  Mês do fechamento (AAAAMM).
+     * @param pool         Pool onde as faixas de contas são processadas.
+     * @return Retorna o resumo dos lançamentos feitos nesta chamada.
+     * @throws UnsupportedOperationException Lança exceção se a competência é inválida,
+     *                                       já foi fechada ou outra está em andamento.
+     */
+    ResumoFechamento fechar(BancoCentral bancoCentral, RegistroTransacoes registro,
+                            int competencia, ForkJoinPool pool) {
+        int mes = competencia % 100;
+        if (competencia < 100 || mes < 1 || mes > 12) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Competência \"" + competencia + "\" inválida.");
+        }
+
+        synchronized (travaFechamento) {
+            long inicio = System.nanoTime();
+            long instante = System.currentTimeMillis();
+            long[] jaLancadas;
+
+            synchronized (this) {
+                if (aberta == NENHUMA) {
+                    if (competencia <= ultimaFechada) {
+                        throw new UnsupportedOperationException(
+                                "[AVISO]\nOperação não realizada!\nMotivo: Competência \"" + competencia
+                                        + "\" já fechada.");
+                    }
+                    registro.registrarFechamento(RegistroTransacoes.INICIO_FECHAMENTO, instante, competencia);
+                    aberta = competencia;
+                } else if (aberta != competencia) {
+                    throw new UnsupportedOperationException(
+                            "[AVISO]\nOperação não realizada!\nMotivo: O fechamento da competência \""
+                                    + aberta + "\" ainda não terminou.");
+                }
+                jaLancadas = Arrays.copyOf(lancadas, qtdLancadas);
+            }
+            Arrays.sort(jaLancadas);
+
+            Execucao execucao = new Execucao(bancoCentral.getBancos(), competencia, instante, jaLancadas);
+            pool.invoke(execucao.new Faixa(0, execucao.contas.length));
+
+            long posicao;
+            synchronized (this) {
+                posicao = registro.registrarFechamento(RegistroTransacoes.FIM_FECHAMENTO,
+                        System.currentTimeMillis(), competencia);
+                concluir(competencia);
+            }
+            registro.aguardar(posicao);
+
+            return new ResumoFechamento(competencia, execucao.processadas.sum(),
+                    execucao.rendimentos.sum(), execucao.totalRendimentos.sum(),
+                    execucao.taxas.sum(), execucao.totalTaxas.sum(), System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Continua um fechamento interrompido por uma queda.
+     *
+     * @param bancoCentral Banco Central dono das contas.
+     * @param registro     Registro de transações onde os lançamentos são gravados.
+     */
+    void retomar(BancoCentral bancoCentral, RegistroTransacoes registro) {
+        int competencia;
+        synchronized (this) {
+            competencia = aberta;
+        }
+        if (competencia != NENHUMA) {
+            fechar(bancoCentral, registro, competencia, ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Reproduz o início de um fechamento gravado no registro de transações.
+     */
+    synchronized void reproduzirInicio(int competencia) {
+        aberta = competencia;
+        qtdLancadas = 0;
+    }
+
+    /**
+     * Reproduz um lançamento gravado no registro de transações.
+     */
+    void reproduzirLancamento(Banco banco, Conta conta, int competencia, long valor, long instante) {
+        banco.lancarMensal(conta, valor, competencia, instante);
+        synchronized (this) {
+            if (competencia == aberta) {
+                adicionar(chave(banco.getBancoNumero(), conta.getContaNumero()));
+            }
+        }
+    }
+
+    /**
+     * Reproduz o fim de um fechamento gravado no registro de transações.
+     */
+    synchronized void reproduzirFim(int competencia) {
+        concluir(competencia);
+    }
+
+    private void concluir(int competencia) {
+        ultimaFechada = Math.max(ultimaFechada, competencia);
+        aberta = NENHUMA;
+        lancadas = new long[0];
+        qtdLancadas = 0;
+    }
+
+    private void adicionar(long chave) {
+        if (qtdLancadas == lancadas.length) {
+            lancadas = Arrays.copyOf(lancadas, Math.max(16, lancadas.length * 2));
+        }
+        lancadas[qtdLancadas++] = chave;
+    }
+
+    private void adicionar(long[] chaves, int quantidade) {
+        if (qtdLancadas + quantidade > lancadas.length) {
+            lancadas = Arrays.copyOf(lancadas, Math.max(qtdLancadas + quantidade, lancadas.length * 2));
+        }
+        System.arraycopy(chaves, 0, lancadas, qtdLancadas, quantidade);
+        qtdLancadas += quantidade;
+    }
+
+    private static long chave(int bancoNumero, int contaNumero) {
+        return ((long) bancoNumero << 32) | (contaNumero & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Competência em andamento. Usado pelo snapshot,
+     * sempre num Banco Central que não está recebendo operações.
+     */
+    synchronized int getAberta() {
+        return aberta;
+    }
+
+    synchronized int getUltimaFechada() {
+        return ultimaFechada;
+    }
+
+    synchronized long[] getLancadas() {
+        return Arrays.copyOf(lancadas, qtdLancadas);
+    }
+
+    /**
+     * Restaura o estado gravado num snapshot.
+     */
+    void restaurar(int aberta, int ultimaFechada, long[] lancadas) {
+        synchronized (travaFechamento) {
+            synchronized (this) {
+                this.aberta = aberta;
+                this.ultimaFechada = ultimaFechada;
+                this.lancadas = lancadas;
+                this.qtdLancadas = lancadas.length;
+            }
+        }
+    }
+
+    /**
+     * Contas e totais de uma chamada de {@link #fechar}.
+     */
+    private final class Execucao {
+        private final Banco[] bancos;
+        // Contas de todos os bancos em sequência; as do banco b começam em inicios[b].
+        private final int[] contas;
+        private final int[] inicios;
+        private final int competencia;
+        private final long instante;
+        private final long[] jaLancadas;
+
+        private final LongAdder processadas = new LongAdder();
+        private final LongAdder rendimentos = new LongAdder();
+        private final LongAdder totalRendimentos = new LongAdder();
+        private final LongAdder taxas = new LongAdder();
+        private final LongAdder totalTaxas = new LongAdder();
+
+        Execucao(List<Banco> bancos, int competencia, long instante, long[] jaLancadas) {
+            this.bancos = bancos.toArray(new Banco[0]);
+            this.inicios = new int[this.bancos.length + 1];
+            int[][] numeros = new int[this.bancos.length][];
+            for (int b = 0; b < this.bancos.length; b++) {
+                numeros[b] = this.bancos[b].getNumerosDeContas();
+                inicios[b + 1] = inicios[b] + numeros[b].length;
+            }
+            this.contas = new int[inicios[this.bancos.length]];
+            for (int b = 0; b < this.bancos.length; b++) {
+                System.arraycopy(numeros[b], 0, contas, inicios[b], numeros[b].length);
+            }
+            this.competencia = competencia;
+            this.instante = instante;
+            this.jaLancadas = jaLancadas;
+        }
+
+        /**
+         * Faixa [de, ate) da sequência de contas. Divide-se ao meio até ficar
+         * com no máximo TAMANHO_FAIXA contas, que são lançadas em sequência.
+         */
+        @SuppressWarnings("serial") // Tarefa do pool, nunca serializada.
+        final class Faixa extends RecursiveAction {
+            private final int de;
+            private final int ate;
+
+            Faixa(int de, int ate) {
+                this.de = de;
+                this.ate = ate;
+            }
+
+            @Override
+            protected void compute() {
+                if (ate - de > TAMANHO_FAIXA) {
+                    int meio = (de + ate) >>> 1;
+                    invokeAll(new Faixa(de, meio), new Faixa(meio, ate));
+                } else {
+                    lancar();
+                }
+            }
+
+            private void lancar() {
+                long[] feitas = new long[ate - de];
+                int qtdFeitas = 0;
+                long qtdProcessadas = 0, qtdRendimentos = 0, somaRendimentos = 0, qtdTaxas = 0, somaTaxas = 0;
+                int b = banco(de);
+
+                try {
+                    for (int i = de; i < ate; i++) {
+                        while (i >= inicios[b + 1]) {
+                            b++;
+                        }
+                        Banco banco = bancos[b];
+                        long chave = chave(banco.getBancoNumero(), contas[i]);
+                        if (jaLancadas.length > 0 && Arrays.binarySearch(jaLancadas, chave) >= 0) {
+                            continue;
+                        }
+                        // Só volta para o índice a conta fria que terá lançamento.
+                        Conta conta = banco.consultarConta(contas[i], false);
+                        if (conta == null) {
+                            continue;
+                        }
+                        long valor;
+                        synchronized (conta) {
+                            valor = conta.lancamentoMensal();
+                        }
+                        if (valor != 0) {
+                            valor = banco.lancarMensal(banco.localizar(contas[i]), competencia, instante);
+                        }
+                        if (valor > 0) {
+                            qtdRendimentos++;
+                            somaRendimentos += valor;
+                        } else if (valor < 0) {
+                            qtdTaxas++;
+                            somaTaxas -= valor;
+                        }
+                        if (valor != 0) {
+                            feitas[qtdFeitas++] = chave;
+                        }
+                        qtdProcessadas++;
+                    }
+                } finally {
+                    // Mesmo se a faixa falhar, as contas lançadas não podem ser lançadas de novo.
+                    synchronized (FechamentoMensal.this) {
+                        adicionar(feitas, qtdFeitas);
+                    }
+                    processadas.add(qtdProcessadas);
+                    rendimentos.add(qtdRendimentos);
+                    totalRendimentos.add(somaRendimentos);
+                    taxas.add(qtdTaxas);
+                    totalTaxas.add(somaTaxas);
+                }
+            }
+
+            /**
+             * Banco da conta na posição i da sequência.
+             */
+            private int banco(int i) {
+                int b = Arrays.binarySearch(inicios, i);
+                if (b < 0) {
+                    return -b - 2;
+                }
+                // Bancos sem contas têm o mesmo início do seguinte; fica com o último deles.
+                while (b + 1 < bancos.length && inicios[b + 1] == i) {
+                    b++;
+                }
+                return b;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package br.com.daluz.javabank;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências, em nanossegundos, sem travas.
+ * <p>
+ * Os valores são contados em faixas log-lineares: cada potência de 2 é
+ * dividida em 16 faixas, então o valor informado por um percentil fica no
+ * máximo 1/16 (6,25%) acima do valor real. Valores até 2^40 ns (cerca de
+ * 18 minutos) são distinguidos; os maiores caem na última faixa.
+ * <p>
+ * As contagens ficam em várias cópias (uma por grupo de threads), para que
+ * threads em núcleos diferentes não disputem a mesma linha de cache. As
+ * cópias só são somadas na leitura.
+ */
+final class HistogramaLatencia {
+    private static final int BITS_SUBFAIXA = 4;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int MAIOR_EXPOENTE = 40;
+    private static final long MAIOR_VALOR = (1L << (MAIOR_EXPOENTE + 1)) - 1;
+    static final int FAIXAS = (MAIOR_EXPOENTE - BITS_SUBFAIXA + 1) * SUBFAIXAS + SUBFAIXAS;
+
+    private static final int COPIAS = Math.min(16,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicLongArray contagens = new AtomicLongArray(COPIAS * FAIXAS);
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Conta uma latência.
+     *
+     * @param nanos Latência, em nanossegundos.
+     */
+    void registrar(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int copia = (int) Thread.currentThread().getId() & (COPIAS - 1);
+        contagens.getAndIncrement(copia * FAIXAS + faixa(nanos));
+        soma.add(nanos);
+
+        long atual;
+        while (nanos > (atual = maximo.get()) && !maximo.compareAndSet(atual, nanos)) {
+            // Outra thread mudou o máximo; tenta de novo.
+        }
+    }
+
+    /**
+     * Faixa onde o valor é contado.
+     */
+    static int faixa(long nanos) {
+        if (nanos < SUBFAIXAS) {
+            return (int) nanos;
+        }
+        nanos = Math.min(nanos, MAIOR_VALOR);
+        int expoente = 63 - Long.numberOfLeadingZeros(nanos);
+        int subfaixa = (int) (nanos >>> (expoente - BITS_SUBFAIXA)) & (SUBFAIXAS - 1);
+        return (expoente - BITS_SUBFAIXA + 1) * SUBFAIXAS + subfaixa;
+    }
+
+    /**
+     * Maior valor contado na faixa.
+     */
+    static long limiteSuperior(int faixa) {
+        if (faixa < SUBFAIXAS) {
+            return faixa;
+        }
+        int expoente = faixa / SUBFAIXAS + BITS_SUBFAIXA - 1;
+        long largura = 1L << (expoente - BITS_SUBFAIXA);
+        return (SUBFAIXAS + faixa % SUBFAIXAS) * largura + largura - 1;
+    }
+
+    /**
+     * Soma as cópias das contagens.
+     *
+     * @return Retorna a contagem de cada faixa.
+     */
+    long[] contagens() {
+        long[] total = new long[FAIXAS];
+        for (int copia = 0; copia < COPIAS; copia++) {
+            for (int i = 0; i < FAIXAS; i++) {
+                total[i] += contagens.get(copia * FAIXAS + i);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Valor abaixo do qual está a fração pedida das latências.
+     *
+     * @param contagens Contagens obtidas com {@link #contagens()}.
+     * @param fracao    Fração entre 0 e 1 (0.99 para o percentil 99).
+     * @return Retorna a latência, em nanossegundos, ou 0 se nada foi contado.
+     */
+    long percentil(long[] contagens, double fracao) {
+        long quantidade = 0;
+        for (long contagem : contagens) {
+            quantidade += contagem;
+        }
+        if (quantidade == 0) {
+            return 0;
+        }
+
+        long alvo = Math.max(1, (long) Math.ceil(fracao * quantidade));
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    long getSoma() {
+        return soma.sum();
+    }
+
+    long getMaximo() {
+        return maximo.get();
+    }
+}
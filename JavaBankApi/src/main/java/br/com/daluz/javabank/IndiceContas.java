@@ -0,0 +1,235 @@
+package br.com.daluz.javabank;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice de contas de um banco, chaveado pelo número da conta.
+ * Tabela hash de endereçamento aberto (sondagem linear) com chaves
+ * primitivas, evitando o boxing e as entradas de um HashMap.
+ * <p>
+ * As buscas são otimistas (sem bloqueio) e só caem para a trava de
+ * leitura se uma inserção concorrente for detectada.
+ */
+final class IndiceContas {
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private final StampedLock trava;
+    private int[] chaves;
+    private Conta[] contas;
+    private int tamanho;
+
+    /**
+     * Construtor da classe IndiceContas.
+     */
+    IndiceContas() {
+        this.trava = new StampedLock();
+        this.chaves = new int[CAPACIDADE_INICIAL];
+        this.contas = new Conta[CAPACIDADE_INICIAL];
+    }
+
+    /**
+     * Busca a conta pelo número.
+     *
+     * @param contaNumero Número de identificação da conta.
+     * @return Retorna a conta, ou null se ela não estiver no índice.
+     */
+    Conta get(int contaNumero) {
+        long carimbo = trava.tryOptimisticRead();
+        int[] c = chaves;
+        Conta[] v = contas;
+        // Durante um redimensionamento os dois arrays podem ser de gerações diferentes.
+        Conta conta = (c.length == v.length) ? buscar(c, v, contaNumero) : null;
+        if (trava.validate(carimbo)) {
+            return conta;
+        }
+
+        carimbo = trava.readLock();
+        try {
+            return buscar(chaves, contas, contaNumero);
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    private static Conta buscar(int[] chaves, Conta[] contas, int contaNumero) {
+        int mascara = chaves.length - 1;
+        int i = espalhar(contaNumero) & mascara;
+        Conta conta;
+        while ((conta = contas[i]) != null) {
+            if (chaves[i] == contaNumero) {
+                return conta;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Insere uma conta no índice.
+     *
+     * @param conta Conta a ser inserida.
+     * @return Retorna true se a conta foi inserida, false se o número já existe.
+     */
+    boolean inserir(Conta conta) {
+        long carimbo = trava.writeLock();
+        try {
+            if ((tamanho + 1) * 2 > chaves.length) {
+                redimensionar(chaves.length * 2);
+            }
+            int contaNumero = conta.getContaNumero();
+            int mascara = chaves.length - 1;
+            int i = espalhar(contaNumero) & mascara;
+            while (contas[i] != null) {
+                if (chaves[i] == contaNumero) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+            chaves[i] = contaNumero;
+            contas[i] = conta;
+            tamanho++;
+            return true;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Retira uma conta do índice. A remoção puxa para trás as entradas
+     * seguintes da mesma sequência de sondagem, sem deixar marcas de remoção.
+     *
+     * @param conta Conta a ser retirada (o próprio objeto, não apenas o número).
+     * @return Retorna true se a conta estava no índice.
+     */
+    boolean remover(Conta conta) {
+        long carimbo = trava.writeLock();
+        try {
+            int mascara = chaves.length - 1;
+            int i = espalhar(conta.getContaNumero()) & mascara;
+            while (contas[i] != conta) {
+                if (contas[i] == null) {
+                    return false;
+                }
+                i = (i + 1) & mascara;
+            }
+
+            int j = i;
+            while (contas[j = (j + 1) & mascara] != null) {
+                int ideal = espalhar(chaves[j]) & mascara;
+                // A entrada em j só pode ocupar i se a sua posição ideal não estiver em (i, j].
+                boolean entre = (i <= j) ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+                if (!entre) {
+                    chaves[i] = chaves[j];
+                    contas[i] = contas[j];
+                    i = j;
+                }
+            }
+            chaves[i] = 0;
+            contas[i] = null;
+            tamanho--;
+            return true;
+        } finally {
+            trava.unlockWrite(carimbo);
+        }
+    }
+
+    /**
+     * Passa por um trecho da tabela, como o ponteiro de um relógio.
+     *
+     * @param inicio     Posição onde a passada começa (a devolvida pela passada anterior).
+     * @param quantidade Quantidade de posições percorridas.
+     * @param destino    Lista que recebe as contas encontradas no trecho.
+     * @return Retorna a posição onde a próxima passada deve começar.
+     */
+    int percorrer(int inicio, int quantidade, List<Conta> destino) {
+        long carimbo = trava.readLock();
+        try {
+            int mascara = chaves.length - 1;
+            int i = inicio & mascara;
+            for (int n = Math.min(quantidade, chaves.length); n > 0; n--) {
+                if (contas[i] != null) {
+                    destino.add(contas[i]);
+                }
+                i = (i + 1) & mascara;
+            }
+            return i;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Executa a ação para cada conta do índice, com a trava de leitura.
+     *
+     * @param acao Ação executada; não deve alterar o índice.
+     */
+    void paraCada(Consumer<Conta> acao) {
+        long carimbo = trava.readLock();
+        try {
+            for (Conta conta : contas) {
+                if (conta != null) {
+                    acao.accept(conta);
+                }
+            }
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Tamanho atual da tabela (potência de 2).
+     *
+     * @return Retorna a quantidade de posições.
+     */
+    int capacidade() {
+        long carimbo = trava.readLock();
+        try {
+            return chaves.length;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    /**
+     * Quantidade de contas no índice.
+     *
+     * @return Retorna o número de contas indexadas.
+     */
+    int tamanho() {
+        long carimbo = trava.readLock();
+        try {
+            return tamanho;
+        } finally {
+            trava.unlockRead(carimbo);
+        }
+    }
+
+    private void redimensionar(int capacidade) {
+        int[] chavesAntigas = chaves;
+        Conta[] contasAntigas = contas;
+        chaves = new int[capacidade];
+        contas = new Conta[capacidade];
+        int mascara = capacidade - 1;
+        for (int j = 0; j < contasAntigas.length; j++) {
+            if (contasAntigas[j] != null) {
+                int i = espalhar(chavesAntigas[j]) & mascara;
+                while (contas[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                chaves[i] = chavesAntigas[j];
+                contas[i] = contasAntigas[j];
+            }
+        }
+    }
+
+    /**
+     * Espalha os bits do número da conta, pois números sequenciais
+     * (11101, 11102, ...) se agrupariam na tabela.
+     */
+    static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
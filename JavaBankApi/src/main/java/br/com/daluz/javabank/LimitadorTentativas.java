@@ -0,0 +1,327 @@
+package br.com.daluz.javabank;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite de tentativas de senha, por conta e por cliente.
+ * <p>
+ * Cada conta e cada cliente (um endereço de rede, ou o terminal do caixa
+ * eletrônico) têm um balde de fichas: cada senha errada gasta uma ficha, e as
+ * fichas voltam com o tempo. Com o balde vazio, o acesso é recusado antes de
+ * procurar banco ou conta, então um cliente abusivo custa só uma leitura de
+ * memória por requisição. Além disso, {@link #FALHAS_PARA_BLOQUEIO} senhas
+ * erradas seguidas bloqueiam a conta por {@link #BLOQUEIO_MILLIS}. Só as
+ * falhas gastam fichas: quem acerta a senha não é limitado.
+ * <p>
+ * O balde é guardado como um "instante teórico de chegada" (GCRA): um único
+ * número que diz quando o balde estará cheio de novo. O estado de uma conta ou
+ * cliente cabe num long ([16 bits de identificação][40 bits do instante, em
+ * ms][8 bits de falhas seguidas]) e é atualizado com compareAndSet, sem
+ * travas. As tabelas têm tamanho fixo: cada chave tem um grupo de quatro
+ * posições, e um estado que já voltou a ficar cheio pode ser reaproveitado por
+ * outra chave. Com o grupo todo ocupado, sai o estado menos restritivo. Duas
+ * chaves com o mesmo grupo e a mesma identificação (16 bits) compartilham o
+ * estado, o que é raro e só as torna mais restritas.
+ * <p>
+ * A verificação e o registro da falha não são atômicos entre si: várias
+ * threads tentando a mesma conta ao mesmo tempo podem passar uma ficha cada
+ * além do limite.
+ */
+public final class LimitadorTentativas {
+    /**
+     * Senhas erradas seguidas que bloqueiam a conta.
+     */
+    public static final int FALHAS_PARA_BLOQUEIO = 5;
+
+    /**
+     * Duração do bloqueio da conta.
+     */
+    public static final long BLOQUEIO_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final int RAJADA_CONTA = 10;
+    private static final long INTERVALO_CONTA_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final int RAJADA_CLIENTE = 20;
+    private static final long INTERVALO_CLIENTE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final int POSICOES_CONTAS = 1 << 18;
+    private static final int POSICOES_CLIENTES = 1 << 14;
+    private static final int POSICOES_POR_GRUPO = 4;
+    private static final long MAXIMO_INSTANTE = (1L << 40) - 1;
+
+    private final Balde contas;
+    private final Balde clientes;
+    private final long origem;
+    private final LongAdder recusas;
+
+    /**
+     * Construtor da classe LimitadorTentativas, com os limites padrão.
+     */
+    LimitadorTentativas() {
+        this(RAJADA_CONTA, INTERVALO_CONTA_MILLIS, FALHAS_PARA_BLOQUEIO, BLOQUEIO_MILLIS,
+                RAJADA_CLIENTE, INTERVALO_CLIENTE_MILLIS);
+    }
+
+    /**
+     * Construtor da classe LimitadorTentativas.
+     *
+     * @param rajadaConta       Senhas erradas seguidas que o balde de uma conta comporta.
+     * @param intervaloConta    Tempo para uma ficha voltar ao balde da conta, em milissegundos.
+     * @param falhasBloqueio    Senhas erradas seguidas que bloqueiam a conta (até 255; 0 não bloqueia).
+     * @param bloqueio          Duração do bloqueio, em milissegundos.
+     * @param rajadaCliente     Falhas seguidas que o balde de um cliente comporta.
+     * @param intervaloCliente  Tempo para uma ficha voltar ao balde do cliente, em milissegundos.
+     */
+    LimitadorTentativas(int rajadaConta, long intervaloConta, int falhasBloqueio, long bloqueio,
+                        int rajadaCliente, long intervaloCliente) {
+        this.contas = new Balde(POSICOES_CONTAS, rajadaConta, intervaloConta, falhasBloqueio, bloqueio);
+        this.clientes = new Balde(POSICOES_CLIENTES, rajadaCliente, intervaloCliente, 0, 0);
+        this.origem = System.nanoTime();
+        this.recusas = new LongAdder();
+    }
+
+    /**
+     * Verifica se o cliente pode tentar a senha da conta. Deve ser chamado
+     * antes de procurar o banco e a conta.
+     *
+     * @param cliente     Identificação do cliente (por exemplo, o endereço IP).
+     * @param bancoNumero Número do banco.
+     * @param contaNumero Número da conta.
+     * @return Retorna OK, ou {@link Resultado#ACESSO_BLOQUEADO} se a conta ou o cliente estão sem fichas.
+     */
+    public int permitir(long cliente, int bancoNumero, int contaNumero) {
+        long agora = agora();
+        if (contas.esgotado(chaveConta(bancoNumero, contaNumero), agora) || clientes.esgotado(cliente, agora)) {
+            recusas.increment();
+            return Resultado.ACESSO_BLOQUEADO;
+        }
+        return Resultado.OK;
+    }
+
+    /**
+     * Confere a senha da conta e registra o resultado: uma falha gasta uma
+     * ficha da conta e do cliente; um acerto zera as falhas seguidas da conta.
+     *
+     * @param cliente Identificação do cliente.
+     * @param conta   Conta acessada.
+     * @param senha   Senha informada.
+     * @return Retorna true se a senha coincide, false caso contrário.
+     */
+    public boolean verificarSenha(long cliente, Conta conta, int senha) {
+        long chave = chaveConta(conta.getBancoNumero(), conta.getContaNumero());
+        if (conta.verificaSenha(senha)) {
+            contas.acertar(chave);
+            return true;
+        }
+        long agora = agora();
+        contas.falhar(chave, agora);
+        clientes.falhar(cliente, agora);
+        return false;
+    }
+
+    /**
+     * Verifica só o balde do cliente, para as operações que não usam a senha
+     * da conta (as operações entre nós do Banco Central particionado): uma
+     * conta bloqueada continua recebendo créditos.
+     *
+     * @param cliente Identificação do cliente.
+     * @return Retorna OK, ou {@link Resultado#ACESSO_BLOQUEADO} se o cliente está sem fichas.
+     */
+    public int permitirCliente(long cliente) {
+        if (clientes.esgotado(cliente, agora())) {
+            recusas.increment();
+            return Resultado.ACESSO_BLOQUEADO;
+        }
+        return Resultado.OK;
+    }
+
+    /**
+     * Registra uma falha do cliente que não é senha de conta errada (uma conta
+     * que não existe ou o segredo dos nós errado). Gasta uma ficha do cliente,
+     * para que procurar contas ao acaso também seja limitado.
+     *
+     * @param cliente Identificação do cliente.
+     */
+    public void registrarFalha(long cliente) {
+        clientes.falhar(cliente, agora());
+    }
+
+    /**
+     * Quantidade de acessos recusados por falta de fichas ou por bloqueio.
+     *
+     * @return Retorna o número de recusas.
+     */
+    public long getAcessosRecusados() {
+        return recusas.sum();
+    }
+
+    /**
+     * Milissegundos desde a criação do limitador (relógio monotônico). Nunca é zero.
+     */
+    private long agora() {
+        return (System.nanoTime() - origem) / 1_000_000 + 1;
+    }
+
+    private static long chaveConta(int bancoNumero, int contaNumero) {
+        return ((long) bancoNumero << 32) | (contaNumero & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Tabela de baldes de um tipo de chave (contas ou clientes).
+     * <p>
+     * Estado de uma posição: [16 bits de identificação][40 bits do instante em
+     * que o balde fica cheio][8 bits de falhas seguidas]. Zero é posição vazia.
+     */
+    private static final class Balde {
+        private final int posicoes;
+        private final long intervalo;
+        // Quanto o instante teórico pode estar à frente do agora com o balde ainda tendo uma ficha.
+        private final long tolerancia;
+        private final int falhasBloqueio;
+        private final long bloqueio;
+        private volatile AtomicLongArray tabela;
+
+        private Balde(int posicoes, int rajada, long intervalo, int falhasBloqueio, long bloqueio) {
+            this.posicoes = posicoes;
+            this.intervalo = intervalo;
+            this.tolerancia = (rajada - 1) * intervalo;
+            this.falhasBloqueio = falhasBloqueio;
+            this.bloqueio = bloqueio;
+        }
+
+        /**
+         * Verifica se o balde da chave está sem fichas. Só lê a tabela.
+         */
+        private boolean esgotado(long chave, long agora) {
+            AtomicLongArray tabela = this.tabela;
+            if (tabela == null) {
+                return false;
+            }
+            long h = CacheIdempotencia.espalhar(chave);
+            int grupo = grupo(h);
+            int id = identificacao(h);
+            for (int i = grupo; i < grupo + POSICOES_POR_GRUPO; i++) {
+                long estado = tabela.get(i);
+                if (identificacao(estado) == id && estado != 0) {
+                    return instante(estado) - agora > tolerancia;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Gasta uma ficha. Se as falhas seguidas chegarem ao limite, bloqueia a chave.
+         */
+        private void falhar(long chave, long agora) {
+            AtomicLongArray tabela = criarTabela();
+            long h = CacheIdempotencia.espalhar(chave);
+            int grupo = grupo(h);
+            int id = identificacao(h);
+
+            while (true) {
+                int posicao = -1;
+                long atual = 0;
+                int vitima = -1;
+                long estadoVitima = 0;
+                for (int i = grupo; i < grupo + POSICOES_POR_GRUPO; i++) {
+                    long estado = tabela.get(i);
+                    if (estado != 0 && identificacao(estado) == id) {
+                        posicao = i;
+                        atual = estado;
+                        break;
+                    }
+                    // Prefere uma posição vazia ou já cheia de novo; senão, a menos restritiva.
+                    if (vitima < 0 || instante(estado) < instante(estadoVitima)) {
+                        vitima = i;
+                        estadoVitima = estado;
+                    }
+                }
+
+                long instante;
+                int falhas;
+                if (posicao >= 0 && instante(atual) > agora) {
+                    instante = instante(atual);
+                    falhas = falhas(atual);
+                } else {
+                    // Balde cheio: as falhas anteriores já foram esquecidas.
+                    if (posicao < 0) {
+                        posicao = vitima;
+                        atual = estadoVitima;
+                    }
+                    instante = agora;
+                    falhas = 0;
+                }
+                instante += intervalo;
+                falhas++;
+                if (falhasBloqueio > 0 && falhas >= falhasBloqueio) {
+                    instante = Math.max(instante, agora + bloqueio + tolerancia);
+                    falhas = 0;
+                }
+
+                if (tabela.compareAndSet(posicao, atual, estado(id, instante, falhas))) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Zera as falhas seguidas da chave. Não escreve nada se não houver falhas.
+         */
+        private void acertar(long chave) {
+            AtomicLongArray tabela = this.tabela;
+            if (tabela == null) {
+                return;
+            }
+            long h = CacheIdempotencia.espalhar(chave);
+            int grupo = grupo(h);
+            int id = identificacao(h);
+            for (int i = grupo; i < grupo + POSICOES_POR_GRUPO; i++) {
+                long estado = tabela.get(i);
+                while (estado != 0 && identificacao(estado) == id && falhas(estado) != 0) {
+                    if (tabela.compareAndSet(i, estado, estado(id, instante(estado), 0))) {
+                        return;
+                    }
+                    estado = tabela.get(i);
+                }
+            }
+        }
+
+        /**
+         * A tabela só é criada na primeira falha; até lá, nenhum acesso é limitado.
+         */
+        private AtomicLongArray criarTabela() {
+            AtomicLongArray tabela = this.tabela;
+            if (tabela == null) {
+                synchronized (this) {
+                    tabela = this.tabela;
+                    if (tabela == null) {
+                        tabela = new AtomicLongArray(posicoes);
+                        this.tabela = tabela;
+                    }
+                }
+            }
+            return tabela;
+        }
+
+        private int grupo(long h) {
+            return (int) h & (posicoes - POSICOES_POR_GRUPO);
+        }
+
+        private static int identificacao(long h) {
+            return (int) (h >>> 48);
+        }
+
+        private static long instante(long estado) {
+            return (estado >>> 8) & MAXIMO_INSTANTE;
+        }
+
+        private static int falhas(long estado) {
+            return (int) estado & 0xFF;
+        }
+
+        private static long estado(int id, long instante, int falhas) {
+            return ((long) id << 48) | (Math.min(instante, MAXIMO_INSTANTE) << 8) | falhas;
+        }
+    }
+}
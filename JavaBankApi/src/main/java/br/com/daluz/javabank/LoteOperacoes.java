@@ -0,0 +1,120 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+
+/**
+ * Lote de créditos e débitos em contas de um mesmo banco
+ * (arquivos de folha de pagamento, liquidação, etc.).
+ * <p>
+ * Os itens ficam em colunas de tipos primitivos; o lote é processado por
+ * {@link BancoRef#processarLote}, que devolve um código de {@link Resultado}
+ * para cada item, na ordem em que foram adicionados.
+ */
+public final class LoteOperacoes {
+    static final byte CREDITO = 1;
+    static final byte DEBITO = 2;
+
+    private byte[] tipos;
+    private int[] contas;
+    private long[] valores;
+    private int tamanho;
+
+    /**
+     * Construtor da classe LoteOperacoes.
+     *
+     * @param capacidade Quantidade de itens esperada.
+     */
+    public LoteOperacoes(int capacidade) {
+        capacidade = Math.max(capacidade, 1);
+        this.tipos = new byte[capacidade];
+        this.contas = new int[capacidade];
+        this.valores = new long[capacidade];
+    }
+
+    /**
+     * Adiciona um crédito (depósito) ao lote.
+     *
+     * @param contaNumero Número da conta creditada.
+     * @param valor       Valor do crédito, em centavos.
+     */
+    public void adicionarCredito(int contaNumero, long valor) {
+        adicionar(CREDITO, contaNumero, valor);
+    }
+
+    /**
+     * Adiciona um débito (saque) ao lote.
+     *
+     * @param contaNumero Número da conta debitada.
+     * @param valor       Valor do débito, em centavos.
+     */
+    public void adicionarDebito(int contaNumero, long valor) {
+        adicionar(DEBITO, contaNumero, valor);
+    }
+
+    /**
+     * Quantidade de itens no lote.
+     *
+     * @return Retorna o número de itens.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    byte tipo(int i) {
+        return tipos[i];
+    }
+
+    int conta(int i) {
+        return contas[i];
+    }
+
+    long valor(int i) {
+        return valores[i];
+    }
+
+    private void adicionar(byte tipo, int contaNumero, long valor) {
+        if (tamanho == tipos.length) {
+            int capacidade = tamanho * 2;
+            tipos = Arrays.copyOf(tipos, capacidade);
+            contas = Arrays.copyOf(contas, capacidade);
+            valores = Arrays.copyOf(valores, capacidade);
+        }
+        tipos[tamanho] = tipo;
+        contas[tamanho] = contaNumero;
+        valores[tamanho] = valor;
+        tamanho++;
+    }
+
+    /**
+     * Ordena as posições dos itens pela chave, mantendo a ordem original
+     * entre itens de mesma chave. Chave e posição são combinadas num único
+     * long, o que permite uma ordenação de tipos primitivos, estável por construção.
+     * Usado para agrupar os itens de um lote por conta.
+     *
+     * @param chaves Chave de cada item.
+     * @param n      Quantidade de itens.
+     * @return Retorna as posições dos itens em ordem de chave.
+     */
+    static int[] ordenarPorChave(int[] chaves, int n) {
+        long[] combinadas = new long[n];
+        for (int i = 0; i < n; i++) {
+            combinadas[i] = ((long) chaves[i] << 32) | i;
+        }
+        Arrays.sort(combinadas);
+
+        int[] ordem = new int[n];
+        for (int k = 0; k < n; k++) {
+            ordem[k] = (int) combinadas[k];
+        }
+        return ordem;
+    }
+
+    /**
+     * Posições dos itens agrupadas por conta, na ordem do lote dentro de cada conta.
+     *
+     * @return Retorna as posições dos itens em ordem de número de conta.
+     */
+    int[] ordemPorConta() {
+        return ordenarPorChave(contas, tamanho);
+    }
+}
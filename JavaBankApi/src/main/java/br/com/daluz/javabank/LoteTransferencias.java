@@ -0,0 +1,118 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+
+/**
+ * Lote de transferências entre bancos, processado por
+ * {@link BancoCentral#processarLoteEntreBancos}, que devolve um código de
+ * {@link Resultado} para cada item, na ordem em que foram adicionados.
+ */
+public final class LoteTransferencias {
+    private int[] bancosOrig;
+    private int[] contasOrig;
+    private int[] bancosDest;
+    private int[] contasDest;
+    private long[] valores;
+    private int tamanho;
+
+    /**
+     * Construtor da classe LoteTransferencias.
+     *
+     * @param capacidade Quantidade de itens esperada.
+     */
+    public LoteTransferencias(int capacidade) {
+        capacidade = Math.max(capacidade, 1);
+        this.bancosOrig = new int[capacidade];
+        this.contasOrig = new int[capacidade];
+        this.bancosDest = new int[capacidade];
+        this.contasDest = new int[capacidade];
+        this.valores = new long[capacidade];
+    }
+
+    /**
+     * Adiciona uma transferência ao lote.
+     *
+     * @param bancoNumeroOrig Número do banco origem.
+     * @param contaNumeroOrig Número da conta origem.
+     * @param bancoNumeroDest Número do banco destino.
+     * @param contaNumeroDest Número da conta destino.
+     * @param valor           Valor a ser transferido, em centavos (sem a taxa).
+     */
+    public void adicionar(int bancoNumeroOrig, int contaNumeroOrig,
+                          int bancoNumeroDest, int contaNumeroDest, long valor) {
+        if (tamanho == valores.length) {
+            int capacidade = tamanho * 2;
+            bancosOrig = Arrays.copyOf(bancosOrig, capacidade);
+            contasOrig = Arrays.copyOf(contasOrig, capacidade);
+            bancosDest = Arrays.copyOf(bancosDest, capacidade);
+            contasDest = Arrays.copyOf(contasDest, capacidade);
+            valores = Arrays.copyOf(valores, capacidade);
+        }
+        bancosOrig[tamanho] = bancoNumeroOrig;
+        contasOrig[tamanho] = contaNumeroOrig;
+        bancosDest[tamanho] = bancoNumeroDest;
+        contasDest[tamanho] = contaNumeroDest;
+        valores[tamanho] = valor;
+        tamanho++;
+    }
+
+    /**
+     * Quantidade de itens no lote.
+     *
+     * @return Retorna o número de itens.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    int bancoOrig(int i) {
+        return bancosOrig[i];
+    }
+
+    int contaOrig(int i) {
+        return contasOrig[i];
+    }
+
+    int bancoDest(int i) {
+        return bancosDest[i];
+    }
+
+    int contaDest(int i) {
+        return contasDest[i];
+    }
+
+    long valor(int i) {
+        return valores[i];
+    }
+
+    /**
+     * Ordena um conjunto de itens do lote pela conta origem ou destino
+     * (banco e número da conta), mantendo a ordem do lote dentro de cada conta.
+     *
+     * @param itens  Posições dos itens no lote.
+     * @param origem true para agrupar pela conta origem, false pela conta destino.
+     * @return Retorna as posições dos itens agrupadas por conta.
+     */
+    int[] agruparPorConta(int[] itens, boolean origem) {
+        int n = itens.length;
+        int[] contas = new int[n];
+        for (int k = 0; k < n; k++) {
+            contas[k] = origem ? contasOrig[itens[k]] : contasDest[itens[k]];
+        }
+
+        // Ordena por conta e depois, de forma estável, por banco.
+        int[] porConta = LoteOperacoes.ordenarPorChave(contas, n);
+        int[] bancos = new int[n];
+        for (int k = 0; k < n; k++) {
+            int i = itens[porConta[k]];
+            bancos[k] = origem ? bancosOrig[i] : bancosDest[i];
+        }
+        int[] porBanco = LoteOperacoes.ordenarPorChave(bancos, n);
+
+        int[] agrupados = new int[n];
+        for (int k = 0; k < n; k++) {
+            agrupados[k] = itens[porConta[porBanco[k]]];
+        }
+        return agrupados;
+    }
+}
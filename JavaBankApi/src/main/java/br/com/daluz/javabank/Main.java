@@ -0,0 +1,83 @@
+package br.com.daluz.javabank;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classe principal deste programa que simula um banco digital.
+ * É a classe que possui métodos por onde a execução do
+ * programa começa.
+ */
+public class Main {
+
+    /**
+     * Variável de ambiente com o segredo dos nós do Banco Central particionado.
+     */
+    private static final String VARIAVEL_SEGREDO = "JAVABANK_SEGREDO";
+
+    public static void main(String[] args) throws IOException {
+        // Num nó do Banco Central particionado, só as contas do nó: --no <índice> <mapa> <porta> [arquivo].
+        if (args.length > 3 && args[0].equals("--no")) {
+            int no = Integer.parseInt(args[1]);
+            MapaShards mapa = MapaShards.ler(args[2]);
+            CaixaEletronico24Hs cx = new CaixaEletronico24Hs(
+                    (args.length > 4) ? Path.of(args[4]) : null, mapa, no);
+            servir(cx, Integer.parseInt(args[3]));
+            return;
+        }
+
+        // No modo servidor, as operações são atendidas pela rede: --servidor <porta> [arquivo].
+        boolean servidor = args.length > 1 && args[0].equals("--servidor");
+        String[] arquivo = servidor ? Arrays.copyOfRange(args, 2, args.length) : args;
+
+        // Cria um objeto caixa eletrônico 24Hs.
+        // Se um arquivo for informado, os dados são gravados nele e recuperados na próxima execução.
+        CaixaEletronico24Hs cx = (arquivo.length > 0)
+                ? new CaixaEletronico24Hs(Path.of(arquivo[0]))
+                : new CaixaEletronico24Hs();
+
+        if (servidor) {
+            servir(cx, Integer.parseInt(args[1]));
+            return;
+        }
+
+        // Mostra a tela inicial do caixa eletrônico 24Hs.
+        cx.mostrarTelaInicial();
+    }
+
+    /**
+     * Atende as operações pela rede até o Enter ser pressionado.
+     */
+    private static void servir(CaixaEletronico24Hs cx, int porta) throws IOException {
+        ServidorTransacoes servidor = new ServidorTransacoes(cx.getBancoCentral(),
+                new InetSocketAddress(porta), Runtime.getRuntime().availableProcessors() * 4);
+        String segredo = System.getenv(VARIAVEL_SEGREDO);
+        if (segredo != null) {
+            servidor.usarSegredoNos(Integer.parseInt(segredo));
+        }
+        servidor.iniciar();
+
+        // Métricas por JMX e, a cada minuto, no console.
+        Metricas metricas = cx.getBancoCentral().getMetricas();
+        try {
+            metricas.registrarJmx("JavaBank");
+        } catch (JMException e) {
+            System.err.println("\n[AVISO]\nFalha ao registrar as métricas no JMX.\nMotivo: " + e.getMessage());
+        }
+        metricas.relatarPeriodicamente(System.out, 1, TimeUnit.MINUTES);
+        System.out.println("Servidor de transações na porta " + servidor.getPorta() + ". Pressione Enter para encerrar.");
+
+        int lido;
+        do {
+            lido = System.in.read();
+        } while (lido != '\n' && lido != -1);
+
+        servidor.close();
+        cx.encerrar();
+        System.out.print(metricas.relatorio());
+    }
+}
@@ -0,0 +1,143 @@
+package br.com.daluz.javabank;
+
+import java.util.Arrays;
+
+/**
+ * Partição dos bancos e contas entre os nós de um Banco Central particionado.
+ * <p>
+ * Cada faixa diz qual nó guarda um banco inteiro ou uma faixa de números de
+ * conta de um banco. A descrição é um texto com as faixas separadas por
+ * vírgula, no formato {@code banco=nó} ou {@code banco:inicio-fim=nó} (fim
+ * inclusive), por exemplo {@code 11=0,12:12000-12199=0,12:12200-12999=1,13=1}.
+ * <p>
+ * O mapa é imutável e as faixas ficam ordenadas num vetor, então a busca do
+ * nó de uma conta é uma busca binária, sem trava e sem objeto novo.
+ */
+public final class MapaShards {
+    private final String descricao;
+    // Início e fim de cada faixa, como chave de banco e conta (ver chave()), e o nó dela.
+    private final long[] inicios;
+    private final long[] fins;
+    private final int[] nos;
+    private final int quantidadeNos;
+
+    private MapaShards(String descricao, long[] inicios, long[] fins, int[] nos) {
+        this.descricao = descricao;
+        this.inicios = inicios;
+        this.fins = fins;
+        this.nos = nos;
+        this.quantidadeNos = Arrays.stream(nos).max().orElse(-1) + 1;
+    }
+
+    /**
+     * Lê a descrição de um mapa.
+     *
+     * @param descricao Faixas separadas por vírgula, no formato {@code banco=nó} ou {@code banco:inicio-fim=nó}.
+     * @return Retorna o mapa.
+     * @throws UnsupportedOperationException Lançada se a descrição for inválida ou as faixas se sobrepuserem.
+     */
+    public static MapaShards ler(String descricao) throws UnsupportedOperationException {
+        String[] faixas = descricao.split(",");
+        long[][] lidas = new long[faixas.length][];
+        try {
+            for (int i = 0; i < faixas.length; i++) {
+                String faixa = faixas[i].trim();
+                int igual = faixa.indexOf('=');
+                int doisPontos = faixa.indexOf(':');
+                if (igual < 0) {
+                    throw new NumberFormatException();
+                }
+                int no = Integer.parseInt(faixa.substring(igual + 1).trim());
+                int banco;
+                int inicio = Integer.MIN_VALUE;
+                int fim = Integer.MAX_VALUE;
+                if (doisPontos < 0) {
+                    banco = Integer.parseInt(faixa.substring(0, igual).trim());
+                } else {
+                    banco = Integer.parseInt(faixa.substring(0, doisPontos).trim());
+                    String[] contas = faixa.substring(doisPontos + 1, igual).split("-");
+                    inicio = Integer.parseInt(contas[0].trim());
+                    fim = Integer.parseInt(contas[1].trim());
+                }
+                if (no < 0 || inicio > fim) {
+                    throw new NumberFormatException();
+                }
+                lidas[i] = new long[]{chave(banco, inicio), chave(banco, fim), no};
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: Mapa de nós \"" + descricao + "\" inválido.");
+        }
+
+        Arrays.sort(lidas, (a, b) -> Long.compare(a[0], b[0]));
+        long[] inicios = new long[lidas.length];
+        long[] fins = new long[lidas.length];
+        int[] nos = new int[lidas.length];
+        for (int i = 0; i < lidas.length; i++) {
+            if (i > 0 && lidas[i][0] <= fins[i - 1]) {
+                throw new UnsupportedOperationException(
+                        "[AVISO]\nOperação não realizada!\nMotivo: Faixas sobrepostas no mapa de nós \""
+                                + descricao + "\".");
+            }
+            inicios[i] = lidas[i][0];
+            fins[i] = lidas[i][1];
+            nos[i] = (int) lidas[i][2];
+        }
+        return new MapaShards(descricao, inicios, fins, nos);
+    }
+
+    /**
+     * Nó que guarda uma conta.
+     *
+     * @param banco Número do banco.
+     * @param conta Número da conta.
+     * @return Retorna o índice do nó, ou -1 se nenhuma faixa contém a conta.
+     */
+    public int getNo(int banco, int conta) {
+        long chave = chave(banco, conta);
+        int i = Arrays.binarySearch(inicios, chave);
+        if (i < 0) {
+            // Última faixa que começa antes da chave.
+            i = -i - 2;
+        }
+        return (i >= 0 && chave <= fins[i]) ? nos[i] : -1;
+    }
+
+    /**
+     * Verifica se alguma faixa do mapa é do banco.
+     *
+     * @param banco Número do banco.
+     * @return Retorna true se o banco está no mapa, false caso contrário.
+     */
+    public boolean contemBanco(int banco) {
+        int i = Arrays.binarySearch(inicios, chave(banco, Integer.MAX_VALUE));
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i >= 0 && (int) (inicios[i] >> 32) == banco;
+    }
+
+    /**
+     * Quantidade de nós do mapa (o maior índice de nó mais um).
+     *
+     * @return Retorna a quantidade de nós.
+     */
+    public int getQuantidadeNos() {
+        return quantidadeNos;
+    }
+
+    /**
+     * Descrição do mapa, no mesmo formato aceito por {@link #ler(String)}.
+     */
+    @Override
+    public String toString() {
+        return descricao;
+    }
+
+    /**
+     * Banco e conta num long que mantém a ordem dos dois, com a conta como número com sinal.
+     */
+    private static long chave(int banco, int conta) {
+        return ((long) banco << 32) | ((conta ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+}
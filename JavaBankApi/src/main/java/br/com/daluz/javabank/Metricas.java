@@ -0,0 +1,359 @@
+package br.com.daluz.javabank;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas das operações de um Banco Central e dos seus bancos.
+ * <p>
+ * Para cada operação são contados todos os resultados (realizadas e
+ * recusadas, por motivo). A latência vai para um {@link HistogramaLatencia},
+ * medida numa amostra das chamadas: ler o relógio duas vezes custa quase
+ * tanto quanto uma operação em memória. Lotes, criação de banco e liquidação
+ * são sempre medidos. As buscas de conta e de banco são só contadas. Os
+ * contadores não usam travas, e a soma só é feita na leitura, então as
+ * métricas podem ficar sempre ligadas.
+ * <p>
+ * Os números podem ser lidos pelos getters, por JMX ({@link #registrarJmx})
+ * ou num relatório de texto, avulso ou periódico.
+ */
+public final class Metricas {
+    public static final int CRIAR_CONTA = 0;
+    public static final int SAQUE = 1;
+    public static final int DEPOSITO = 2;
+    public static final int DEPOSITO_INTERBANCARIO = 3;
+    public static final int TRANSFERENCIA_INTERNA = 4;
+    public static final int TRANSFERENCIA_EXTERNA = 5;
+    public static final int LOTE = 6;
+    public static final int CRIAR_BANCO = 7;
+    public static final int TRANSFERENCIA_ENTRE_BANCOS = 8;
+    public static final int LOTE_ENTRE_BANCOS = 9;
+    public static final int AGENDAMENTO = 10;
+    public static final int LIQUIDACAO = 11;
+    public static final int BUSCA_CONTA = 12;
+    public static final int BUSCA_BANCO = 13;
+    public static final int FECHAMENTO_MENSAL = 14;
+    public static final int EXPORTACAO_EXTRATOS = 15;
+
+    static final String[] OPERACOES = {
+            "CriarConta", "Saque", "Deposito", "DepositoInterbancario",
+            "TransferenciaInterna", "TransferenciaExterna", "Lote",
+            "CriarBanco", "TransferenciaEntreBancos", "LoteEntreBancos",
+            "Agendamento", "Liquidacao", "BuscaConta", "BuscaBanco",
+            "FechamentoMensal", "ExportacaoExtratos",
+    };
+
+    /**
+     * Nome de cada código de {@link Resultado}, na ordem dos códigos.
+     */
+    static final String[] RESULTADOS = {
+            "Realizadas", "ContaNaoEncontrada", "ValorInvalido", "SaldoInsuficiente",
+            "ValorForaDoLimite", "BancoNaoEncontrado", "BancoOrigemIgualDestino",
+            "ContaDestinoNaoExiste", "ContaOrigemIgualDestino", "BancoOrigemNaoExiste",
+            "ContaOrigemNaoExiste", "SenhaIncorreta", "EntradaIncorreta",
+            "ChaveJaUsada", "OperacaoEmAndamento", "AcessoBloqueado", "ChaveObrigatoria",
+    };
+
+    /**
+     * Uma em cada quantas chamadas tem a latência medida, por padrão.
+     */
+    public static final int AMOSTRAGEM_PADRAO = 8;
+
+    /**
+     * Valor de {@link #inicio()} para uma chamada que não é medida.
+     */
+    private static final long NAO_MEDIDA = Long.MIN_VALUE;
+
+    /**
+     * Métricas de quem não está ligado a um Banco Central. Não conta nada.
+     */
+    static final Metricas DESATIVADAS = new Metricas(false, 1);
+
+    private final boolean ativas;
+    private final int mascaraAmostragem;
+    private final long criacao = System.nanoTime();
+    private final LongAdder[][] resultados = new LongAdder[OPERACOES.length][RESULTADOS.length];
+    private final HistogramaLatencia[] latencias = new HistogramaLatencia[OPERACOES.length];
+    private ScheduledExecutorService agendador;
+
+    /**
+     * Construtor da classe Metricas, com a amostragem padrão.
+     */
+    public Metricas() {
+        this(true, AMOSTRAGEM_PADRAO);
+    }
+
+    /**
+     * Construtor da classe Metricas.
+     *
+     * @param amostragem Uma em cada quantas chamadas tem a latência medida (1 mede todas).
+     *                   É arredondada para uma potência de 2.
+     */
+    public Metricas(int amostragem) {
+        this(true, amostragem);
+    }
+
+    private Metricas(boolean ativas, int amostragem) {
+        this.ativas = ativas;
+        this.mascaraAmostragem = Integer.highestOneBit(Math.max(1, amostragem) * 2 - 1) - 1;
+        for (int operacao = 0; operacao < OPERACOES.length; operacao++) {
+            for (int resultado = 0; resultado < RESULTADOS.length; resultado++) {
+                resultados[operacao][resultado] = new LongAdder();
+            }
+            if (operacao != BUSCA_CONTA && operacao != BUSCA_BANCO) {
+                latencias[operacao] = new HistogramaLatencia();
+            }
+        }
+    }
+
+    /**
+     * Instante de início de uma operação, se esta chamada foi sorteada para ser medida.
+     *
+     * @return Retorna o instante, em nanossegundos, ou um valor que indica que a chamada não é medida.
+     */
+    long inicio() {
+        if (!ativas || (ThreadLocalRandom.current().nextInt() & mascaraAmostragem) != 0) {
+            return NAO_MEDIDA;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Instante de início de uma operação que é sempre medida (lotes, liquidação, ...).
+     *
+     * @return Retorna o instante, em nanossegundos.
+     */
+    long inicioSemAmostragem() {
+        return ativas ? System.nanoTime() : NAO_MEDIDA;
+    }
+
+    /**
+     * Conta o resultado e, se a chamada foi medida, a latência de uma operação.
+     *
+     * @param operacao  Operação (SAQUE, DEPOSITO, ...).
+     * @param resultado Código de {@link Resultado} da operação.
+     * @param inicio    Valor de {@link #inicio()} obtido antes da operação.
+     */
+    void registrar(int operacao, int resultado, long inicio) {
+        if (ativas) {
+            resultados[operacao][resultado].increment();
+            if (inicio != NAO_MEDIDA) {
+                latencias[operacao].registrar(System.nanoTime() - inicio);
+            }
+        }
+    }
+
+    /**
+     * Conta a latência de um lote e o resultado de cada item.
+     *
+     * @param operacao   Operação (LOTE ou LOTE_ENTRE_BANCOS).
+     * @param resultados Códigos de {@link Resultado} dos itens.
+     * @param inicio     Valor de {@link #inicioSemAmostragem()} obtido antes do lote.
+     */
+    void registrarLote(int operacao, int[] resultados, long inicio) {
+        if (ativas) {
+            latencias[operacao].registrar(System.nanoTime() - inicio);
+            for (int resultado : resultados) {
+                this.resultados[operacao][resultado].increment();
+            }
+        }
+    }
+
+    /**
+     * Conta o resultado de uma operação sem medir a latência.
+     *
+     * @param operacao  Operação (BUSCA_CONTA ou BUSCA_BANCO).
+     * @param resultado Código de {@link Resultado} da operação.
+     */
+    void contar(int operacao, int resultado) {
+        if (ativas) {
+            resultados[operacao][resultado].increment();
+        }
+    }
+
+    /**
+     * Informa se a latência da operação é medida (as buscas são só contadas).
+     */
+    boolean medeLatencia(int operacao) {
+        return latencias[operacao] != null;
+    }
+
+    /**
+     * Quantidade de vezes que a operação terminou com o resultado informado.
+     * Nos lotes, cada item é contado.
+     *
+     * @param operacao  Operação (SAQUE, DEPOSITO, ...).
+     * @param resultado Código de {@link Resultado}.
+     * @return Retorna a quantidade.
+     */
+    public long getQuantidade(int operacao, int resultado) {
+        return resultados[operacao][resultado].sum();
+    }
+
+    /**
+     * Quantidade de vezes que a operação foi executada, com qualquer resultado.
+     *
+     * @param operacao Operação (SAQUE, DEPOSITO, ...).
+     * @return Retorna a quantidade.
+     */
+    public long getQuantidade(int operacao) {
+        long total = 0;
+        for (LongAdder contador : resultados[operacao]) {
+            total += contador.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Quantidade de recusas da operação, somando todos os motivos.
+     *
+     * @param operacao Operação (SAQUE, DEPOSITO, ...).
+     * @return Retorna a quantidade.
+     */
+    public long getRecusas(int operacao) {
+        return getQuantidade(operacao) - getQuantidade(operacao, Resultado.OK);
+    }
+
+    /**
+     * Latência da operação no percentil informado.
+     *
+     * @param operacao Operação (SAQUE, DEPOSITO, ...).
+     * @param fracao   Fração entre 0 e 1 (0.99 para o percentil 99).
+     * @return Retorna a latência, em microssegundos, ou 0 se a operação não é medida.
+     */
+    public double getPercentilMicros(int operacao, double fracao) {
+        HistogramaLatencia histograma = latencias[operacao];
+        return histograma == null ? 0 : histograma.percentil(histograma.contagens(), fracao) / 1e3;
+    }
+
+    /**
+     * Latência média da operação.
+     *
+     * @param operacao Operação (SAQUE, DEPOSITO, ...).
+     * @return Retorna a latência, em microssegundos, ou 0 se a operação não é medida.
+     */
+    public double getMediaMicros(int operacao) {
+        HistogramaLatencia histograma = latencias[operacao];
+        if (histograma == null) {
+            return 0;
+        }
+        long medidas = 0;
+        for (long contagem : histograma.contagens()) {
+            medidas += contagem;
+        }
+        return medidas == 0 ? 0 : histograma.getSoma() / 1e3 / medidas;
+    }
+
+    /**
+     * Maior latência da operação.
+     *
+     * @param operacao Operação (SAQUE, DEPOSITO, ...).
+     * @return Retorna a latência, em microssegundos, ou 0 se a operação não é medida.
+     */
+    public double getMaximoMicros(int operacao) {
+        HistogramaLatencia histograma = latencias[operacao];
+        return histograma == null ? 0 : histograma.getMaximo() / 1e3;
+    }
+
+    /**
+     * Monta o relatório de texto com todas as operações já executadas.
+     * A vazão é a média desde a criação das métricas.
+     *
+     * @return Retorna o texto do relatório.
+     */
+    public String relatorio() {
+        return relatorio(new long[OPERACOES.length], (System.nanoTime() - criacao) / 1e9);
+    }
+
+    /**
+     * Monta o relatório de texto.
+     *
+     * @param anteriores Quantidade de cada operação no relatório anterior; é atualizada.
+     * @param segundos   Tempo desde o relatório anterior, para o cálculo da vazão.
+     */
+    private String relatorio(long[] anteriores, double segundos) {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format("%-25s %10s %9s %10s %9s %9s %9s %9s %9s%n",
+                "Operação", "qtd", "recusas", "op/s", "média us", "p50 us", "p99 us", "p99.9 us", "máx us"));
+
+        for (int operacao = 0; operacao < OPERACOES.length; operacao++) {
+            long quantidade = getQuantidade(operacao);
+            if (quantidade == 0) {
+                continue;
+            }
+            double vazao = (quantidade - anteriores[operacao]) / Math.max(segundos, 1e-9);
+            anteriores[operacao] = quantidade;
+
+            HistogramaLatencia histograma = latencias[operacao];
+            texto.append(String.format("%-25s %10d %9d %10.0f", OPERACOES[operacao], quantidade,
+                    getRecusas(operacao), vazao));
+            if (histograma != null) {
+                long[] contagens = histograma.contagens();
+                texto.append(String.format(" %9.1f %9.1f %9.1f %9.1f %9.1f", getMediaMicros(operacao),
+                        histograma.percentil(contagens, 0.5) / 1e3,
+                        histograma.percentil(contagens, 0.99) / 1e3,
+                        histograma.percentil(contagens, 0.999) / 1e3,
+                        histograma.getMaximo() / 1e3));
+            }
+            texto.append(System.lineSeparator());
+
+            // Recusas por motivo, logo abaixo da operação.
+            for (int resultado = 1; resultado < RESULTADOS.length; resultado++) {
+                long recusas = getQuantidade(operacao, resultado);
+                if (recusas > 0) {
+                    texto.append(String.format("    %-21s %10d%n", RESULTADOS[resultado], recusas));
+                }
+            }
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Imprime o relatório periodicamente, numa thread separada.
+     * A vazão de cada relatório é a do intervalo desde o anterior.
+     *
+     * @param saida     Onde o relatório é impresso.
+     * @param intervalo Intervalo entre os relatórios.
+     * @param unidade   Unidade do intervalo.
+     * @return Retorna a tarefa agendada; cancelá-la interrompe os relatórios.
+     */
+    public synchronized ScheduledFuture<?> relatarPeriodicamente(PrintStream saida, long intervalo, TimeUnit unidade) {
+        if (agendador == null) {
+            agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "metricas");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        long[] anteriores = new long[OPERACOES.length];
+        double segundos = unidade.toNanos(intervalo) / 1e9;
+        return agendador.scheduleAtFixedRate(
+                () -> saida.print(relatorio(anteriores, segundos)), intervalo, intervalo, unidade);
+    }
+
+    /**
+     * Registra as métricas no servidor de MBeans da plataforma, com um MBean
+     * por operação: {@code br.com.daluz.javabank:type=Metricas,name=<nome>,operacao=<operação>}.
+     *
+     * @param nome Nome que identifica este Banco Central.
+     * @throws JMException Lança exceção se os MBeans não puderem ser registrados.
+     */
+    public void registrarJmx(String nome) throws JMException {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (int operacao = 0; operacao < OPERACOES.length; operacao++) {
+            servidor.registerMBean(new MetricasJmx(this, operacao), new ObjectName(
+                    "br.com.daluz.javabank:type=Metricas,name=" + ObjectName.quote(nome)
+                            + ",operacao=" + OPERACOES[operacao]));
+        }
+    }
+}
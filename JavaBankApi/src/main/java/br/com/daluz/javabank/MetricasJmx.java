@@ -0,0 +1,109 @@
+package br.com.daluz.javabank;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MBean com as métricas de uma operação: quantidade, recusas por motivo e,
+ * se a operação é medida, os percentis de latência em microssegundos.
+ * Somente leitura.
+ */
+final class MetricasJmx implements DynamicMBean {
+    private static final String[] LATENCIAS = {
+            "MediaMicros", "P50Micros", "P90Micros", "P99Micros", "P999Micros", "MaximoMicros"
+    };
+    private static final double[] FRACOES = {0, 0.5, 0.9, 0.99, 0.999, 0};
+
+    private final Metricas metricas;
+    private final int operacao;
+    private final MBeanInfo info;
+
+    MetricasJmx(Metricas metricas, int operacao) {
+        this.metricas = metricas;
+        this.operacao = operacao;
+
+        List<MBeanAttributeInfo> atributos = new ArrayList<>();
+        atributos.add(atributo("Quantidade", "long", "Execuções da operação (nos lotes, itens)."));
+        atributos.add(atributo("Recusas", "long", "Recusas, somando todos os motivos."));
+        for (String resultado : Metricas.RESULTADOS) {
+            atributos.add(atributo(resultado, "long", "Resultados " + resultado + "."));
+        }
+        if (metricas.medeLatencia(operacao)) {
+            for (String latencia : LATENCIAS) {
+                atributos.add(atributo(latencia, "double", "Latência, em microssegundos."));
+            }
+        }
+        this.info = new MBeanInfo(getClass().getName(), "Métricas da operação " + Metricas.OPERACOES[operacao] + ".",
+                atributos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    private static MBeanAttributeInfo atributo(String nome, String tipo, String descricao) {
+        return new MBeanAttributeInfo(nome, tipo, descricao, true, false, false);
+    }
+
+    @Override
+    public Object getAttribute(String nome) throws AttributeNotFoundException {
+        if (nome.equals("Quantidade")) {
+            return metricas.getQuantidade(operacao);
+        }
+        if (nome.equals("Recusas")) {
+            return metricas.getRecusas(operacao);
+        }
+        for (int resultado = 0; resultado < Metricas.RESULTADOS.length; resultado++) {
+            if (nome.equals(Metricas.RESULTADOS[resultado])) {
+                return metricas.getQuantidade(operacao, resultado);
+            }
+        }
+        for (int i = 0; i < LATENCIAS.length; i++) {
+            if (nome.equals(LATENCIAS[i])) {
+                if (i == 0) {
+                    return metricas.getMediaMicros(operacao);
+                }
+                if (i == LATENCIAS.length - 1) {
+                    return metricas.getMaximoMicros(operacao);
+                }
+                return metricas.getPercentilMicros(operacao, FRACOES[i]);
+            }
+        }
+        throw new AttributeNotFoundException(nome);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] nomes) {
+        AttributeList lista = new AttributeList();
+        for (String nome : nomes) {
+            try {
+                lista.add(new Attribute(nome, getAttribute(nome)));
+            } catch (AttributeNotFoundException ignored) {
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public void setAttribute(Attribute atributo) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(atributo.getName() + " é somente leitura.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList atributos) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String acao, Object[] parametros, String[] assinatura) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(acao));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
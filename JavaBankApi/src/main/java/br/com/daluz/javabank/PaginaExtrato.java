@@ -0,0 +1,63 @@
+package br.com.daluz.javabank;
+
+/**
+ * Uma página de operações do extrato, devolvida por
+ * {@link Conta#consultarExtrato(long, long, long, int)}.
+ * <p>
+ * O cursor é a posição da operação no histórico da conta (0 é a primeira
+ * operação). Para ler a página seguinte, repete-se a consulta com o mesmo
+ * período e {@link #getProximoCursor()}.
+ */
+public final class PaginaExtrato {
+    /**
+     * Valor de {@link #getProximoCursor()} quando não há mais operações no período.
+     */
+    public static final long FIM = -1;
+
+    private final String texto;
+    private final int quantidade;
+    private final long proximoCursor;
+
+    PaginaExtrato(String texto, int quantidade, long proximoCursor) {
+        this.texto = texto;
+        this.quantidade = quantidade;
+        this.proximoCursor = proximoCursor;
+    }
+
+    /**
+     * Texto das operações da página, uma por linha, no formato do extrato impresso.
+     *
+     * @return Retorna o texto, vazio se a página não tem operações.
+     */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * Quantidade de operações na página.
+     *
+     * @return Retorna o número de operações.
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * Cursor da próxima página. A próxima página pode vir vazia quando a
+     * página atual terminou exatamente na última operação do período.
+     *
+     * @return Retorna o cursor, ou FIM se o período já foi percorrido.
+     */
+    public long getProximoCursor() {
+        return proximoCursor;
+    }
+
+    /**
+     * Indica se pode haver mais operações no período.
+     *
+     * @return Retorna true se o próximo cursor não é FIM.
+     */
+    public boolean temMais() {
+        return proximoCursor != FIM;
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.daluz.javabank;
+
+/**
+ * Protocolo binário do servidor de transações.
+ * <p>
+ * Todos os números são big-endian. Cada mensagem começa com um int com o
+ * tamanho do restante da mensagem, em bytes.
+ * <pre>
+ * Requisição: [int tamanho][int id][byte operacao][int banco][int conta][int senha][campos da operação]
+ *   SALDO, EXTRATO ............ sem campos
+ *   SAQUE, DEPOSITO ........... [long valor]
+ *   TRANSFERENCIA_INTERNA ..... [int contaDestino][long valor]
+ *   TRANSFERENCIA_EXTERNA ..... [int bancoDestino][int contaDestino][long valor]
+ *   EXTRATO_PERIODO ........... [long de][long ate][long cursor][int limite]
+ *   DEBITO_INTERBANCARIO ...... [int segredo][int bancoDestino][int contaDestino][long valor][texto banco]
+ *                               [texto titular] (operação entre nós, com a senha da conta)
+ *   DADOS_CONTA ............... sem campos (operação entre nós)
+ *   CREDITO_INTERBANCARIO ..... [int bancoOrigem][int contaOrigem][long valor][texto banco][texto titular]
+ *                               (operação entre nós)
+ *   com o bit COM_CHAVE ....... [long chave] antes dos campos da operação
+ *   texto ..................... [byte bytes][UTF-8], até {@link #TAMANHO_MAXIMO_TEXTO} bytes
+ *
+ * Resposta:   [int tamanho][int id][byte codigo]
+ *   se codigo for OK .......... [long saldo]
+ *   e, para o EXTRATO ......... [int bytes][texto UTF-8 das operações]
+ *   ou para o EXTRATO_PERIODO . [long proximoCursor][int bytes][texto UTF-8 das operações]
+ *   ou para o DADOS_CONTA ..... [int bytes][nome do banco, quebra de linha e titular, em UTF-8]
+ * </pre>
+ * O EXTRATO_PERIODO devolve uma página das operações com instante (em
+ * milissegundos desde a época Unix) em [de, ate), começando no cursor (0
+ * na primeira página), com no máximo {@link #LIMITE_PAGINA} operações. O
+ * próximo cursor é {@link PaginaExtrato#FIM} quando o período acabou.
+ * O id é escolhido pelo cliente e devolvido na resposta. O código é um dos
+ * códigos de {@link Resultado}, e o saldo é o da conta depois da operação.
+ * Valores são em centavos. Cada requisição traz a senha da conta, como no
+ * caixa eletrônico, que pede a senha a cada operação.
+ * <p>
+ * Uma operação que movimenta saldo pode levar o bit {@link #COM_CHAVE} e uma
+ * chave de idempotência ({@link CacheIdempotencia}). O cliente que não recebeu
+ * a resposta reenvia a requisição com a mesma chave: se a operação já foi
+ * feita, a resposta traz o código da primeira execução e o saldo atual.
+ * <p>
+ * As operações entre nós servem ao Banco Central particionado
+ * ({@link RoteadorShards}): no lugar da senha da conta levam o segredo dos
+ * nós ({@link ServidorTransacoes#usarSegredoNos}) e respondem com saldo zero.
+ * O DEBITO_INTERBANCARIO é a primeira metade de uma transferência para uma
+ * conta de outro nó: debita a conta (com a senha dela) e registra no extrato o
+ * banco e o titular informados; o CREDITO_INTERBANCARIO é a segunda metade.
+ * Como o servidor não tem como conferir a conta destino, que está em outro
+ * nó, o débito também leva o segredo dos nós: só o roteador o envia.
+ */
+public final class Protocolo {
+    public static final byte SALDO = 1;
+    public static final byte EXTRATO = 2;
+    public static final byte SAQUE = 3;
+    public static final byte DEPOSITO = 4;
+    public static final byte TRANSFERENCIA_INTERNA = 5;
+    public static final byte TRANSFERENCIA_EXTERNA = 6;
+    public static final byte EXTRATO_PERIODO = 7;
+    public static final byte DADOS_CONTA = 8;
+    public static final byte DEBITO_INTERBANCARIO = 9;
+    public static final byte CREDITO_INTERBANCARIO = 10;
+
+    /**
+     * Bit da operação que indica que a requisição traz uma chave de idempotência.
+     */
+    public static final byte COM_CHAVE = 0x40;
+
+    /**
+     * Maior quantidade de operações numa página do EXTRATO_PERIODO; limites maiores são reduzidos a ela.
+     */
+    public static final int LIMITE_PAGINA = 1000;
+
+    /**
+     * Maior texto (nome de banco ou titular) numa requisição, em bytes UTF-8; textos maiores são cortados.
+     */
+    public static final int TAMANHO_MAXIMO_TEXTO = 255;
+
+    /**
+     * Tamanho do cabeçalho de uma requisição, sem o campo de tamanho: id, operação, banco, conta e senha.
+     */
+    static final int TAMANHO_CABECALHO = 4 + 1 + 4 + 4 + 4;
+
+    /**
+     * Maior requisição aceita pelo servidor (um débito interbancário com
+     * chave, o segredo dos nós e os dois textos do tamanho máximo).
+     */
+    static final int TAMANHO_MAXIMO_REQUISICAO = TAMANHO_CABECALHO + 8 + 4 + 4 + 4 + 8 + 2 * (1 + TAMANHO_MAXIMO_TEXTO);
+
+    private Protocolo() {
+    }
+}
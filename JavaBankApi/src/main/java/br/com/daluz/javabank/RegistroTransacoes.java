@@ -0,0 +1,764 @@
+package br.com.daluz.javabank;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de transações (write-ahead log) binário e somente de acréscimo.
+ * <p>
+ * Cada alteração do razão (criação de banco e de conta, saque, depósito,
+ * transferências e taxa, as fases da compensação entre bancos e os
+ * lançamentos do fechamento mensal) é gravada
+ * como um registro:
+ * <pre>
+ *   [int tamanho][byte tipo][long instante][campos do tipo...][int crc32]
+ * </pre>
+ * Se a operação foi chamada com uma chave de idempotência
+ * ({@link CacheIdempotencia}), o primeiro registro que ela grava leva a chave:
+ * <pre>
+ *   [int tamanho][byte COM_CHAVE][long instante][long chave][int impressao][byte tipo][campos do tipo...][int crc32]
+ * </pre>
+ * Como chave e operação estão no mesmo registro, com o mesmo crc, uma queda
+ * nunca deixa no arquivo uma sem a outra.
+ * <p>
+ * Os registros são acumulados em memória e uma thread de gravação faz o
+ * "group commit": escreve tudo o que estiver pendente com um único
+ * {@link FileChannel#write} seguido de um único {@link FileChannel#force},
+ * acordando todas as operações que estavam esperando aquele lote.
+ * <p>
+ * Na inicialização, {@link #recuperar} reaplica o arquivo sobre um
+ * BancoCentral vazio, reconstruindo saldos e extratos. Se houver um
+ * snapshot ({@link SnapshotBancoCentral}), só o trecho gravado depois dele
+ * é reaplicado. Um registro incompleto no final do arquivo (queda durante
+ * a gravação) é descartado.
+ */
+public final class RegistroTransacoes implements Closeable {
+    static final byte CRIAR_BANCO = 1;
+    static final byte CRIAR_CONTA = 2;
+    static final byte SAQUE = 3;
+    static final byte DEPOSITO = 4;
+    static final byte DEPOSITO_INTERBANCARIO = 5;
+    static final byte TRANSFERENCIA_INTERNA = 6;
+    static final byte TRANSFERENCIA_EXTERNA = 7;
+    static final byte TRANSFERENCIA_AGENDADA = 8;
+    static final byte CICLO_COMPENSACAO = 9;
+    static final byte CREDITO_COMPENSACAO = 10;
+    static final byte INICIO_FECHAMENTO = 11;
+    static final byte LANCAMENTO_MENSAL = 12;
+    static final byte FIM_FECHAMENTO = 13;
+    static final byte COM_CHAVE = 14;
+    static final byte TRANSFERENCIA_ENTRE_BANCOS = 15;
+    // Substitui CRIAR_CONTA, que gravava a senha aberta e continua sendo lido de arquivos antigos.
+    static final byte CRIAR_CONTA_PROTEGIDA = 16;
+    // Substituem DEPOSITO_INTERBANCARIO e TRANSFERENCIA_EXTERNA, que procuravam a contraparte
+    // no próprio Banco Central e continuam sendo lidos de arquivos antigos. Num nó do Banco
+    // Central particionado a contraparte está em outro nó, então o nome do banco e o titular
+    // vão no registro.
+    static final byte DEPOSITO_INTERBANCARIO_NOMEADO = 17;
+    static final byte TRANSFERENCIA_EXTERNA_NOMEADA = 18;
+
+    /**
+     * Registro que não grava nada. Usado quando o banco roda só em memória.
+     */
+    static final RegistroTransacoes DESATIVADO = new RegistroTransacoes();
+
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 16;
+    private static final long ESPERA_MAXIMA_LOTE_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /**
+     * Chave de idempotência ([0] chave, [1] impressão) da operação que a thread
+     * está executando, ainda não gravada. Vai no próximo registro da thread.
+     */
+    private static final ThreadLocal<long[]> CHAVE_DA_THREAD = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final FileChannel canal;
+    private final int tamanhoLote;
+    private final ReentrantLock trava;
+    private final Condition temPendente;
+    private final Condition gravou;
+    private final CRC32 crc;
+    private final Thread gravador;
+
+    private ByteBuffer pendente;
+    private ByteBuffer gravando;
+    private int inicioRegistro;
+    private int registrosPendentes;
+    private long posicaoPendente;
+    private long posicaoDuravel;
+    private IOException falha;
+    private boolean fechado;
+
+    private RegistroTransacoes() {
+        this.canal = null;
+        this.tamanhoLote = 1;
+        this.trava = null;
+        this.temPendente = null;
+        this.gravou = null;
+        this.crc = null;
+        this.gravador = null;
+    }
+
+    private RegistroTransacoes(FileChannel canal, long posicao, int tamanhoLote) {
+        this.canal = canal;
+        this.tamanhoLote = tamanhoLote;
+        this.trava = new ReentrantLock();
+        this.temPendente = trava.newCondition();
+        this.gravou = trava.newCondition();
+        this.crc = new CRC32();
+        this.pendente = ByteBuffer.allocate(64 * 1024);
+        this.gravando = ByteBuffer.allocate(64 * 1024);
+        this.posicaoPendente = posicao;
+        this.posicaoDuravel = posicao;
+        this.gravador = new Thread(this::gravar, "registro-transacoes");
+        this.gravador.setDaemon(true);
+        this.gravador.start();
+    }
+
+    /**
+     * Reaplica o registro existente sobre o Banco Central (que deve estar vazio)
+     * e abre o arquivo para novas gravações.
+     *
+     * @param arquivo      Arquivo do registro. É criado se não existir.
+     * @param bancoCentral Banco Central a ser reconstruído.
+     * @param tamanhoLote  Quantidade de registros que o gravador tenta juntar num mesmo fsync.
+     * @return Retorna o registro aberto, pronto para ser usado pelo Banco Central.
+     * @throws IOException Lança exceção se o arquivo não puder ser lido ou aberto.
+     */
+    public static RegistroTransacoes recuperar(Path arquivo, BancoCentral bancoCentral, int tamanhoLote)
+            throws IOException {
+        return recuperar(arquivo, null, bancoCentral, tamanhoLote);
+    }
+
+    /**
+     * Carrega o snapshot (se existir), reaplica apenas o trecho do registro
+     * gravado depois dele e abre o arquivo para novas gravações.
+     *
+     * @param arquivo      Arquivo do registro. É criado se não existir.
+     * @param snapshot     Arquivo do snapshot, ou null para reaplicar o registro inteiro.
+     * @param bancoCentral Banco Central a ser reconstruído.
+     * @param tamanhoLote  Quantidade de registros que o gravador tenta juntar num mesmo fsync.
+     * @return Retorna o registro aberto, pronto para ser usado pelo Banco Central.
+     * @throws IOException Lança exceção se algum arquivo não puder ser lido ou aberto.
+     */
+    public static RegistroTransacoes recuperar(Path arquivo, Path snapshot, BancoCentral bancoCentral, int tamanhoLote)
+            throws IOException {
+        long inicio = (snapshot != null && Files.exists(snapshot))
+                ? SnapshotBancoCentral.carregar(snapshot, bancoCentral) : 0;
+        long posicaoValida = Files.exists(arquivo)
+                ? reproduzir(arquivo, inicio, Long.MAX_VALUE, bancoCentral) : inicio;
+        return abrir(arquivo, posicaoValida, tamanhoLote);
+    }
+
+    /**
+     * Abre o arquivo para novas gravações a partir de uma posição,
+     * descartando o que houver depois dela.
+     *
+     * @param arquivo     Arquivo do registro.
+     * @param posicao     Posição (em bytes) do fim do último registro válido.
+     * @param tamanhoLote Quantidade de registros que o gravador tenta juntar num mesmo fsync.
+     * @return Retorna o registro aberto.
+     * @throws IOException Lança exceção se o arquivo não puder ser aberto.
+     */
+    static RegistroTransacoes abrir(Path arquivo, long posicao, int tamanhoLote) throws IOException {
+        FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        canal.truncate(posicao);
+        canal.position(posicao);
+        return new RegistroTransacoes(canal, posicao, Math.max(1, tamanhoLote));
+    }
+
+    /**
+     * Reaplica os registros de um arquivo a partir de uma posição.
+     *
+     * @param arquivo      Arquivo do registro.
+     * @param inicio       Posição (em bytes) do primeiro registro a ser aplicado.
+     * @param fim          Posição (em bytes) onde a reprodução para (Long.MAX_VALUE para ler até o final).
+     * @param bancoCentral Banco Central onde os registros são aplicados.
+     * @return Retorna a posição do fim do último registro válido.
+     * @throws IOException Lança exceção se o arquivo não puder ser lido.
+     */
+    static long reproduzir(Path arquivo, long inicio, long fim, BancoCentral bancoCentral) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            canal.position(inicio);
+            InputStream entrada = new BufferedInputStream(Channels.newInputStream(canal), 64 * 1024);
+            DataInputStream dados = new DataInputStream(entrada);
+            CRC32 crc = new CRC32();
+            byte[] carga = new byte[TAMANHO_MAXIMO_REGISTRO];
+            long posicao = inicio;
+
+            while (posicao < fim) {
+                int tamanho;
+                try {
+                    tamanho = dados.readInt();
+                    if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_REGISTRO) {
+                        return posicao;
+                    }
+                    dados.readFully(carga, 0, tamanho);
+                    crc.reset();
+                    crc.update(carga, 0, tamanho);
+                    if ((int) crc.getValue() != dados.readInt()) {
+                        return posicao;
+                    }
+                } catch (EOFException e) {
+                    // Registro incompleto no final do arquivo.
+                    return posicao;
+                }
+                aplicar(ByteBuffer.wrap(carga, 0, tamanho), bancoCentral);
+                posicao += 4 + tamanho + 4;
+            }
+            return posicao;
+        }
+    }
+
+    private static void aplicar(ByteBuffer r, BancoCentral bancoCentral) {
+        byte tipo = r.get();
+        long instante = r.getLong();
+        long chave = CacheIdempotencia.SEM_CHAVE;
+        int impressao = 0;
+        if (tipo == COM_CHAVE) {
+            chave = r.getLong();
+            impressao = r.getInt();
+            tipo = r.get();
+        }
+
+        switch (tipo) {
+            case CRIAR_BANCO -> {
+                int bancoNumero = r.getInt();
+                bancoCentral.criarBanco(new Banco(bancoNumero, lerTexto(r)));
+            }
+            case CRIAR_CONTA, CRIAR_CONTA_PROTEGIDA -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                int contaNumero = r.getInt();
+                int contaTipo = r.get();
+                int senha = (tipo == CRIAR_CONTA) ? SenhaProtegida.proteger(r.getInt()) : r.getInt();
+                long saldo = r.getLong();
+                String titular = lerTexto(r);
+                banco.criarConta(ContasMapeadas.criarConta(banco, contaNumero, contaTipo, titular, saldo, senha));
+            }
+            case SAQUE -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                banco.fazerSaque(banco.getContaPorNumero(r.getInt()), r.getLong(), instante);
+            }
+            case DEPOSITO -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = banco.getContaPorNumero(r.getInt());
+                Conta contaOrig = bancoCentral.getBancoPorNumero(r.getInt()).getContaPorNumero(r.getInt());
+                banco.fazerDeposito(contaOrig, contaDest, r.getLong(), instante);
+            }
+            case DEPOSITO_INTERBANCARIO -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = banco.getContaPorNumero(r.getInt());
+                Banco bancoOrig = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = bancoOrig.getContaPorNumero(r.getInt());
+                banco.fazerDepositoInterbancario(bancoOrig.getBancoNumero(), bancoOrig.getBancoNome(),
+                        contaOrig.getContaNumero(), contaOrig.getTitular(), contaDest, r.getLong(), instante);
+            }
+            case DEPOSITO_INTERBANCARIO_NOMEADO -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = banco.getContaPorNumero(r.getInt());
+                int bancoNumeroOrig = r.getInt();
+                int contaNumeroOrig = r.getInt();
+                long valor = r.getLong();
+                String bancoNomeOrig = lerTexto(r);
+                String titularOrig = lerTexto(r);
+                banco.fazerDepositoInterbancario(bancoNumeroOrig, bancoNomeOrig, contaNumeroOrig, titularOrig,
+                        contaDest, valor, instante);
+            }
+            case TRANSFERENCIA_INTERNA -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = banco.getContaPorNumero(r.getInt());
+                Conta contaDest = banco.getContaPorNumero(r.getInt());
+                banco.fazerTransferenciaInterna(contaOrig, contaDest, r.getLong(), instante);
+            }
+            case TRANSFERENCIA_EXTERNA -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = banco.getContaPorNumero(r.getInt());
+                Banco bancoDest = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = bancoDest.getContaPorNumero(r.getInt());
+                long valor = r.getLong();
+                long taxa = r.getLong();
+                banco.fazerTransferenciaExterna(contaOrig, bancoDest.getBancoNumero(), bancoDest.getBancoNome(),
+                        contaDest.getContaNumero(), contaDest.getTitular(), valor, taxa, instante);
+            }
+            case TRANSFERENCIA_EXTERNA_NOMEADA -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = banco.getContaPorNumero(r.getInt());
+                int bancoNumeroDest = r.getInt();
+                int contaNumeroDest = r.getInt();
+                long valor = r.getLong();
+                long taxa = r.getLong();
+                String bancoNomeDest = lerTexto(r);
+                String titularDest = lerTexto(r);
+                banco.fazerTransferenciaExterna(contaOrig, bancoNumeroDest, bancoNomeDest,
+                        contaNumeroDest, titularDest, valor, taxa, instante);
+            }
+            case TRANSFERENCIA_ENTRE_BANCOS -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = banco.getContaPorNumero(r.getInt());
+                Banco bancoDest = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = bancoDest.getContaPorNumero(r.getInt());
+                long valor = r.getLong();
+                long taxa = r.getLong();
+                banco.fazerTransferenciaEntreBancos(contaOrig, bancoDest, contaDest, valor, taxa, instante);
+            }
+            case TRANSFERENCIA_AGENDADA -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaOrig = banco.getContaPorNumero(r.getInt());
+                Banco bancoDest = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta contaDest = bancoDest.getContaPorNumero(r.getInt());
+                long valor = r.getLong();
+                long taxa = r.getLong();
+                Resultado.verificar(bancoCentral.agendarTransferenciaEntreBancos(
+                        banco, contaOrig, contaDest, valor, taxa, instante));
+            }
+            case CICLO_COMPENSACAO -> bancoCentral.getCompensacao().reproduzirCiclo(r.getInt());
+            case CREDITO_COMPENSACAO -> {
+                int item = r.getInt();
+                boolean devolucao = r.get() != 0;
+                bancoCentral.getCompensacao().reproduzirCredito(bancoCentral, item, devolucao, instante);
+            }
+            case INICIO_FECHAMENTO -> bancoCentral.getFechamento().reproduzirInicio(r.getInt());
+            case LANCAMENTO_MENSAL -> {
+                Banco banco = bancoCentral.getBancoPorNumero(r.getInt());
+                Conta conta = banco.getContaPorNumero(r.getInt());
+                int competencia = r.getInt();
+                bancoCentral.getFechamento().reproduzirLancamento(banco, conta, competencia, r.getLong(), instante);
+            }
+            case FIM_FECHAMENTO -> bancoCentral.getFechamento().reproduzirFim(r.getInt());
+            default -> throw new IllegalStateException("Tipo de registro desconhecido: " + tipo);
+        }
+        if (chave != CacheIdempotencia.SEM_CHAVE) {
+            bancoCentral.getIdempotencia().reproduzir(chave, impressao, instante);
+        }
+    }
+
+    /**
+     * Faz o próximo registro gravado pela thread levar a chave de idempotência.
+     * Chamado pelo cache de idempotência antes de executar a operação.
+     */
+    static void marcarChave(long chave, int impressao) {
+        long[] pendente = CHAVE_DA_THREAD.get();
+        pendente[0] = chave;
+        pendente[1] = impressao;
+    }
+
+    /**
+     * Descarta a chave de idempotência da thread, se a operação não gravou nenhum registro.
+     */
+    static void limparChave() {
+        CHAVE_DA_THREAD.get()[0] = CacheIdempotencia.SEM_CHAVE;
+    }
+
+    /**
+     * Chave de idempotência marcada na thread e ainda não gravada, para que a
+     * operação seja gravada por outra thread ({@link SequenciadorBanco}).
+     *
+     * @return Retorna a chave, ou {@link CacheIdempotencia#SEM_CHAVE}.
+     */
+    static long getChaveMarcada() {
+        return CHAVE_DA_THREAD.get()[0];
+    }
+
+    /**
+     * Impressão da chave de idempotência marcada na thread.
+     *
+     * @return Retorna a impressão.
+     */
+    static int getImpressaoMarcada() {
+        return (int) CHAVE_DA_THREAD.get()[1];
+    }
+
+    /**
+     * Indica se este registro grava em arquivo.
+     *
+     * @return Retorna false para o registro desativado.
+     */
+    boolean ativo() {
+        return canal != null;
+    }
+
+    long registrarCriarBanco(long instante, int bancoNumero, String bancoNome) {
+        if (canal == null) return 0;
+        byte[] nome = bancoNome.getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(CRIAR_BANCO, instante, 4 + 2 + nome.length);
+            b.putInt(bancoNumero);
+            b.putShort((short) nome.length).put(nome);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarCriarConta(long instante, Conta conta) {
+        if (canal == null) return 0;
+        byte[] titular = conta.getTitular().getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(CRIAR_CONTA_PROTEGIDA, instante, 4 + 4 + 1 + 4 + 8 + 2 + titular.length);
+            b.putInt(conta.getBancoNumero()).putInt(conta.getContaNumero());
+            b.put((byte) conta.getContaTipo()).putInt(conta.getSenhaProtegida()).putLong(conta.getSaldo());
+            b.putShort((short) titular.length).put(titular);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarSaque(long instante, int bancoNumero, int contaNumero, long valor) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(SAQUE, instante, 4 + 4 + 8);
+            b.putInt(bancoNumero).putInt(contaNumero).putLong(valor);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarMovimento(byte tipo, long instante, int bancoNumero, int contaNumero,
+                            int bancoNumeroContraparte, int contaNumeroContraparte, long valor) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(tipo, instante, 4 + 4 + 4 + 4 + 8);
+            b.putInt(bancoNumero).putInt(contaNumero);
+            b.putInt(bancoNumeroContraparte).putInt(contaNumeroContraparte);
+            b.putLong(valor);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarTransferenciaInterna(long instante, int bancoNumero, int contaNumeroOrig,
+                                       int contaNumeroDest, long valor) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(TRANSFERENCIA_INTERNA, instante, 4 + 4 + 4 + 8);
+            b.putInt(bancoNumero).putInt(contaNumeroOrig).putInt(contaNumeroDest).putLong(valor);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava o crédito de um depósito interbancário com o nome do banco e o
+     * titular de quem depositou, que podem estar em outro nó.
+     */
+    long registrarDepositoInterbancario(long instante, int bancoNumero, int contaNumero, int bancoNumeroOrig,
+                                        String bancoNomeOrig, int contaNumeroOrig, String titularOrig, long valor) {
+        if (canal == null) return 0;
+        byte[] nome = bancoNomeOrig.getBytes(StandardCharsets.UTF_8);
+        byte[] titular = titularOrig.getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(DEPOSITO_INTERBANCARIO_NOMEADO, instante,
+                    4 + 4 + 4 + 4 + 8 + 2 + nome.length + 2 + titular.length);
+            b.putInt(bancoNumero).putInt(contaNumero);
+            b.putInt(bancoNumeroOrig).putInt(contaNumeroOrig);
+            b.putLong(valor);
+            b.putShort((short) nome.length).put(nome);
+            b.putShort((short) titular.length).put(titular);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava o débito de uma transferência externa com o nome do banco e o
+     * titular do beneficiário, que podem estar em outro nó.
+     */
+    long registrarTransferenciaExterna(long instante, int bancoNumero, int contaNumero, int bancoNumeroDest,
+                                       String bancoNomeDest, int contaNumeroDest, String titularDest,
+                                       long valor, long taxa) {
+        if (canal == null) return 0;
+        byte[] nome = bancoNomeDest.getBytes(StandardCharsets.UTF_8);
+        byte[] titular = titularDest.getBytes(StandardCharsets.UTF_8);
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(TRANSFERENCIA_EXTERNA_NOMEADA, instante,
+                    4 + 4 + 4 + 4 + 8 + 8 + 2 + nome.length + 2 + titular.length);
+            b.putInt(bancoNumero).putInt(contaNumero);
+            b.putInt(bancoNumeroDest).putInt(contaNumeroDest);
+            b.putLong(valor).putLong(taxa);
+            b.putShort((short) nome.length).put(nome);
+            b.putShort((short) titular.length).put(titular);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava o débito na conta origem e o crédito na conta destino de uma
+     * transferência entre bancos num único registro, que é reaplicado inteiro ou não é.
+     */
+    long registrarTransferenciaEntreBancos(long instante, int bancoNumero, int contaNumero,
+                                           int bancoNumeroDest, int contaNumeroDest, long valor, long taxa) {
+        return registrarEntreBancos(TRANSFERENCIA_ENTRE_BANCOS, instante, bancoNumero, contaNumero,
+                bancoNumeroDest, contaNumeroDest, valor, taxa);
+    }
+
+    long registrarTransferenciaAgendada(long instante, int bancoNumero, int contaNumero,
+                                        int bancoNumeroDest, int contaNumeroDest, long valor, long taxa) {
+        return registrarEntreBancos(TRANSFERENCIA_AGENDADA, instante, bancoNumero, contaNumero,
+                bancoNumeroDest, contaNumeroDest, valor, taxa);
+    }
+
+    private long registrarEntreBancos(byte tipo, long instante, int bancoNumero, int contaNumero,
+                                      int bancoNumeroDest, int contaNumeroDest, long valor, long taxa) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(tipo, instante, 4 + 4 + 4 + 4 + 8 + 8);
+            b.putInt(bancoNumero).putInt(contaNumero);
+            b.putInt(bancoNumeroDest).putInt(contaNumeroDest);
+            b.putLong(valor).putLong(taxa);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarCicloCompensacao(long instante, int quantidade) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(CICLO_COMPENSACAO, instante, 4);
+            b.putInt(quantidade);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarCreditoCompensacao(long instante, int item, boolean devolucao) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(CREDITO_COMPENSACAO, instante, 4 + 1);
+            b.putInt(item).put((byte) (devolucao ? 1 : 0));
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarFechamento(byte tipo, long instante, int competencia) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(tipo, instante, 4);
+            b.putInt(competencia);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    long registrarLancamentoMensal(long instante, int bancoNumero, int contaNumero, int competencia, long valor) {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            ByteBuffer b = iniciar(LANCAMENTO_MENSAL, instante, 4 + 4 + 4 + 8);
+            b.putInt(bancoNumero).putInt(contaNumero).putInt(competencia).putLong(valor);
+            return concluir(b);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Espera até que o registro terminado na posição informada esteja gravado em disco.
+     * Deve ser chamado sem nenhuma conta travada, para não segurar as contas durante o fsync.
+     *
+     * @param posicao Posição retornada pelo método que registrou a operação.
+     * @throws UnsupportedOperationException Lança exceção se a gravação falhou.
+     */
+    void aguardar(long posicao) throws UnsupportedOperationException {
+        if (canal == null) return;
+        trava.lock();
+        try {
+            while (posicaoDuravel < posicao && falha == null && !fechado) {
+                gravou.awaitUninterruptibly();
+            }
+            if (posicaoDuravel < posicao) {
+                throw new UnsupportedOperationException(
+                        "[AVISO]\nOperação não confirmada!\nMotivo: Falha ao gravar o registro de transações.", falha);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Posição (em bytes) até onde o registro está gravado em disco.
+     *
+     * @return Retorna a posição durável.
+     */
+    long getPosicaoDuravel() {
+        if (canal == null) return 0;
+        trava.lock();
+        try {
+            return posicaoDuravel;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha o arquivo.
+     *
+     * @throws IOException Lança exceção se o arquivo não puder ser fechado.
+     */
+    @Override
+    public void close() throws IOException {
+        if (canal == null) return;
+        trava.lock();
+        try {
+            fechado = true;
+            temPendente.signalAll();
+        } finally {
+            trava.unlock();
+        }
+        try {
+            gravador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+
+    private ByteBuffer iniciar(byte tipo, long instante, int tamanhoCampos) {
+        long[] chave = CHAVE_DA_THREAD.get();
+        int tamanho = 1 + 8 + tamanhoCampos;
+        if (chave[0] != CacheIdempotencia.SEM_CHAVE) {
+            tamanho += 8 + 4 + 1;
+        }
+        if (pendente.remaining() < 4 + tamanho + 4) {
+            ByteBuffer maior = ByteBuffer.allocate(Math.max(pendente.capacity() * 2, pendente.position() + 4 + tamanho + 4));
+            pendente.flip();
+            maior.put(pendente);
+            pendente = maior;
+        }
+        inicioRegistro = pendente.position();
+        pendente.putInt(tamanho);
+        if (chave[0] != CacheIdempotencia.SEM_CHAVE) {
+            pendente.put(COM_CHAVE).putLong(instante).putLong(chave[0]).putInt((int) chave[1]).put(tipo);
+            chave[0] = CacheIdempotencia.SEM_CHAVE;
+        } else {
+            pendente.put(tipo).putLong(instante);
+        }
+        return pendente;
+    }
+
+    private long concluir(ByteBuffer b) {
+        int inicioCarga = inicioRegistro + 4;
+        crc.reset();
+        crc.update(b.array(), inicioCarga, b.position() - inicioCarga);
+        b.putInt((int) crc.getValue());
+        posicaoPendente += b.position() - inicioRegistro;
+        registrosPendentes++;
+        // Acorda o gravador no primeiro registro do lote e quando o lote completa.
+        if (registrosPendentes == 1 || registrosPendentes >= tamanhoLote) {
+            temPendente.signal();
+        }
+        return posicaoPendente;
+    }
+
+    private static String lerTexto(ByteBuffer r) {
+        int tamanho = r.getShort() & 0xFFFF;
+        String texto = new String(r.array(), r.arrayOffset() + r.position(), tamanho, StandardCharsets.UTF_8);
+        r.position(r.position() + tamanho);
+        return texto;
+    }
+
+    /**
+     * Laço da thread de gravação (group commit).
+     */
+    private void gravar() {
+        while (true) {
+            long posicaoLote;
+            trava.lock();
+            try {
+                while (registrosPendentes == 0 && !fechado) {
+                    temPendente.awaitUninterruptibly();
+                }
+                // Espera juntar um lote, mas não mais que ESPERA_MAXIMA_LOTE_NANOS.
+                long espera = ESPERA_MAXIMA_LOTE_NANOS;
+                while (registrosPendentes < tamanhoLote && !fechado && espera > 0) {
+                    espera = aguardarPendente(espera);
+                }
+                if (registrosPendentes == 0) {
+                    return;
+                }
+                ByteBuffer troca = gravando;
+                gravando = pendente;
+                pendente = troca;
+                pendente.clear();
+                registrosPendentes = 0;
+                posicaoLote = posicaoPendente;
+            } finally {
+                trava.unlock();
+            }
+
+            IOException erro = null;
+            try {
+                gravando.flip();
+                while (gravando.hasRemaining()) {
+                    canal.write(gravando);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                erro = e;
+            }
+            gravando.clear();
+
+            trava.lock();
+            try {
+                if (erro == null) {
+                    posicaoDuravel = posicaoLote;
+                } else {
+                    falha = erro;
+                    fechado = true;
+                }
+                gravou.signalAll();
+                if (erro != null) {
+                    return;
+                }
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    private long aguardarPendente(long nanos) {
+        try {
+            return temPendente.awaitNanos(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+}
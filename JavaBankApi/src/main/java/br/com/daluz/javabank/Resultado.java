@@ -0,0 +1,81 @@
+package br.com.daluz.javabank;
+
+/**
+ * Códigos de resultado das operações bancárias.
+ * <p>
+ * Usados pelos métodos tentar* e pelas operações em lote, que informam o
+ * resultado com um código em vez de lançar uma exceção a cada recusa. Os códigos
+ * são constantes, então uma recusa não cria objeto, pilha de chamadas nem texto.
+ * Os métodos fazer*, usados pelo caixa eletrônico, continuam lançando a exceção
+ * com o mesmo aviso de sempre.
+ */
+public final class Resultado {
+    public static final int OK = 0;
+    public static final int CONTA_NAO_ENCONTRADA = 1;
+    public static final int VALOR_INVALIDO = 2;
+    public static final int SALDO_INSUFICIENTE = 3;
+    public static final int VALOR_FORA_DO_LIMITE = 4;
+    public static final int BANCO_NAO_ENCONTRADO = 5;
+    public static final int BANCO_ORIGEM_IGUAL_DESTINO = 6;
+    public static final int CONTA_DESTINO_NAO_EXISTE = 7;
+    public static final int CONTA_ORIGEM_IGUAL_DESTINO = 8;
+    public static final int BANCO_ORIGEM_NAO_EXISTE = 9;
+    public static final int CONTA_ORIGEM_NAO_EXISTE = 10;
+    public static final int SENHA_INCORRETA = 11;
+    public static final int ENTRADA_INCORRETA = 12;
+    public static final int CHAVE_JA_USADA = 13;
+    public static final int OPERACAO_EM_ANDAMENTO = 14;
+    public static final int ACESSO_BLOQUEADO = 15;
+    public static final int CHAVE_OBRIGATORIA = 16;
+    public static final int DEVOLUCAO_PENDENTE = 17;
+
+    private static final String[] MOTIVOS = {
+            null,
+            "Conta não encontrada.",
+            "Valor inválido.",
+            "Saldo insuficiente.",
+            "Valor fora do limite permitido.",
+            "Banco não encontrado.",
+            "Banco origem igual ao banco destino.",
+            "Conta destino não existe.",
+            "Conta origem igual a conta destino.",
+            "Banco origem não existe.",
+            "Conta origem não existe.",
+            "Senha incorreta.",
+            "Entrada incorreta.",
+            "Chave de idempotência já usada em outra operação.",
+            "Operação com a mesma chave ainda em andamento.",
+            "Muitas tentativas com senha incorreta. Tente novamente mais tarde.",
+            "Operação exige uma chave de idempotência.",
+            "Transferência recusada e devolução do valor não confirmada. Repita com a mesma chave.",
+    };
+
+    private Resultado() {
+    }
+
+    /**
+     * Texto de aviso para um código de resultado, no mesmo formato das mensagens de exceção.
+     *
+     * @param codigo Código de resultado.
+     * @return Retorna o texto do aviso, ou "Operação realizada." para OK.
+     */
+    public static String mensagem(int codigo) {
+        if (codigo == OK) {
+            return "Operação realizada.";
+        }
+        return "[AVISO]\nOperação não realizada!\nMotivo: " + MOTIVOS[codigo];
+    }
+
+    /**
+     * Lança a exceção de aviso se o código não for OK.
+     * Usado pelos métodos que mantêm a interface com exceção.
+     *
+     * @param codigo Código de resultado.
+     * @throws UnsupportedOperationException Lançada com o aviso do código, se ele não for OK.
+     */
+    static void verificar(int codigo) throws UnsupportedOperationException {
+        if (codigo != OK) {
+            throw new UnsupportedOperationException(mensagem(codigo));
+        }
+    }
+}
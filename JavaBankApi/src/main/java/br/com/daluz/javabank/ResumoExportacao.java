@@ -0,0 +1,114 @@
+package br.com.daluz.javabank;
+
+/**
+ * Resultado de uma exportação de extratos ({@link BancoCentral#exportarExtratos}).
+ */
+public final class ResumoExportacao {
+    private final int formato;
+    private final boolean compactado;
+    private final int arquivos;
+    private final long contas;
+    private final long operacoes;
+    private final long bytes;
+    private final long duracaoNanos;
+
+    ResumoExportacao(int formato, boolean compactado, int arquivos, long contas,
+                     long operacoes, long bytes, long duracaoNanos) {
+        this.formato = formato;
+        this.compactado = compactado;
+        this.arquivos = arquivos;
+        this.contas = contas;
+        this.operacoes = operacoes;
+        this.bytes = bytes;
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    /**
+     * Formato dos arquivos.
+     *
+     * @return Retorna ExportacaoExtratos.CSV ou ExportacaoExtratos.BINARIO.
+     */
+    public int getFormato() {
+        return formato;
+    }
+
+    /**
+     * Indica se os arquivos foram gravados em gzip.
+     *
+     * @return Retorna true se os arquivos estão compactados.
+     */
+    public boolean isCompactado() {
+        return compactado;
+    }
+
+    /**
+     * Quantidade de arquivos gravados, um por faixa de contas de cada banco.
+     *
+     * @return Retorna o número de arquivos.
+     */
+    public int getArquivos() {
+        return arquivos;
+    }
+
+    /**
+     * Quantidade de contas exportadas, com ou sem operações.
+     *
+     * @return Retorna o número de contas.
+     */
+    public long getContas() {
+        return contas;
+    }
+
+    /**
+     * Quantidade de operações exportadas.
+     *
+     * @return Retorna o número de operações.
+     */
+    public long getOperacoes() {
+        return operacoes;
+    }
+
+    /**
+     * Tamanho dos arquivos gravados.
+     *
+     * @return Retorna a soma dos tamanhos, em bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Tempo da exportação, da listagem das contas até o último arquivo fechado.
+     *
+     * @return Retorna a duração, em nanossegundos.
+     */
+    public long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    /**
+     * Vazão da exportação.
+     *
+     * @return Retorna as operações exportadas por segundo.
+     */
+    public double getOperacoesPorSegundo() {
+        return (duracaoNanos == 0) ? 0 : operacoes * 1e9 / duracaoNanos;
+    }
+
+    /**
+     * Vazão da exportação, em bytes gravados.
+     *
+     * @return Retorna os megabytes (10^6 bytes) gravados por segundo.
+     */
+    public double getMegabytesPorSegundo() {
+        return (duracaoNanos == 0) ? 0 : bytes * 1e3 / duracaoNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Exportação " + ((formato == ExportacaoExtratos.CSV) ? "CSV" : "binária")
+                + (compactado ? " (gzip)" : "") + ": " + arquivos + " arquivos, " + contas + " contas, "
+                + operacoes + " operações, " + bytes + " bytes, "
+                + Math.round(getOperacoesPorSegundo()) + " operações/s";
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.daluz.javabank;
+
+/**
+ * Resultado de um fechamento mensal ({@link BancoCentral#fecharMes}).
+ * <p>
+ * Os números são os da chamada que gerou o resumo. Se ela retomou um
+ * fechamento interrompido, as contas lançadas antes da interrupção não
+ * entram na conta.
+ */
+public final class ResumoFechamento {
+    private final int competencia;
+    private final long contas;
+    private final long rendimentos;
+    private final long totalRendimentos;
+    private final long taxas;
+    private final long totalTaxas;
+    private final long duracaoNanos;
+
+    ResumoFechamento(int competencia, long contas, long rendimentos, long totalRendimentos,
+                     long taxas, long totalTaxas, long duracaoNanos) {
+        this.competencia = competencia;
+        this.contas = contas;
+        this.rendimentos = rendimentos;
+        this.totalRendimentos = totalRendimentos;
+        this.taxas = taxas;
+        this.totalTaxas = totalTaxas;
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    /**
+     * Mês do fechamento.
+     *
+     * @return Retorna a competência, no formato AAAAMM.
+     */
+    public int getCompetencia() {
+        return competencia;
+    }
+
+    /**
+     * Quantidade de contas processadas, com ou sem lançamento.
+     *
+     * @return Retorna o número de contas.
+     */
+    public long getContas() {
+        return contas;
+    }
+
+    /**
+     * Quantidade de rendimentos creditados nas contas poupança.
+     *
+     * @return Retorna o número de rendimentos.
+     */
+    public long getRendimentos() {
+        return rendimentos;
+    }
+
+    /**
+     * Soma dos rendimentos creditados.
+     *
+     * @return Retorna o total, em centavos.
+     */
+    public long getTotalRendimentos() {
+        return totalRendimentos;
+    }
+
+    /**
+     * Quantidade de taxas debitadas das contas correntes.
+     *
+     * @return Retorna o número de taxas.
+     */
+    public long getTaxas() {
+        return taxas;
+    }
+
+    /**
+     * Soma das taxas debitadas.
+     *
+     * @return Retorna o total, em centavos.
+     */
+    public long getTotalTaxas() {
+        return totalTaxas;
+    }
+
+    /**
+     * Tempo do fechamento, do início até o fim gravado no registro de transações.
+     *
+     * @return Retorna a duração, em nanossegundos.
+     */
+    public long getDuracaoNanos() {
+        return duracaoNanos;
+    }
+
+    /**
+     * Vazão do fechamento.
+     *
+     * @return Retorna as contas processadas por segundo.
+     */
+    public double getContasPorSegundo() {
+        return (duracaoNanos == 0) ? 0 : contas * 1e9 / duracaoNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Fechamento " + competencia + ": " + contas + " contas, "
+                + rendimentos + " rendimentos (" + Utils.toMoney(totalRendimentos) + "), "
+                + taxas + " taxas (" + Utils.toMoney(totalTaxas) + ")";
+    }
+}
@@ -0,0 +1,439 @@
+package br.com.daluz.javabank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Roteador do Banco Central particionado. Os bancos, ou faixas de contas de
+ * um banco, ficam em vários nós ({@link MapaShards}), cada um com o seu
+ * próprio Banco Central, registro de transações e servidor de transações. O
+ * roteador tem os mesmos métodos de {@link ClienteTransacoes} e envia cada
+ * operação ao nó que guarda a conta; os nós não conversam entre si.
+ * <p>
+ * Uma transferência entre contas do mesmo nó é feita pelo próprio nó, como
+ * sempre. Entre nós diferentes ela é feita em passos, cada um com uma chave
+ * de idempotência derivada da chave da transferência:
+ * <ol>
+ *   <li>o nome do banco e o titular das duas contas são consultados;</li>
+ *   <li>o nó origem debita o valor e a taxa ({@link Protocolo#DEBITO_INTERBANCARIO});</li>
+ *   <li>o nó destino credita o valor ({@link Protocolo#CREDITO_INTERBANCARIO});</li>
+ *   <li>se o crédito for recusado de vez (conta não encontrada, valor fora
+ *   do limite...), o nó origem recebe o valor de volta (a taxa não é
+ *   devolvida, como na câmara de compensação).</li>
+ * </ol>
+ * Um passo que falha por conexão, ou que encontra a mesma chave ainda em
+ * andamento no nó, é repetido com a mesma chave, numa conexão nova e com
+ * espera crescente. O valor só é devolvido quando o crédito foi recusado:
+ * um crédito que não pôde ser confirmado pode ainda ser feito, e devolvê-lo
+ * criaria dinheiro. Nesse caso a transferência termina com a exceção de
+ * conexão ou com {@link Resultado#OPERACAO_EM_ANDAMENTO}, e se a devolução
+ * não for confirmada, com {@link Resultado#DEVOLUCAO_PENDENTE}. Em todos
+ * eles, e se o roteador cair entre o débito e o crédito, a transferência é
+ * completada repetindo-a com a mesma chave: o débito já feito não é repetido
+ * e o crédito (ou a devolução) é feito uma única vez. Por isso
+ * as transferências entre nós exigem os métodos com chave; sem ela, são
+ * recusadas com {@link Resultado#CHAVE_OBRIGATORIA} antes de qualquer passo.
+ * <p>
+ * Uma transferência interna entre faixas de contas em nós diferentes é feita
+ * do mesmo modo, sem taxa, e aparece nos extratos como transferência externa
+ * e depósito interbancário.
+ * <p>
+ * Como {@link ClienteTransacoes}, um roteador não deve ser usado por mais de
+ * uma thread ao mesmo tempo; cada thread usa o seu, com uma conexão por nó.
+ * Os nós não compartilham nada, então a vazão cresce com a quantidade de nós.
+ */
+public final class RoteadorShards implements Closeable {
+    private static final int TENTATIVAS = 8;
+    private static final long ESPERA_INICIAL_MILLIS = 10;
+    private static final long SAL_CREDITO = 0x43524544_49544F31L;
+    private static final long SAL_DEVOLUCAO = 0x44455643_4F4C5543L;
+
+    private final MapaShards mapa;
+    private final InetSocketAddress[] enderecos;
+    private final int segredo;
+    private final ClienteTransacoes[] clientes;
+    private ClienteTransacoes ultimo;
+
+    /**
+     * Construtor da classe RoteadorShards. As conexões com os nós são abertas no primeiro uso.
+     *
+     * @param mapa      Partição dos bancos e contas entre os nós.
+     * @param enderecos Endereço de cada nó, na ordem dos índices do mapa.
+     * @param segredo   Segredo dos nós ({@link ServidorTransacoes#usarSegredoNos}).
+     * @throws UnsupportedOperationException Lançada se faltar o endereço de algum nó do mapa.
+     */
+    public RoteadorShards(MapaShards mapa, List<InetSocketAddress> enderecos, int segredo) {
+        if (enderecos.size() < mapa.getQuantidadeNos()) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: O mapa tem " + mapa.getQuantidadeNos()
+                            + " nós e foram informados " + enderecos.size() + " endereços.");
+        }
+        this.mapa = mapa;
+        this.enderecos = enderecos.toArray(new InetSocketAddress[0]);
+        this.segredo = segredo;
+        this.clientes = new ClienteTransacoes[this.enderecos.length];
+    }
+
+    /**
+     * Consulta o saldo da conta.
+     *
+     * @return Retorna o código de {@link Resultado}; se OK, o saldo fica em {@link #getSaldo()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarSaldo(int banco, int conta, int senha) throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        return executar(no, c -> c.consultarSaldo(banco, conta, senha));
+    }
+
+    /**
+     * Consulta o extrato da conta.
+     *
+     * @return Retorna o código de {@link Resultado}; se OK, o texto fica em {@link #getExtrato()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarExtrato(int banco, int conta, int senha) throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        return executar(no, c -> c.consultarExtrato(banco, conta, senha));
+    }
+
+    /**
+     * Consulta uma página do extrato de um período ({@link ClienteTransacoes#consultarExtrato(int, int, int, long, long, long, int)}).
+     *
+     * @return Retorna o código de {@link Resultado}; se OK, o texto fica em {@link #getExtrato()}.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int consultarExtrato(int banco, int conta, int senha, long de, long ate, long cursor, int limite)
+            throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        return executar(no, c -> c.consultarExtrato(banco, conta, senha, de, ate, cursor, limite));
+    }
+
+    /**
+     * Realiza um saque.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerSaque(int banco, int conta, int senha, long valor) throws IOException {
+        return fazerSaque(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, valor);
+    }
+
+    /**
+     * Realiza um saque com chave de idempotência.
+     *
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerSaque(long chave, int banco, int conta, int senha, long valor) throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        return executar(no, c -> c.fazerSaque(chave, banco, conta, senha, valor));
+    }
+
+    /**
+     * Realiza um depósito na própria conta.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerDeposito(int banco, int conta, int senha, long valor) throws IOException {
+        return fazerDeposito(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, valor);
+    }
+
+    /**
+     * Realiza um depósito na própria conta com chave de idempotência.
+     *
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerDeposito(long chave, int banco, int conta, int senha, long valor) throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        return executar(no, c -> c.fazerDeposito(chave, banco, conta, senha, valor));
+    }
+
+    /**
+     * Realiza uma transferência para outra conta do mesmo banco. Se as contas
+     * estiverem em nós diferentes, é recusada: use o método com chave.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaInterna(int banco, int conta, int senha, int contaDest, long valor)
+            throws IOException {
+        return fazerTransferenciaInterna(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, contaDest, valor);
+    }
+
+    /**
+     * Realiza uma transferência para outra conta do mesmo banco com chave de
+     * idempotência. Se as contas estiverem em nós diferentes, é feita em passos.
+     *
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaInterna(long chave, int banco, int conta, int senha, int contaDest, long valor)
+            throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        int noDest = mapa.getNo(banco, contaDest);
+        if (noDest < 0) {
+            return Resultado.CONTA_NAO_ENCONTRADA;
+        }
+        if (no == noDest) {
+            return executar(no, c -> c.fazerTransferenciaInterna(chave, banco, conta, senha, contaDest, valor));
+        }
+        return transferirEntreNos(chave, no, banco, conta, senha, noDest, banco, contaDest, valor);
+    }
+
+    /**
+     * Realiza uma transferência para uma conta de outro banco. Se as contas
+     * estiverem em nós diferentes, é recusada: use o método com chave.
+     *
+     * @return Retorna o código de {@link Resultado} da operação.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaExterna(int banco, int conta, int senha, int bancoDest, int contaDest, long valor)
+            throws IOException {
+        return fazerTransferenciaExterna(CacheIdempotencia.SEM_CHAVE, banco, conta, senha, bancoDest, contaDest, valor);
+    }
+
+    /**
+     * Realiza uma transferência para uma conta de outro banco com chave de
+     * idempotência. Se as contas estiverem em nós diferentes, é feita em passos.
+     *
+     * @return Retorna o código de {@link Resultado} da operação, ou o da primeira tentativa com a chave.
+     * @throws IOException Lança exceção se a conexão falhar.
+     */
+    public int fazerTransferenciaExterna(long chave, int banco, int conta, int senha,
+                                         int bancoDest, int contaDest, long valor) throws IOException {
+        int no = mapa.getNo(banco, conta);
+        if (no < 0) {
+            return naoEncontrada(banco);
+        }
+        int noDest = mapa.getNo(bancoDest, contaDest);
+        // No mesmo nó, ou para o próprio banco (que o nó recusa com o aviso de sempre), o nó resolve.
+        if (no == noDest || bancoDest == banco) {
+            return executar(no, c -> c.fazerTransferenciaExterna(chave, banco, conta, senha,
+                    bancoDest, contaDest, valor));
+        }
+        if (noDest < 0) {
+            return naoEncontrada(bancoDest);
+        }
+        return transferirEntreNos(chave, no, banco, conta, senha, noDest, bancoDest, contaDest, valor);
+    }
+
+    /**
+     * Abre as conexões com todos os nós, que de outro modo são abertas no primeiro uso.
+     *
+     * @throws IOException Lança exceção se a conexão com algum nó falhar.
+     */
+    public void conectar() throws IOException {
+        for (int no = 0; no < clientes.length; no++) {
+            conectar(no);
+        }
+    }
+
+    /**
+     * Saldo da conta depois da última operação realizada.
+     *
+     * @return Retorna o saldo, em centavos.
+     */
+    public long getSaldo() {
+        return (ultimo == null) ? 0 : ultimo.getSaldo();
+    }
+
+    /**
+     * Texto das operações recebido na última consulta de extrato realizada.
+     *
+     * @return Retorna o texto do extrato, ou null se nenhum foi consultado.
+     */
+    public String getExtrato() {
+        return (ultimo == null) ? null : ultimo.getExtrato();
+    }
+
+    /**
+     * Cursor da página seguinte, recebido na última consulta de extrato por período.
+     *
+     * @return Retorna o cursor, ou {@link PaginaExtrato#FIM} se o período acabou.
+     */
+    public long getProximoCursor() {
+        return (ultimo == null) ? PaginaExtrato.FIM : ultimo.getProximoCursor();
+    }
+
+    /**
+     * Transferência entre contas de nós diferentes, nos passos descritos na classe.
+     */
+    private int transferirEntreNos(long chave, int no, int banco, int conta, int senha,
+                                   int noDest, int bancoDest, int contaDest, long valor) throws IOException {
+        // Sem a chave, um débito feito antes de uma falha de conexão não poderia ser completado.
+        if (chave == CacheIdempotencia.SEM_CHAVE) {
+            return Resultado.CHAVE_OBRIGATORIA;
+        }
+
+        int resultado = repetir(no, c -> c.consultarDadosConta(segredo, banco, conta));
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        String bancoNome = clientes[no].getBancoNome();
+        String titular = clientes[no].getTitular();
+        resultado = repetir(noDest, c -> c.consultarDadosConta(segredo, bancoDest, contaDest));
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        String bancoNomeDest = clientes[noDest].getBancoNome();
+        String titularDest = clientes[noDest].getTitular();
+
+        long chaveDebito = chave;
+        resultado = repetir(no, c -> c.fazerDebitoInterbancario(chaveDebito, segredo, banco, conta, senha,
+                bancoDest, contaDest, valor, bancoNomeDest, titularDest));
+        if (resultado != Resultado.OK) {
+            return resultado;
+        }
+        ClienteTransacoes origem = clientes[no];
+
+        long chaveCredito = derivar(chave, SAL_CREDITO);
+        resultado = repetir(noDest, c -> c.fazerCreditoInterbancario(chaveCredito, segredo, bancoDest, contaDest,
+                banco, conta, valor, bancoNome, titular));
+        if (transitorio(resultado)) {
+            // O crédito ainda pode ser feito; o débito fica até a transferência ser repetida.
+            return resultado;
+        }
+        if (resultado != Resultado.OK) {
+            long chaveDevolucao = derivar(chave, SAL_DEVOLUCAO);
+            int devolucao;
+            try {
+                devolucao = repetir(no, c -> c.fazerCreditoInterbancario(chaveDevolucao, segredo, banco, conta,
+                        bancoDest, contaDest, valor, bancoNomeDest, titularDest));
+            } catch (IOException e) {
+                devolucao = Resultado.OPERACAO_EM_ANDAMENTO;
+            }
+            return (devolucao == Resultado.OK) ? resultado : Resultado.DEVOLUCAO_PENDENTE;
+        }
+        // O saldo informado é o da conta origem, depois do débito.
+        ultimo = origem;
+        return Resultado.OK;
+    }
+
+    /**
+     * Executa uma operação no nó. Se a conexão falhar, ela é descartada e a
+     * exceção é lançada: sem chave, repetir a operação não é seguro.
+     */
+    private int executar(int no, Passo passo) throws IOException {
+        ClienteTransacoes cliente = conectar(no);
+        try {
+            int resultado = passo.executar(cliente);
+            ultimo = cliente;
+            return resultado;
+        } catch (IOException e) {
+            descartar(no);
+            throw e;
+        }
+    }
+
+    /**
+     * Executa um passo com chave no nó, repetindo-o com espera crescente se a
+     * conexão falhar (numa conexão nova) ou se o resultado for transitório.
+     *
+     * @return Retorna o resultado da última tentativa, que pode ainda ser transitório.
+     * @throws IOException Lança exceção se a conexão falhar na última tentativa.
+     */
+    private int repetir(int no, Passo passo) throws IOException {
+        long espera = ESPERA_INICIAL_MILLIS;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                int resultado = passo.executar(conectar(no));
+                if (!transitorio(resultado) || tentativa == TENTATIVAS) {
+                    return resultado;
+                }
+            } catch (IOException e) {
+                descartar(no);
+                if (tentativa == TENTATIVAS) {
+                    throw e;
+                }
+            }
+            esperar(espera);
+            espera *= 2;
+        }
+    }
+
+    /**
+     * Resultados que não dizem se a operação foi feita: a mesma chave ainda
+     * está em andamento no nó, ou o roteador está sem tentativas nele.
+     */
+    private static boolean transitorio(int resultado) {
+        return resultado == Resultado.OPERACAO_EM_ANDAMENTO || resultado == Resultado.ACESSO_BLOQUEADO;
+    }
+
+    private static void esperar(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Transferência interrompida; repita com a mesma chave.");
+        }
+    }
+
+    private ClienteTransacoes conectar(int no) throws IOException {
+        ClienteTransacoes cliente = clientes[no];
+        if (cliente == null) {
+            cliente = new ClienteTransacoes(enderecos[no].getHostString(), enderecos[no].getPort());
+            clientes[no] = cliente;
+        }
+        return cliente;
+    }
+
+    private void descartar(int no) {
+        ClienteTransacoes cliente = clientes[no];
+        clientes[no] = null;
+        if (cliente != null) {
+            try {
+                cliente.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private int naoEncontrada(int banco) {
+        return mapa.contemBanco(banco) ? Resultado.CONTA_NAO_ENCONTRADA : Resultado.BANCO_NAO_ENCONTRADO;
+    }
+
+    private static long derivar(long chave, long sal) {
+        long derivada = chave ^ sal;
+        return (derivada == CacheIdempotencia.SEM_CHAVE) ? sal : derivada;
+    }
+
+    /**
+     * Fecha as conexões com os nós.
+     */
+    @Override
+    public void close() {
+        for (int no = 0; no < clientes.length; no++) {
+            descartar(no);
+        }
+    }
+
+    /**
+     * Uma operação enviada a um nó.
+     */
+    private interface Passo {
+        int executar(ClienteTransacoes cliente) throws IOException;
+    }
+}
@@ -0,0 +1,195 @@
+package br.com.daluz.javabank;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Saída de texto com buffer, usada para montar telas e extratos inteiros
+ * e escrevê-los de uma vez.
+ * <p>
+ * O texto é acumulado num único buffer e só vai para o destino em
+ * {@link #flush()}, numa única escrita. Quando o buffer passa do limite,
+ * o trecho acumulado é escrito antes de continuar; assim, um extrato muito
+ * grande sai em pedaços, sem ficar inteiro na memória.
+ * <p>
+ * O destino é um PrintStream (o console, que codifica o texto) ou um canal,
+ * para o qual o texto é codificado num buffer de bytes reaproveitado.
+ * Esta classe não é thread-safe; cada tela ou exportação usa a sua.
+ */
+public final class SaidaTexto implements Flushable, Closeable {
+    /**
+     * Limite padrão do buffer, em caracteres.
+     */
+    public static final int LIMITE_PADRAO = 64 * 1024;
+
+    private static final String QUEBRA = System.lineSeparator();
+
+    private final PrintStream saida;
+    private final WritableByteChannel canal;
+    private final CharsetEncoder codificador;
+    private final int limite;
+    private final StringBuilder texto;
+    private char[] caracteres;
+    private ByteBuffer bytes;
+
+    /**
+     * Saída para um PrintStream, com o limite padrão.
+     *
+     * @param saida Onde o texto é impresso.
+     */
+    public SaidaTexto(PrintStream saida) {
+        this(saida, LIMITE_PADRAO);
+    }
+
+    /**
+     * Saída para um PrintStream.
+     *
+     * @param saida  Onde o texto é impresso.
+     * @param limite Caracteres acumulados a partir dos quais o trecho é escrito.
+     * @throws UnsupportedOperationException Lança exceção se o limite não for positivo.
+     */
+    public SaidaTexto(PrintStream saida, int limite) {
+        this(saida, null, null, limite);
+    }
+
+    /**
+     * Saída para um canal, como um arquivo ou um socket.
+     *
+     * @param canal   Onde o texto é escrito.
+     * @param charset Codificação do texto.
+     * @param limite  Caracteres acumulados a partir dos quais o trecho é escrito.
+     * @throws UnsupportedOperationException Lança exceção se o limite não for positivo.
+     */
+    public SaidaTexto(WritableByteChannel canal, Charset charset, int limite) {
+        this(null, canal, charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), limite);
+    }
+
+    private SaidaTexto(PrintStream saida, WritableByteChannel canal, CharsetEncoder codificador, int limite) {
+        if (limite <= 0) {
+            throw new UnsupportedOperationException(
+                    "[AVISO]\nOperação não realizada!\nMotivo: O limite da saída deve ser positivo.");
+        }
+        this.saida = saida;
+        this.canal = canal;
+        this.codificador = codificador;
+        this.limite = limite;
+        // Um pouco acima do limite, para o trecho que o ultrapassa não realocar o buffer.
+        this.texto = new StringBuilder(Math.min(limite, LIMITE_PADRAO) + 1024);
+    }
+
+    /**
+     * Acrescenta um texto ao buffer.
+     *
+     * @param parte Texto a ser acrescentado.
+     * @return Retorna esta saída.
+     */
+    public SaidaTexto escrever(CharSequence parte) {
+        texto.append(parte);
+        descarregarSeCheio();
+        return this;
+    }
+
+    /**
+     * Acrescenta um texto e uma quebra de linha, como o println.
+     *
+     * @param parte Texto a ser acrescentado.
+     * @return Retorna esta saída.
+     */
+    public SaidaTexto linha(CharSequence parte) {
+        texto.append(parte).append(QUEBRA);
+        descarregarSeCheio();
+        return this;
+    }
+
+    /**
+     * Buffer onde as telas e o extrato são montados diretamente, sem textos
+     * intermediários. Quem escreve nele chama {@link #descarregarSeCheio()}
+     * entre um trecho e outro.
+     */
+    StringBuilder buffer() {
+        return texto;
+    }
+
+    /**
+     * Escreve o trecho acumulado, se ele passou do limite.
+     */
+    void descarregarSeCheio() {
+        if (texto.length() >= limite) {
+            escreverBuffer();
+        }
+    }
+
+    /**
+     * Escreve o texto acumulado numa única escrita e descarrega o destino.
+     *
+     * @throws UncheckedIOException Lança exceção se a escrita no canal falhar.
+     */
+    @Override
+    public void flush() {
+        escreverBuffer();
+        if (saida != null) {
+            saida.flush();
+        }
+    }
+
+    /**
+     * Escreve o texto acumulado. O destino não é fechado; ele pertence a quem criou a saída.
+     *
+     * @throws UncheckedIOException Lança exceção se a escrita no canal falhar.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void escreverBuffer() {
+        if (texto.length() == 0) {
+            return;
+        }
+        if (saida != null) {
+            saida.append(texto);
+        } else {
+            try {
+                escreverNoCanal();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao escrever a saída.", e);
+            }
+        }
+        texto.setLength(0);
+    }
+
+    private void escreverNoCanal() throws IOException {
+        int necessarios = (int) Math.ceil(texto.length() * (double) codificador.maxBytesPerChar());
+        if (bytes == null || bytes.capacity() < necessarios) {
+            bytes = ByteBuffer.allocate(necessarios);
+        }
+        // Copiado para um array, que o codificador percorre bem mais rápido que um CharSequence.
+        if (caracteres == null || caracteres.length < texto.length()) {
+            caracteres = new char[texto.capacity()];
+        }
+        texto.getChars(0, texto.length(), caracteres, 0);
+        bytes.clear();
+        codificador.reset();
+        CoderResult resultado = codificador.encode(CharBuffer.wrap(caracteres, 0, texto.length()), bytes, true);
+        if (resultado.isError()) {
+            resultado.throwException();
+        }
+        codificador.flush(bytes);
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.daluz.javabank;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo, somente de acréscimo, para onde vão as operações mais antigas
+ * dos extratos, tirando-as da memória.
+ * <p>
+ * Cada extrato grava aqui blocos de operações já serializadas e guarda em
+ * memória apenas a posição de cada bloco e o instante da sua última operação.
+ * Todas as contas do Banco Central usam o mesmo arquivo.
+ * <p>
+ * O arquivo não é durável: ele é apagado ao ser aberto, e não há fsync. Na
+ * recuperação, os extratos voltam do snapshot e do registro de transações.
+ */
+final class SegmentoExtratos implements Closeable {
+    private final FileChannel canal;
+    private final int limiteEmMemoria;
+    private long fim;
+
+    /**
+     * Abre o arquivo, descartando o conteúdo que ele tiver.
+     *
+     * @param arquivo         Arquivo do segmento.
+     * @param limiteEmMemoria Quantidade de operações de uma conta a partir da qual
+     *                        a metade mais antiga vai para o arquivo.
+     * @throws IOException Lança exceção se o arquivo não puder ser aberto.
+     */
+    SegmentoExtratos(Path arquivo, int limiteEmMemoria) throws IOException {
+        if (limiteEmMemoria < 2) {
+            throw new IllegalArgumentException("O limite em memória deve ser de pelo menos 2 operações.");
+        }
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.limiteEmMemoria = limiteEmMemoria;
+    }
+
+    int getLimiteEmMemoria() {
+        return limiteEmMemoria;
+    }
+
+    /**
+     * Acrescenta um bloco no final do arquivo.
+     *
+     * @param bloco Bytes do bloco.
+     * @return Retorna a posição do bloco no arquivo.
+     * @throws IOException Lança exceção se a gravação falhar.
+     */
+    synchronized long gravar(byte[] bloco) throws IOException {
+        long posicao = fim;
+        ByteBuffer buffer = ByteBuffer.wrap(bloco);
+        long escrita = posicao;
+        while (buffer.hasRemaining()) {
+            escrita += canal.write(buffer, escrita);
+        }
+        fim = escrita;
+        return posicao;
+    }
+
+    /**
+     * Lê um bloco gravado antes. Pode ser chamado por várias threads ao mesmo tempo.
+     *
+     * @param posicao Posição devolvida por {@link #gravar}.
+     * @param tamanho Tamanho do bloco, em bytes.
+     * @return Retorna os bytes do bloco.
+     * @throws IOException Lança exceção se a leitura falhar.
+     */
+    byte[] ler(long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new EOFException("Bloco de extrato incompleto na posição " + posicao + ".");
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
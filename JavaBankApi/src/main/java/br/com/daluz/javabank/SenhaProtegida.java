@@ -0,0 +1,67 @@
+package br.com.daluz.javabank;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Senha da conta guardada como hash com sal, para que ela nunca fique em
+ * texto aberto na memória, no registro de transações ou no snapshot.
+ * <p>
+ * O valor protegido cabe no mesmo {@code int} que guardava a senha:
+ * <pre>
+ *   [16 bits de sal aleatório][16 bits do SHA-256 de (sal, senha)]
+ * </pre>
+ * Uma senha de 4 dígitos tem só 10 mil possibilidades, e qualquer hash dela
+ * pode ser testado contra todas fora do sistema. O hash evita que a senha
+ * seja lida diretamente dos arquivos e o sal evita que contas com a mesma
+ * senha tenham o mesmo valor; os arquivos continuam precisando de acesso
+ * restrito. Os 16 bits do hash aceitam uma senha errada com chance de
+ * 1 em 65536, menor que a de acertar a senha ao acaso.
+ */
+final class SenhaProtegida {
+
+    private SenhaProtegida() {
+    }
+
+    /**
+     * Protege uma senha com um sal novo.
+     *
+     * @param senha Senha da conta.
+     * @return Retorna o valor protegido.
+     */
+    static int proteger(int senha) {
+        int sal = ThreadLocalRandom.current().nextInt(1 << 16);
+        return (sal << 16) | hash(sal, senha);
+    }
+
+    /**
+     * Confere uma senha com o valor protegido.
+     *
+     * @param protegida Valor retornado por {@link #proteger}.
+     * @param senha     Senha informada.
+     * @return Retorna true se a senha coincide, false caso contrário.
+     */
+    static boolean confere(int protegida, int senha) {
+        int sal = protegida >>> 16;
+        return (protegida & 0xFFFF) == hash(sal, senha);
+    }
+
+    private static int hash(int sal, int senha) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Toda JVM é obrigada a ter o SHA-256.
+            throw new IllegalStateException(e);
+        }
+        sha.update((byte) (sal >>> 8));
+        sha.update((byte) sal);
+        sha.update((byte) (senha >>> 24));
+        sha.update((byte) (senha >>> 16));
+        sha.update((byte) (senha >>> 8));
+        sha.update((byte) senha);
+        byte[] resumo = sha.digest();
+        return ((resumo[0] & 0xFF) << 8) | (resumo[1] & 0xFF);
+    }
+}
@@ -0,0 +1,402 @@
+package br.com.daluz.javabank;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Motor de execução alternativo de um banco: saques, depósitos e
+ * transferências internas viram eventos num anel de tamanho fixo, aplicados
+ * um a um por uma única thread, na ordem em que foram publicados.
+ * <p>
+ * As threads que chamam o banco só reservam uma posição do anel (um
+ * compareAndSet), escrevem o evento e esperam a resposta. Cada evento passa,
+ * em ordem, por quatro etapas, cada uma com a sua thread e o seu cursor:
+ * <ol>
+ *   <li>validação: as verificações que não dependem de saldo (valor, conta
+ *   destino, origem igual ao destino);</li>
+ *   <li>execução: a única thread que altera os saldos deste motor; aplica o
+ *   evento, salva o extrato e grava o registro de transações, sem esperar a
+ *   gravação;</li>
+ *   <li>diário: espera a gravação em disco do último registro do lote
+ *   (um único {@link RegistroTransacoes#aguardar} por lote);</li>
+ *   <li>resposta: entrega o resultado a quem publicou o evento e libera a posição.</li>
+ * </ol>
+ * Uma etapa processa de uma vez tudo o que a anterior liberou, então a
+ * execução não para esperando o disco, e uma conta muito usada não gera fila
+ * de threads no monitor dela. A ordem dos eventos é a da sequência, e o
+ * registro de transações recebe as operações exatamente nessa ordem; ao ser
+ * reaplicado ({@link RegistroTransacoes#recuperar}), ele reproduz os mesmos
+ * saldos e extratos.
+ * <p>
+ * As outras operações do banco (lotes, transferências entre bancos,
+ * compensação e fechamento mensal) continuam travando as contas, então a
+ * execução também trava o monitor de cada conta que altera; sem essas
+ * operações, a trava nunca é disputada.
+ */
+final class SequenciadorBanco {
+    static final byte SAQUE = 1;
+    static final byte DEPOSITO = 2;
+    static final byte TRANSFERENCIA_INTERNA = 3;
+
+    /**
+     * Quem recebe o resultado de um evento. Chamado pela thread de resposta,
+     * na ordem da sequência; não deve bloquear.
+     */
+    interface Resposta {
+        /**
+         * @param sequencia Sequência do evento.
+         * @param resultado Código de {@link Resultado} do evento.
+         * @param falha     Exceção da operação ou da gravação do registro, ou null.
+         */
+        void responder(long sequencia, int resultado, RuntimeException falha);
+    }
+
+    // Com um único processador, girar só atrasa a thread que vai produzir o que se espera.
+    private static final int GIROS = (Runtime.getRuntime().availableProcessors() > 1) ? 200 : 1;
+    private static final int LOTE_MAXIMO = 256;
+    private static final long ESPERA_ANEL_CHEIO_NANOS = 50_000;
+    private static final ThreadLocal<Espera> ESPERA_DA_THREAD = ThreadLocal.withInitial(Espera::new);
+
+    private final BancoRef banco;
+    private final int capacidade;
+    private final int mascara;
+
+    // Eventos, em colunas: a posição de uma sequência é sequencia & mascara.
+    private final byte[] tipos;
+    private final Conta[] origens;
+    private final Conta[] destinos;
+    private final long[] valores;
+    private final long[] instantes;
+    private final long[] chaves;
+    private final int[] impressoes;
+    private final int[] resultados;
+    private final long[] posicoes;
+    private final RuntimeException[] falhas;
+    private final Resposta[] respostas;
+
+    // Sequência publicada em cada posição; a validação só passa de uma posição depois que ela é publicada.
+    private final AtomicLongArray publicadas;
+    private final AtomicLong reservada;
+
+    private final Etapa validacao;
+    private final Etapa execucao;
+    private final Etapa diario;
+    private final Etapa resposta;
+
+    /**
+     * Cria o anel e inicia as threads das etapas.
+     *
+     * @param banco      Banco cujas operações são sequenciadas.
+     * @param capacidade Quantidade de eventos no anel (arredondada para uma potência de dois).
+     */
+    SequenciadorBanco(BancoRef banco, int capacidade) {
+        this.banco = banco;
+        this.capacidade = Integer.highestOneBit(Math.max(capacidade - 1, 1)) << 1;
+        this.mascara = this.capacidade - 1;
+        this.tipos = new byte[this.capacidade];
+        this.origens = new Conta[this.capacidade];
+        this.destinos = new Conta[this.capacidade];
+        this.valores = new long[this.capacidade];
+        this.instantes = new long[this.capacidade];
+        this.chaves = new long[this.capacidade];
+        this.impressoes = new int[this.capacidade];
+        this.resultados = new int[this.capacidade];
+        this.posicoes = new long[this.capacidade];
+        this.falhas = new RuntimeException[this.capacidade];
+        this.respostas = new Resposta[this.capacidade];
+        this.publicadas = new AtomicLongArray(this.capacidade);
+        for (int i = 0; i < this.capacidade; i++) {
+            publicadas.set(i, -1);
+        }
+        this.reservada = new AtomicLong(-1);
+
+        this.resposta = new Etapa("resposta", null, this::responder);
+        this.diario = new Etapa("diario", resposta, this::gravar);
+        this.execucao = new Etapa("execucao", diario, this::aplicar);
+        this.validacao = new Etapa("validacao", execucao, this::validar);
+        resposta.anterior = diario;
+        diario.anterior = execucao;
+        execucao.anterior = validacao;
+        validacao.iniciar();
+        execucao.iniciar();
+        diario.iniciar();
+        resposta.iniciar();
+    }
+
+    /**
+     * Publica o evento e espera a resposta.
+     *
+     * @param tipo     {@link #SAQUE}, {@link #DEPOSITO} ou {@link #TRANSFERENCIA_INTERNA}.
+     * @param origem   Conta sacada, depositante ou origem da transferência.
+     * @param destino  Conta creditada (null no saque).
+     * @param valor    Valor, em centavos.
+     * @param instante Instante da operação.
+     * @return Retorna o código de {@link Resultado} da operação.
+     */
+    int executar(byte tipo, Conta origem, Conta destino, long valor, long instante) {
+        Espera espera = ESPERA_DA_THREAD.get();
+        publicar(tipo, origem, destino, valor, instante, espera);
+        return espera.aguardar();
+    }
+
+    /**
+     * Publica o evento sem esperar a resposta. Se o anel estiver cheio, espera
+     * uma posição ser liberada. A chave de idempotência marcada na thread
+     * ({@link RegistroTransacoes#marcarChave}) vai junto com o evento.
+     *
+     * @param tipo     {@link #SAQUE}, {@link #DEPOSITO} ou {@link #TRANSFERENCIA_INTERNA}.
+     * @param origem   Conta sacada, depositante ou origem da transferência.
+     * @param destino  Conta creditada (null no saque).
+     * @param valor    Valor, em centavos.
+     * @param instante Instante da operação.
+     * @param resposta Quem recebe o resultado.
+     * @return Retorna a sequência do evento.
+     */
+    long publicar(byte tipo, Conta origem, Conta destino, long valor, long instante, Resposta resposta) {
+        long sequencia = reservar();
+        int i = (int) sequencia & mascara;
+        tipos[i] = tipo;
+        origens[i] = origem;
+        destinos[i] = destino;
+        valores[i] = valor;
+        instantes[i] = instante;
+        chaves[i] = RegistroTransacoes.getChaveMarcada();
+        impressoes[i] = RegistroTransacoes.getImpressaoMarcada();
+        respostas[i] = resposta;
+        publicadas.set(i, sequencia);
+        validacao.acordar();
+        return sequencia;
+    }
+
+    /**
+     * Quantidade de eventos no anel.
+     *
+     * @return Retorna a capacidade.
+     */
+    int getCapacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Reserva a próxima sequência, esperando se a posição dela ainda não foi respondida.
+     */
+    private long reservar() {
+        for (int tentativas = 0; ; tentativas++) {
+            long atual = reservada.get();
+            long proxima = atual + 1;
+            if (proxima - capacidade > resposta.cursor.get()) {
+                if (tentativas < GIROS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(ESPERA_ANEL_CHEIO_NANOS);
+                }
+            } else if (reservada.compareAndSet(atual, proxima)) {
+                return proxima;
+            }
+        }
+    }
+
+    /**
+     * Última sequência publicada em ordem a partir de {@code proxima}, ou proxima - 1 se ela ainda não foi publicada.
+     */
+    private long publicadasAte(long proxima) {
+        long ate = proxima - 1;
+        while (ate - proxima < LOTE_MAXIMO - 1 && publicadas.get((int) (ate + 1) & mascara) == ate + 1) {
+            ate++;
+        }
+        return ate;
+    }
+
+    private void validar(long de, long ate) {
+        for (long s = de; s <= ate; s++) {
+            int i = (int) s & mascara;
+            falhas[i] = null;
+            resultados[i] = switch (tipos[i]) {
+                case SAQUE, DEPOSITO -> (valores[i] <= 0) ? Resultado.VALOR_INVALIDO : Resultado.OK;
+                case TRANSFERENCIA_INTERNA -> banco.verificarTransferenciaInterna(origens[i], destinos[i], valores[i]);
+                default -> Resultado.OK;
+            };
+        }
+    }
+
+    private void aplicar(long de, long ate) {
+        for (long s = de; s <= ate; s++) {
+            int i = (int) s & mascara;
+            posicoes[i] = 0;
+            if (resultados[i] != Resultado.OK) {
+                continue;
+            }
+            if (chaves[i] != CacheIdempotencia.SEM_CHAVE) {
+                RegistroTransacoes.marcarChave(chaves[i], impressoes[i]);
+            }
+            try {
+                long posicao = switch (tipos[i]) {
+                    case SAQUE -> banco.aplicarSaque(origens[i], valores[i], instantes[i]);
+                    case DEPOSITO -> banco.aplicarDeposito(origens[i], destinos[i], valores[i], instantes[i]);
+                    default -> banco.aplicarTransferenciaInterna(origens[i], destinos[i], valores[i], instantes[i]);
+                };
+                if (posicao < 0) {
+                    resultados[i] = (int) -posicao;
+                } else {
+                    posicoes[i] = posicao;
+                }
+            } catch (RuntimeException e) {
+                falhas[i] = e;
+            } finally {
+                RegistroTransacoes.limparChave();
+            }
+        }
+    }
+
+    private void gravar(long de, long ate) {
+        long ultima = 0;
+        for (long s = de; s <= ate; s++) {
+            ultima = Math.max(ultima, posicoes[(int) s & mascara]);
+        }
+        if (ultima == 0) {
+            return;
+        }
+        try {
+            banco.aguardar(ultima);
+        } catch (RuntimeException e) {
+            for (long s = de; s <= ate; s++) {
+                int i = (int) s & mascara;
+                if (posicoes[i] > 0 && falhas[i] == null) {
+                    falhas[i] = e;
+                }
+            }
+        }
+    }
+
+    private void responder(long de, long ate) {
+        for (long s = de; s <= ate; s++) {
+            int i = (int) s & mascara;
+            Resposta destinatario = respostas[i];
+            // Solta as referências antes de liberar a posição, para não segurar contas que já esfriaram.
+            respostas[i] = null;
+            origens[i] = null;
+            destinos[i] = null;
+            destinatario.responder(s, resultados[i], falhas[i]);
+        }
+    }
+
+    /**
+     * Processa os eventos de um intervalo de sequências (inclusive).
+     */
+    private interface Processamento {
+        void processar(long de, long ate);
+    }
+
+    /**
+     * Uma etapa do anel: uma thread que processa os eventos já liberados pela
+     * etapa anterior (ou já publicados, na validação) e avança o próprio cursor.
+     * Sem eventos, a thread gira um pouco e depois dorme até ser acordada.
+     */
+    private final class Etapa {
+        private final AtomicLong cursor;
+        private final Etapa seguinte;
+        private final Processamento processamento;
+        private final Thread thread;
+        private Etapa anterior;
+        private volatile boolean dormindo;
+
+        private Etapa(String nome, Etapa seguinte, Processamento processamento) {
+            this.cursor = new AtomicLong(-1);
+            this.seguinte = seguinte;
+            this.processamento = processamento;
+            this.thread = new Thread(this::executar, "sequenciador-" + banco.getBancoNumero() + "-" + nome);
+            this.thread.setDaemon(true);
+        }
+
+        private void iniciar() {
+            thread.start();
+        }
+
+        private void executar() {
+            long proxima = 0;
+            while (true) {
+                long ate = esperar(proxima);
+                processamento.processar(proxima, ate);
+                cursor.set(ate);
+                if (seguinte != null) {
+                    seguinte.acordar();
+                }
+                proxima = ate + 1;
+            }
+        }
+
+        private long disponivel(long proxima) {
+            if (anterior == null) {
+                return publicadasAte(proxima);
+            }
+            return Math.min(anterior.cursor.get(), proxima + LOTE_MAXIMO - 1);
+        }
+
+        private long esperar(long proxima) {
+            for (int giros = 0; ; giros++) {
+                long ate = disponivel(proxima);
+                if (ate >= proxima) {
+                    return ate;
+                }
+                if (giros < GIROS) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                // Marca que vai dormir antes de olhar de novo: quem avança o cursor olha a marca depois.
+                dormindo = true;
+                if (disponivel(proxima) < proxima) {
+                    LockSupport.park(this);
+                }
+                dormindo = false;
+            }
+        }
+
+        private void acordar() {
+            if (dormindo) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Resposta de quem chamou {@link #executar} e espera o resultado. Uma por
+     * thread, reaproveitada a cada evento.
+     */
+    private static final class Espera implements Resposta {
+        private final Thread thread = Thread.currentThread();
+        private volatile boolean pronta;
+        private volatile boolean dormindo;
+        private int resultado;
+        private RuntimeException falha;
+
+        @Override
+        public void responder(long sequencia, int resultado, RuntimeException falha) {
+            this.resultado = resultado;
+            this.falha = falha;
+            pronta = true;
+            if (dormindo) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private int aguardar() {
+            for (int giros = 0; !pronta; giros++) {
+                if (giros < GIROS) {
+                    Thread.onSpinWait();
+                } else {
+                    dormindo = true;
+                    if (!pronta) {
+                        LockSupport.park(this);
+                    }
+                    dormindo = false;
+                }
+            }
+            pronta = false;
+            if (falha != null) {
+                throw falha;
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package br.com.daluz.javabank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor de transações. Oferece pela rede as mesmas operações do caixa
+ * eletrônico (saldo, extrato, saque, depósito e transferências), com o
+ * protocolo binário descrito em {@link Protocolo}, para muitos clientes ao
+ * mesmo tempo sobre um único Banco Central.
+ * <p>
+ * Uma thread cuida do seletor: aceita as conexões e lê as requisições. As
+ * operações são executadas por um conjunto fixo de threads, porque podem
+ * esperar o registro de transações gravar em disco. As requisições de uma
+ * conexão são executadas uma de cada vez, na ordem em que chegaram; conexões
+ * diferentes são atendidas em paralelo. Se um cliente envia requisições sem
+ * ler as respostas, a leitura da conexão é suspensa até as respostas saírem.
+ * <p>
+ * As tentativas de senha são limitadas por conta e por endereço IP do cliente
+ * ({@link LimitadorTentativas}); um cliente ou conta sem tentativas recebe
+ * {@link Resultado#ACESSO_BLOQUEADO} antes de qualquer busca.
+ */
+public final class ServidorTransacoes implements Closeable {
+
+    /**
+     * Quantidade de requisições de uma conexão, ainda sem resposta enviada,
+     * a partir da qual a conexão deixa de ser lida.
+     */
+    private static final int LIMITE_PENDENTES = 256;
+
+    private static final int TAMANHO_BUFFER_LEITURA = 16 * 1024;
+
+    private final BancoCentral bancoCentral;
+    private final Selector seletor;
+    private final ServerSocketChannel canalServidor;
+    private final ExecutorService executor;
+    private final Thread threadSeletor;
+    private volatile boolean ativo = true;
+    private volatile int segredoNos;
+
+    /**
+     * Construtor da classe ServidorTransacoes.
+     * Abre a porta, mas só começa a atender depois de {@link #iniciar()}.
+     *
+     * @param bancoCentral Banco Central cujas operações são oferecidas.
+     * @param endereco     Endereço e porta onde o servidor escuta. A porta 0 escolhe uma porta livre.
+     * @param threads      Quantidade de threads que executam as operações.
+     * @throws IOException Lança exceção se a porta não puder ser aberta.
+     */
+    public ServidorTransacoes(BancoCentral bancoCentral, InetSocketAddress endereco, int threads) throws IOException {
+        this.bancoCentral = bancoCentral;
+        this.seletor = Selector.open();
+        this.canalServidor = ServerSocketChannel.open();
+        this.canalServidor.bind(endereco, 1024);
+        this.canalServidor.configureBlocking(false);
+        this.canalServidor.register(this.seletor, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, tarefa -> {
+            Thread thread = new Thread(tarefa, "transacoes-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threadSeletor = new Thread(this::atender, "transacoes-seletor");
+        this.threadSeletor.setDaemon(true);
+    }
+
+    /**
+     * Começa a atender as conexões.
+     */
+    public void iniciar() {
+        threadSeletor.start();
+    }
+
+    /**
+     * Aceita as operações entre nós do Banco Central particionado
+     * ({@link RoteadorShards}), que levam este segredo no lugar da senha da
+     * conta (o débito interbancário leva os dois). Sem segredo (0, o padrão),
+     * elas são recusadas. O segredo só evita
+     * o uso por engano: os nós devem ficar numa rede privada.
+     *
+     * @param segredo Segredo compartilhado pelos nós e roteadores; 0 recusa as operações entre nós.
+     */
+    public void usarSegredoNos(int segredo) {
+        this.segredoNos = segredo;
+    }
+
+    /**
+     * Porta onde o servidor escuta.
+     *
+     * @return Retorna o número da porta.
+     */
+    public int getPorta() {
+        return canalServidor.socket().getLocalPort();
+    }
+
+    /**
+     * Laço da thread do seletor.
+     */
+    private void atender() {
+        while (ativo) {
+            try {
+                seletor.select();
+            } catch (IOException e) {
+                System.err.println("\n[AVISO]\nFalha no servidor de transações.\nMotivo: " + e.getMessage());
+                return;
+            }
+
+            Iterator<SelectionKey> chaves = seletor.selectedKeys().iterator();
+            while (chaves.hasNext()) {
+                SelectionKey chave = chaves.next();
+                chaves.remove();
+                if (chave.attachment() == null) {
+                    aceitar();
+                    continue;
+                }
+
+                Conexao conexao = (Conexao) chave.attachment();
+                try {
+                    if (chave.isReadable()) {
+                        conexao.ler();
+                    }
+                    if (chave.isValid() && chave.isWritable()) {
+                        conexao.escreverPendentes();
+                    }
+                } catch (IOException | CancelledKeyException e) {
+                    conexao.fechar();
+                }
+            }
+        }
+    }
+
+    /**
+     * Aceita as conexões que estão esperando.
+     */
+    private void aceitar() {
+        SocketChannel canal = null;
+        try {
+            while ((canal = canalServidor.accept()) != null) {
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Conexao conexao = new Conexao(canal);
+                conexao.chave = canal.register(seletor, SelectionKey.OP_READ, conexao);
+            }
+        } catch (IOException e) {
+            System.err.println("\n[AVISO]\nFalha ao aceitar conexão.\nMotivo: " + e.getMessage());
+            if (canal != null) {
+                try {
+                    canal.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Executa uma requisição e monta a resposta.
+     *
+     * @param requisicao Requisição sem o campo de tamanho.
+     * @param cliente    Identificação do cliente no limite de tentativas de senha.
+     * @return Retorna a resposta pronta para ser enviada.
+     */
+    private ByteBuffer executar(ByteBuffer requisicao, long cliente) {
+        int id = requisicao.getInt();
+        byte operacao = requisicao.get();
+        boolean comChave = (operacao & Protocolo.COM_CHAVE) != 0;
+        operacao &= ~Protocolo.COM_CHAVE;
+        int bancoNumero = requisicao.getInt();
+        int contaNumero = requisicao.getInt();
+        int senha = requisicao.getInt();
+
+        // As operações entre nós levam o segredo dos nós no lugar da senha da conta.
+        boolean entreNos = operacao == Protocolo.DADOS_CONTA || operacao == Protocolo.CREDITO_INTERBANCARIO;
+
+        // Cliente ou conta sem tentativas: recusa antes de qualquer busca.
+        LimitadorTentativas limitador = bancoCentral.getLimitadorTentativas();
+        int acesso = entreNos
+                ? limitador.permitirCliente(cliente)
+                : limitador.permitir(cliente, bancoNumero, contaNumero);
+        if (acesso != Resultado.OK) {
+            return resposta(id, acesso, 0);
+        }
+        if (entreNos && (segredoNos == 0 || senha != segredoNos)) {
+            limitador.registrarFalha(cliente);
+            return resposta(id, Resultado.SENHA_INCORRETA, 0);
+        }
+
+        Banco banco = bancoCentral.buscarBanco(bancoNumero);
+        if (banco == null) {
+            limitador.registrarFalha(cliente);
+            return resposta(id, Resultado.BANCO_NAO_ENCONTRADO, 0);
+        }
+        Conta conta = banco.buscarConta(contaNumero);
+        if (conta == null) {
+            limitador.registrarFalha(cliente);
+            return resposta(id, Resultado.CONTA_NAO_ENCONTRADA, 0);
+        }
+        if (!entreNos && !limitador.verificarSenha(cliente, conta, senha)) {
+            return resposta(id, Resultado.SENHA_INCORRETA, 0);
+        }
+
+        int resultado;
+        try {
+            long chave = comChave ? requisicao.getLong() : CacheIdempotencia.SEM_CHAVE;
+            switch (operacao) {
+                case Protocolo.SALDO -> resultado = Resultado.OK;
+                case Protocolo.EXTRATO -> {
+                    return respostaExtrato(id, conta);
+                }
+                case Protocolo.EXTRATO_PERIODO -> {
+                    long de = requisicao.getLong();
+                    long ate = requisicao.getLong();
+                    long cursor = requisicao.getLong();
+                    int limite = requisicao.getInt();
+                    if (limite <= 0) {
+                        return resposta(id, Resultado.ENTRADA_INCORRETA, 0);
+                    }
+                    return respostaExtratoPeriodo(id, conta, de, ate, cursor, Math.min(limite, Protocolo.LIMITE_PAGINA));
+                }
+                case Protocolo.SAQUE -> resultado = banco.tentarSaque(chave, conta, requisicao.getLong());
+                case Protocolo.DEPOSITO -> {
+                    long valor = requisicao.getLong();
+                    resultado = (valor <= 0)
+                            ? Resultado.VALOR_INVALIDO
+                            : banco.tentarDeposito(chave, conta, conta, valor);
+                }
+                case Protocolo.TRANSFERENCIA_INTERNA -> {
+                    Conta contaDest = banco.buscarConta(requisicao.getInt());
+                    long valor = requisicao.getLong();
+                    resultado = (contaDest == null)
+                            ? Resultado.CONTA_NAO_ENCONTRADA
+                            : banco.tentarTransferenciaInterna(chave, conta, contaDest, valor);
+                }
+                case Protocolo.TRANSFERENCIA_EXTERNA -> {
+                    int numeroBancoDest = requisicao.getInt();
+                    int numeroContaDest = requisicao.getInt();
+                    long valor = requisicao.getLong();
+                    resultado = bancoCentral.tentarTransferenciaEntreBancos(
+                            chave, banco, conta, valor, numeroBancoDest, numeroContaDest);
+                }
+                case Protocolo.DEBITO_INTERBANCARIO -> {
+                    // Só o roteador, que conhece o segredo, debita sem que a conta destino seja conferida.
+                    int segredo = requisicao.getInt();
+                    if (segredoNos == 0 || segredo != segredoNos) {
+                        limitador.registrarFalha(cliente);
+                        return resposta(id, Resultado.SENHA_INCORRETA, 0);
+                    }
+                    int numeroBancoDest = requisicao.getInt();
+                    int numeroContaDest = requisicao.getInt();
+                    long valor = requisicao.getLong();
+                    String bancoNomeDest = lerTexto(requisicao);
+                    String titularDest = lerTexto(requisicao);
+                    // Entre contas do mesmo banco (faixas em nós diferentes) não há taxa.
+                    long taxa = (numeroBancoDest == bancoNumero) ? 0 : BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS;
+                    resultado = (numeroBancoDest == bancoNumero && numeroContaDest == contaNumero)
+                            ? Resultado.CONTA_ORIGEM_IGUAL_DESTINO
+                            : banco.tentarTransferenciaExterna(chave, conta, numeroBancoDest, bancoNomeDest,
+                            numeroContaDest, titularDest, valor, taxa);
+                }
+                case Protocolo.DADOS_CONTA -> {
+                    return respostaDadosConta(id, conta);
+                }
+                case Protocolo.CREDITO_INTERBANCARIO -> {
+                    int numeroBancoOrig = requisicao.getInt();
+                    int numeroContaOrig = requisicao.getInt();
+                    long valor = requisicao.getLong();
+                    String bancoNomeOrig = lerTexto(requisicao);
+                    String titularOrig = lerTexto(requisicao);
+                    resultado = (valor <= 0)
+                            ? Resultado.VALOR_INVALIDO
+                            : banco.tentarDepositoInterbancario(chave, numeroBancoOrig, bancoNomeOrig,
+                            numeroContaOrig, titularOrig, conta, valor);
+                    // O saldo da conta creditada não é enviado a outro nó.
+                    return resposta(id, resultado, 0);
+                }
+                default -> resultado = Resultado.ENTRADA_INCORRETA;
+            }
+        } catch (BufferUnderflowException e) {
+            // Requisição mais curta que a operação pede; nada foi alterado.
+            resultado = Resultado.ENTRADA_INCORRETA;
+        }
+
+        return resposta(id, resultado, conta.getSaldo());
+    }
+
+    /**
+     * Identificação do cliente no limite de tentativas: o endereço IP, e não a
+     * conexão, para que abrir novas conexões não renove as tentativas.
+     */
+    private static long identificarCliente(SocketAddress endereco) {
+        if (!(endereco instanceof InetSocketAddress inet) || inet.getAddress() == null) {
+            return 0;
+        }
+        byte[] ip = inet.getAddress().getAddress();
+        if (ip.length == 4) {
+            return ByteBuffer.wrap(ip).getInt() & 0xFFFFFFFFL;
+        }
+        // IPv6: as duas metades misturadas; colisões só juntam dois clientes num mesmo limite.
+        ByteBuffer bytes = ByteBuffer.wrap(ip);
+        return bytes.getLong() * 31 + bytes.getLong();
+    }
+
+    /**
+     * Lê um texto da requisição: [byte bytes][UTF-8].
+     */
+    private static String lerTexto(ByteBuffer requisicao) {
+        byte[] texto = new byte[requisicao.get() & 0xFF];
+        requisicao.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Monta uma resposta sem texto. O saldo só é enviado se a operação foi realizada.
+     */
+    private static ByteBuffer resposta(int id, int resultado, long saldo) {
+        int tamanho = (resultado == Resultado.OK) ? 4 + 1 + 8 : 4 + 1;
+        ByteBuffer resposta = ByteBuffer.allocate(4 + tamanho);
+        resposta.putInt(tamanho).putInt(id).put((byte) resultado);
+        if (resultado == Resultado.OK) {
+            resposta.putLong(saldo);
+        }
+        return resposta.flip();
+    }
+
+    /**
+     * Monta a resposta do extrato, com o saldo e o texto lidos sob o monitor da conta.
+     */
+    private static ByteBuffer respostaExtrato(int id, Conta conta) {
+        long saldo;
+        byte[] texto;
+        synchronized (conta) {
+            saldo = conta.getSaldo();
+            texto = conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE)
+                    .getTexto().getBytes(StandardCharsets.UTF_8);
+        }
+
+        int tamanho = 4 + 1 + 8 + 4 + texto.length;
+        ByteBuffer resposta = ByteBuffer.allocate(4 + tamanho);
+        resposta.putInt(tamanho).putInt(id).put((byte) Resultado.OK)
+                .putLong(saldo).putInt(texto.length).put(texto);
+        return resposta.flip();
+    }
+
+    /**
+     * Monta a resposta do DADOS_CONTA: o nome do banco e o titular, sem o saldo.
+     */
+    private static ByteBuffer respostaDadosConta(int id, Conta conta) {
+        byte[] texto = (conta.getBancoNome() + "\n" + conta.getTitular()).getBytes(StandardCharsets.UTF_8);
+
+        int tamanho = 4 + 1 + 8 + 4 + texto.length;
+        ByteBuffer resposta = ByteBuffer.allocate(4 + tamanho);
+        resposta.putInt(tamanho).putInt(id).put((byte) Resultado.OK)
+                .putLong(0).putInt(texto.length).put(texto);
+        return resposta.flip();
+    }
+
+    /**
+     * Monta a resposta de uma página do extrato de um período.
+     */
+    private static ByteBuffer respostaExtratoPeriodo(int id, Conta conta, long de, long ate, long cursor, int limite) {
+        long saldo;
+        PaginaExtrato pagina;
+        synchronized (conta) {
+            saldo = conta.getSaldo();
+            pagina = conta.consultarExtrato(de, ate, cursor, limite);
+        }
+        byte[] texto = pagina.getTexto().getBytes(StandardCharsets.UTF_8);
+
+        int tamanho = 4 + 1 + 8 + 8 + 4 + texto.length;
+        ByteBuffer resposta = ByteBuffer.allocate(4 + tamanho);
+        resposta.putInt(tamanho).putInt(id).put((byte) Resultado.OK)
+                .putLong(saldo).putLong(pagina.getProximoCursor()).putInt(texto.length).put(texto);
+        return resposta.flip();
+    }
+
+    /**
+     * Para de atender, espera as operações em andamento terminarem e fecha as conexões.
+     */
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        seletor.wakeup();
+        try {
+            threadSeletor.join();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (SelectionKey chave : seletor.keys()) {
+            chave.channel().close();
+        }
+        seletor.close();
+    }
+
+    /**
+     * Estado de uma conexão de cliente.
+     * <p>
+     * A thread do seletor lê as requisições e as coloca na fila; uma thread do
+     * executor por vez esvazia a fila. O monitor da conexão protege a fila de
+     * saída e as operações de interesse da chave.
+     */
+    private final class Conexao implements Runnable {
+        private final SocketChannel canal;
+        private SelectionKey chave;
+        private final ByteBuffer entrada = ByteBuffer.allocate(TAMANHO_BUFFER_LEITURA);
+        private final Queue<ByteBuffer> requisicoes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean emExecucao = new AtomicBoolean();
+        private final AtomicInteger pendentes = new AtomicInteger();
+        private final ArrayDeque<ByteBuffer> saida = new ArrayDeque<>();
+        private volatile boolean leituraSuspensa;
+        private final long cliente;
+
+        private Conexao(SocketChannel canal) throws IOException {
+            this.canal = canal;
+            this.cliente = identificarCliente(canal.getRemoteAddress());
+        }
+
+        /**
+         * Lê o que chegou e separa as requisições completas. Chamado pela thread do seletor.
+         */
+        private void ler() throws IOException {
+            if (canal.read(entrada) < 0) {
+                fechar();
+                return;
+            }
+
+            int novas = 0;
+            entrada.flip();
+            while (entrada.remaining() >= 4) {
+                int tamanho = entrada.getInt(entrada.position());
+                if (tamanho < Protocolo.TAMANHO_CABECALHO || tamanho > Protocolo.TAMANHO_MAXIMO_REQUISICAO) {
+                    // Não há como achar o início da próxima requisição.
+                    fechar();
+                    return;
+                }
+                if (entrada.remaining() < 4 + tamanho) {
+                    break;
+                }
+                byte[] requisicao = new byte[tamanho];
+                entrada.position(entrada.position() + 4);
+                entrada.get(requisicao);
+                requisicoes.add(ByteBuffer.wrap(requisicao));
+                novas++;
+            }
+            entrada.compact();
+
+            if (novas > 0) {
+                if (pendentes.addAndGet(novas) >= LIMITE_PENDENTES) {
+                    suspenderLeitura();
+                }
+                if (emExecucao.compareAndSet(false, true)) {
+                    executor.execute(this);
+                }
+            }
+        }
+
+        /**
+         * Executa as requisições da fila, em ordem. Chamado por uma thread do executor.
+         */
+        @Override
+        public void run() {
+            do {
+                ByteBuffer requisicao;
+                while ((requisicao = requisicoes.poll()) != null) {
+                    ByteBuffer resposta;
+                    try {
+                        resposta = executar(requisicao, cliente);
+                    } catch (RuntimeException e) {
+                        System.err.println("\n[AVISO]\nFalha ao executar requisição.\nMotivo: " + e.getMessage());
+                        fechar();
+                        return;
+                    }
+                    if (!enviar(resposta)) {
+                        return;
+                    }
+                }
+                emExecucao.set(false);
+                // Uma requisição pode ter chegado entre o último poll e o set.
+            } while (!requisicoes.isEmpty() && emExecucao.compareAndSet(false, true));
+        }
+
+        /**
+         * Envia uma resposta. Escreve direto no canal se não houver nada na frente;
+         * o que não couber fica na fila para a thread do seletor.
+         *
+         * @return Retorna false se a conexão foi fechada.
+         */
+        private synchronized boolean enviar(ByteBuffer resposta) {
+            if (!canal.isOpen()) {
+                return false;
+            }
+            try {
+                if (saida.isEmpty()) {
+                    canal.write(resposta);
+                    if (!resposta.hasRemaining()) {
+                        concluir();
+                        return true;
+                    }
+                }
+                saida.add(resposta);
+                atualizarInteresse();
+                seletor.wakeup();
+                return true;
+            } catch (IOException | CancelledKeyException e) {
+                fechar();
+                return false;
+            }
+        }
+
+        /**
+         * Escreve as respostas que ficaram na fila. Chamado pela thread do seletor.
+         */
+        private synchronized void escreverPendentes() throws IOException {
+            ByteBuffer resposta;
+            while ((resposta = saida.peek()) != null) {
+                canal.write(resposta);
+                if (resposta.hasRemaining()) {
+                    break;
+                }
+                saida.poll();
+                concluir();
+            }
+            atualizarInteresse();
+        }
+
+        /**
+         * Conta uma resposta enviada e volta a ler a conexão se ela estava suspensa.
+         */
+        private void concluir() {
+            pendentes.decrementAndGet();
+            if (leituraSuspensa) {
+                retomarLeitura();
+            }
+        }
+
+        private synchronized void suspenderLeitura() {
+            // Confere de novo: as respostas podem ter saído depois do addAndGet.
+            if (pendentes.get() >= LIMITE_PENDENTES) {
+                leituraSuspensa = true;
+                atualizarInteresse();
+            }
+        }
+
+        private synchronized void retomarLeitura() {
+            if (pendentes.get() < LIMITE_PENDENTES) {
+                leituraSuspensa = false;
+                atualizarInteresse();
+                seletor.wakeup();
+            }
+        }
+
+        /**
+         * Atualiza as operações de interesse da chave. Chamado com o monitor da conexão.
+         */
+        private void atualizarInteresse() {
+            if (!chave.isValid()) {
+                return;
+            }
+            int operacoes = leituraSuspensa ? 0 : SelectionKey.OP_READ;
+            if (!saida.isEmpty()) {
+                operacoes |= SelectionKey.OP_WRITE;
+            }
+            chave.interestOps(operacoes);
+        }
+
+        private synchronized void fechar() {
+            chave.cancel();
+            try {
+                canal.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
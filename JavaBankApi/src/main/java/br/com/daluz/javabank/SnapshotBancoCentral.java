@@ -0,0 +1,411 @@
+package br.com.daluz.javabank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Snapshot binário de todos os bancos e contas do Banco Central.
+ * <p>
+ * Layout do arquivo (todos os números em big-endian):
+ * <pre>
+ *   cabeçalho (32 bytes): [int MAGICO][int VERSAO][long posicaoRegistro][int qtdBancos]
+ *                         [int qtdCiclo][int qtdPendentes][int qtdLancadas]
+ *   tabela (32 bytes por banco): [int bancoNumero][int nomeTamanho][long posicaoSecao]
+ *                                [long qtdContas][long tamanhoSecao]
+ *   nomes dos bancos (concatenados, na ordem da tabela)
+ *   compensação (32 bytes por transferência, primeiro o ciclo em liquidação, depois a fila):
+ *                                [int bancoOrig][int contaOrig][int bancoDest][int contaDest]
+ *                                [long valor][byte estado][7 bytes reservados]
+ *   fechamento mensal (16 bytes): [int competenciaAberta][int ultimaFechada][8 bytes reservados]
+ *                                 seguido de [long banco << 32 | conta] por conta já lançada
+ *   chaves de idempotência (8 bytes): [int qtdChaves][4 bytes reservados]
+ *                                 seguido de [long chave][int impressao][4 bytes reservados][long instante] por chave
+ *   seções (uma por banco, alinhadas em 4 KiB): ver {@link ContasMapeadas}
+ * </pre>
+ * Cada seção leva, além das contas, as operações do extrato de cada uma, para
+ * que o extrato continue completo depois de uma carga.
+ * Na carga, cada seção é mapeada em memória (MappedByteBuffer) e entregue ao
+ * banco sem ler as contas; elas só viram objetos quando são procuradas. A
+ * posição do registro de transações gravada no cabeçalho diz de onde a
+ * reprodução do registro deve continuar.
+ * <p>
+ * O snapshot não é tirado do estado vivo (que está sendo alterado por
+ * várias threads). Ele é gerado por {@link #compactar}: o snapshot anterior
+ * mais o trecho durável do registro são reaplicados num Banco Central
+ * separado, e o resultado é gravado num arquivo novo.
+ */
+public final class SnapshotBancoCentral {
+    private static final int MAGICO = 0x4A42534E; // "JBSN"
+    private static final int VERSAO = 6;
+    private static final int TAMANHO_CABECALHO = 32;
+    private static final int TAMANHO_ENTRADA_TABELA = 32;
+    private static final int TAMANHO_TRANSFERENCIA = 32;
+    private static final int TAMANHO_FECHAMENTO = 16;
+    private static final int TAMANHO_CABECALHO_CHAVES = 8;
+    private static final int TAMANHO_CHAVE = 24;
+    private static final int ALINHAMENTO_SECAO = 4096;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private SnapshotBancoCentral() {
+    }
+
+    /**
+     * Carrega o snapshot no Banco Central, que deve estar vazio.
+     * As seções de contas são apenas mapeadas em memória.
+     *
+     * @param arquivo      Arquivo do snapshot.
+     * @param bancoCentral Banco Central a ser preenchido.
+     * @return Retorna a posição do registro de transações coberta pelo snapshot.
+     * @throws IOException Lança exceção se o arquivo não puder ser lido ou não for um snapshot válido.
+     */
+    public static long carregar(Path arquivo, BancoCentral bancoCentral) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ler(canal, 0, TAMANHO_CABECALHO);
+            int versao = cabecalho.getInt(4);
+            if (cabecalho.getInt(0) != MAGICO || versao < 1 || versao > VERSAO) {
+                throw new IOException("Arquivo não é um snapshot válido: " + arquivo);
+            }
+            long posicaoRegistro = cabecalho.getLong(8);
+            int qtdBancos = cabecalho.getInt(16);
+            // A versão 1 não tinha a compensação entre bancos; os campos eram reservados (zero).
+            int qtdCiclo = cabecalho.getInt(20);
+            int qtdPendentes = cabecalho.getInt(24);
+            // Até a versão 2 não havia fechamento mensal; o campo era reservado (zero).
+            int qtdLancadas = cabecalho.getInt(28);
+
+            ByteBuffer tabela = ler(canal, TAMANHO_CABECALHO, qtdBancos * TAMANHO_ENTRADA_TABELA);
+            long posicaoNome = TAMANHO_CABECALHO + (long) qtdBancos * TAMANHO_ENTRADA_TABELA;
+
+            for (int b = 0; b < qtdBancos; b++) {
+                int entrada = b * TAMANHO_ENTRADA_TABELA;
+                int bancoNumero = tabela.getInt(entrada);
+                int nomeTamanho = tabela.getInt(entrada + 4);
+                long posicaoSecao = tabela.getLong(entrada + 8);
+                long qtdContas = tabela.getLong(entrada + 16);
+                long tamanhoSecao = tabela.getLong(entrada + 24);
+
+                String nome = StandardCharsets.UTF_8.decode(ler(canal, posicaoNome, nomeTamanho)).toString();
+                posicaoNome += nomeTamanho;
+
+                if (tamanhoSecao > Integer.MAX_VALUE) {
+                    throw new IOException("Seção do banco " + bancoNumero + " é grande demais para ser mapeada.");
+                }
+                // A seção vazia de um banco sem contas pode começar depois do fim do arquivo.
+                ByteBuffer secao = (tamanhoSecao == 0) ? ByteBuffer.allocate(0)
+                        : canal.map(FileChannel.MapMode.READ_ONLY, posicaoSecao, tamanhoSecao);
+
+                Banco banco = new Banco(bancoNumero, nome);
+                bancoCentral.criarBanco(banco);
+                // Até a versão 4 a senha era gravada aberta; até a versão 5 não havia extratos.
+                banco.usarContasMapeadas(new ContasMapeadas(secao, (int) qtdContas, versao));
+            }
+
+            ByteBuffer transferencias = ler(canal, posicaoNome, (qtdCiclo + qtdPendentes) * TAMANHO_TRANSFERENCIA);
+            LoteTransferencias ciclo = new LoteTransferencias(qtdCiclo);
+            byte[] estados = new byte[qtdCiclo];
+            for (int t = 0; t < qtdCiclo; t++) {
+                estados[t] = lerTransferencia(transferencias, ciclo);
+            }
+            LoteTransferencias pendentes = new LoteTransferencias(Math.max(qtdPendentes, 64));
+            for (int t = 0; t < qtdPendentes; t++) {
+                lerTransferencia(transferencias, pendentes);
+            }
+            bancoCentral.getCompensacao().restaurar(ciclo, estados, pendentes);
+
+            if (versao >= 3) {
+                long posicaoFechamento = posicaoNome + (long) (qtdCiclo + qtdPendentes) * TAMANHO_TRANSFERENCIA;
+                ByteBuffer fechamento = ler(canal, posicaoFechamento, TAMANHO_FECHAMENTO + qtdLancadas * 8);
+                int aberta = fechamento.getInt();
+                int ultimaFechada = fechamento.getInt();
+                fechamento.position(TAMANHO_FECHAMENTO);
+                long[] lancadas = new long[qtdLancadas];
+                fechamento.asLongBuffer().get(lancadas);
+                bancoCentral.getFechamento().restaurar(aberta, ultimaFechada, lancadas);
+
+                // Até a versão 3 não havia chaves de idempotência.
+                if (versao >= 4) {
+                    long posicaoChaves = posicaoFechamento + TAMANHO_FECHAMENTO + qtdLancadas * 8L;
+                    int qtdChaves = ler(canal, posicaoChaves, TAMANHO_CABECALHO_CHAVES).getInt();
+                    ByteBuffer chaves = ler(canal, posicaoChaves + TAMANHO_CABECALHO_CHAVES, qtdChaves * TAMANHO_CHAVE);
+                    CacheIdempotencia idempotencia = bancoCentral.getIdempotencia();
+                    for (int c = 0; c < qtdChaves; c++) {
+                        long chave = chaves.getLong();
+                        int impressao = chaves.getInt();
+                        chaves.position(chaves.position() + 4);
+                        idempotencia.reproduzir(chave, impressao, chaves.getLong());
+                    }
+                }
+            }
+            return posicaoRegistro;
+        }
+    }
+
+    /**
+     * Gera um novo snapshot a partir do snapshot anterior e do registro de transações,
+     * sem tocar no estado vivo do Banco Central. O arquivo é substituído de forma atômica.
+     *
+     * @param snapshot Arquivo do snapshot (pode ainda não existir).
+     * @param registro Arquivo do registro de transações.
+     * @param fim      Posição durável do registro; registros depois dela são ignorados.
+     * @throws IOException Lança exceção se algum arquivo não puder ser lido ou gravado.
+     */
+    public static void compactar(Path snapshot, Path registro, long fim) throws IOException {
+        BancoCentral sombra = new BancoCentral();
+        long inicio = Files.exists(snapshot) ? carregar(snapshot, sombra) : 0;
+        if (inicio >= fim) {
+            return;
+        }
+        long posicao = RegistroTransacoes.reproduzir(registro, inicio, fim, sombra);
+        escrever(sombra, posicao, snapshot);
+    }
+
+    /**
+     * Grava o snapshot de um Banco Central. Deve ser usado apenas com um
+     * Banco Central que não está recebendo operações.
+     *
+     * @param bancoCentral     Banco Central a ser gravado.
+     * @param posicaoRegistro  Posição do registro de transações coberta por este estado.
+     * @param destino          Arquivo do snapshot.
+     * @throws IOException Lança exceção se o arquivo não puder ser gravado.
+     */
+    static void escrever(BancoCentral bancoCentral, long posicaoRegistro, Path destino) throws IOException {
+        List<Banco> bancos = bancoCentral.getBancos();
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            List<byte[]> nomes = new ArrayList<>();
+            long tamanhoNomes = 0;
+            for (Banco banco : bancos) {
+                byte[] nome = banco.getBancoNome().getBytes(StandardCharsets.UTF_8);
+                nomes.add(nome);
+                tamanhoNomes += nome.length;
+            }
+
+            // Um ciclo já todo creditado não precisa ir para o snapshot.
+            CompensacaoInterbancaria compensacao = bancoCentral.getCompensacao();
+            LoteTransferencias ciclo = compensacao.getCiclo();
+            LoteTransferencias pendentes = compensacao.getPendentes();
+            int qtdCiclo = 0;
+            for (int t = 0; t < ciclo.tamanho(); t++) {
+                if (compensacao.getEstado(t) == CompensacaoInterbancaria.A_CREDITAR) {
+                    qtdCiclo = ciclo.tamanho();
+                    break;
+                }
+            }
+            long tamanhoCompensacao = (long) (qtdCiclo + pendentes.tamanho()) * TAMANHO_TRANSFERENCIA;
+
+            FechamentoMensal fechamento = bancoCentral.getFechamento();
+            long[] lancadas = fechamento.getLancadas();
+            long tamanhoFechamento = TAMANHO_FECHAMENTO + (long) lancadas.length * 8;
+
+            // [chave, impressão, instante] por chave.
+            long[] chaves = bancoCentral.getIdempotencia().getRealizadas();
+            int qtdChaves = chaves.length / 3;
+            long tamanhoChaves = TAMANHO_CABECALHO_CHAVES + (long) qtdChaves * TAMANHO_CHAVE;
+
+            long inicioNomes = TAMANHO_CABECALHO + (long) bancos.size() * TAMANHO_ENTRADA_TABELA;
+            long fimIndice = inicioNomes + tamanhoNomes + tamanhoCompensacao + tamanhoFechamento + tamanhoChaves;
+            ByteBuffer indice = ByteBuffer.allocate((int) fimIndice);
+            indice.putInt(MAGICO).putInt(VERSAO).putLong(posicaoRegistro).putInt(bancos.size());
+            indice.putInt(qtdCiclo).putInt(pendentes.tamanho()).putInt(lancadas.length);
+            indice.position(TAMANHO_CABECALHO);
+
+            long posicaoSecao = alinhar(fimIndice);
+            for (int b = 0; b < bancos.size(); b++) {
+                Banco banco = bancos.get(b);
+                List<Conta> carregadas = banco.getContasCarregadas();
+                carregadas.sort(Comparator.comparingInt(Conta::getContaNumero));
+                ContasMapeadas mapeadas = banco.getContasMapeadas();
+
+                int qtdContas = contar(carregadas, mapeadas);
+                long tamanhoSecao = escreverSecao(canal, posicaoSecao, qtdContas, carregadas, mapeadas);
+
+                indice.putInt(banco.getBancoNumero()).putInt(nomes.get(b).length);
+                indice.putLong(posicaoSecao).putLong(qtdContas).putLong(tamanhoSecao);
+                posicaoSecao = alinhar(posicaoSecao + tamanhoSecao);
+            }
+            nomes.forEach(indice::put);
+            for (int t = 0; t < qtdCiclo; t++) {
+                escreverTransferencia(indice, ciclo, t, compensacao.getEstado(t));
+            }
+            for (int t = 0; t < pendentes.tamanho(); t++) {
+                escreverTransferencia(indice, pendentes, t, CompensacaoInterbancaria.A_CREDITAR);
+            }
+            indice.putInt(fechamento.getAberta()).putInt(fechamento.getUltimaFechada());
+            indice.position(indice.position() + 8);
+            for (long chave : lancadas) {
+                indice.putLong(chave);
+            }
+            indice.putInt(qtdChaves);
+            indice.position(indice.position() + 4);
+            for (int c = 0; c < chaves.length; c += 3) {
+                indice.putLong(chaves[c]).putInt((int) chaves[c + 1]);
+                indice.position(indice.position() + 4);
+                indice.putLong(chaves[c + 2]);
+            }
+
+            indice.flip();
+            escreverTudo(canal, indice, 0);
+            canal.force(true);
+        }
+
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Conta quantas contas a seção terá: as do snapshot anterior mais as criadas depois dele.
+     */
+    private static int contar(List<Conta> carregadas, ContasMapeadas mapeadas) {
+        int qtdMapeadas = (mapeadas == null) ? 0 : mapeadas.quantidade();
+        int qtd = qtdMapeadas;
+        for (Conta conta : carregadas) {
+            if (qtdMapeadas == 0 || mapeadas.buscar(conta.getContaNumero()) < 0) {
+                qtd++;
+            }
+        }
+        return qtd;
+    }
+
+    /**
+     * Grava as contas de um banco em ordem de número, intercalando as contas
+     * carregadas em memória (estado mais recente) com as do snapshot anterior.
+     * As contas que não foram carregadas levam o extrato do snapshot anterior
+     * como está, sem decodificá-lo.
+     */
+    private static long escreverSecao(FileChannel canal, long posicaoSecao, int qtdContas,
+                                      List<Conta> carregadas, ContasMapeadas mapeadas) throws IOException {
+        ByteBuffer registros = ByteBuffer.allocate(TAMANHO_BUFFER);
+        ByteBuffer dados = ByteBuffer.allocate(TAMANHO_BUFFER);
+        long posicaoRegistros = posicaoSecao;
+        long inicioDados = posicaoSecao + (long) qtdContas * ContasMapeadas.TAMANHO_REGISTRO;
+        long posicaoDados = inicioDados;
+        long tamanhoDados = 0;
+
+        int qtdMapeadas = (mapeadas == null) ? 0 : mapeadas.quantidade();
+        int i = 0;
+        int j = 0;
+        while (i < carregadas.size() || j < qtdMapeadas) {
+            int numeroCarregada = (i < carregadas.size()) ? carregadas.get(i).getContaNumero() : Integer.MAX_VALUE;
+            int numeroMapeada = (j < qtdMapeadas) ? mapeadas.contaNumero(j) : Integer.MAX_VALUE;
+
+            int contaNumero;
+            int contaTipo;
+            int senhaProtegida;
+            long saldo;
+            byte[] titular;
+            byte[] extrato;
+            int extratoQuantidade;
+            if (i < carregadas.size() && numeroCarregada <= numeroMapeada) {
+                Conta conta = carregadas.get(i++);
+                if (numeroCarregada == numeroMapeada) {
+                    j++;
+                }
+                contaNumero = conta.getContaNumero();
+                contaTipo = conta.getContaTipo();
+                senhaProtegida = conta.getSenhaProtegida();
+                saldo = conta.getSaldo();
+                titular = conta.getTitular().getBytes(StandardCharsets.UTF_8);
+                synchronized (conta) {
+                    Extrato operacoes = conta.getOperacoes();
+                    extrato = (operacoes == null) ? new byte[0] : operacoes.serializar();
+                    extratoQuantidade = (operacoes == null) ? 0 : Math.toIntExact(operacoes.tamanho());
+                }
+            } else {
+                contaNumero = numeroMapeada;
+                contaTipo = mapeadas.contaTipo(j);
+                senhaProtegida = mapeadas.senhaProtegida(j);
+                saldo = mapeadas.saldo(j);
+                titular = mapeadas.titular(j).getBytes(StandardCharsets.UTF_8);
+                extrato = mapeadas.extrato(j);
+                extratoQuantidade = mapeadas.extratoQuantidade(j);
+                j++;
+            }
+
+            if (registros.remaining() < ContasMapeadas.TAMANHO_REGISTRO) {
+                posicaoRegistros += descarregar(canal, registros, posicaoRegistros);
+            }
+            registros.putInt(contaNumero).putInt(contaTipo).putInt(senhaProtegida).putInt(titular.length);
+            registros.putLong(saldo).putLong(tamanhoDados);
+            registros.putLong(tamanhoDados + titular.length).putInt(extrato.length).putInt(extratoQuantidade);
+
+            posicaoDados = acrescentar(canal, dados, posicaoDados, titular);
+            posicaoDados = acrescentar(canal, dados, posicaoDados, extrato);
+            tamanhoDados += titular.length + extrato.length;
+        }
+        descarregar(canal, registros, posicaoRegistros);
+        descarregar(canal, dados, posicaoDados);
+
+        return (inicioDados - posicaoSecao) + tamanhoDados;
+    }
+
+    /**
+     * Acrescenta bytes à área de dados de uma seção, pelo buffer se couberem nele.
+     *
+     * @return Retorna a nova posição do arquivo onde o buffer será descarregado.
+     */
+    private static long acrescentar(FileChannel canal, ByteBuffer buffer, long posicao, byte[] bytes)
+            throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            posicao += descarregar(canal, buffer, posicao);
+        }
+        if (bytes.length > buffer.capacity()) {
+            posicao += escreverTudo(canal, ByteBuffer.wrap(bytes), posicao);
+        } else {
+            buffer.put(bytes);
+        }
+        return posicao;
+    }
+
+    private static void escreverTransferencia(ByteBuffer destino, LoteTransferencias lote, int t, byte estado) {
+        destino.putInt(lote.bancoOrig(t)).putInt(lote.contaOrig(t));
+        destino.putInt(lote.bancoDest(t)).putInt(lote.contaDest(t));
+        destino.putLong(lote.valor(t)).put(estado);
+        destino.position(destino.position() + 7);
+    }
+
+    private static byte lerTransferencia(ByteBuffer origem, LoteTransferencias lote) {
+        lote.adicionar(origem.getInt(), origem.getInt(), origem.getInt(), origem.getInt(), origem.getLong());
+        byte estado = origem.get();
+        origem.position(origem.position() + 7);
+        return estado;
+    }
+
+    private static int descarregar(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        buffer.flip();
+        int escritos = escreverTudo(canal, buffer, posicao);
+        buffer.clear();
+        return escritos;
+    }
+
+    private static int escreverTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+        int escritos = 0;
+        while (buffer.hasRemaining()) {
+            escritos += canal.write(buffer, posicao + escritos);
+        }
+        return escritos;
+    }
+
+    private static ByteBuffer ler(FileChannel canal, long posicao, int tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, posicao + buffer.position()) < 0) {
+                throw new IOException("Snapshot truncado.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static long alinhar(long posicao) {
+        return (posicao + ALINHAMENTO_SECAO - 1) & -ALINHAMENTO_SECAO;
+    }
+}
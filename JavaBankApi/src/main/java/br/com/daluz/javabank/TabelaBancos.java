@@ -0,0 +1,133 @@
+package br.com.daluz.javabank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bancos registrados no Banco Central, chaveados pelo número do banco.
+ * <p>
+ * A tabela é imutável: registrar um banco cria uma tabela nova, que o Banco
+ * Central publica num campo volatile (cópia na escrita). Bancos são criados
+ * raramente e procurados em toda operação entre bancos, então as buscas não
+ * usam trava nenhuma e a lista de nomes mostrada no caixa eletrônico é
+ * montada uma única vez, junto com a tabela.
+ */
+final class TabelaBancos {
+    static final TabelaBancos VAZIA = new TabelaBancos(new Banco[0]);
+
+    private final Banco[] bancos;
+    // Endereçamento aberto (sondagem linear), com no máximo metade das posições ocupadas.
+    private final int[] chaves;
+    private final Banco[] porNumero;
+    private final List<String> nomes;
+
+    private TabelaBancos(Banco[] bancos) {
+        this.bancos = bancos;
+        int capacidade = Integer.highestOneBit(Math.max(bancos.length, 1) * 4 - 1);
+        this.chaves = new int[capacidade];
+        this.porNumero = new Banco[capacidade];
+        String[] nomes = new String[bancos.length];
+        for (int b = 0; b < bancos.length; b++) {
+            inserir(bancos[b]);
+            nomes[b] = bancos[b].toString();
+        }
+        this.nomes = Collections.unmodifiableList(Arrays.asList(nomes));
+    }
+
+    /**
+     * Nova tabela com um banco a mais.
+     *
+     * @param banco Banco registrado.
+     * @return Retorna a nova tabela; esta não é alterada.
+     */
+    TabelaBancos com(Banco banco) {
+        Banco[] novos = Arrays.copyOf(bancos, bancos.length + 1);
+        novos[bancos.length] = banco;
+        return new TabelaBancos(novos);
+    }
+
+    /**
+     * Se dois bancos têm o mesmo número, vale o registrado primeiro, como na busca pela lista.
+     */
+    private void inserir(Banco banco) {
+        int mascara = chaves.length - 1;
+        int i = IndiceContas.espalhar(banco.getBancoNumero()) & mascara;
+        while (porNumero[i] != null) {
+            if (chaves[i] == banco.getBancoNumero()) {
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = banco.getBancoNumero();
+        porNumero[i] = banco;
+    }
+
+    /**
+     * Busca o banco pelo número.
+     *
+     * @param numero Número do banco.
+     * @return Retorna o banco, ou null se ele não estiver registrado.
+     */
+    Banco buscar(int numero) {
+        int mascara = chaves.length - 1;
+        int i = IndiceContas.espalhar(numero) & mascara;
+        Banco banco;
+        while ((banco = porNumero[i]) != null) {
+            if (chaves[i] == numero) {
+                return banco;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se o banco está registrado.
+     *
+     * @param banco Banco procurado.
+     * @return Retorna true se o banco está na tabela.
+     */
+    boolean contem(Banco banco) {
+        if (banco == null) {
+            return false;
+        }
+        if (buscar(banco.getBancoNumero()) == banco) {
+            return true;
+        }
+        // Só acontece com números repetidos; o banco pode ser um dos registrados depois.
+        for (Banco registrado : bancos) {
+            if (registrado == banco) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bancos na ordem em que foram registrados. O array não deve ser alterado.
+     *
+     * @return Retorna os bancos.
+     */
+    Banco[] bancos() {
+        return bancos;
+    }
+
+    /**
+     * Nomes dos bancos ("[número] nome"), na ordem em que foram registrados.
+     *
+     * @return Retorna a lista de nomes, que não pode ser alterada.
+     */
+    List<String> nomes() {
+        return nomes;
+    }
+
+    List<Banco> copiarBancos() {
+        return new ArrayList<>(Arrays.asList(bancos));
+    }
+
+    int quantidade() {
+        return bancos.length;
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.daluz.javabank;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classe utilitária.
+ * Possui métodos úteis usados com frequência.
+ */
+public class Utils {
+    // Os títulos são poucos (telas e nomes de bancos); acima do limite, o banner é montado a cada vez.
+    private static final int LIMITE_BANNERS = 256;
+    private static final ConcurrentHashMap<String, String> BANNERS = new ConcurrentHashMap<>();
+
+    /**
+     * Formata um valor em centavos em formato monetário.
+     *
+     * @param valor Valor a ser formatado, em centavos.
+     * @return Retorna um texto que exibe o valor em formato monetário.
+     */
+    public static String toMoney(long valor) {
+        return Dinheiro.formatar(new StringBuilder(24), valor).toString();
+    }
+
+    /**
+     * Escreve um valor em centavos em formato monetário no final do buffer,
+     * sem criar o texto intermediário de {@link #toMoney(long)}.
+     *
+     * @param destino Buffer onde o valor é escrito.
+     * @param valor   Valor a ser formatado, em centavos.
+     * @return Retorna o próprio buffer.
+     */
+    public static StringBuilder toMoney(StringBuilder destino, long valor) {
+        return Dinheiro.formatar(destino, valor);
+    }
+
+    /**
+     * Exibe um banner.
+     * Usado para tornar as saídas no console mais organizadas.
+     * O tamanho do banner é proporcional ao número de caracteres
+     * do título.
+     *
+     * @param title Título a ser exibido no banner.
+     */
+    public static void banner(String title) {
+        banner(System.out, title);
+    }
+
+    /**
+     * Exibe um banner.
+     *
+     * @param saida Onde o banner é exibido.
+     * @param title Título a ser exibido no banner.
+     */
+    public static void banner(PrintStream saida, String title) {
+        saida.print(textoBanner(title));
+    }
+
+    /**
+     * Texto do banner, com as quebras de linha, igual ao que
+     * {@link #banner(PrintStream, String)} exibe. Montado na primeira vez que
+     * o título aparece e guardado para as próximas.
+     *
+     * @param title Título a ser exibido no banner.
+     * @return Retorna o texto do banner.
+     */
+    static String textoBanner(String title) {
+        String banner = BANNERS.get(title);
+        if (banner == null) {
+            String text = "[ " + title + " ]";
+            String stars = "#".repeat(text.length() + 22);
+            String quebra = System.lineSeparator();
+            banner = "\n" + stars + quebra
+                    + "########## " + text + " ##########" + quebra
+                    + stars + quebra;
+            if (BANNERS.size() < LIMITE_BANNERS) {
+                BANNERS.putIfAbsent(title, banner);
+            }
+        }
+        return banner;
+    }
+
+}
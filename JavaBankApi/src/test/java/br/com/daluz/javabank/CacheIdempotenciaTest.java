@@ -0,0 +1,169 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Chaves de idempotência: a repetição devolve o resultado guardado, a chave
+ * não serve para outra operação nem para uma segunda execução simultânea, a
+ * troca de geração não libera operações em andamento e as chaves das
+ * operações realizadas voltam pelo registro de transações e pelo snapshot.
+ */
+class CacheIdempotenciaTest {
+    private static final int IMPRESSAO = CacheIdempotencia.impressao(Metricas.SAQUE, 1, 10, 0, 0, 1_000);
+    private static final long SALDO = 100_000;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void repeticaoDevolveOMesmoResultado() {
+        CacheIdempotencia cache = new CacheIdempotencia();
+        AtomicInteger execucoes = new AtomicInteger();
+
+        assertEquals(Resultado.OK, cache.executar(1L, IMPRESSAO, () -> contar(execucoes, Resultado.OK)));
+        assertEquals(Resultado.OK, cache.executar(1L, IMPRESSAO, () -> contar(execucoes, Resultado.OK)));
+        // Uma recusa também é guardada: a repetição não tenta de novo.
+        assertEquals(Resultado.SALDO_INSUFICIENTE,
+                cache.executar(2L, IMPRESSAO, () -> contar(execucoes, Resultado.SALDO_INSUFICIENTE)));
+        assertEquals(Resultado.SALDO_INSUFICIENTE, cache.executar(2L, IMPRESSAO, () -> contar(execucoes, Resultado.OK)));
+        assertEquals(2, execucoes.get());
+        assertEquals(2, cache.getRepeticoes());
+
+        // Sem chave, a operação sempre executa.
+        cache.executar(CacheIdempotencia.SEM_CHAVE, IMPRESSAO, () -> contar(execucoes, Resultado.OK));
+        cache.executar(CacheIdempotencia.SEM_CHAVE, IMPRESSAO, () -> contar(execucoes, Resultado.OK));
+        assertEquals(4, execucoes.get());
+    }
+
+    @Test
+    void chaveComOutrosDadosEhRecusada() {
+        CacheIdempotencia cache = new CacheIdempotencia();
+        AtomicInteger execucoes = new AtomicInteger();
+        int outra = CacheIdempotencia.impressao(Metricas.SAQUE, 1, 10, 0, 0, 2_000);
+
+        cache.executar(1L, IMPRESSAO, () -> contar(execucoes, Resultado.OK));
+        assertEquals(Resultado.CHAVE_JA_USADA, cache.executar(1L, outra, () -> contar(execucoes, Resultado.OK)));
+        assertEquals(1, execucoes.get());
+        assertEquals(0, cache.getRepeticoes());
+    }
+
+    @Test
+    void chaveEmUsoEhRecusadaAteAOperacaoTerminar() {
+        CacheIdempotencia cache = new CacheIdempotencia();
+        AtomicInteger dentro = new AtomicInteger(-1);
+
+        assertEquals(Resultado.OK, cache.executar(1L, IMPRESSAO, () -> {
+            dentro.set(cache.executar(1L, IMPRESSAO, () -> Resultado.OK));
+            return Resultado.OK;
+        }));
+        assertEquals(Resultado.OPERACAO_EM_ANDAMENTO, dentro.get());
+
+        // Uma execução que termina com exceção deixa a chave livre para uma nova tentativa.
+        assertThrows(IllegalStateException.class, () -> cache.executar(2L, IMPRESSAO, () -> {
+            throw new IllegalStateException("falha");
+        }));
+        assertEquals(Resultado.SALDO_INSUFICIENTE, cache.executar(2L, IMPRESSAO, () -> Resultado.SALDO_INSUFICIENTE));
+    }
+
+    @Test
+    void trocaDeGeracaoMantemAsOperacoesEmAndamento() {
+        // Capacidade mínima: cada geração de um segmento guarda 8 chaves.
+        CacheIdempotencia cache = new CacheIdempotencia(CacheIdempotencia.JANELA_PADRAO_MILLIS, 0);
+        long emAndamento = 1L;
+        long[] outras = chavesDoMesmoSegmento(emAndamento, 40);
+        AtomicInteger dentro = new AtomicInteger(-1);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        cache.executar(emAndamento, IMPRESSAO, () -> {
+            // Chaves suficientes para girar as gerações do segmento várias vezes.
+            for (long chave : outras) {
+                cache.executar(chave, IMPRESSAO, () -> contar(execucoes, Resultado.OK));
+            }
+            dentro.set(cache.executar(emAndamento, IMPRESSAO, () -> Resultado.OK));
+            return Resultado.OK;
+        });
+        assertEquals(Resultado.OPERACAO_EM_ANDAMENTO, dentro.get());
+        assertEquals(outras.length, execucoes.get());
+        assertEquals(Resultado.OK, cache.executar(emAndamento, IMPRESSAO, () -> Resultado.SALDO_INSUFICIENTE));
+        // As gerações giraram mesmo: a primeira das outras chaves já foi esquecida.
+        cache.executar(outras[0], IMPRESSAO, () -> contar(execucoes, Resultado.OK));
+        assertEquals(outras.length + 1, execucoes.get());
+
+        // O mesmo vale para a troca pelo tempo, quando a janela passa durante a operação.
+        CacheIdempotencia curta = new CacheIdempotencia(1, CacheIdempotencia.CAPACIDADE_PADRAO);
+        curta.executar(emAndamento, IMPRESSAO, () -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            curta.executar(outras[0], IMPRESSAO, () -> Resultado.OK);
+            dentro.set(curta.executar(emAndamento, IMPRESSAO, () -> Resultado.OK));
+            return Resultado.OK;
+        });
+        assertEquals(Resultado.OPERACAO_EM_ANDAMENTO, dentro.get());
+    }
+
+    @Test
+    void chavesVoltamPeloRegistroEPeloSnapshot() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        Path snapshot = diretorio.resolve("snapshot");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            Banco banco = new Banco(1, "Banco 1");
+            bancoCentral.criarBanco(banco);
+            banco.criarConta(new ContaCorrente(1, 10, "Titular", banco.getBancoNome(), SALDO, 1234));
+            banco.criarConta(new ContaCorrente(1, 11, "Titular", banco.getBancoNome(), SALDO, 1234));
+
+            Conta conta = banco.buscarConta(10);
+            assertEquals(Resultado.OK, banco.tentarSaque(7L, conta, 1_000));
+            assertEquals(Resultado.OK, banco.tentarTransferenciaInterna(8L, conta, banco.buscarConta(11), 2_000));
+            SnapshotBancoCentral.compactar(snapshot, wal, registro.getPosicaoDuravel());
+        }
+
+        BancoCentral peloRegistro = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, peloRegistro, 16).close();
+        BancoCentral peloSnapshot = new BancoCentral();
+        SnapshotBancoCentral.carregar(snapshot, peloSnapshot);
+
+        for (BancoCentral recuperado : new BancoCentral[]{peloRegistro, peloSnapshot}) {
+            Banco banco = recuperado.buscarBanco(1);
+            Conta conta = banco.buscarConta(10);
+            assertEquals(Resultado.OK, banco.tentarSaque(7L, conta, 1_000));
+            assertEquals(Resultado.OK, banco.tentarTransferenciaInterna(8L, conta, banco.buscarConta(11), 2_000));
+            assertEquals(Resultado.CHAVE_JA_USADA, banco.tentarSaque(7L, conta, 5_000));
+            assertEquals(SALDO - 3_000, conta.getSaldo());
+            assertEquals(SALDO + 2_000, banco.buscarConta(11).getSaldo());
+            assertEquals(2, recuperado.getIdempotencia().getRepeticoes());
+        }
+    }
+
+    private static int contar(AtomicInteger execucoes, int resultado) {
+        execucoes.incrementAndGet();
+        return resultado;
+    }
+
+    /**
+     * Chaves que caem no mesmo segmento do cache que a chave informada.
+     */
+    private static long[] chavesDoMesmoSegmento(long chave, int quantidade) {
+        long segmento = CacheIdempotencia.espalhar(chave) >>> 58;
+        long[] chaves = new long[quantidade];
+        int n = 0;
+        for (long candidata = chave + 1; n < quantidade; candidata++) {
+            if (CacheIdempotencia.espalhar(candidata) >>> 58 == segmento) {
+                chaves[n++] = candidata;
+            }
+        }
+        return chaves;
+    }
+}
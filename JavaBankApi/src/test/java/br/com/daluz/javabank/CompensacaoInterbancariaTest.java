@@ -0,0 +1,278 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transferências entre bancos: a câmara de compensação (agendamento e
+ * ciclos) e a transferência síncrona, com contas disputadas por várias
+ * threads, e a recuperação dos ciclos a partir do registro e do snapshot.
+ */
+class CompensacaoInterbancariaTest {
+    private static final int[] BANCOS = {11, 12, 13};
+    private static final int CONTAS = 4;
+    private static final long SALDO_INICIAL = 1_000_000;
+    private static final long TAXA = BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void agendamentosECiclosConcorrentesConservamODinheiro() throws Exception {
+        BancoCentral bancoCentral = new BancoCentral();
+        criarContas(bancoCentral, false);
+        long totalInicial = total(bancoCentral);
+
+        AtomicInteger agendadas = new AtomicInteger();
+        AtomicBoolean fim = new AtomicBoolean();
+        List<CicloCompensacao> ciclos = new ArrayList<>();
+        ExecutorService threads = Executors.newFixedThreadPool(9);
+        Future<?> liquidacoes = threads.submit(() -> {
+            while (!fim.get()) {
+                ciclos.add(bancoCentral.liquidarCompensacao());
+            }
+        });
+        List<Future<?>> agendamentos = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random aleatorio = new Random(t);
+            agendamentos.add(threads.submit(() -> {
+                for (int k = 0; k < 3_000; k++) {
+                    Banco bancoOrig = bancoCentral.buscarBanco(BANCOS[aleatorio.nextInt(BANCOS.length)]);
+                    int bancoDest = BANCOS[aleatorio.nextInt(BANCOS.length)];
+                    int resultado = bancoCentral.agendarTransferenciaEntreBancos(bancoOrig,
+                            bancoOrig.buscarConta(aleatorio.nextInt(CONTAS)), aleatorio.nextInt(500) + 1,
+                            bancoDest, aleatorio.nextInt(CONTAS));
+                    if (resultado == Resultado.OK) {
+                        agendadas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> agendamento : agendamentos) {
+            agendamento.get(60, TimeUnit.SECONDS);
+        }
+        fim.set(true);
+        liquidacoes.get(60, TimeUnit.SECONDS);
+        threads.shutdown();
+        ciclos.add(bancoCentral.liquidarCompensacao());
+
+        assertEquals(0, bancoCentral.getQuantidadePendenteCompensacao());
+        assertTrue(agendadas.get() > 0);
+        assertEquals(totalInicial - agendadas.get() * TAXA, total(bancoCentral));
+
+        int liquidadas = 0;
+        for (CicloCompensacao ciclo : ciclos) {
+            liquidadas += ciclo.getQuantidade();
+            long soma = 0;
+            for (int banco : ciclo.getBancos()) {
+                soma += ciclo.getPosicaoLiquida(banco);
+            }
+            assertEquals(0, soma);
+        }
+        assertEquals(agendadas.get(), liquidadas);
+    }
+
+    @Test
+    void transferenciasSincronasConcorrentesConservamODinheiro() throws Exception {
+        BancoCentral bancoCentral = new BancoCentral();
+        criarContas(bancoCentral, false);
+        long totalInicial = total(bancoCentral);
+
+        // Pares de contas em sentidos opostos, que travariam com uma ordem de travas errada.
+        AtomicInteger realizadas = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<?>> transferencias = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random aleatorio = new Random(t);
+            transferencias.add(threads.submit(() -> {
+                for (int k = 0; k < 5_000; k++) {
+                    Banco bancoOrig = bancoCentral.buscarBanco(BANCOS[k % 2]);
+                    int resultado = bancoCentral.tentarTransferenciaEntreBancos(bancoOrig,
+                            bancoOrig.buscarConta(aleatorio.nextInt(CONTAS)), aleatorio.nextInt(500) + 1,
+                            BANCOS[1 - k % 2], aleatorio.nextInt(CONTAS));
+                    if (resultado == Resultado.OK) {
+                        realizadas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> transferencia : transferencias) {
+            transferencia.get(60, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+
+        assertEquals(totalInicial - realizadas.get() * TAXA, total(bancoCentral));
+    }
+
+    @Test
+    void transferenciaSincronaRecusadaNaoDebitaAOrigem() {
+        BancoCentral bancoCentral = new BancoCentral();
+        criarContas(bancoCentral, true);
+        Banco bancoOrig = bancoCentral.buscarBanco(BANCOS[0]);
+        Conta contaOrig = bancoOrig.buscarConta(0);
+        Conta contaDest = bancoCentral.buscarBanco(BANCOS[1]).buscarConta(CONTAS - 1);
+        long saldoDest = contaDest.getSaldo();
+
+        assertEquals(Resultado.VALOR_FORA_DO_LIMITE,
+                bancoCentral.tentarTransferenciaEntreBancos(bancoOrig, contaOrig, 5_000, BANCOS[1], CONTAS - 1));
+        assertEquals(SALDO_INICIAL, contaOrig.getSaldo());
+        assertEquals(saldoDest, contaDest.getSaldo());
+    }
+
+    @Test
+    void registroCortadoCompletaOsCiclos() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        long totalInicial;
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral, true);
+            totalInicial = total(bancoCentral);
+            movimentar(bancoCentral);
+        }
+
+        byte[] bytes = Files.readAllBytes(wal);
+        Path cortado = diretorio.resolve("cortado");
+        for (int n = 0; n <= bytes.length; n++) {
+            Files.write(cortado, Arrays.copyOf(bytes, n));
+            BancoCentral recuperado = new BancoCentral();
+            try (RegistroTransacoes registro = RegistroTransacoes.recuperar(cortado, recuperado, 16)) {
+                // Os créditos que faltaram no ciclo interrompido são aplicados aqui.
+                recuperado.usarRegistro(registro);
+                recuperado.liquidarCompensacao();
+            }
+            if (recuperado.buscarBanco(BANCOS[BANCOS.length - 1]) == null
+                    || recuperado.buscarBanco(BANCOS[BANCOS.length - 1]).buscarConta(CONTAS - 1) == null) {
+                continue;
+            }
+            assertEquals(0, recuperado.getQuantidadePendenteCompensacao(), "corte no byte " + n);
+            assertEquals(0, (totalInicial - total(recuperado)) % TAXA, "corte no byte " + n);
+        }
+
+        BancoCentral recuperado = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, recuperado, 16).close();
+        assertEquals(estado(bancoCentral, true), estado(recuperado, true));
+    }
+
+    @Test
+    void snapshotMaisRegistroIgualARepeticaoCompleta() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral, true);
+            movimentar(bancoCentral);
+        }
+
+        BancoCentral completo = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, completo, 16).close();
+        // Os extratos não fazem parte do snapshot; só os saldos e a fila são comparados.
+        Map<String, String> esperado = estado(completo, false);
+
+        // Um snapshot em cada fronteira de registro, inclusive no meio dos ciclos.
+        ByteBuffer registros = ByteBuffer.wrap(Files.readAllBytes(wal));
+        Path snapshot = diretorio.resolve("snapshot");
+        while (registros.hasRemaining()) {
+            int tamanho = registros.getInt();
+            registros.position(registros.position() + tamanho + 4);
+            SnapshotBancoCentral.compactar(snapshot, wal, registros.position());
+
+            BancoCentral recuperado = new BancoCentral();
+            RegistroTransacoes.recuperar(wal, snapshot, recuperado, 16).close();
+            assertEquals(esperado, estado(recuperado, false), "snapshot na posição " + registros.position());
+        }
+    }
+
+    /**
+     * Dois ciclos, o segundo com créditos devolvidos por estourarem o saldo
+     * destino, e transferências deixadas na fila para o próximo ciclo.
+     *
+     * @return Retorna a quantidade de transferências agendadas.
+     */
+    private static int movimentar(BancoCentral bancoCentral) {
+        int agendadas = 0;
+        for (int ciclo = 0; ciclo < 2; ciclo++) {
+            for (int k = 0; k < 12; k++) {
+                Banco bancoOrig = bancoCentral.buscarBanco(BANCOS[k % BANCOS.length]);
+                int bancoDest = BANCOS[(k + 1) % BANCOS.length];
+                int contaDest = (ciclo == 1 && k % 4 == 0) ? CONTAS - 1 : k % (CONTAS - 1);
+                if (bancoCentral.agendarTransferenciaEntreBancos(bancoOrig, bancoOrig.buscarConta(k % (CONTAS - 1)),
+                        1_000 + k, bancoDest, contaDest) == Resultado.OK) {
+                    agendadas++;
+                }
+            }
+            CicloCompensacao resultado = bancoCentral.liquidarCompensacao();
+            assertEquals(ciclo == 0 ? 0 : 3, resultado.getDevolvidas());
+        }
+        for (int k = 0; k < 3; k++) {
+            Banco bancoOrig = bancoCentral.buscarBanco(BANCOS[k]);
+            if (bancoCentral.agendarTransferenciaEntreBancos(bancoOrig, bancoOrig.buscarConta(0), 700,
+                    BANCOS[(k + 1) % BANCOS.length], 1) == Resultado.OK) {
+                agendadas++;
+            }
+        }
+        return agendadas;
+    }
+
+    /**
+     * Cria as contas dos bancos. Com cheia, a última conta de cada banco fica
+     * perto do limite, para que os créditos nela sejam recusados.
+     */
+    private static void criarContas(BancoCentral bancoCentral, boolean cheia) {
+        for (int bancoNumero : BANCOS) {
+            Banco banco = new Banco(bancoNumero, "Banco " + bancoNumero);
+            bancoCentral.criarBanco(banco);
+            for (int c = 0; c < CONTAS; c++) {
+                long saldo = (cheia && c == CONTAS - 1) ? Long.MAX_VALUE - 100 : SALDO_INICIAL;
+                banco.criarConta(new ContaCorrente(bancoNumero, c, "Titular " + c, banco.getBancoNome(), saldo, 1234));
+            }
+        }
+    }
+
+    private static long total(BancoCentral bancoCentral) {
+        long total = 0;
+        for (int bancoNumero : BANCOS) {
+            for (int c = 0; c < CONTAS; c++) {
+                total += bancoCentral.buscarBanco(bancoNumero).buscarConta(c).getSaldo();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Saldo (e, se pedido, o extrato) de cada conta, e o tamanho da fila de compensação.
+     */
+    private static Map<String, String> estado(BancoCentral bancoCentral, boolean comExtrato) {
+        Map<String, String> estado = new TreeMap<>();
+        estado.put("fila", Integer.toString(bancoCentral.getQuantidadePendenteCompensacao()));
+        for (int bancoNumero : BANCOS) {
+            for (int c = 0; c < CONTAS; c++) {
+                Conta conta = bancoCentral.buscarBanco(bancoNumero).buscarConta(c);
+                estado.put(bancoNumero + ":" + c, comExtrato
+                        ? conta.getSaldo() + "\n" + conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto()
+                        : Long.toString(conta.getSaldo()));
+            }
+        }
+        return estado;
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exportação dos extratos de contas que não estão no índice do banco: as
+ * frias e as que ainda só estão no snapshot saem iguais às contas em
+ * memória, e continuam fora do índice depois da exportação.
+ */
+class ExportacaoExtratosTest {
+    private static final int CONTAS = 20;
+    private static final int SENHA = 1234;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void contasFriasNaoVoltamParaOIndice() throws IOException, ReflectiveOperationException {
+        BancoCentral bancoCentral = new BancoCentral();
+        bancoCentral.usarArquivoExtratos(diretorio.resolve("extratos"), 4);
+        bancoCentral.usarArmazemFrio(1_000);
+        Banco banco = criarBanco(bancoCentral);
+        movimentar(banco);
+        Map<String, String> quentes = exportar(bancoCentral, "quentes");
+
+        for (int c = 0; c < CONTAS; c += 2) {
+            Conta conta = banco.buscarConta(c);
+            conta.usada = false;
+            assertTrue(banco.getDescritor().getArmazemFrio().guardar(conta));
+        }
+        assertEquals(CONTAS / 2, contasNoIndice(banco));
+
+        assertEquals(quentes, exportar(bancoCentral, "frias"));
+        assertEquals(CONTAS / 2, contasNoIndice(banco));
+    }
+
+    @Test
+    void contasDoSnapshotNaoSaoCarregadas() throws IOException, ReflectiveOperationException {
+        Path wal = diretorio.resolve("wal");
+        Path snapshot = diretorio.resolve("snapshot");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            movimentar(criarBanco(bancoCentral));
+            SnapshotBancoCentral.compactar(snapshot, wal, registro.getPosicaoDuravel());
+        }
+        Map<String, String> esperado = exportar(bancoCentral, "vivo");
+
+        BancoCentral doSnapshot = new BancoCentral();
+        SnapshotBancoCentral.carregar(snapshot, doSnapshot);
+        assertEquals(esperado, exportar(doSnapshot, "carregado"));
+        assertEquals(0, contasNoIndice(doSnapshot.buscarBanco(1)));
+    }
+
+    private static Banco criarBanco(BancoCentral bancoCentral) {
+        Banco banco = new Banco(1, "Banco 1");
+        bancoCentral.criarBanco(banco);
+        for (int c = 0; c < CONTAS; c++) {
+            banco.criarConta(new ContaCorrente(1, c, "Titular " + c, banco.getBancoNome(), 100_000, SENHA));
+        }
+        return banco;
+    }
+
+    /**
+     * Cada conta recebe uma quantidade diferente de operações, algumas além
+     * do limite em memória do extrato.
+     */
+    private static void movimentar(Banco banco) {
+        for (int c = 0; c < CONTAS; c++) {
+            Conta conta = banco.buscarConta(c);
+            for (int k = 0; k < c % 7; k++) {
+                banco.tentarDeposito(conta, conta, 1_000 + k);
+                banco.tentarTransferenciaInterna(conta, banco.buscarConta((c + 1) % CONTAS), 300 + k);
+            }
+        }
+    }
+
+    /**
+     * Exporta em CSV e devolve o conteúdo de cada arquivo, pelo nome.
+     */
+    private Map<String, String> exportar(BancoCentral bancoCentral, String nome) throws IOException {
+        Path destino = diretorio.resolve(nome);
+        bancoCentral.exportarExtratos(destino, ExportacaoExtratos.CSV, false);
+        Map<String, String> arquivos = new TreeMap<>();
+        try (Stream<Path> lista = Files.list(destino)) {
+            for (Path arquivo : (Iterable<Path>) lista::iterator) {
+                arquivos.put(arquivo.getFileName().toString(), Files.readString(arquivo));
+            }
+        }
+        return arquivos;
+    }
+
+    private static int contasNoIndice(BancoRef banco) throws ReflectiveOperationException {
+        Field indice = BancoRef.class.getDeclaredField("indice");
+        indice.setAccessible(true);
+        return ((IndiceContas) indice.get(banco)).tamanho();
+    }
+}
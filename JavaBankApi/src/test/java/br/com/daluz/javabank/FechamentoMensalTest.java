@@ -0,0 +1,245 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fechamento do mês ({@link BancoCentral#fecharMes}): em paralelo com as
+ * transações, uma única vez por conta, retomado depois de uma queda a
+ * partir do registro de transações ou do snapshot, e sem trazer para o
+ * índice as contas frias que não têm lançamento.
+ */
+class FechamentoMensalTest {
+    private static final int BANCOS = 3;
+    private static final int CONTAS = 1_000;
+    private static final int COMPETENCIA = 202610;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void fechamentoEmParaleloComTransacoesConservaODinheiro() throws Exception {
+        BancoCentral bancoCentral = new BancoCentral();
+        criarContas(bancoCentral);
+        long antes = total(bancoCentral);
+
+        AtomicBoolean fim = new AtomicBoolean();
+        Thread[] transacoes = new Thread[3];
+        for (int t = 0; t < transacoes.length; t++) {
+            Random aleatorio = new Random(t);
+            transacoes[t] = new Thread(() -> {
+                Banco banco = bancoCentral.buscarBanco(1);
+                while (!fim.get()) {
+                    banco.tentarTransferenciaInterna(banco.buscarConta(aleatorio.nextInt(CONTAS)),
+                            banco.buscarConta(aleatorio.nextInt(CONTAS)), 1);
+                }
+            });
+            transacoes[t].start();
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ResumoFechamento resumo = bancoCentral.fecharMes(COMPETENCIA, pool);
+        fim.set(true);
+        for (Thread transacao : transacoes) {
+            transacao.join();
+        }
+        pool.shutdown();
+
+        assertEquals(BANCOS * CONTAS, resumo.getContas());
+        assertTrue(resumo.getRendimentos() > 0 && resumo.getTaxas() > 0);
+        assertEquals(antes + resumo.getTotalRendimentos() - resumo.getTotalTaxas(), total(bancoCentral));
+        assertEquals(resumo.getRendimentos(), contarNoExtrato(bancoCentral, "# Rendimento da poupança"));
+        assertEquals(resumo.getTaxas(), contarNoExtrato(bancoCentral, "# Taxa mensal"));
+    }
+
+    @Test
+    void mesFechadoOuInvalidoEhRecusado() {
+        BancoCentral bancoCentral = new BancoCentral();
+        criarContas(bancoCentral);
+        bancoCentral.fecharMes(COMPETENCIA);
+
+        assertThrows(UnsupportedOperationException.class, () -> bancoCentral.fecharMes(COMPETENCIA));
+        assertThrows(UnsupportedOperationException.class, () -> bancoCentral.fecharMes(202613));
+        assertEquals(BANCOS * CONTAS, bancoCentral.fecharMes(202611).getContas());
+    }
+
+    @Test
+    void fechamentoInterrompidoContinuaDeOndeParou() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        long inicioFechamento;
+        ResumoFechamento resumo;
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 64)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral);
+            inicioFechamento = Files.size(wal);
+            resumo = bancoCentral.fecharMes(COMPETENCIA);
+        }
+        Map<String, Long> esperado = saldos(bancoCentral);
+        int lancamentos = (int) (resumo.getRendimentos() + resumo.getTaxas());
+
+        byte[] bytes = Files.readAllBytes(wal);
+        // Sem o registro de início inteiro, o fechamento não começou e pode ser feito de novo.
+        int fimInicio = (int) inicioFechamento + 4 + ByteBuffer.wrap(bytes).getInt((int) inicioFechamento) + 4;
+        BancoCentral semInicio = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(
+                cortar(bytes, fimInicio - 1, "sem-inicio"), semInicio, 64)) {
+            semInicio.usarRegistro(registro);
+            assertEquals(resumo.getTotalRendimentos(), semInicio.fecharMes(COMPETENCIA).getTotalRendimentos());
+            assertEquals(esperado, saldos(semInicio));
+        }
+
+        for (double fracao : new double[]{0.0, 0.1, 0.3, 0.5, 0.77, 0.999}) {
+            int corte = (int) (fimInicio + (bytes.length - fimInicio) * fracao);
+            Path cortado = cortar(bytes, corte, "cortado" + fracao);
+            Path snapshot = diretorio.resolve("snapshot" + fracao);
+            SnapshotBancoCentral.compactar(snapshot, cortado, corte);
+
+            for (Path inicio : new Path[]{null, snapshot}) {
+                String caso = "corte em " + fracao + ((inicio == null) ? " pelo registro" : " pelo snapshot");
+                BancoCentral recuperado = new BancoCentral();
+                try (RegistroTransacoes registro = RegistroTransacoes.recuperar(cortado, inicio, recuperado, 64)) {
+                    // O fechamento interrompido é retomado aqui, sem lançar duas vezes na mesma conta.
+                    recuperado.usarRegistro(registro);
+                    assertEquals(esperado, saldos(recuperado), caso);
+                    if (inicio == null) {
+                        assertEquals(lancamentos, contarNoExtrato(recuperado, "# Rendimento da poupança")
+                                + contarNoExtrato(recuperado, "# Taxa mensal"), caso);
+                    }
+                    assertThrows(UnsupportedOperationException.class, () -> recuperado.fecharMes(COMPETENCIA), caso);
+                }
+
+                // O registro completado pela retomada também é recuperado sem lançamentos repetidos.
+                BancoCentral deNovo = new BancoCentral();
+                RegistroTransacoes.recuperar(cortado, inicio, deNovo, 64).close();
+                assertEquals(esperado, saldos(deNovo), caso);
+            }
+        }
+    }
+
+    @Test
+    void contaForaDoIndiceSoVoltaSeTiverLancamento() throws IOException, ReflectiveOperationException {
+        Path wal = diretorio.resolve("wal");
+        Path snapshot = diretorio.resolve("snapshot");
+        BancoCentral bancoCentral = new BancoCentral();
+        bancoCentral.usarArquivoExtratos(diretorio.resolve("extratos"), 4);
+        bancoCentral.usarArmazemFrio(1_000);
+        Banco banco = new Banco(1, "Banco 1");
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 64)) {
+            bancoCentral.usarRegistro(registro);
+            bancoCentral.criarBanco(banco);
+            // As dez primeiras não têm lançamento: corrente sem saldo ou poupança com rendimento zero.
+            for (int c = 0; c < 20; c++) {
+                banco.criarConta((c < 10 && c % 2 == 1)
+                        ? new ContaPoupanca(1, c, "Titular " + c, banco.getBancoNome(), 100, 1234)
+                        : new ContaCorrente(1, c, "Titular " + c, banco.getBancoNome(), (c < 10) ? 0 : 10_000, 1234));
+            }
+            SnapshotBancoCentral.compactar(snapshot, wal, registro.getPosicaoDuravel());
+
+            for (int c = 0; c < 20; c++) {
+                Conta conta = banco.buscarConta(c);
+                conta.usada = false;
+                assertTrue(banco.getDescritor().getArmazemFrio().guardar(conta));
+            }
+            fecharSoAsContasComLancamento(bancoCentral);
+        }
+
+        BancoCentral doSnapshot = new BancoCentral();
+        SnapshotBancoCentral.carregar(snapshot, doSnapshot);
+        fecharSoAsContasComLancamento(doSnapshot);
+    }
+
+    /**
+     * Fecha o mês das contas criadas por {@link #contaForaDoIndiceSoVoltaSeTiverLancamento},
+     * nenhuma delas no índice: só as dez com taxa devem voltar para ele.
+     */
+    private static void fecharSoAsContasComLancamento(BancoCentral bancoCentral) throws ReflectiveOperationException {
+        Banco banco = bancoCentral.buscarBanco(1);
+        assertEquals(0, contasNoIndice(banco));
+        ResumoFechamento resumo = bancoCentral.fecharMes(COMPETENCIA);
+        assertEquals(20, resumo.getContas());
+        assertEquals(10, resumo.getTaxas());
+        assertEquals(10, contasNoIndice(banco));
+        for (int c = 0; c < 20; c++) {
+            long esperado = (c < 10) ? ((c % 2 == 1) ? 100 : 0) : 10_000 - ContaCorrente.TAXA_MENSAL;
+            assertEquals(esperado, banco.buscarConta(c).getSaldo());
+        }
+    }
+
+    private Path cortar(byte[] bytes, int tamanho, String nome) throws IOException {
+        Path cortado = diretorio.resolve(nome);
+        Files.write(cortado, Arrays.copyOf(bytes, tamanho));
+        return cortado;
+    }
+
+    /**
+     * Contas correntes e poupanças alternadas; uma em cada sete tem saldo
+     * menor que a taxa mensal.
+     */
+    private static void criarContas(BancoCentral bancoCentral) {
+        for (int b = 1; b <= BANCOS; b++) {
+            Banco banco = new Banco(b, "Banco " + b);
+            bancoCentral.criarBanco(banco);
+            for (int c = 0; c < CONTAS; c++) {
+                long saldo = (c % 7 == 0) ? 500 : 100_000 + c * 37L;
+                banco.criarConta((c % 2 == 0)
+                        ? new ContaCorrente(b, c, "Titular " + c, banco.getBancoNome(), saldo, 1234)
+                        : new ContaPoupanca(b, c, "Titular " + c, banco.getBancoNome(), saldo, 1234));
+            }
+        }
+    }
+
+    private static int contasNoIndice(BancoRef banco) throws ReflectiveOperationException {
+        Field indice = BancoRef.class.getDeclaredField("indice");
+        indice.setAccessible(true);
+        return ((IndiceContas) indice.get(banco)).tamanho();
+    }
+
+    private static long total(BancoCentral bancoCentral) {
+        long total = 0;
+        for (Banco banco : bancoCentral.getBancos()) {
+            for (Conta conta : banco.getContasCarregadas()) {
+                total += conta.getSaldo();
+            }
+        }
+        return total;
+    }
+
+    private static Map<String, Long> saldos(BancoCentral bancoCentral) {
+        Map<String, Long> saldos = new TreeMap<>();
+        for (Banco banco : bancoCentral.getBancos()) {
+            for (int contaNumero : banco.getNumerosDeContas()) {
+                saldos.put(banco.getBancoNumero() + ":" + contaNumero, banco.buscarConta(contaNumero).getSaldo());
+            }
+        }
+        return saldos;
+    }
+
+    private static long contarNoExtrato(BancoCentral bancoCentral, String linha) {
+        long quantidade = 0;
+        for (Banco banco : bancoCentral.getBancos()) {
+            for (Conta conta : banco.getContasCarregadas()) {
+                String texto = conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto();
+                for (int i = texto.indexOf(linha); i >= 0; i = texto.indexOf(linha, i + 1)) {
+                    quantidade++;
+                }
+            }
+        }
+        return quantidade;
+    }
+}
@@ -0,0 +1,179 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Limite de tentativas de senha: bloqueio da conta e a sua expiração, senha
+ * certa zerando as falhas, despejo no grupo cheio e o cliente sem fichas
+ * recusado antes de qualquer busca, no caixa eletrônico e no servidor.
+ */
+class LimitadorTentativasTest {
+    private static final int SENHA = 1111;
+    private static final long CLIENTE = 42;
+
+    @Test
+    void contaBloqueadaDepoisDasFalhasSeguidas() {
+        LimitadorTentativas limitador = new LimitadorTentativas();
+        Conta conta = new ContaCorrente(1, 10, "Ana Silva", "Um", 10_000, SENHA);
+
+        for (int i = 1; i < LimitadorTentativas.FALHAS_PARA_BLOQUEIO; i++) {
+            assertEquals(Resultado.OK, limitador.permitir(CLIENTE, 1, 10));
+            assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        }
+        assertEquals(Resultado.OK, limitador.permitir(CLIENTE, 1, 10));
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+
+        // Bloqueada para qualquer cliente; as outras contas continuam acessíveis.
+        assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitir(CLIENTE, 1, 10));
+        assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitir(CLIENTE + 1, 1, 10));
+        assertEquals(Resultado.OK, limitador.permitir(CLIENTE, 1, 11));
+        assertEquals(2, limitador.getAcessosRecusados());
+    }
+
+    @Test
+    void bloqueioExpira() throws InterruptedException {
+        LimitadorTentativas limitador = new LimitadorTentativas(10, 30_000, 3, 50, 1_000, 1);
+        Conta conta = new ContaCorrente(1, 10, "Ana Silva", "Um", 10_000, SENHA);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        }
+        assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitir(CLIENTE, 1, 10));
+        Thread.sleep(200);
+        assertEquals(Resultado.OK, limitador.permitir(CLIENTE, 1, 10));
+        assertTrue(limitador.verificarSenha(CLIENTE, conta, SENHA));
+    }
+
+    @Test
+    void senhaCertaZeraAsFalhasSeguidas() {
+        LimitadorTentativas limitador = new LimitadorTentativas(10, 30_000, 3, 60_000, 1_000, 1);
+        Conta conta = new ContaCorrente(1, 10, "Ana Silva", "Um", 10_000, SENHA);
+
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        assertTrue(limitador.verificarSenha(CLIENTE, conta, SENHA));
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        assertEquals(Resultado.OK, limitador.permitir(CLIENTE, 1, 10));
+
+        assertFalse(limitador.verificarSenha(CLIENTE, conta, 0));
+        assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitir(CLIENTE, 1, 10));
+    }
+
+    @Test
+    void grupoCheioDespejaOClienteMenosRestrito() {
+        // Uma falha esgota o balde de um cliente, e ele não volta a encher durante o teste.
+        LimitadorTentativas limitador = new LimitadorTentativas(10, 30_000, 0, 0, 1, 60_000);
+        long[] clientes = clientesDoMesmoGrupo(5);
+
+        limitador.registrarFalha(clientes[0]);
+        for (int c = 1; c < 4; c++) {
+            for (int i = 0; i < 3; i++) {
+                limitador.registrarFalha(clientes[c]);
+            }
+        }
+        for (int c = 0; c < 4; c++) {
+            assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitirCliente(clientes[c]));
+        }
+
+        // O quinto cliente toma a posição do que tem menos falhas pela frente.
+        limitador.registrarFalha(clientes[4]);
+        assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitirCliente(clientes[4]));
+        assertEquals(Resultado.OK, limitador.permitirCliente(clientes[0]));
+        for (int c = 1; c < 4; c++) {
+            assertEquals(Resultado.ACESSO_BLOQUEADO, limitador.permitirCliente(clientes[c]));
+        }
+    }
+
+    @Test
+    void terminalSemFichasEhRecusadoAntesDaBusca() {
+        BancoCentral bancoCentral = criarBancoCentral();
+        Queue<String> entradas = new ArrayDeque<>();
+        // Contas que não existem gastam as fichas do terminal.
+        for (int i = 0; i < 20; i++) {
+            entradas.add("1");
+            entradas.add("99");
+            entradas.add("1");
+        }
+        entradas.add("1");
+        entradas.add("10");
+        entradas.add(Integer.toString(SENHA));
+        entradas.add("-1");
+        ByteArrayOutputStream erros = new ByteArrayOutputStream();
+        CaixaEletronico24Hs caixa = new CaixaEletronico24Hs(bancoCentral, entradas::poll,
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8),
+                new PrintStream(erros, true, StandardCharsets.UTF_8));
+
+        caixa.mostrarTelaInicial();
+
+        String avisos = erros.toString(StandardCharsets.UTF_8);
+        assertTrue(avisos.endsWith(Resultado.mensagem(Resultado.ACESSO_BLOQUEADO) + System.lineSeparator()), avisos);
+        // A última tentativa, com a conta e a senha certas, não chegou a procurar a conta.
+        assertEquals(20, bancoCentral.getMetricas().getQuantidade(Metricas.BUSCA_CONTA));
+    }
+
+    @Test
+    void clienteSemFichasEhRecusadoAntesDaBuscaNoServidor() throws IOException {
+        BancoCentral bancoCentral = criarBancoCentral();
+        try (ServidorTransacoes servidor = new ServidorTransacoes(bancoCentral, new InetSocketAddress("127.0.0.1", 0), 1)) {
+            servidor.iniciar();
+            try (ClienteTransacoes cliente = new ClienteTransacoes("127.0.0.1", servidor.getPorta())) {
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(Resultado.CONTA_NAO_ENCONTRADA, cliente.consultarSaldo(1, 99, 1));
+                }
+                long buscas = bancoCentral.getMetricas().getQuantidade(Metricas.BUSCA_CONTA);
+
+                assertEquals(Resultado.ACESSO_BLOQUEADO, cliente.consultarSaldo(1, 10, SENHA));
+                assertEquals(Resultado.ACESSO_BLOQUEADO, cliente.consultarDadosConta(0, 1, 10));
+                assertEquals(buscas, bancoCentral.getMetricas().getQuantidade(Metricas.BUSCA_CONTA));
+            }
+        }
+    }
+
+    private static BancoCentral criarBancoCentral() {
+        BancoCentral bancoCentral = new BancoCentral();
+        Banco banco = new Banco(1, "Um");
+        bancoCentral.criarBanco(banco);
+        banco.criarConta(new ContaCorrente(1, 10, "Ana Silva", "Um", 10_000, SENHA));
+        return bancoCentral;
+    }
+
+    /**
+     * Clientes que caem no mesmo grupo de quatro posições da tabela de
+     * clientes (1 << 14 posições), com identificações diferentes.
+     */
+    private static long[] clientesDoMesmoGrupo(int quantidade) {
+        long[] clientes = new long[quantidade];
+        int[] ids = new int[quantidade];
+        long h0 = CacheIdempotencia.espalhar(1);
+        int grupo = (int) h0 & ((1 << 14) - 4);
+        clientes[0] = 1;
+        ids[0] = (int) (h0 >>> 48);
+        int n = 1;
+        for (long candidato = 2; n < quantidade; candidato++) {
+            long h = CacheIdempotencia.espalhar(candidato);
+            int id = (int) (h >>> 48);
+            boolean repetido = false;
+            for (int i = 0; i < n; i++) {
+                repetido |= ids[i] == id;
+            }
+            if (((int) h & ((1 << 14) - 4)) == grupo && !repetido) {
+                clientes[n] = candidato;
+                ids[n++] = id;
+            }
+        }
+        return clientes;
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pegada de memória das contas, medida com o JOL e comparada com a do layout
+ * anterior ao descritor do banco, reproduzido em {@link ContaAntiga}.
+ */
+class PegadaMemoriaTest {
+    private static final int CONTAS = 10_000;
+
+    @Test
+    void contaCorrenteMenorQueOLayoutAntigo() {
+        long atual = ClassLayout.parseClass(ContaCorrente.class).instanceSize();
+        long antiga = ClassLayout.parseClass(ContaAntiga.class).instanceSize();
+        assertTrue(atual < antiga, "ContaCorrente com " + atual + " bytes; antes, " + antiga);
+        assertEquals(ClassLayout.parseClass(ContaPoupanca.class).instanceSize(), atual);
+    }
+
+    @Test
+    void bytesPorContaSemMovimento() {
+        Banco banco = new Banco(1, "Banco 1");
+        Object[] contas = new Object[CONTAS];
+        Object[] antigas = new Object[CONTAS];
+        for (int c = 0; c < CONTAS; c++) {
+            banco.criarConta(new ContaCorrente(1, c, "Titular " + c, banco.getBancoNome(), 100_000, 1234));
+            Conta conta = banco.buscarConta(c);
+            assertSame(banco.getDescritor(), conta.getDescritor());
+            contas[c] = conta;
+            // O mesmo titular nas duas medidas, para que a diferença seja só o layout.
+            antigas[c] = new ContaAntiga(1, c, conta.getTitular(), banco.getBancoNome(), 100_000, 1234);
+        }
+
+        // O descritor (e o nome do banco, que ele guarda) é compartilhado com o banco e não é contado.
+        GraphLayout compartilhado = GraphLayout.parseInstance(banco.getDescritor());
+        long atual = GraphLayout.parseInstance(contas).subtract(compartilhado).totalSize();
+        long antiga = GraphLayout.parseInstance(antigas).subtract(compartilhado).totalSize();
+        long vetor = GraphLayout.parseInstance((Object) new Object[CONTAS]).totalSize();
+
+        // Sem movimento, a conta não tem extrato: só ela mesma e o titular.
+        long titulares = GraphLayout.parseInstance(titulares(contas)).totalSize()
+                - GraphLayout.parseInstance((Object) new String[CONTAS]).totalSize();
+        long instancia = ClassLayout.parseClass(ContaCorrente.class).instanceSize();
+        assertEquals(CONTAS * instancia + titulares, atual - vetor);
+
+        // No layout antigo, cada conta tinha também um extrato vazio; os vetores
+        // vazios do extrato são constantes, contadas uma vez só.
+        long extrato = ClassLayout.parseClass(Extrato.class).instanceSize();
+        long vetoresVazios = GraphLayout.parseInstance(new Extrato()).totalSize() - extrato;
+        long instanciaAntiga = ClassLayout.parseClass(ContaAntiga.class).instanceSize();
+        assertEquals(CONTAS * (instanciaAntiga + extrato) + titulares + vetoresVazios, antiga - vetor);
+
+        double porConta = (atual - vetor) / (double) CONTAS;
+        double porContaAntiga = (antiga - vetor) / (double) CONTAS;
+        assertTrue(porConta < porContaAntiga,
+                String.format("%.1f bytes por conta; antes, %.1f", porConta, porContaAntiga));
+    }
+
+    @Test
+    void extratoCriadoNaPrimeiraOperacao() {
+        Banco banco = new Banco(1, "Banco 1");
+        banco.criarConta(new ContaCorrente(1, 1, "Titular", banco.getBancoNome(), 100_000, 1234));
+        Conta conta = banco.buscarConta(1);
+        GraphLayout compartilhado = GraphLayout.parseInstance(banco.getDescritor());
+        long antes = GraphLayout.parseInstance(conta).subtract(compartilhado).totalSize();
+
+        assertNull(extratoDe(conta));
+        banco.tentarDeposito(conta, conta, 100);
+        assertTrue(GraphLayout.parseInstance(conta).subtract(compartilhado).totalSize() > antes);
+    }
+
+    private static Object[] titulares(Object[] contas) {
+        String[] titulares = new String[contas.length];
+        for (int i = 0; i < contas.length; i++) {
+            titulares[i] = ((Conta) contas[i]).getTitular();
+        }
+        return titulares;
+    }
+
+    private static Object extratoDe(Conta conta) {
+        try {
+            Field campo = Conta.class.getDeclaredField("operacoes");
+            campo.setAccessible(true);
+            return campo.get(conta);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Campos da conta antes do descritor do banco: número e nome do banco em
+     * cada conta, o tipo num int, a referência ao armazém frio e o extrato
+     * criado junto com a conta.
+     */
+    @SuppressWarnings("unused")
+    private static final class ContaAntiga {
+        private final int bancoNumero;
+        private final int contaNumero;
+        private final String titular;
+        private final String bancoNome;
+        private final int contaTipo;
+        private volatile long saldo;
+        private final int senha;
+        private final Extrato operacoes;
+        private volatile ArmazemContas armazemFrio;
+        boolean usada;
+
+        ContaAntiga(int bancoNumero, int contaNumero, String titular, String bancoNome, long saldo, int senha) {
+            this.bancoNumero = bancoNumero;
+            this.contaNumero = contaNumero;
+            this.titular = titular;
+            this.bancoNome = bancoNome;
+            this.contaTipo = Conta.CONTA_CORRENTE;
+            this.saldo = saldo;
+            this.senha = senha;
+            this.operacoes = new Extrato();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recuperação do Banco Central a partir do registro de transações: a
+ * repetição do registro, sozinha ou depois de um snapshot, reproduz saldos e
+ * extratos, e um registro cortado em qualquer byte volta ao estado da última
+ * operação concluída.
+ */
+class RegistroTransacoesTest {
+    private static final int BANCOS = 2;
+    private static final int CONTAS = 5;
+    private static final long SALDO_INICIAL = 100_000;
+    private static final int SENHA = 1234;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void repeticaoDoRegistroReproduzSaldosEExtratos() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral);
+            movimentar(bancoCentral, null);
+        }
+
+        BancoCentral recuperado = recuperar(wal);
+        assertEquals(estado(bancoCentral, true), estado(recuperado, true));
+    }
+
+    @Test
+    void snapshotGuardaOsExtratos() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        Path snapshot = diretorio.resolve("snapshot");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral);
+            movimentar(bancoCentral, null);
+            SnapshotBancoCentral.compactar(snapshot, wal, registro.getPosicaoDuravel());
+
+            // Só uma conta muda entre os dois snapshots: as outras passam para o
+            // segundo com o extrato do primeiro.
+            Banco banco1 = bancoCentral.buscarBanco(1);
+            banco1.tentarDeposito(banco1.buscarConta(0), banco1.buscarConta(0), 7_000);
+            SnapshotBancoCentral.compactar(snapshot, wal, registro.getPosicaoDuravel());
+            banco1.tentarSaque(banco1.buscarConta(1), 1_500);
+        }
+        Map<String, String> esperado = estado(bancoCentral, true);
+
+        BancoCentral recuperado = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, snapshot, recuperado, 16).close();
+        assertEquals(esperado, estado(recuperado, true));
+
+        // Com o arquivo de extratos, as operações antigas vão para o disco enquanto o extrato é lido.
+        BancoCentral comSegmento = new BancoCentral();
+        comSegmento.usarArquivoExtratos(diretorio.resolve("extratos"), 2);
+        RegistroTransacoes.recuperar(wal, snapshot, comSegmento, 16).close();
+        assertEquals(esperado, estado(comSegmento, true));
+    }
+
+    @Test
+    void registroCortadoVoltaAUltimaOperacaoConcluida() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        List<Long> posicoes = new ArrayList<>();
+        List<Map<String, String>> estados = new ArrayList<>();
+        posicoes.add(0L);
+        estados.add(estado(bancoCentral, false));
+
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            Runnable marcar = () -> {
+                try {
+                    posicoes.add(Files.size(wal));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                estados.add(estado(bancoCentral, false));
+            };
+            for (int b = 1; b <= BANCOS; b++) {
+                Banco banco = new Banco(b, "Banco " + b);
+                bancoCentral.criarBanco(banco);
+                marcar.run();
+                for (int c = 0; c < CONTAS; c++) {
+                    banco.criarConta(new ContaCorrente(b, c, "Titular " + c, banco.getBancoNome(),
+                            saldoInicial(c), SENHA));
+                    marcar.run();
+                }
+            }
+            movimentar(bancoCentral, marcar);
+        }
+        // O lote grava os débitos, o ciclo de compensação e os créditos em registros separados.
+        long inicioLote = posicoes.get(posicoes.size() - 2);
+        long totalAntesLote = total(estados.get(estados.size() - 2));
+
+        byte[] bytes = Files.readAllBytes(wal);
+        assertEquals(posicoes.get(posicoes.size() - 1), bytes.length);
+        Path cortado = diretorio.resolve("cortado");
+        int op = 0;
+        for (int n = 0; n <= bytes.length; n++) {
+            while (op + 1 < posicoes.size() && posicoes.get(op + 1) <= n) {
+                op++;
+            }
+            Files.write(cortado, Arrays.copyOf(bytes, n));
+            if (n > inicioLote && n < bytes.length) {
+                // No meio do lote, os itens debitados são creditados (ou devolvidos) quando o
+                // registro volta a ser usado e a fila é liquidada: só as taxas saem do sistema.
+                BancoCentral recuperado = recuperarELiquidar(cortado);
+                long diferenca = totalAntesLote - total(estado(recuperado, false));
+                assertEquals(0, diferenca % BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS, "corte no byte " + n);
+                assertEquals(0, recuperado.getQuantidadePendenteCompensacao(), "corte no byte " + n);
+            } else {
+                assertEquals(estados.get(op), estado(recuperar(cortado), false), "corte no byte " + n);
+            }
+        }
+    }
+
+    @Test
+    void transferenciaEntreBancosEhUmUnicoRegistro() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        long antes;
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            criarContas(bancoCentral);
+            antes = Files.size(wal);
+            Banco banco1 = bancoCentral.buscarBanco(1);
+            assertEquals(Resultado.OK, bancoCentral.tentarTransferenciaEntreBancos(
+                    banco1, banco1.buscarConta(0), 5_000, 2, 1));
+        }
+
+        // Sem o registro inteiro, nem o débito nem o crédito são recuperados.
+        byte[] bytes = Files.readAllBytes(wal);
+        Path cortado = diretorio.resolve("cortado");
+        for (long n = antes; n < bytes.length; n++) {
+            Files.write(cortado, Arrays.copyOf(bytes, (int) n));
+            BancoCentral recuperado = recuperar(cortado);
+            assertEquals(SALDO_INICIAL, recuperado.buscarBanco(1).buscarConta(0).getSaldo());
+            assertEquals(SALDO_INICIAL, recuperado.buscarBanco(2).buscarConta(1).getSaldo());
+        }
+        BancoCentral recuperado = recuperar(wal);
+        assertEquals(SALDO_INICIAL - 5_000 - BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS,
+                recuperado.buscarBanco(1).buscarConta(0).getSaldo());
+        assertEquals(SALDO_INICIAL + 5_000, recuperado.buscarBanco(2).buscarConta(1).getSaldo());
+    }
+
+    @Test
+    void senhaNaoFicaEmTextoAberto() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        Path snapshot = diretorio.resolve("snapshot");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            Banco banco = new Banco(1, "Banco 1");
+            bancoCentral.criarBanco(banco);
+            // Números de conta altos, para que número e tipo juntos não pareçam uma senha de 4 dígitos.
+            for (int c = 0; c < 50; c++) {
+                banco.criarConta(new ContaCorrente(1, 1000 + c, "Titular", banco.getBancoNome(),
+                        SALDO_INICIAL, 4321 + c));
+            }
+        }
+
+        SnapshotBancoCentral.compactar(snapshot, wal, Files.size(wal));
+        for (Path arquivo : List.of(wal, snapshot)) {
+            byte[] bytes = Files.readAllBytes(arquivo);
+            for (int i = 0; i + 4 <= bytes.length; i++) {
+                int v = ByteBuffer.wrap(bytes, i, 4).getInt();
+                assertFalse(v >= 4321 && v < 4371, arquivo.getFileName() + ": senha aberta no byte " + i);
+            }
+        }
+
+        BancoCentral doSnapshot = new BancoCentral();
+        SnapshotBancoCentral.carregar(snapshot, doSnapshot);
+        for (BancoCentral recuperado : List.of(recuperar(wal), doSnapshot)) {
+            for (int c = 0; c < 50; c++) {
+                Conta conta = recuperado.buscarBanco(1).buscarConta(1000 + c);
+                assertTrue(conta.verificaSenha(4321 + c));
+                assertFalse(conta.verificaSenha(4320 + c));
+            }
+        }
+    }
+
+    private static long saldoInicial(int conta) {
+        // A última conta de cada banco está perto do limite, para que alguns créditos sejam recusados.
+        return (conta == CONTAS - 1) ? Long.MAX_VALUE - 100 : SALDO_INICIAL;
+    }
+
+    private static void criarContas(BancoCentral bancoCentral) {
+        for (int b = 1; b <= BANCOS; b++) {
+            Banco banco = new Banco(b, "Banco " + b);
+            bancoCentral.criarBanco(banco);
+            for (int c = 0; c < CONTAS; c++) {
+                banco.criarConta(new ContaCorrente(b, c, "Titular " + c, banco.getBancoNome(), saldoInicial(c), SENHA));
+            }
+        }
+    }
+
+    /**
+     * Saques, depósitos, transferências internas e entre bancos, inclusive
+     * recusadas, e um lote entre bancos com créditos devolvidos. O lote grava
+     * vários registros, então só é marcado como uma operação no fim.
+     */
+    private static void movimentar(BancoCentral bancoCentral, Runnable marcar) {
+        Banco banco1 = bancoCentral.buscarBanco(1);
+        Banco banco2 = bancoCentral.buscarBanco(2);
+        for (int k = 0; k < 20; k++) {
+            Banco banco = (k % 2 == 0) ? banco1 : banco2;
+            Conta conta = banco.buscarConta(k % 4);
+            switch (k % 5) {
+                case 0 -> banco.tentarSaque(conta, 1_000 + k);
+                case 1 -> banco.tentarDeposito(conta, conta, 2_000 + k);
+                case 2 -> banco.tentarTransferenciaInterna(conta, banco.buscarConta((k + 1) % 4), 3_000 + k);
+                case 3 -> bancoCentral.tentarTransferenciaEntreBancos(banco, conta, 4_000 + k,
+                        (k % 2 == 0) ? 2 : 1, (k + 2) % 4);
+                default -> bancoCentral.tentarTransferenciaEntreBancos(banco, conta, 500 + k,
+                        (k % 2 == 0) ? 2 : 1, CONTAS - 1);
+            }
+            if (marcar != null) {
+                marcar.run();
+            }
+        }
+
+        LoteTransferencias lote = new LoteTransferencias(10);
+        for (int k = 0; k < 10; k++) {
+            lote.adicionar(1 + k % 2, k % 4, 2 - k % 2, (k % 3 == 0) ? CONTAS - 1 : (k + 2) % 4, 500 + k);
+        }
+        bancoCentral.processarLoteEntreBancos(lote);
+        if (marcar != null) {
+            marcar.run();
+        }
+    }
+
+    private static long total(Map<String, String> estado) {
+        long total = 0;
+        for (Map.Entry<String, String> conta : estado.entrySet()) {
+            if (conta.getKey().contains(":")) {
+                total += Long.parseLong(conta.getValue());
+            }
+        }
+        return total;
+    }
+
+    private static BancoCentral recuperar(Path wal) throws IOException {
+        BancoCentral bancoCentral = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, bancoCentral, 16).close();
+        return bancoCentral;
+    }
+
+    private static BancoCentral recuperarELiquidar(Path wal) throws IOException {
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            bancoCentral.liquidarCompensacao();
+        }
+        return bancoCentral;
+    }
+
+    /**
+     * Saldo (e, se pedido, o extrato) de cada conta existente, por banco e
+     * número da conta. Um banco sem contas também aparece, pelo nome.
+     */
+    private static Map<String, String> estado(BancoCentral bancoCentral, boolean comExtrato) {
+        Map<String, String> estado = new TreeMap<>();
+        for (int b = 1; b <= BANCOS; b++) {
+            Banco banco = bancoCentral.buscarBanco(b);
+            if (banco == null) {
+                continue;
+            }
+            estado.put(b + "", banco.getBancoNome());
+            for (int c = 0; c < CONTAS; c++) {
+                Conta conta = banco.buscarConta(c);
+                if (conta == null) {
+                    continue;
+                }
+                estado.put(b + ":" + c, comExtrato
+                        ? conta.getSaldo() + "\n" + conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto()
+                        : Long.toString(conta.getSaldo()));
+            }
+        }
+        return estado;
+    }
+}
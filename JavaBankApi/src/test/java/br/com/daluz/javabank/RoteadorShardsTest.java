@@ -0,0 +1,181 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Banco Central particionado em dois nós na interface de loopback, cada um
+ * com o seu registro de transações: transferências entre nós pelo
+ * {@link RoteadorShards}, devolução do crédito recusado e reinício dos nós.
+ */
+class RoteadorShardsTest {
+    private static final int SEGREDO = 4_242;
+    private static final int SENHA = 1234;
+    private static final long TAXA = BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS;
+    // O Banco Intelectual fica dividido entre os dois nós.
+    private static final MapaShards MAPA = MapaShards.ler("11=0,12:12100-12199=0,12:12200-12299=1,13=1");
+
+    @TempDir
+    Path diretorio;
+
+    private InputStream entrada;
+
+    @BeforeEach
+    void trocarEntrada() {
+        // O caixa eletrônico fecha a entrada no encerramento; a do processo de teste fica aberta.
+        entrada = System.in;
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+    }
+
+    @AfterEach
+    void restaurarEntrada() {
+        System.setIn(entrada);
+    }
+
+    @Test
+    void mapaDasContas() {
+        assertEquals(0, MAPA.getNo(11, 11101));
+        assertEquals(0, MAPA.getNo(12, 12101));
+        assertEquals(1, MAPA.getNo(12, 12201));
+        assertEquals(1, MAPA.getNo(13, 13101));
+        assertEquals(-1, MAPA.getNo(12, 12300));
+        assertEquals(-1, MAPA.getNo(14, 1));
+        assertTrue(MAPA.contemBanco(12));
+        assertEquals(2, MAPA.getQuantidadeNos());
+        assertEquals(MAPA.toString(), MapaShards.ler(MAPA.toString()).toString());
+    }
+
+    @Test
+    void transferenciasEntreNosSobrevivemAoReinicio() throws IOException {
+        Path[] registros = {diretorio.resolve("no0.wal"), diretorio.resolve("no1.wal")};
+        Map<String, String> antes;
+
+        try (Nos nos = new Nos(registros);
+             RoteadorShards roteador = nos.roteador()) {
+            // Entre bancos de nós diferentes, com taxa; repetida com a mesma chave, não transfere de novo.
+            assertEquals(Resultado.OK, roteador.fazerTransferenciaExterna(1L, 11, 11101, SENHA, 12, 12201, 10_000));
+            assertEquals(Resultado.OK, roteador.fazerTransferenciaExterna(1L, 11, 11101, SENHA, 12, 12201, 10_000));
+            assertEquals(Dinheiro.deReais(5000) - 10_000 - TAXA, roteador.getSaldo());
+            // Entre faixas do mesmo banco, sem taxa.
+            assertEquals(Resultado.OK, roteador.fazerTransferenciaInterna(2L, 12, 12101, SENHA, 12202, 5_000));
+            assertEquals(Dinheiro.deReais(4000) - 5_000, roteador.getSaldo());
+            // Sem chave, uma transferência entre nós é recusada antes de qualquer passo.
+            assertEquals(Resultado.CHAVE_OBRIGATORIA,
+                    roteador.fazerTransferenciaExterna(11, 11101, SENHA, 13, 13101, 1_000));
+            assertEquals(Resultado.CONTA_NAO_ENCONTRADA,
+                    roteador.fazerTransferenciaExterna(3L, 11, 11101, SENHA, 12, 12299, 1_000));
+
+            assertEquals(Resultado.OK, roteador.consultarSaldo(12, 12201, SENHA));
+            assertEquals(Dinheiro.deReais(5500) + 10_000, roteador.getSaldo());
+            assertEquals(Resultado.OK, roteador.consultarExtrato(12, 12201, SENHA));
+            assertTrue(roteador.getExtrato().contains("Cláudio André Mergen Taffarel"), roteador.getExtrato());
+            assertEquals(Resultado.OK, roteador.consultarExtrato(11, 11101, SENHA));
+            assertTrue(roteador.getExtrato().contains("Guglielmo Marconi"), roteador.getExtrato());
+
+            antes = nos.estado();
+        }
+
+        // Pelo snapshot gerado no encerramento e o registro depois dele.
+        try (Nos nos = new Nos(registros)) {
+            assertEquals(antes, nos.estado());
+        }
+        // Só pelo registro de transações.
+        for (Path registro : registros) {
+            Files.delete(registro.resolveSibling(registro.getFileName() + ".snapshot"));
+        }
+        try (Nos nos = new Nos(registros);
+             RoteadorShards roteador = nos.roteador()) {
+            assertEquals(antes, nos.estado());
+
+            // As chaves também são recuperadas: a transferência repetida depois do reinício não é refeita.
+            assertEquals(Resultado.OK, roteador.fazerTransferenciaExterna(1L, 11, 11101, SENHA, 12, 12201, 10_000));
+            assertEquals(antes, nos.estado());
+        }
+    }
+
+    @Test
+    void creditoRecusadoDevolveOValor() throws IOException {
+        Path[] registros = {diretorio.resolve("no0.wal"), diretorio.resolve("no1.wal")};
+        try (Nos nos = new Nos(registros);
+             RoteadorShards roteador = nos.roteador()) {
+            Banco banco = nos.caixas[1].getBancoCentral().buscarBanco(13);
+            banco.criarConta(new ContaCorrente(13, 13999, "Conta Cheia", banco.getBancoNome(),
+                    Long.MAX_VALUE - 100, SENHA));
+
+            assertEquals(Resultado.VALOR_FORA_DO_LIMITE,
+                    roteador.fazerTransferenciaExterna(7L, 11, 11102, SENHA, 13, 13999, 1_000));
+            // Repetida, a transferência não debita nem devolve de novo.
+            assertEquals(Resultado.VALOR_FORA_DO_LIMITE,
+                    roteador.fazerTransferenciaExterna(7L, 11, 11102, SENHA, 13, 13999, 1_000));
+
+            // Só a taxa fica com o banco, como na câmara de compensação.
+            assertEquals(Resultado.OK, roteador.consultarSaldo(11, 11102, SENHA));
+            assertEquals(Dinheiro.deReais(1200) - TAXA, roteador.getSaldo());
+            assertEquals(Long.MAX_VALUE - 100, banco.buscarConta(13999).getSaldo());
+        }
+    }
+
+    /**
+     * Os dois nós, cada um com o seu caixa eletrônico persistente e o seu servidor.
+     */
+    private static final class Nos implements AutoCloseable {
+        final CaixaEletronico24Hs[] caixas = new CaixaEletronico24Hs[2];
+        final ServidorTransacoes[] servidores = new ServidorTransacoes[2];
+
+        Nos(Path[] registros) throws IOException {
+            for (int no = 0; no < 2; no++) {
+                caixas[no] = new CaixaEletronico24Hs(registros[no], MAPA, no);
+                servidores[no] = new ServidorTransacoes(caixas[no].getBancoCentral(),
+                        new InetSocketAddress("127.0.0.1", 0), 2);
+                servidores[no].usarSegredoNos(SEGREDO);
+                servidores[no].iniciar();
+            }
+        }
+
+        RoteadorShards roteador() {
+            return new RoteadorShards(MAPA, List.of(
+                    new InetSocketAddress("127.0.0.1", servidores[0].getPorta()),
+                    new InetSocketAddress("127.0.0.1", servidores[1].getPorta())), SEGREDO);
+        }
+
+        /**
+         * Saldo e extrato de cada conta dos dois nós.
+         */
+        Map<String, String> estado() {
+            Map<String, String> estado = new TreeMap<>();
+            for (CaixaEletronico24Hs caixa : caixas) {
+                for (Banco banco : caixa.getBancoCentral().getBancos()) {
+                    for (int contaNumero : banco.getNumerosDeContas()) {
+                        Conta conta = banco.buscarConta(contaNumero);
+                        estado.put(banco.getBancoNumero() + ":" + contaNumero, conta.getSaldo() + "\n"
+                                + conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto());
+                    }
+                }
+            }
+            return estado;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int no = 0; no < 2; no++) {
+                servidores[no].close();
+                caixas[no].encerrar();
+            }
+        }
+    }
+}
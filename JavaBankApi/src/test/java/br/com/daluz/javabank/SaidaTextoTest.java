@@ -0,0 +1,120 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Extrato impresso pela {@link SaidaTexto}, em páginas e em pedaços: o
+ * resultado é o mesmo, byte a byte, que o das chamadas a println usadas
+ * antes, seja qual for o limite do buffer.
+ */
+class SaidaTextoTest {
+    private static final int LIMITE_PEQUENO = 4096;
+
+    @Test
+    void extratoVazio() {
+        verificarExtrato(novaConta(), "Nenhuma operação realizada neste período.\n");
+    }
+
+    @Test
+    void extratoPequeno() {
+        Banco banco = new Banco(1, "Banco 1");
+        Conta conta = novaConta(banco);
+        banco.tentarDeposito(conta, conta, 5_000);
+        banco.tentarSaque(conta, 1_234);
+        banco.tentarSaque(conta, Long.MAX_VALUE);
+        verificarExtrato(conta, null);
+    }
+
+    @Test
+    void extratoGrandeSaiEmPedacos() {
+        Banco banco = new Banco(1, "Banco 1");
+        Conta conta = novaConta(banco);
+        Conta outra = banco.buscarConta(2);
+        for (int i = 0; i < 20_000; i++) {
+            switch (i % 3) {
+                case 0 -> banco.tentarDeposito(conta, conta, 100 + i);
+                case 1 -> banco.tentarSaque(conta, 50 + i);
+                default -> banco.tentarTransferenciaInterna(conta, outra, 10 + i);
+            }
+        }
+        verificarExtrato(conta, null);
+    }
+
+    @Test
+    void textoMaiorQueOLimiteNaoSePerde() {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        String parte = "0123456789".repeat(1_000);
+        try (SaidaTexto texto = new SaidaTexto(Channels.newChannel(saida), StandardCharsets.UTF_8, 16)) {
+            texto.escrever(parte).linha("ção");
+        }
+        assertEquals(parte + "ção" + System.lineSeparator(), saida.toString(StandardCharsets.UTF_8));
+    }
+
+    private static Conta novaConta() {
+        return novaConta(new Banco(1, "Banco 1"));
+    }
+
+    private static Conta novaConta(Banco banco) {
+        banco.criarConta(new ContaCorrente(1, 1, "Titular da Conta", banco.getBancoNome(), 1_000_000_000, 1234));
+        banco.criarConta(new ContaPoupanca(1, 2, "Outro Titular", banco.getBancoNome(), 0, 1234));
+        return banco.buscarConta(1);
+    }
+
+    /**
+     * Compara o extrato impresso num PrintStream e num canal, com o limite
+     * padrão e com um limite pequeno, com o extrato montado por println.
+     *
+     * @param semOperacoes Linha impressa quando não há operações, ou null se há.
+     */
+    private static void verificarExtrato(Conta conta, String semOperacoes) {
+        byte[] esperado = extratoAntigo(conta, semOperacoes);
+
+        ByteArrayOutputStream impresso = new ByteArrayOutputStream();
+        conta.imprimirExtrato(new PrintStream(impresso, true, StandardCharsets.UTF_8));
+        assertArrayEquals(esperado, impresso.toByteArray(), "PrintStream");
+
+        for (int limite : new int[]{SaidaTexto.LIMITE_PADRAO, LIMITE_PEQUENO}) {
+            ByteArrayOutputStream escrito = new ByteArrayOutputStream();
+            try (SaidaTexto saida = new SaidaTexto(Channels.newChannel(escrito), StandardCharsets.UTF_8, limite)) {
+                conta.imprimirExtrato(saida, Long.MIN_VALUE, Long.MAX_VALUE);
+            }
+            assertArrayEquals(esperado, escrito.toByteArray(), "canal com limite " + limite);
+        }
+    }
+
+    /**
+     * O extrato como era impresso antes, uma linha por println. As operações
+     * vêm da consulta paginada, que não passa pela SaidaTexto.
+     */
+    private static byte[] extratoAntigo(Conta conta, String semOperacoes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream saida = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        String text = "[ " + conta.getBancoNome() + " - Extrato bancário ]";
+        String stars = "#".repeat(text.length() + 22);
+        saida.println("\n" + stars);
+        saida.println("########## " + text + " ##########");
+        saida.println(stars);
+        saida.println(" Banco .............. " + conta.getBancoNumero() + " - " + conta.getBancoNome());
+        saida.println(" Titular ............ " + conta.getTitular());
+        saida.println(" Nº Conta ........... " + conta.getContaNumero());
+        saida.println(" Tipo Conta ......... " + conta.getContaTipoText());
+        saida.println(" Saldo disponível ... " + Utils.toMoney(conta.getSaldo()));
+
+        saida.println("\n------------- [Extrato das operações] -------------");
+        if (semOperacoes != null) {
+            assertEquals(0, conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, 1).getQuantidade());
+            saida.println(semOperacoes);
+        } else {
+            saida.print(conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto());
+        }
+        return bytes.toByteArray();
+    }
+}
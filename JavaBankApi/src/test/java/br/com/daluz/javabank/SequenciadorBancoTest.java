@@ -0,0 +1,173 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Operações pelo sequenciador: os códigos de resultado são os mesmos do
+ * caminho com travas, o registro de transações gravado pelo sequenciador
+ * reproduz os mesmos saldos e extratos, e a chave de idempotência vai para o
+ * registro junto com a operação, gravada pela thread de execução.
+ */
+class SequenciadorBancoTest {
+    private static final int CONTAS = 4;
+    private static final long SALDO_INICIAL = 100_000;
+    private static final int SENHA = 1234;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void mesmosResultadosDoCaminhoComTravas() {
+        BancoCentral comTravas = new BancoCentral();
+        criarContas(comTravas);
+        BancoCentral sequenciado = new BancoCentral();
+        sequenciado.usarSequenciador(8);
+        criarContas(sequenciado);
+        assertNotNull(sequenciado.buscarBanco(1).getSequenciador());
+
+        List<Integer> esperados = operar(comTravas.buscarBanco(1));
+        assertEquals(esperados, operar(sequenciado.buscarBanco(1)));
+        assertEquals(estado(comTravas, false), estado(sequenciado, false));
+
+        // Depósito sem valor positivo é recusado na validação, como no caminho com travas.
+        Banco banco = sequenciado.buscarBanco(1);
+        assertEquals(Resultado.VALOR_INVALIDO, banco.tentarDeposito(banco.buscarConta(0), banco.buscarConta(1), 0));
+        assertEquals(Resultado.VALOR_INVALIDO, banco.tentarDeposito(banco.buscarConta(0), banco.buscarConta(1), -1));
+    }
+
+    @Test
+    void registroDoSequenciadorReproduzSaldosEExtratos() throws IOException, InterruptedException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            bancoCentral.usarSequenciador(16);
+            criarContas(bancoCentral);
+            Banco banco = bancoCentral.buscarBanco(1);
+
+            // Várias threads disputando as mesmas contas: a ordem do registro é a da sequência.
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int deslocamento = t;
+                threads[t] = new Thread(() -> {
+                    for (int k = 0; k < 200; k++) {
+                        Conta conta = banco.buscarConta((k + deslocamento) % CONTAS);
+                        switch (k % 3) {
+                            case 0 -> banco.tentarSaque(conta, 100 + k);
+                            case 1 -> banco.tentarDeposito(conta, banco.buscarConta(k % CONTAS), 50 + k);
+                            default -> banco.tentarTransferenciaInterna(conta,
+                                    banco.buscarConta((k + deslocamento + 1) % CONTAS), 70 + k);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        BancoCentral recuperado = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, recuperado, 16).close();
+        assertEquals(estado(bancoCentral, true), estado(recuperado, true));
+    }
+
+    @Test
+    void chaveVaiParaORegistroComAOperacao() throws IOException {
+        Path wal = diretorio.resolve("wal");
+        BancoCentral bancoCentral = new BancoCentral();
+        try (RegistroTransacoes registro = RegistroTransacoes.recuperar(wal, bancoCentral, 16)) {
+            bancoCentral.usarRegistro(registro);
+            bancoCentral.usarSequenciador(8);
+            criarContas(bancoCentral);
+            Banco banco = bancoCentral.buscarBanco(1);
+            Conta conta = banco.buscarConta(0);
+
+            assertEquals(Resultado.OK, banco.tentarSaque(7L, conta, 1_000));
+            // Sem chave: a thread de execução não pode deixar a chave anterior marcada.
+            assertEquals(Resultado.OK, banco.tentarSaque(conta, 2_000));
+            assertEquals(Resultado.OK, banco.tentarTransferenciaInterna(8L, conta, banco.buscarConta(1), 3_000));
+        }
+
+        BancoCentral recuperado = new BancoCentral();
+        RegistroTransacoes.recuperar(wal, recuperado, 16).close();
+        Banco banco = recuperado.buscarBanco(1);
+        Conta conta = banco.buscarConta(0);
+        assertEquals(Resultado.OK, banco.tentarSaque(7L, conta, 1_000));
+        assertEquals(Resultado.OK, banco.tentarTransferenciaInterna(8L, conta, banco.buscarConta(1), 3_000));
+        assertEquals(Resultado.CHAVE_JA_USADA, banco.tentarSaque(7L, conta, 2_000));
+        assertEquals(SALDO_INICIAL - 6_000, conta.getSaldo());
+        assertEquals(SALDO_INICIAL + 3_000, banco.buscarConta(1).getSaldo());
+        assertEquals(2, recuperado.getIdempotencia().getRepeticoes());
+    }
+
+    /**
+     * Conta 0 e 1 correntes, 2 poupança e 3 perto do limite de saldo, para
+     * que alguns créditos sejam recusados.
+     */
+    private static void criarContas(BancoCentral bancoCentral) {
+        Banco banco = new Banco(1, "Banco 1");
+        bancoCentral.criarBanco(banco);
+        banco.criarConta(new ContaCorrente(1, 0, "Titular 0", banco.getBancoNome(), SALDO_INICIAL, SENHA));
+        banco.criarConta(new ContaCorrente(1, 1, "Titular 1", banco.getBancoNome(), SALDO_INICIAL, SENHA));
+        banco.criarConta(new ContaPoupanca(1, 2, "Titular 2", banco.getBancoNome(), SALDO_INICIAL, SENHA));
+        banco.criarConta(new ContaCorrente(1, 3, "Titular 3", banco.getBancoNome(), Long.MAX_VALUE - 100, SENHA));
+    }
+
+    /**
+     * Saques, depósitos e transferências internas, aceitos e recusados por
+     * cada uma das verificações. Devolve os códigos de resultado, em ordem.
+     */
+    private static List<Integer> operar(Banco banco) {
+        Conta c0 = banco.buscarConta(0);
+        Conta c1 = banco.buscarConta(1);
+        Conta poupanca = banco.buscarConta(2);
+        Conta cheia = banco.buscarConta(3);
+        Conta inexistente = new ContaCorrente(1, 99, "Titular 99", banco.getBancoNome(), SALDO_INICIAL, SENHA);
+
+        List<Integer> resultados = new ArrayList<>();
+        resultados.add(banco.tentarSaque(c0, 1_000));
+        resultados.add(banco.tentarSaque(c0, 0));
+        resultados.add(banco.tentarSaque(c0, -5));
+        resultados.add(banco.tentarSaque(poupanca, SALDO_INICIAL + 1));
+        resultados.add(banco.tentarSaque(poupanca, 10_000));
+        resultados.add(banco.tentarDeposito(c0, c1, 0));
+        resultados.add(banco.tentarDeposito(c0, c1, -1));
+        resultados.add(banco.tentarDeposito(c0, cheia, 1_000));
+        resultados.add(banco.tentarDeposito(c0, c1, 2_000));
+        resultados.add(banco.tentarTransferenciaInterna(c0, c0, 100));
+        resultados.add(banco.tentarTransferenciaInterna(c0, c1, 0));
+        resultados.add(banco.tentarTransferenciaInterna(c0, inexistente, 100));
+        resultados.add(banco.tentarTransferenciaInterna(c0, c1, 10 * SALDO_INICIAL));
+        resultados.add(banco.tentarTransferenciaInterna(c0, cheia, 500));
+        resultados.add(banco.tentarTransferenciaInterna(c1, poupanca, 3_000));
+        return resultados;
+    }
+
+    /**
+     * Saldo (e, se pedido, o extrato) de cada conta, pelo número da conta.
+     * Sem o extrato, vai só a quantidade de operações, que não depende do instante.
+     */
+    private static Map<String, String> estado(BancoCentral bancoCentral, boolean comExtrato) {
+        Map<String, String> estado = new TreeMap<>();
+        Banco banco = bancoCentral.buscarBanco(1);
+        for (int c = 0; c < CONTAS; c++) {
+            Conta conta = banco.buscarConta(c);
+            PaginaExtrato extrato = conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE);
+            estado.put(Integer.toString(c), conta.getSaldo() + "\n"
+                    + (comExtrato ? extrato.getTexto() : Integer.toString(extrato.getQuantidade())));
+        }
+        return estado;
+    }
+}
@@ -0,0 +1,229 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Servidor de transações pela interface de loopback: cada operação do
+ * protocolo, com a resposta de sucesso e os códigos de recusa.
+ */
+class ServidorTransacoesTest {
+    private static final int SEGREDO = 987_654;
+    private static final long TAXA = BancoRef.TAXA_TRANFERENCIA_ENTRE_BANCOS;
+
+    private BancoCentral bancoCentral;
+    private ServidorTransacoes servidor;
+    private ClienteTransacoes cliente;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        bancoCentral = new BancoCentral();
+        Banco banco1 = new Banco(1, "Um");
+        Banco banco2 = new Banco(2, "Dois");
+        bancoCentral.criarBanco(banco1);
+        bancoCentral.criarBanco(banco2);
+        banco1.criarConta(new ContaCorrente(1, 10, "Ana Silva", "Um", 10_000, 1111));
+        banco1.criarConta(new ContaCorrente(1, 11, "Bia Souza", "Um", 10_000, 2222));
+        banco2.criarConta(new ContaPoupanca(2, 20, "Caio Lima", "Dois", 10_000, 3333));
+
+        servidor = new ServidorTransacoes(bancoCentral, new InetSocketAddress("127.0.0.1", 0), 2);
+        servidor.iniciar();
+        cliente = new ClienteTransacoes("127.0.0.1", servidor.getPorta());
+    }
+
+    @AfterEach
+    void encerrar() throws IOException {
+        cliente.close();
+        servidor.close();
+    }
+
+    @Test
+    void operacoesDaConta() throws IOException {
+        assertEquals(Resultado.OK, cliente.consultarSaldo(1, 10, 1111));
+        assertEquals(10_000, cliente.getSaldo());
+
+        assertEquals(Resultado.OK, cliente.fazerSaque(1, 10, 1111, 1_050));
+        assertEquals(8_950, cliente.getSaldo());
+        assertEquals(Resultado.OK, cliente.fazerDeposito(1, 10, 1111, 500));
+        assertEquals(9_450, cliente.getSaldo());
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaInterna(1, 10, 1111, 11, 1_000));
+        assertEquals(8_450, cliente.getSaldo());
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaExterna(1, 10, 1111, 2, 20, 1_000));
+        assertEquals(8_450 - 1_000 - TAXA, cliente.getSaldo());
+
+        assertEquals(11_000, saldo(1, 11));
+        assertEquals(11_000, saldo(2, 20));
+
+        Conta conta = bancoCentral.buscarBanco(1).buscarConta(10);
+        String extrato = conta.consultarExtrato(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE).getTexto();
+        assertEquals(Resultado.OK, cliente.consultarExtrato(1, 10, 1111));
+        assertEquals(extrato, cliente.getExtrato());
+
+        // Por período, uma operação por página, até o cursor chegar ao fim.
+        StringBuilder paginas = new StringBuilder();
+        long cursor = 0;
+        int quantidade = 0;
+        while (cursor != PaginaExtrato.FIM) {
+            assertEquals(Resultado.OK, cliente.consultarExtrato(1, 10, 1111, Long.MIN_VALUE, Long.MAX_VALUE, cursor, 1));
+            paginas.append(cliente.getExtrato());
+            cursor = cliente.getProximoCursor();
+            quantidade++;
+        }
+        assertEquals(extrato, paginas.toString());
+        assertTrue(quantidade >= 4);
+    }
+
+    @Test
+    void operacaoComChaveEhFeitaUmaVez() throws IOException {
+        assertEquals(Resultado.OK, cliente.fazerSaque(42L, 1, 10, 1111, 1_000));
+        assertEquals(Resultado.OK, cliente.fazerSaque(42L, 1, 10, 1111, 1_000));
+        assertEquals(9_000, saldo(1, 10));
+
+        assertEquals(Resultado.OK, cliente.fazerDeposito(43L, 1, 10, 1111, 300));
+        assertEquals(Resultado.OK, cliente.fazerDeposito(43L, 1, 10, 1111, 300));
+        assertEquals(9_300, saldo(1, 10));
+
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaInterna(44L, 1, 10, 1111, 11, 200));
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaInterna(44L, 1, 10, 1111, 11, 200));
+        assertEquals(10_200, saldo(1, 11));
+
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaExterna(45L, 1, 10, 1111, 2, 20, 100));
+        assertEquals(Resultado.OK, cliente.fazerTransferenciaExterna(45L, 1, 10, 1111, 2, 20, 100));
+        assertEquals(10_100, saldo(2, 20));
+        assertEquals(9_300 - 200 - 100 - TAXA, saldo(1, 10));
+    }
+
+    @Test
+    void recusasDaConta() throws IOException {
+        assertEquals(Resultado.SENHA_INCORRETA, cliente.consultarSaldo(1, 10, 1));
+        assertEquals(Resultado.BANCO_NAO_ENCONTRADO, cliente.consultarSaldo(5, 10, 1111));
+        assertEquals(Resultado.CONTA_NAO_ENCONTRADA, cliente.consultarSaldo(1, 99, 1111));
+
+        assertEquals(Resultado.SALDO_INSUFICIENTE, cliente.fazerSaque(1, 10, 1111, 1_000_000));
+        assertEquals(Resultado.VALOR_INVALIDO, cliente.fazerDeposito(1, 10, 1111, -500));
+        assertEquals(Resultado.CONTA_NAO_ENCONTRADA, cliente.fazerTransferenciaInterna(1, 10, 1111, 99, 1_000));
+        assertEquals(Resultado.SALDO_INSUFICIENTE, cliente.fazerTransferenciaInterna(1, 10, 1111, 11, 1_000_000));
+        assertEquals(Resultado.CONTA_NAO_ENCONTRADA, cliente.fazerTransferenciaExterna(1, 10, 1111, 2, 99, 1_000));
+        assertEquals(Resultado.BANCO_NAO_ENCONTRADO, cliente.fazerTransferenciaExterna(1, 10, 1111, 7, 20, 1_000));
+        assertEquals(Resultado.SALDO_INSUFICIENTE, cliente.fazerTransferenciaExterna(1, 10, 1111, 2, 20, 10_000));
+        assertEquals(Resultado.ENTRADA_INCORRETA,
+                cliente.consultarExtrato(1, 10, 1111, Long.MIN_VALUE, Long.MAX_VALUE, 0, 0));
+
+        // Nada foi alterado pelas operações recusadas.
+        assertEquals(10_000, saldo(1, 10));
+        assertEquals(10_000, saldo(1, 11));
+        assertEquals(10_000, saldo(2, 20));
+    }
+
+    @Test
+    void contaBloqueadaDepoisDeSenhasErradas() throws IOException {
+        for (int i = 0; i < LimitadorTentativas.FALHAS_PARA_BLOQUEIO; i++) {
+            assertEquals(Resultado.SENHA_INCORRETA, cliente.fazerSaque(1, 10, 1, 100));
+        }
+        // Bloqueada, a conta é recusada mesmo com a senha certa; as outras continuam acessíveis.
+        assertEquals(Resultado.ACESSO_BLOQUEADO, cliente.consultarSaldo(1, 10, 1111));
+        assertEquals(Resultado.OK, cliente.consultarSaldo(1, 11, 2222));
+        assertEquals(10_000, saldo(1, 10));
+    }
+
+    @Test
+    void operacoesEntreNos() throws IOException {
+        // Sem segredo configurado, as operações entre nós são recusadas.
+        assertEquals(Resultado.SENHA_INCORRETA, cliente.consultarDadosConta(0, 2, 20));
+        servidor.usarSegredoNos(SEGREDO);
+        assertEquals(Resultado.SENHA_INCORRETA, cliente.consultarDadosConta(SEGREDO + 1, 2, 20));
+
+        assertEquals(Resultado.OK, cliente.consultarDadosConta(SEGREDO, 2, 20));
+        assertEquals("Dois", cliente.getBancoNome());
+        assertEquals("Caio Lima", cliente.getTitular());
+        assertEquals(Resultado.CONTA_NAO_ENCONTRADA, cliente.consultarDadosConta(SEGREDO, 2, 99));
+
+        // O débito também exige o segredo, já que o nó não confere a conta destino.
+        assertEquals(Resultado.SENHA_INCORRETA,
+                cliente.fazerDebitoInterbancario(50L, SEGREDO + 1, 1, 10, 1111, 2, 20, 1_000, "Dois", "Caio Lima"));
+        assertEquals(Resultado.OK, cliente.fazerDebitoInterbancario(50L, SEGREDO, 1, 10, 1111, 2, 20, 1_000, "Dois", "Caio Lima"));
+        assertEquals(Resultado.OK, cliente.fazerDebitoInterbancario(50L, SEGREDO, 1, 10, 1111, 2, 20, 1_000, "Dois", "Caio Lima"));
+        assertEquals(10_000 - 1_000 - TAXA, saldo(1, 10));
+        // Entre contas do mesmo banco não há taxa.
+        assertEquals(Resultado.OK, cliente.fazerDebitoInterbancario(51L, SEGREDO, 1, 11, 2222, 1, 10, 500, "Um", "Ana Silva"));
+        assertEquals(9_500, saldo(1, 11));
+        assertEquals(Resultado.CONTA_ORIGEM_IGUAL_DESTINO,
+                cliente.fazerDebitoInterbancario(52L, SEGREDO, 1, 10, 1111, 1, 10, 500, "Um", "Ana Silva"));
+        assertEquals(Resultado.SENHA_INCORRETA,
+                cliente.fazerDebitoInterbancario(53L, SEGREDO, 1, 10, 1, 2, 20, 500, "Dois", "Caio Lima"));
+
+        assertEquals(Resultado.OK, cliente.fazerCreditoInterbancario(60L, SEGREDO, 2, 20, 1, 10, 1_000, "Um", "Ana Silva"));
+        assertEquals(Resultado.OK, cliente.fazerCreditoInterbancario(60L, SEGREDO, 2, 20, 1, 10, 1_000, "Um", "Ana Silva"));
+        assertEquals(11_000, saldo(2, 20));
+        assertEquals(Resultado.VALOR_INVALIDO,
+                cliente.fazerCreditoInterbancario(61L, SEGREDO, 2, 20, 1, 10, 0, "Um", "Ana Silva"));
+        assertEquals(Resultado.SENHA_INCORRETA,
+                cliente.fazerCreditoInterbancario(62L, 1, 2, 20, 1, 10, 1_000, "Um", "Ana Silva"));
+        assertEquals(11_000, saldo(2, 20));
+    }
+
+    @Test
+    void requisicaoMalFormada() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", servidor.getPorta())) {
+            DataOutputStream saida = new DataOutputStream(socket.getOutputStream());
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            // Operação desconhecida.
+            escreverCabecalho(saida, 77, 0x3F);
+            assertEquals(Resultado.ENTRADA_INCORRETA, lerResposta(entrada, 77));
+
+            // Saque sem o valor.
+            escreverCabecalho(saida, 78, Protocolo.SAQUE);
+            assertEquals(Resultado.ENTRADA_INCORRETA, lerResposta(entrada, 78));
+            assertEquals(10_000, saldo(1, 11));
+
+            // A conexão continua aceitando requisições depois das recusas.
+            saida.writeInt(Protocolo.TAMANHO_CABECALHO + 8);
+            saida.writeInt(79);
+            saida.writeByte(Protocolo.SAQUE);
+            saida.writeInt(1);
+            saida.writeInt(11);
+            saida.writeInt(2222);
+            saida.writeLong(100);
+            saida.flush();
+            assertEquals(Resultado.OK, lerResposta(entrada, 79));
+            assertEquals(9_900, entrada.readLong());
+
+            // Um tamanho de requisição impossível fecha a conexão.
+            saida.writeInt(Protocolo.TAMANHO_MAXIMO_REQUISICAO + 1);
+            saida.flush();
+            assertEquals(-1, entrada.read());
+        }
+    }
+
+    private static void escreverCabecalho(DataOutputStream saida, int id, int operacao) throws IOException {
+        saida.writeInt(Protocolo.TAMANHO_CABECALHO);
+        saida.writeInt(id);
+        saida.writeByte(operacao);
+        saida.writeInt(1);
+        saida.writeInt(11);
+        saida.writeInt(2222);
+        saida.flush();
+    }
+
+    private static int lerResposta(DataInputStream entrada, int id) throws IOException {
+        entrada.readInt();
+        assertEquals(id, entrada.readInt());
+        return entrada.readByte();
+    }
+
+    private long saldo(int banco, int conta) {
+        return bancoCentral.buscarBanco(banco).buscarConta(conta).getSaldo();
+    }
+}
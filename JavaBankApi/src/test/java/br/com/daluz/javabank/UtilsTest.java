@@ -0,0 +1,104 @@
+package br.com.daluz.javabank;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Formatação de valores e telas: o resultado é o mesmo, byte a byte, que o
+ * do String.format e das chamadas a println usadas antes.
+ */
+class UtilsTest {
+
+    @Test
+    void toMoneyIgualAoStringFormat() {
+        long[] extremos = {0, 1, -1, 9, 10, 99, 100, 101, -100, -101, 1000,
+                Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long valor : extremos) {
+            assertEquals(formatar(valor), Utils.toMoney(valor));
+        }
+
+        Random aleatorio = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            long valor = (long) (aleatorio.nextDouble() * Math.pow(10, aleatorio.nextInt(19)));
+            valor = aleatorio.nextBoolean() ? valor : -valor;
+            assertEquals(formatar(valor), Utils.toMoney(valor), "valor " + valor);
+        }
+    }
+
+    @Test
+    void toMoneyNoBufferAcrescentaOMesmoTexto() {
+        StringBuilder buffer = new StringBuilder("Saque de ");
+        for (long valor : new long[]{0, -1, 123_456, Long.MIN_VALUE}) {
+            buffer.setLength(9);
+            assertSame(buffer, Utils.toMoney(buffer, valor));
+            assertEquals("Saque de " + formatar(valor), buffer.toString());
+        }
+    }
+
+    @Test
+    void bannerIgualAoDasTresLinhas() {
+        for (String titulo : new String[]{"", "Título", "Banco Bradesco - Extrato bancário"}) {
+            ByteArrayOutputStream esperado = new ByteArrayOutputStream();
+            bannerAntigo(new PrintStream(esperado, true, StandardCharsets.UTF_8), titulo);
+
+            ByteArrayOutputStream saida = new ByteArrayOutputStream();
+            Utils.banner(new PrintStream(saida, true, StandardCharsets.UTF_8), titulo);
+            assertArrayEquals(esperado.toByteArray(), saida.toByteArray(), titulo);
+        }
+    }
+
+    @Test
+    void bannerGuardadoPorTitulo() {
+        assertSame(Utils.textoBanner("Menu da conta"), Utils.textoBanner("Menu da conta"));
+
+        // Acima do limite do cache, o banner continua correto.
+        for (int i = 0; i < 300; i++) {
+            ByteArrayOutputStream esperado = new ByteArrayOutputStream();
+            bannerAntigo(new PrintStream(esperado, true, StandardCharsets.UTF_8), "Título " + i);
+            assertEquals(esperado.toString(StandardCharsets.UTF_8), Utils.textoBanner("Título " + i));
+        }
+    }
+
+    @Test
+    void saldoIgualAoDasLinhasSeparadas() {
+        Conta conta = new ContaPoupanca(12, 12101, "Titular da Conta", "Banco 12", 123_456_789, 1234);
+
+        ByteArrayOutputStream esperado = new ByteArrayOutputStream();
+        PrintStream antigo = new PrintStream(esperado, true, StandardCharsets.UTF_8);
+        bannerAntigo(antigo, conta.getBancoNome() + " - Saldo bancário");
+        antigo.println(" Banco .............. " + conta.getBancoNumero() + " - " + conta.getBancoNome());
+        antigo.println(" Titular ............ " + conta.getTitular());
+        antigo.println(" Nº Conta ........... " + conta.getContaNumero());
+        antigo.println(" Tipo Conta ......... " + conta.getContaTipoText());
+        antigo.println(" Saldo disponível ... " + formatar(conta.getSaldo()));
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        conta.imprimirSaldo(new PrintStream(saida, true, StandardCharsets.UTF_8));
+        assertArrayEquals(esperado.toByteArray(), saida.toByteArray());
+    }
+
+    private static String formatar(long centavos) {
+        return String.format(Locale.US, "R$ %.2f", new BigDecimal(centavos).movePointLeft(2));
+    }
+
+    /**
+     * O banner como era exibido antes do cache, com três println.
+     */
+    private static void bannerAntigo(PrintStream saida, String title) {
+        String text = "[ " + title + " ]";
+        String stars = "#".repeat(text.length() + 22);
+        saida.println("\n" + stars);
+        saida.println("########## " + text + " ##########");
+        saida.println(stars);
+    }
+}